@@ -1,4 +1,5 @@
 import util.DatabaseInitializer;
+import util.SchemaCapabilities;
 
 import java.awt.Font;
 
@@ -41,6 +42,13 @@ public class App {
                 System.out.println("Database already exists. Skipping initialization.");
             }
             
+            // Bring databases created by older versions of schema.sql up to date
+            dbInitializer.migrateDatabase();
+            
+            // Read optional tables/columns once so DAOs don't probe the schema per query
+            SchemaCapabilities.refresh();
+
+            
         } catch (Exception e) {
             System.err.println("Failed to initialize database: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,41 @@
+import service.AttendanceService;
+import service.PostService;
+import util.BlobStore;
+import util.SchemaCapabilities;
+
+import java.sql.SQLException;
+
+/**
+ * Maintenance entry point, run by an administrator against a migrated database rather than by
+ * every client at startup. Corrects denormalized counters that drifted through edits made
+ * outside the application and collects unreferenced blobs; each repair takes the same row locks
+ * as the writers it corrects, so it is safe to run while the application is in use.
+ */
+public class DatabaseMaintenance {
+
+    public static void main(String[] args) {
+        SchemaCapabilities.refresh();
+
+        int repairedPosts = new PostService().repairCommentCounts();
+        report("comment counts", repairedPosts, "posts");
+
+        int repairedRollups = new AttendanceService().repairRollups();
+        report("attendance rollups", repairedRollups, "rows");
+
+        // Drop photos and attachments no post or message has referenced for the grace period
+        try {
+            int deletedBlobs = BlobStore.getInstance().collectGarbage();
+            System.out.println("Deleted " + deletedBlobs + " unreferenced blobs");
+        } catch (SQLException e) {
+            System.err.println("Could not collect unreferenced blobs: " + e.getMessage());
+        }
+    }
+
+    private static void report(String repair, int corrected, String unit) {
+        if (corrected < 0) {
+            System.err.println("Could not repair " + repair + "; see the errors above");
+        } else {
+            System.out.println("Repaired " + repair + " on " + corrected + " " + unit);
+        }
+    }
+}
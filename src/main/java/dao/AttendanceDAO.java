@@ -4,102 +4,87 @@ import model.Attendance;
 import model.Student;
 import util.DatabaseUtil;
 import util.DatabaseImageUtil;
+import util.SchemaCapabilities;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Attendance operations
  */
 public class AttendanceDAO {
     
+    // Full statement for the current schema; the basic one serves databases created before
+    // check-out times and images were added (see SchemaCapabilities)
+    private static final String INSERT_WITH_IMAGES_SQL = "INSERT INTO attendance (student_id, date, status, check_in_time, check_out_time, late_arrival_time, excuse_reason, check_in_image, check_out_image) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (student_id, date) " +
+                "DO UPDATE SET status = EXCLUDED.status, check_in_time = EXCLUDED.check_in_time, " +
+                "check_out_time = EXCLUDED.check_out_time, late_arrival_time = EXCLUDED.late_arrival_time, " +
+                "excuse_reason = EXCLUDED.excuse_reason, " +
+                // Images that were never loaded into the record keep their stored value
+                "check_in_image = CASE WHEN ? THEN EXCLUDED.check_in_image ELSE attendance.check_in_image END, " +
+                "check_out_image = CASE WHEN ? THEN EXCLUDED.check_out_image ELSE attendance.check_out_image END";
+    
+    private static final String INSERT_BASIC_SQL = "INSERT INTO attendance (student_id, date, status, check_in_time, late_arrival_time, excuse_reason) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (student_id, date) " +
+                "DO UPDATE SET status = EXCLUDED.status, check_in_time = EXCLUDED.check_in_time, " +
+                "late_arrival_time = EXCLUDED.late_arrival_time, excuse_reason = EXCLUDED.excuse_reason";
+    
+    // Rollup upserts add the changes made by a write to the stored counts
+    private static final String DAILY_ROLLUP_SQL = "INSERT INTO attendance_daily_rollups AS r " +
+                "(class_id, date, present_count, absent_count, late_count, total_count) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (class_id, date) DO UPDATE SET " +
+                "present_count = r.present_count + EXCLUDED.present_count, absent_count = r.absent_count + EXCLUDED.absent_count, " +
+                "late_count = r.late_count + EXCLUDED.late_count, total_count = r.total_count + EXCLUDED.total_count";
+    
+    private static final String MONTHLY_ROLLUP_SQL = "INSERT INTO attendance_monthly_rollups AS r " +
+                "(student_id, month, present_days, absent_days, late_days, total_days) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (student_id, month) DO UPDATE SET " +
+                "present_days = r.present_days + EXCLUDED.present_days, absent_days = r.absent_days + EXCLUDED.absent_days, " +
+                "late_days = r.late_days + EXCLUDED.late_days, total_days = r.total_days + EXCLUDED.total_days";
+    
+    // Cheap existence checks used by list queries instead of selecting the BYTEA columns
+    private static final String IMAGE_FLAG_COLUMNS = "(a.check_in_image IS NOT NULL) as has_check_in_image, " +
+                "(a.check_out_image IS NOT NULL) as has_check_out_image";
+    
+    /**
+     * Columns read by createAttendanceFromResultSet(ResultSet), without image bytes
+     */
+    private String listColumns() {
+        String columns = "a.id, a.student_id, a.date, a.status, a.check_in_time, a.late_arrival_time, " +
+                    "a.excuse_reason, a.created_at";
+        if (SchemaCapabilities.get().hasAttendanceCheckOutAndImages()) {
+            columns += ", a.check_out_time, " + IMAGE_FLAG_COLUMNS;
+        }
+        return columns;
+    }
+    
     /**
      * Create new attendance record
      */
     public boolean create(Attendance attendance) {
-        // First try with all columns, fallback to basic columns if image columns don't exist
-        String sqlWithImages = "INSERT INTO attendance (student_id, date, status, check_in_time, check_out_time, late_arrival_time, excuse_reason, check_in_image, check_out_image) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                    "ON CONFLICT (student_id, date) " +
-                    "DO UPDATE SET status = EXCLUDED.status, check_in_time = EXCLUDED.check_in_time, " +
-                    "check_out_time = EXCLUDED.check_out_time, late_arrival_time = EXCLUDED.late_arrival_time, " +
-                    "excuse_reason = EXCLUDED.excuse_reason, check_in_image = EXCLUDED.check_in_image, " +
-                    "check_out_image = EXCLUDED.check_out_image";
-        
-        String sqlBasic = "INSERT INTO attendance (student_id, date, status, check_in_time, late_arrival_time, excuse_reason) " +
-                    "VALUES (?, ?, ?, ?, ?, ?) " +
-                    "ON CONFLICT (student_id, date) " +
-                    "DO UPDATE SET status = EXCLUDED.status, check_in_time = EXCLUDED.check_in_time, " +
-                    "late_arrival_time = EXCLUDED.late_arrival_time, excuse_reason = EXCLUDED.excuse_reason";
+        boolean includeImages = SchemaCapabilities.get().hasAttendanceCheckOutAndImages();
+        boolean[] results = new boolean[1];
         
         try (Connection conn = DatabaseUtil.getConnection()) {
-            // Try with all columns first
-            try (PreparedStatement stmt = conn.prepareStatement(sqlWithImages)) {
-                stmt.setInt(1, attendance.getStudentId());
-                stmt.setDate(2, Date.valueOf(attendance.getDate()));
-                stmt.setString(3, attendance.getStatus());
-                
-                if (attendance.getCheckInTime() != null) {
-                    stmt.setTime(4, Time.valueOf(attendance.getCheckInTime()));
-                } else {
-                    stmt.setNull(4, Types.TIME);
-                }
-                
-                if (attendance.getCheckOutTime() != null) {
-                    stmt.setTime(5, Time.valueOf(attendance.getCheckOutTime()));
-                } else {
-                    stmt.setNull(5, Types.TIME);
-                }
-                
-                if (attendance.getLateArrivalTime() != null) {
-                    stmt.setTime(6, Time.valueOf(attendance.getLateArrivalTime()));
-                } else {
-                    stmt.setNull(6, Types.TIME);
-                }
-                
-                stmt.setString(7, attendance.getExcuseReason());
-                
-                // Handle BYTEA image data properly for PostgreSQL
-                DatabaseImageUtil.setBytesParameter(stmt, 8, attendance.getCheckInImage());
-                DatabaseImageUtil.setBytesParameter(stmt, 9, attendance.getCheckOutImage());
-                
-                int rowsAffected = stmt.executeUpdate();
-                return rowsAffected > 0;
-                
+            conn.setAutoCommit(false);
+            try {
+                save(conn, List.of(attendance), includeImages, results);
+                conn.commit();
+                return results[0];
             } catch (SQLException e) {
-                // If image columns don't exist, try with basic columns
-                if (e.getMessage().contains("check_in_image") || e.getMessage().contains("check_out_image") || 
-                    e.getMessage().contains("check_out_time")) {
-                    
-                    System.out.println("Image/checkout columns not found, using basic attendance tracking...");
-                    
-                    try (PreparedStatement stmt = conn.prepareStatement(sqlBasic)) {
-                        stmt.setInt(1, attendance.getStudentId());
-                        stmt.setDate(2, Date.valueOf(attendance.getDate()));
-                        stmt.setString(3, attendance.getStatus());
-                        
-                        if (attendance.getCheckInTime() != null) {
-                            stmt.setTime(4, Time.valueOf(attendance.getCheckInTime()));
-                        } else {
-                            stmt.setNull(4, Types.TIME);
-                        }
-                        
-                        if (attendance.getLateArrivalTime() != null) {
-                            stmt.setTime(5, Time.valueOf(attendance.getLateArrivalTime()));
-                        } else {
-                            stmt.setNull(5, Types.TIME);
-                        }
-                        
-                        stmt.setString(6, attendance.getExcuseReason());
-                        
-                        int rowsAffected = stmt.executeUpdate();
-                        return rowsAffected > 0;
-                    }
-                } else {
-                    throw e;
-                }
+                conn.rollback();
+                throw e;
             }
             
         } catch (SQLException e) {
@@ -108,83 +93,199 @@ public class AttendanceDAO {
         }
     }
     
+    /**
+     * Create or update many attendance records in a single transaction using a JDBC batch.
+     * Returns one flag per input record telling whether that record was saved.
+     */
+    public boolean[] createBatch(List<Attendance> attendanceList) {
+        boolean[] results = new boolean[attendanceList.size()];
+        if (attendanceList.isEmpty()) {
+            return results;
+        }
+        
+        boolean includeImages = SchemaCapabilities.get().hasAttendanceCheckOutAndImages();
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                save(conn, attendanceList, includeImages, results);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error creating attendance records in batch: " + e.getMessage());
+            Arrays.fill(results, false);
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Upsert the records and add the status changes of those saved to the rollups
+     */
+    private void save(Connection conn, List<Attendance> attendanceList, boolean includeImages,
+                      boolean[] results) throws SQLException {
+        List<Integer> studentIds = new ArrayList<>();
+        List<LocalDate> dates = new ArrayList<>();
+        for (Attendance attendance : attendanceList) {
+            studentIds.add(attendance.getStudentId());
+            dates.add(attendance.getDate());
+        }
+        Map<Integer, Integer> classIds = lockStudents(conn, studentIds);
+        Map<Map.Entry<Integer, LocalDate>, String> statuses = findStatuses(conn, studentIds, dates);
+        
+        executeInsertBatch(conn, attendanceList, includeImages, results);
+        
+        RollupDeltas deltas = new RollupDeltas();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i]) {
+                Attendance attendance = attendanceList.get(i);
+                Integer classId = classIds.get(attendance.getStudentId());
+                // Kept up to date so a student listed twice for one day is counted once
+                String previous = statuses.put(Map.entry(attendance.getStudentId(), attendance.getDate()), attendance.getStatus());
+                deltas.add(classId, attendance.getStudentId(), attendance.getDate(), previous, -1);
+                deltas.add(classId, attendance.getStudentId(), attendance.getDate(), attendance.getStatus(), 1);
+            }
+        }
+        deltas.apply(conn);
+    }
+    
+    /**
+     * Run the upsert batch; if a row is rejected, redo the rows one at a time behind
+     * savepoints so the remaining rows are still saved and each failure is reported
+     */
+    private void executeInsertBatch(Connection conn, List<Attendance> attendanceList, boolean includeImages,
+                                    boolean[] results) throws SQLException {
+        String sql = includeImages ? INSERT_WITH_IMAGES_SQL : INSERT_BASIC_SQL;
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Attendance attendance : attendanceList) {
+                bindInsert(stmt, attendance, includeImages);
+                stmt.addBatch();
+            }
+            
+            Savepoint beforeBatch = conn.setSavepoint();
+            try {
+                int[] counts = stmt.executeBatch();
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = i < counts.length
+                            && (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO);
+                }
+                return;
+            } catch (BatchUpdateException e) {
+                System.err.println("Attendance batch rejected, retrying row by row: " + e.getMessage());
+                conn.rollback(beforeBatch); // Keeps the student locks taken by save
+            }
+            
+            for (int i = 0; i < attendanceList.size(); i++) {
+                Attendance attendance = attendanceList.get(i);
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    bindInsert(stmt, attendance, includeImages);
+                    results[i] = stmt.executeUpdate() > 0;
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException rowError) {
+                    conn.rollback(savepoint);
+                    results[i] = false;
+                    System.err.println("Error saving attendance for student " + attendance.getStudentId() + ": " + rowError.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Bind the parameters of INSERT_WITH_IMAGES_SQL or INSERT_BASIC_SQL
+     */
+    private void bindInsert(PreparedStatement stmt, Attendance attendance, boolean includeImages) throws SQLException {
+        int index = 1;
+        stmt.setInt(index++, attendance.getStudentId());
+        stmt.setDate(index++, Date.valueOf(attendance.getDate()));
+        stmt.setString(index++, attendance.getStatus());
+        setTimeOrNull(stmt, index++, attendance.getCheckInTime());
+        if (includeImages) {
+            setTimeOrNull(stmt, index++, attendance.getCheckOutTime());
+        }
+        setTimeOrNull(stmt, index++, attendance.getLateArrivalTime());
+        stmt.setString(index++, attendance.getExcuseReason());
+        
+        if (includeImages) {
+            // Handle BYTEA image data properly for PostgreSQL
+            DatabaseImageUtil.setBytesParameter(stmt, index++, attendance.getCheckInImage());
+            DatabaseImageUtil.setBytesParameter(stmt, index++, attendance.getCheckOutImage());
+            stmt.setBoolean(index++, attendance.isCheckInImageLoaded());
+            stmt.setBoolean(index, attendance.isCheckOutImageLoaded());
+        }
+    }
+    
+    private void setTimeOrNull(PreparedStatement stmt, int index, LocalTime time) throws SQLException {
+        if (time != null) {
+            stmt.setTime(index, Time.valueOf(time));
+        } else {
+            stmt.setNull(index, Types.TIME);
+        }
+    }
+    
     /**
      * Update existing attendance record
      */
     public boolean update(Attendance attendance) {
-        // Try with all columns first, fallback to basic columns if image/checkout columns don't exist
-        String sqlWithImages = "UPDATE attendance SET status = ?, check_in_time = ?, check_out_time = ?, " +
-                    "late_arrival_time = ?, excuse_reason = ?, check_in_image = ?, check_out_image = ? " +
-                    "WHERE id = ?";
-        
-        String sqlBasic = "UPDATE attendance SET status = ?, check_in_time = ?, late_arrival_time = ?, excuse_reason = ? " +
-                    "WHERE id = ?";
+        boolean includeImages = SchemaCapabilities.get().hasAttendanceCheckOutAndImages();
+        String sql = includeImages
+                ? "UPDATE attendance SET status = ?, check_in_time = ?, check_out_time = ?, " +
+                  "late_arrival_time = ?, excuse_reason = ?, " +
+                  "check_in_image = CASE WHEN ? THEN ? ELSE check_in_image END, " +
+                  "check_out_image = CASE WHEN ? THEN ? ELSE check_out_image END " +
+                  "WHERE id = ?"
+                : "UPDATE attendance SET status = ?, check_in_time = ?, late_arrival_time = ?, excuse_reason = ? " +
+                  "WHERE id = ?";
         
         try (Connection conn = DatabaseUtil.getConnection()) {
-            // Try with all columns first
-            try (PreparedStatement stmt = conn.prepareStatement(sqlWithImages)) {
-                stmt.setString(1, attendance.getStatus());
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 
-                if (attendance.getCheckInTime() != null) {
-                    stmt.setTime(2, Time.valueOf(attendance.getCheckInTime()));
-                } else {
-                    stmt.setNull(2, Types.TIME);
+                Map.Entry<Integer, LocalDate> key = findStudentAndDate(conn, attendance.getId());
+                if (key == null) {
+                    conn.rollback();
+                    return false;
                 }
+                Integer classId = lockStudents(conn, List.of(key.getKey())).get(key.getKey());
+                String previous = findStatuses(conn, List.of(key.getKey()), List.of(key.getValue())).get(key);
                 
-                if (attendance.getCheckOutTime() != null) {
-                    stmt.setTime(3, Time.valueOf(attendance.getCheckOutTime()));
-                } else {
-                    stmt.setNull(3, Types.TIME);
+                int index = 1;
+                stmt.setString(index++, attendance.getStatus());
+                setTimeOrNull(stmt, index++, attendance.getCheckInTime());
+                if (includeImages) {
+                    setTimeOrNull(stmt, index++, attendance.getCheckOutTime());
                 }
+                setTimeOrNull(stmt, index++, attendance.getLateArrivalTime());
+                stmt.setString(index++, attendance.getExcuseReason());
                 
-                if (attendance.getLateArrivalTime() != null) {
-                    stmt.setTime(4, Time.valueOf(attendance.getLateArrivalTime()));
-                } else {
-                    stmt.setNull(4, Types.TIME);
+                if (includeImages) {
+                    // Handle BYTEA image data properly for PostgreSQL
+                    stmt.setBoolean(index++, attendance.isCheckInImageLoaded());
+                    DatabaseImageUtil.setBytesParameter(stmt, index++, attendance.getCheckInImage());
+                    stmt.setBoolean(index++, attendance.isCheckOutImageLoaded());
+                    DatabaseImageUtil.setBytesParameter(stmt, index++, attendance.getCheckOutImage());
                 }
                 
-                stmt.setString(5, attendance.getExcuseReason());
-                
-                // Handle BYTEA image data properly for PostgreSQL
-                DatabaseImageUtil.setBytesParameter(stmt, 6, attendance.getCheckInImage());
-                DatabaseImageUtil.setBytesParameter(stmt, 7, attendance.getCheckOutImage());
-                
-                stmt.setInt(8, attendance.getId());
+                stmt.setInt(index, attendance.getId());
                 
                 int rowsAffected = stmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    RollupDeltas deltas = new RollupDeltas();
+                    deltas.add(classId, key.getKey(), key.getValue(), previous, -1);
+                    deltas.add(classId, key.getKey(), key.getValue(), attendance.getStatus(), 1);
+                    deltas.apply(conn);
+                }
+                conn.commit();
                 return rowsAffected > 0;
                 
             } catch (SQLException e) {
-                // If image/checkout columns don't exist, try with basic columns
-                if (e.getMessage().contains("check_in_image") || e.getMessage().contains("check_out_image") || 
-                    e.getMessage().contains("check_out_time")) {
-                    
-                    System.out.println("Image/checkout columns not found, using basic attendance update...");
-                    
-                    try (PreparedStatement stmt = conn.prepareStatement(sqlBasic)) {
-                        stmt.setString(1, attendance.getStatus());
-                        
-                        if (attendance.getCheckInTime() != null) {
-                            stmt.setTime(2, Time.valueOf(attendance.getCheckInTime()));
-                        } else {
-                            stmt.setNull(2, Types.TIME);
-                        }
-                        
-                        if (attendance.getLateArrivalTime() != null) {
-                            stmt.setTime(3, Time.valueOf(attendance.getLateArrivalTime()));
-                        } else {
-                            stmt.setNull(3, Types.TIME);
-                        }
-                        
-                        stmt.setString(4, attendance.getExcuseReason());
-                        stmt.setInt(5, attendance.getId());
-                        
-                        int rowsAffected = stmt.executeUpdate();
-                        return rowsAffected > 0;
-                    }
-                } else {
-                    throw e;
-                }
+                conn.rollback();
+                throw e;
             }
             
         } catch (SQLException e) {
@@ -197,7 +298,7 @@ public class AttendanceDAO {
      * Find attendance by student ID and date
      */
     public Attendance findByStudentAndDate(int studentId, LocalDate date) {
-        String sql = "SELECT a.*, s.name as student_name FROM attendance a " +
+        String sql = "SELECT " + listColumns() + ", s.name as student_name FROM attendance a " +
                     "JOIN students s ON a.student_id = s.id " +
                     "WHERE a.student_id = ? AND a.date = ?";
         
@@ -223,7 +324,7 @@ public class AttendanceDAO {
      * Get attendance records for a specific date
      */
     public List<Attendance> findByDate(LocalDate date) {
-        String sql = "SELECT a.*, s.name as student_name FROM attendance a " +
+        String sql = "SELECT " + listColumns() + ", s.name as student_name FROM attendance a " +
                     "JOIN students s ON a.student_id = s.id " +
                     "WHERE a.date = ? ORDER BY s.name";
         
@@ -250,7 +351,7 @@ public class AttendanceDAO {
      * Get attendance records for a specific student within date range
      */
     public List<Attendance> findByStudentAndDateRange(int studentId, LocalDate startDate, LocalDate endDate) {
-        String sql = "SELECT a.*, s.name as student_name FROM attendance a " +
+        String sql = "SELECT " + listColumns() + ", s.name as student_name FROM attendance a " +
                     "JOIN students s ON a.student_id = s.id " +
                     "WHERE a.student_id = ? AND a.date BETWEEN ? AND ? " +
                     "ORDER BY a.date DESC";
@@ -280,63 +381,36 @@ public class AttendanceDAO {
      * Get attendance records for all students in a class for a specific date
      */
     public List<Attendance> findByClassAndDate(int classId, LocalDate date) {
-        // Try with all columns first, fallback to basic columns if image columns don't exist
-        String sqlWithImages = "SELECT s.id as student_id, s.name as student_name, " +
-                    "a.id as attendance_id, a.date, a.status, a.check_in_time, a.check_out_time, a.late_arrival_time, " +
-                    "a.excuse_reason, a.check_in_image, a.check_out_image, a.created_at " +
-                    "FROM students s " +
-                    "LEFT JOIN attendance a ON s.id = a.student_id AND a.date = ? " +
-                    "WHERE s.class_id = ? ORDER BY s.name";
-        
-        String sqlBasic = "SELECT s.id as student_id, s.name as student_name, " +
-                    "a.id as attendance_id, a.date, a.status, a.check_in_time, a.late_arrival_time, a.excuse_reason, a.created_at " +
-                    "FROM students s " +
-                    "LEFT JOIN attendance a ON s.id = a.student_id AND a.date = ? " +
-                    "WHERE s.class_id = ? ORDER BY s.name";
+        boolean includeImages = SchemaCapabilities.get().hasAttendanceCheckOutAndImages();
+        String sql = includeImages
+                ? "SELECT s.id as student_id, s.name as student_name, " +
+                  "a.id as attendance_id, a.date, a.status, a.check_in_time, a.check_out_time, a.late_arrival_time, " +
+                  "a.excuse_reason, " + IMAGE_FLAG_COLUMNS + ", a.created_at " +
+                  "FROM students s " +
+                  "LEFT JOIN attendance a ON s.id = a.student_id AND a.date = ? " +
+                  "WHERE s.class_id = ? ORDER BY s.name"
+                : "SELECT s.id as student_id, s.name as student_name, " +
+                  "a.id as attendance_id, a.date, a.status, a.check_in_time, a.late_arrival_time, a.excuse_reason, a.created_at " +
+                  "FROM students s " +
+                  "LEFT JOIN attendance a ON s.id = a.student_id AND a.date = ? " +
+                  "WHERE s.class_id = ? ORDER BY s.name";
         
         List<Attendance> attendanceList = new ArrayList<>();
         
-        try (Connection conn = DatabaseUtil.getConnection()) {
-            // Try with all columns first
-            try (PreparedStatement stmt = conn.prepareStatement(sqlWithImages)) {
-                stmt.setDate(1, Date.valueOf(date));
-                stmt.setInt(2, classId);
-                
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    Attendance attendance = createAttendanceFromResultSet(rs, true);
-                    // Ensure date is set for records without attendance data
-                    if (attendance.getDate() == null) {
-                        attendance.setDate(date);
-                    }
-                    attendanceList.add(attendance);
-                }
-                
-            } catch (SQLException e) {
-                // If image/checkout columns don't exist, try with basic columns
-                if (e.getMessage().contains("check_in_image") || e.getMessage().contains("check_out_image") || 
-                    e.getMessage().contains("check_out_time")) {
-                    
-                    System.out.println("Image/checkout columns not found, using basic attendance loading...");
-                    
-                    try (PreparedStatement stmt = conn.prepareStatement(sqlBasic)) {
-                        stmt.setDate(1, Date.valueOf(date));
-                        stmt.setInt(2, classId);
-                        
-                        ResultSet rs = stmt.executeQuery();
-                        while (rs.next()) {
-                            Attendance attendance = createAttendanceFromResultSet(rs, false);
-                            // Ensure date is set for records without attendance data
-                            if (attendance.getDate() == null) {
-                                attendance.setDate(date);
-                            }
-                            attendanceList.add(attendance);
-                        }
-                        
-                    }
-                } else {
-                    throw e;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setDate(1, Date.valueOf(date));
+            stmt.setInt(2, classId);
+            
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Attendance attendance = createAttendanceFromResultSet(rs, includeImages);
+                // Ensure date is set for records without attendance data
+                if (attendance.getDate() == null) {
+                    attendance.setDate(date);
                 }
+                attendanceList.add(attendance);
             }
             
         } catch (SQLException e) {
@@ -379,9 +453,8 @@ public class AttendanceDAO {
                     attendance.setCheckOutTime(checkOutTime.toLocalTime());
                 }
                 
-                // Handle image fields
-                attendance.setCheckInImage(DatabaseImageUtil.getBytesFromResultSet(rs, "check_in_image"));
-                attendance.setCheckOutImage(DatabaseImageUtil.getBytesFromResultSet(rs, "check_out_image"));
+                // Image bytes are fetched on demand; only record whether they exist
+                attendance.setImagesNotLoaded(rs.getBoolean("has_check_in_image"), rs.getBoolean("has_check_out_image"));
             }
             
             Time lateArrivalTime = rs.getTime("late_arrival_time");
@@ -405,6 +478,39 @@ public class AttendanceDAO {
         return attendance;
     }
     
+    /**
+     * Load the check-in and check-out image bytes for one attendance record
+     */
+    public AttendanceImages findImages(int studentId, LocalDate date) {
+        if (!SchemaCapabilities.get().hasAttendanceCheckOutAndImages()) {
+            return new AttendanceImages(null, null);
+        }
+        
+        String sql = "SELECT check_in_image, check_out_image FROM attendance WHERE student_id = ? AND date = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, studentId);
+            stmt.setDate(2, Date.valueOf(date));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new AttendanceImages(
+                        DatabaseImageUtil.getBytesFromResultSet(rs, "check_in_image"),
+                        DatabaseImageUtil.getBytesFromResultSet(rs, "check_out_image")
+                    );
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error loading attendance images: " + e.getMessage());
+            return null;
+        }
+        
+        return new AttendanceImages(null, null);
+    }
+    
     /**
      * Get attendance statistics for a student over a period
      */
@@ -445,18 +551,163 @@ public class AttendanceDAO {
      * Delete attendance record
      */
     public boolean delete(int id) {
-        String sql = "DELETE FROM attendance WHERE id = ?";
+        String sql = "DELETE FROM attendance WHERE id = ? RETURNING student_id, date, status";
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                Map.Entry<Integer, LocalDate> key = findStudentAndDate(conn, id);
+                if (key == null) {
+                    conn.rollback();
+                    return false;
+                }
+                Integer classId = lockStudents(conn, List.of(key.getKey())).get(key.getKey());
+                
+                stmt.setInt(1, id);
+                boolean deleted = false;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        deleted = true;
+                        RollupDeltas deltas = new RollupDeltas();
+                        deltas.add(classId, rs.getInt("student_id"), rs.getDate("date").toLocalDate(), rs.getString("status"), -1);
+                        deltas.apply(conn);
+                    }
+                }
+                conn.commit();
+                return deleted;
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error deleting attendance record: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Get the rolled-up attendance counts of a class on one day, with the class size
+     */
+    public DailyRollup getClassDailyRollup(int classId, LocalDate date) {
+        String sql = "SELECT (SELECT COUNT(*) FROM students WHERE class_id = ?) as class_size, " +
+                    "COALESCE(r.present_count, 0) as present_count, COALESCE(r.absent_count, 0) as absent_count, " +
+                    "COALESCE(r.late_count, 0) as late_count, COALESCE(r.total_count, 0) as total_count " +
+                    "FROM (SELECT 1) one " +
+                    "LEFT JOIN attendance_daily_rollups r ON r.class_id = ? AND r.date = ?";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setInt(1, id);
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            stmt.setInt(1, classId);
+            stmt.setInt(2, classId);
+            stmt.setDate(3, Date.valueOf(date));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new DailyRollup(
+                        rs.getInt("class_size"),
+                        rs.getInt("present_count"),
+                        rs.getInt("absent_count"),
+                        rs.getInt("late_count"),
+                        rs.getInt("total_count")
+                    );
+                }
+            }
             
         } catch (SQLException e) {
-            System.err.println("Error deleting attendance record: " + e.getMessage());
-            return false;
+            System.err.println("Error getting attendance rollup: " + e.getMessage());
+        }
+        
+        return new DailyRollup(0, 0, 0, 0, 0);
+    }
+    
+    /**
+     * Add (sign 1) or remove (sign -1) every attendance record of a student to or from the
+     * daily rollups of a class, e.g. when the student moves class or is deleted. Runs on the
+     * caller's connection, inside the transaction that changes the student.
+     */
+    public void shiftStudentRollups(Connection conn, int studentId, int classId, int sign) throws SQLException {
+        String sql = "INSERT INTO attendance_daily_rollups AS r " +
+                    "(class_id, date, present_count, absent_count, late_count, total_count) " +
+                    "SELECT ?, date, " +
+                    "? * COUNT(*) FILTER (WHERE status = 'PRESENT'), ? * COUNT(*) FILTER (WHERE status = 'ABSENT'), " +
+                    "? * COUNT(*) FILTER (WHERE status = 'LATE'), ? * COUNT(*) " +
+                    "FROM attendance WHERE student_id = ? GROUP BY date " +
+                    "ON CONFLICT (class_id, date) DO UPDATE SET " +
+                    "present_count = r.present_count + EXCLUDED.present_count, absent_count = r.absent_count + EXCLUDED.absent_count, " +
+                    "late_count = r.late_count + EXCLUDED.late_count, total_count = r.total_count + EXCLUDED.total_count";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, classId);
+            for (int i = 2; i <= 5; i++) {
+                stmt.setInt(i, sign);
+            }
+            stmt.setInt(6, studentId);
+            stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Recompute the daily and monthly rollups from the attendance table, correcting counts that
+     * drifted through edits made outside the application. Every student row is locked first,
+     * as each attendance write locks the students it changes, so writes committed while
+     * waiting are counted and later ones wait until the rollups are rewritten; attendance
+     * writes are blocked for the length of the repair. Returns the number of rollup rows
+     * inserted, corrected or removed, or -1 on error.
+     */
+    public int recountRollups() {
+        String dailySql = "INSERT INTO attendance_daily_rollups AS r " +
+                    "(class_id, date, present_count, absent_count, late_count, total_count) " +
+                    "SELECT s.class_id, a.date, " +
+                    "COUNT(*) FILTER (WHERE a.status = 'PRESENT'), COUNT(*) FILTER (WHERE a.status = 'ABSENT'), " +
+                    "COUNT(*) FILTER (WHERE a.status = 'LATE'), COUNT(*) " +
+                    "FROM attendance a JOIN students s ON a.student_id = s.id " +
+                    "WHERE s.class_id IS NOT NULL GROUP BY s.class_id, a.date " +
+                    "ON CONFLICT (class_id, date) DO UPDATE SET " +
+                    "present_count = EXCLUDED.present_count, absent_count = EXCLUDED.absent_count, " +
+                    "late_count = EXCLUDED.late_count, total_count = EXCLUDED.total_count " +
+                    "WHERE (r.present_count, r.absent_count, r.late_count, r.total_count) IS DISTINCT FROM " +
+                    "(EXCLUDED.present_count, EXCLUDED.absent_count, EXCLUDED.late_count, EXCLUDED.total_count)";
+        String dailyOrphansSql = "DELETE FROM attendance_daily_rollups r WHERE NOT EXISTS (" +
+                    "SELECT 1 FROM attendance a JOIN students s ON a.student_id = s.id " +
+                    "WHERE s.class_id = r.class_id AND a.date = r.date)";
+        String monthlySql = "INSERT INTO attendance_monthly_rollups AS r " +
+                    "(student_id, month, present_days, absent_days, late_days, total_days) " +
+                    "SELECT student_id, date_trunc('month', date)::date, " +
+                    "COUNT(*) FILTER (WHERE status = 'PRESENT'), COUNT(*) FILTER (WHERE status = 'ABSENT'), " +
+                    "COUNT(*) FILTER (WHERE status = 'LATE'), COUNT(*) " +
+                    "FROM attendance GROUP BY student_id, date_trunc('month', date) " +
+                    "ON CONFLICT (student_id, month) DO UPDATE SET " +
+                    "present_days = EXCLUDED.present_days, absent_days = EXCLUDED.absent_days, " +
+                    "late_days = EXCLUDED.late_days, total_days = EXCLUDED.total_days " +
+                    "WHERE (r.present_days, r.absent_days, r.late_days, r.total_days) IS DISTINCT FROM " +
+                    "(EXCLUDED.present_days, EXCLUDED.absent_days, EXCLUDED.late_days, EXCLUDED.total_days)";
+        String monthlyOrphansSql = "DELETE FROM attendance_monthly_rollups r WHERE NOT EXISTS (" +
+                    "SELECT 1 FROM attendance a WHERE a.student_id = r.student_id " +
+                    "AND a.date >= r.month AND a.date < r.month + INTERVAL '1 month')";
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeQuery("SELECT id FROM students ORDER BY id FOR NO KEY UPDATE").close();
+                // Separate statements from here on, so they see writes committed while waiting for the locks
+                int corrected = stmt.executeUpdate(dailySql)
+                        + stmt.executeUpdate(dailyOrphansSql)
+                        + stmt.executeUpdate(monthlySql)
+                        + stmt.executeUpdate(monthlyOrphansSql);
+                conn.commit();
+                return corrected;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error recounting attendance rollups: " + e.getMessage());
+            return -1;
         }
     }
     
@@ -494,6 +745,57 @@ public class AttendanceDAO {
         return absentStudents;
     }
     
+    /**
+     * The student and date of an attendance record, or null if there is no such record
+     */
+    private Map.Entry<Integer, LocalDate> findStudentAndDate(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT student_id, date FROM attendance WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Map.entry(rs.getInt("student_id"), rs.getDate("date").toLocalDate()) : null;
+            }
+        }
+    }
+    
+    /**
+     * Lock the students whose attendance is about to be written and return the class of each.
+     * Every attendance write takes these locks before reading the statuses it replaces, so
+     * concurrent writers for one student apply their rollup changes one after the other.
+     */
+    private Map<Integer, Integer> lockStudents(Connection conn, Collection<Integer> studentIds) throws SQLException {
+        Map<Integer, Integer> classIds = new HashMap<>();
+        String sql = "SELECT id, class_id FROM students WHERE id = ANY(?) ORDER BY id FOR NO KEY UPDATE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", studentIds.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    classIds.put(rs.getInt("id"), (Integer) rs.getObject("class_id"));
+                }
+            }
+        }
+        return classIds;
+    }
+    
+    /**
+     * The current status of each student on each date that has a record. Must run after
+     * lockStudents, in its own statement, so it sees writes committed while waiting for the locks.
+     */
+    private Map<Map.Entry<Integer, LocalDate>, String> findStatuses(Connection conn, Collection<Integer> studentIds,
+                                                                    Collection<LocalDate> dates) throws SQLException {
+        Map<Map.Entry<Integer, LocalDate>, String> statuses = new HashMap<>();
+        String sql = "SELECT student_id, date, status FROM attendance WHERE student_id = ANY(?) AND date = ANY(?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", studentIds.toArray()));
+            stmt.setArray(2, conn.createArrayOf("date", dates.stream().map(Date::valueOf).toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    statuses.put(Map.entry(rs.getInt("student_id"), rs.getDate("date").toLocalDate()), rs.getString("status"));
+                }
+            }
+        }
+        return statuses;
+    }
+    
     /**
      * Create Attendance object from ResultSet
      * This method assumes all required attendance fields are present in the ResultSet
@@ -510,14 +812,13 @@ public class AttendanceDAO {
             attendance.setCheckInTime(checkInTime.toLocalTime());
         }
         
-        // Handle checkout time (might not exist in older schema)
-        try {
+        // Checkout time and images don't exist in older schema
+        boolean includeImages = SchemaCapabilities.get().hasAttendanceCheckOutAndImages();
+        if (includeImages) {
             Time checkOutTime = rs.getTime("check_out_time");
             if (checkOutTime != null) {
                 attendance.setCheckOutTime(checkOutTime.toLocalTime());
             }
-        } catch (SQLException e) {
-            // Column doesn't exist, skip
         }
         
         Time lateArrivalTime = rs.getTime("late_arrival_time");
@@ -528,23 +829,9 @@ public class AttendanceDAO {
         attendance.setExcuseReason(rs.getString("excuse_reason"));
         attendance.setStudentName(rs.getString("student_name"));
         
-        // Handle image data (might not exist in older schema)
-        try {
-            byte[] checkInImage = DatabaseImageUtil.getBytesFromResultSet(rs, "check_in_image");
-            if (checkInImage != null) {
-                attendance.setCheckInImage(checkInImage);
-            }
-        } catch (SQLException e) {
-            // Column doesn't exist, skip
-        }
-        
-        try {
-            byte[] checkOutImage = DatabaseImageUtil.getBytesFromResultSet(rs, "check_out_image");
-            if (checkOutImage != null) {
-                attendance.setCheckOutImage(checkOutImage);
-            }
-        } catch (SQLException e) {
-            // Column doesn't exist, skip
+        if (includeImages) {
+            // Image bytes are fetched on demand; only record whether they exist
+            attendance.setImagesNotLoaded(rs.getBoolean("has_check_in_image"), rs.getBoolean("has_check_out_image"));
         }
         
         Timestamp createdAt = rs.getTimestamp("created_at");
@@ -555,6 +842,94 @@ public class AttendanceDAO {
         return attendance;
     }
     
+    /**
+     * Changes to the rollup counts made by one transaction, summed per class and day and per
+     * student and month, and written with one batched upsert per table
+     */
+    private static class RollupDeltas {
+        // Counts are present, absent, late, total
+        private final Map<Map.Entry<Integer, LocalDate>, int[]> daily = new LinkedHashMap<>();
+        private final Map<Map.Entry<Integer, LocalDate>, int[]> monthly = new LinkedHashMap<>();
+        
+        /**
+         * Count (sign 1) or uncount (sign -1) a record; a null status is no record
+         */
+        void add(Integer classId, int studentId, LocalDate date, String status, int sign) {
+            int column;
+            if ("PRESENT".equals(status)) {
+                column = 0;
+            } else if ("ABSENT".equals(status)) {
+                column = 1;
+            } else if ("LATE".equals(status)) {
+                column = 2;
+            } else {
+                return;
+            }
+            
+            if (classId != null) {
+                int[] counts = daily.computeIfAbsent(Map.entry(classId, date), k -> new int[4]);
+                counts[column] += sign;
+                counts[3] += sign;
+            }
+            int[] counts = monthly.computeIfAbsent(Map.entry(studentId, date.withDayOfMonth(1)), k -> new int[4]);
+            counts[column] += sign;
+            counts[3] += sign;
+        }
+        
+        void apply(Connection conn) throws SQLException {
+            write(conn, DAILY_ROLLUP_SQL, daily);
+            write(conn, MONTHLY_ROLLUP_SQL, monthly);
+        }
+        
+        private static void write(Connection conn, String sql, Map<Map.Entry<Integer, LocalDate>, int[]> deltas) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                boolean batched = false;
+                for (Map.Entry<Map.Entry<Integer, LocalDate>, int[]> entry : deltas.entrySet()) {
+                    int[] counts = entry.getValue();
+                    if (counts[0] == 0 && counts[1] == 0 && counts[2] == 0 && counts[3] == 0) {
+                        continue; // Status unchanged
+                    }
+                    stmt.setInt(1, entry.getKey().getKey());
+                    stmt.setDate(2, Date.valueOf(entry.getKey().getValue()));
+                    for (int i = 0; i < counts.length; i++) {
+                        stmt.setInt(3 + i, counts[i]);
+                    }
+                    stmt.addBatch();
+                    batched = true;
+                }
+                if (batched) {
+                    stmt.executeBatch();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Rolled-up attendance of a class on one day. Total is the number of students with a
+     * record; class size is the number of students currently in the class.
+     */
+    public static class DailyRollup {
+        private final int classSize;
+        private final int presentCount;
+        private final int absentCount;
+        private final int lateCount;
+        private final int totalCount;
+        
+        public DailyRollup(int classSize, int presentCount, int absentCount, int lateCount, int totalCount) {
+            this.classSize = classSize;
+            this.presentCount = presentCount;
+            this.absentCount = absentCount;
+            this.lateCount = lateCount;
+            this.totalCount = totalCount;
+        }
+        
+        public int getClassSize() { return classSize; }
+        public int getPresentCount() { return presentCount; }
+        public int getAbsentCount() { return absentCount; }
+        public int getLateCount() { return lateCount; }
+        public int getTotalCount() { return totalCount; }
+    }
+    
     /**
      * Inner class for attendance statistics
      */
@@ -584,4 +959,24 @@ public class AttendanceDAO {
             return totalDays > 0 ? (double) lateDays / totalDays * 100 : 0;
         }
     }
+    
+    /**
+     * Inner class holding the image bytes of one attendance record
+     */
+    public static class AttendanceImages {
+        private final byte[] checkInImage;
+        private final byte[] checkOutImage;
+        
+        public AttendanceImages(byte[] checkInImage, byte[] checkOutImage) {
+            this.checkInImage = checkInImage;
+            this.checkOutImage = checkOutImage;
+        }
+        
+        public byte[] getCheckInImage() { return checkInImage; }
+        public byte[] getCheckOutImage() { return checkOutImage; }
+        
+        public long getSizeInBytes() {
+            return (checkInImage != null ? checkInImage.length : 0) + (checkOutImage != null ? checkOutImage.length : 0);
+        }
+    }
 }
@@ -2,12 +2,118 @@ package dao;
 
 import util.DatabaseUtil;
 import java.sql.*;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * DAO for authorization-related database queries
  */
 public class AuthorizationDAO {
     
+    // getPostClassId result when the lookup itself failed, as opposed to a post without a class
+    public static final int LOOKUP_FAILED = -2;
+    
+    // Bumped by every DAO write that changes which classes or students a user can reach
+    private static final AtomicLong assignmentsVersion = new AtomicLong();
+    
+    /**
+     * Mark cached access scopes as stale, e.g. after a teacher is assigned to a class
+     * or a parent is linked to a student
+     */
+    public static void invalidateAccessScopes() {
+        assignmentsVersion.incrementAndGet();
+    }
+    
+    /**
+     * Current assignments version; a scope loaded at an older version is stale
+     */
+    public static long getAssignmentsVersion() {
+        return assignmentsVersion.get();
+    }
+    
+    /**
+     * Load every class and student a user can access in one query:
+     * the school's classes for a principal, the assigned classes for a teacher,
+     * and the children (and their classes) for a parent.
+     * Returns null if the query fails.
+     */
+    public AccessScope getAccessScope(int userId, String role, int schoolId) {
+        String sql;
+        int param;
+        switch (role) {
+            case "PRINCIPAL":
+                sql = "SELECT c.id AS class_id, s.id AS student_id FROM classes c " +
+                      "LEFT JOIN students s ON s.class_id = c.id WHERE c.school_id = ?";
+                param = schoolId;
+                break;
+            case "TEACHER":
+                sql = "SELECT c.id AS class_id, s.id AS student_id FROM classes c " +
+                      "LEFT JOIN students s ON s.class_id = c.id WHERE c.teacher_id = ?";
+                param = userId;
+                break;
+            case "PARENT":
+                sql = "SELECT s.class_id, s.id AS student_id FROM students s " +
+                      "JOIN parents p ON s.id = p.student_id WHERE p.user_id = ?";
+                param = userId;
+                break;
+            default:
+                return new AccessScope(Collections.emptySet(), Collections.emptySet());
+        }
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, param);
+            
+            Set<Integer> classIds = new HashSet<>();
+            Set<Integer> studentIds = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int classId = rs.getInt("class_id");
+                    if (!rs.wasNull()) {
+                        classIds.add(classId);
+                    }
+                    int studentId = rs.getInt("student_id");
+                    if (!rs.wasNull()) {
+                        studentIds.add(studentId);
+                    }
+                }
+            }
+            return new AccessScope(classIds, studentIds);
+            
+        } catch (SQLException e) {
+            System.err.println("Error loading access scope: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Get the class ID of a post, or -1 if not found or not tied to a class,
+     * or LOOKUP_FAILED if it could not be read
+     */
+    public int getPostClassId(int postId) {
+        String sql = "SELECT class_id FROM posts WHERE id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, postId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    int classId = rs.getInt("class_id");
+                    return rs.wasNull() ? -1 : classId;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting post class ID: " + e.getMessage());
+            return LOOKUP_FAILED;
+        }
+        return -1;
+    }
+    
     /**
      * Get school ID for a given class
      */
@@ -243,4 +349,20 @@ public class AuthorizationDAO {
         }
         return false;
     }
+    
+    /**
+     * Classes and students a user can access
+     */
+    public static class AccessScope {
+        private final Set<Integer> classIds;
+        private final Set<Integer> studentIds;
+        
+        public AccessScope(Set<Integer> classIds, Set<Integer> studentIds) {
+            this.classIds = Collections.unmodifiableSet(classIds);
+            this.studentIds = Collections.unmodifiableSet(studentIds);
+        }
+        
+        public Set<Integer> getClassIds() { return classIds; }
+        public Set<Integer> getStudentIds() { return studentIds; }
+    }
 }
@@ -0,0 +1,202 @@
+package dao;
+
+import util.DatabaseImageUtil;
+import util.DatabaseUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the blobs table: content-addressed photos and attachments with
+ * reference counts. Writes take the caller's connection so they join the transaction of the
+ * row that references the blob. Used through util.BlobStore rather than directly.
+ */
+public class BlobDAO {
+
+    /**
+     * Take a reference to an existing blob. Returns false if there is no blob with this hash,
+     * in which case the caller inserts it.
+     */
+    public boolean acquire(Connection conn, String hash) throws SQLException {
+        String sql = "UPDATE blobs SET ref_count = ref_count + 1, released_at = NULL WHERE hash = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, hash);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Insert a new blob holding one reference. If another writer inserted the same content
+     * first, take a reference to theirs instead. Returns true if this call created the row.
+     */
+    public boolean insert(Connection conn, String hash, long size) throws SQLException {
+        String sql = """
+            INSERT INTO blobs (hash, size, ref_count) VALUES (?, ?, 1)
+            ON CONFLICT (hash) DO UPDATE SET ref_count = blobs.ref_count + 1, released_at = NULL
+            RETURNING (xmax = 0) AS inserted
+        """;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, hash);
+            stmt.setLong(2, size);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean("inserted");
+            }
+        }
+    }
+
+    /**
+     * Drop one reference. A blob whose count reaches zero is kept until the grace period of
+     * {@link #deleteUnreferenced} has passed, so a concurrent writer can still take it up.
+     */
+    public void release(Connection conn, String hash) throws SQLException {
+        String sql = """
+            UPDATE blobs
+            SET ref_count = GREATEST(ref_count - 1, 0),
+                released_at = CASE WHEN ref_count <= 1 THEN CURRENT_TIMESTAMP ELSE released_at END
+            WHERE hash = ?
+        """;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, hash);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Store the content of a blob in its row (database backend), streamed from the input
+     */
+    public void writeData(Connection conn, String hash, InputStream data, long size) throws SQLException {
+        String sql = "UPDATE blobs SET data = ? WHERE hash = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            DatabaseImageUtil.setStreamParameter(stmt, 1, data, size);
+            stmt.setString(2, hash);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Get the content of a blob held in the database, or null if it is not held there
+     */
+    public byte[] readData(String hash) {
+        String sql = "SELECT data FROM blobs WHERE hash = ? AND data IS NOT NULL";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, hash);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBytes("data");
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error reading blob: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Stream the content of a blob held in the database to an OutputStream.
+     * Returns false if it is not held there.
+     */
+    public boolean copyData(String hash, OutputStream out) throws IOException {
+        String sql = "SELECT data FROM blobs WHERE hash = ? AND data IS NOT NULL";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, hash);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && DatabaseImageUtil.copyToStream(rs, "data", out) >= 0;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error reading blob: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Recompute every reference count from the columns that hold blob hashes, correcting
+     * counts left behind by cascaded deletes or edits made outside the application. Stores and
+     * releases update the blob row in the transaction of the row that references it, so its
+     * row lock orders them with the recount. A blob whose count reaches zero here gets a
+     * released_at, so garbage collection waits out the grace period before deleting it.
+     * Returns the number corrected.
+     */
+    public int recountReferences() throws SQLException {
+        String driftedSql = """
+            SELECT b.hash FROM blobs b
+            WHERE b.ref_count <> (SELECT COUNT(*) FROM posts p WHERE p.photo_hash = b.hash)
+                                 + (SELECT COUNT(*) FROM chat_messages cm WHERE cm.attachment_hash = b.hash)
+        """;
+        String lockSql = "SELECT hash FROM blobs WHERE hash = ? FOR NO KEY UPDATE";
+        String updateSql = """
+            UPDATE blobs b
+            SET ref_count = counted.refs,
+                released_at = CASE WHEN counted.refs = 0 THEN COALESCE(b.released_at, CURRENT_TIMESTAMP) END
+            FROM (
+                SELECT (SELECT COUNT(*) FROM posts p WHERE p.photo_hash = ?)
+                       + (SELECT COUNT(*) FROM chat_messages cm WHERE cm.attachment_hash = ?) AS refs
+            ) counted
+            WHERE b.hash = ? AND b.ref_count <> counted.refs
+        """;
+
+        return DriftRepair.correct(driftedSql, lockSql, updateSql);
+    }
+
+    /**
+     * Hold a lock on the content of one hash until the caller's transaction ends. Writing the
+     * content of a new blob and deleting the content of a collected one both take it, so a
+     * deletion can never remove content that a concurrent store has just taken up again.
+     */
+    public void lockContent(Connection conn, String hash) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+            stmt.setLong(1, Long.parseUnsignedLong(hash.substring(0, 16), 16));
+            stmt.executeQuery().close();
+        }
+    }
+
+    /**
+     * Whether a blob row exists for the hash, as seen by the caller's transaction
+     */
+    public boolean exists(Connection conn, String hash) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM blobs WHERE hash = ?")) {
+            stmt.setString(1, hash);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Delete blobs that have been unreferenced for longer than the grace period and return
+     * their hashes. Runs on the caller's connection; until it commits, the deleted rows stay
+     * locked, so a writer storing the same content waits and then inserts it afresh.
+     * Content kept outside the rows is removed after the commit, under {@link #lockContent}.
+     */
+    public List<String> deleteUnreferenced(Connection conn, int graceHours) throws SQLException {
+        String sql = """
+            DELETE FROM blobs
+            WHERE ref_count = 0 AND released_at < CURRENT_TIMESTAMP - make_interval(hours => ?)
+            RETURNING hash
+        """;
+        List<String> hashes = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, graceHours);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    hashes.add(rs.getString("hash"));
+                }
+            }
+        }
+        return hashes;
+    }
+}
@@ -1,10 +1,18 @@
 package dao;
 
 import model.ChatMessage;
+import util.BlobStore;
+import util.ChatNotificationListener;
 import util.DatabaseUtil;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -12,51 +20,136 @@ import java.util.List;
  */
 public class ChatMessageDAO {
     
+    // Message list columns: everything except the attachment bytes, which are fetched on download
+    private static final String PAGE_COLUMNS = """
+            cm.id, cm.conversation_id, cm.sender_id, cm.content,
+                   (cm.attachment_hash IS NOT NULL) as has_attachment, cm.attachment_filename, cm.attachment_mime_type,
+                   cm.is_read, cm.sent_at, cm.read_at,
+                   CASE 
+                       WHEN u.role = 'PARENT' THEN COALESCE(
+                           (SELECT p.name FROM parents p WHERE p.user_id = u.id LIMIT 1), 
+                           u.username
+                       )
+                       ELSE u.username
+                   END as sender_name, u.role as sender_role
+            """;
+    
+    // Walks idx_chat_messages_keyset (conversation_id, sent_at, id) in either direction
+    private static final String PAGE_FROM = """
+            FROM chat_messages cm
+            JOIN users u ON cm.sender_id = u.id
+            WHERE cm.conversation_id = ?""";
+    
+    /**
+     * Takes the blob store reference for a message's attachment inside the send transaction
+     */
+    @FunctionalInterface
+    private interface AttachmentWriter {
+        String store(Connection conn) throws SQLException, IOException;
+    }
+    
     /**
-     * Send a new chat message
+     * Send a new chat message, with the attachment (if any) taken from the message's bytes
      */
     public boolean sendMessage(ChatMessage message) {
+        return sendMessage(message, conn -> BlobStore.getInstance().store(conn, message.getAttachment()));
+    }
+    
+    /**
+     * Send a new chat message whose attachment is streamed from a file into the blob store,
+     * so sending a file never holds it on the heap. The message's own attachment bytes are
+     * ignored; pass a null file for a message without an attachment.
+     */
+    public boolean sendMessage(ChatMessage message, Path attachmentFile) {
+        return sendMessage(message, conn -> attachmentFile != null ? BlobStore.getInstance().store(conn, attachmentFile) : null);
+    }
+    
+    private boolean sendMessage(ChatMessage message, AttachmentWriter attachment) {
         String query = """
-            INSERT INTO chat_messages (conversation_id, sender_id, content, attachment, 
-                                     attachment_filename, attachment_mime_type, sent_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?)
+            INSERT INTO chat_messages (conversation_id, sender_id, content, attachment_hash, 
+                                     attachment_filename, attachment_mime_type)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+        // The recipient's counter goes up; the sender's own counter is unchanged
+        String incrementUnread = """
+            UPDATE conversations
+            SET participant1_unread = participant1_unread + CASE WHEN participant1_id = ? THEN 0 ELSE 1 END,
+                participant2_unread = participant2_unread + CASE WHEN participant2_id = ? THEN 0 ELSE 1 END
+            WHERE id = ?
             """;
             
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setInt(1, message.getConversationId());
-            stmt.setInt(2, message.getSenderId());
-            stmt.setString(3, message.getContent());
-            stmt.setBytes(4, message.getAttachment());
-            stmt.setString(5, message.getAttachmentFilename());
-            stmt.setString(6, message.getAttachmentMimeType());
-            stmt.setTimestamp(7, Timestamp.valueOf(message.getSentAt()));
-            
-            int rowsAffected = stmt.executeUpdate();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
             
-            if (rowsAffected > 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(query, new String[] {"id", "sent_at"});
+                 PreparedStatement unreadStmt = conn.prepareStatement(incrementUnread)) {
+                
+                stmt.setInt(1, message.getConversationId());
+                stmt.setInt(2, message.getSenderId());
+                stmt.setString(3, message.getContent());
+                stmt.setString(4, attachment.store(conn)); // Forwarded files are stored once
+                stmt.setString(5, message.getAttachmentFilename());
+                stmt.setString(6, message.getAttachmentMimeType());
+                
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                
                 ResultSet generatedKeys = stmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
                     message.setId(generatedKeys.getInt(1));
+                    // Stamped by the server, so history order never depends on the sender's clock
+                    message.setSentAt(generatedKeys.getTimestamp(2).toLocalDateTime());
                 }
-                return true;
+                
+                unreadStmt.setInt(1, message.getSenderId());
+                unreadStmt.setInt(2, message.getSenderId());
+                unreadStmt.setInt(3, message.getConversationId());
+                unreadStmt.executeUpdate();
+                
+                conn.commit();
+                
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
             }
             
-        } catch (SQLException e) {
+            // Outside the transaction, so a failed notify cannot undo the send
+            conn.setAutoCommit(true);
+            if (message.getId() > 0) {
+                notifyNewMessage(conn, message);
+            }
+            return true;
+            
+        } catch (SQLException | IOException e) {
             e.printStackTrace();
         }
         
         return false;
     }
     
+    /**
+     * Tell listeners on the conversation's channel about a new message.
+     * Failure only delays delivery until the next refresh, so it does not fail the send.
+     */
+    private void notifyNewMessage(Connection conn, ChatMessage message) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            stmt.setString(1, ChatNotificationListener.channelFor(message.getConversationId()));
+            stmt.setString(2, String.valueOf(message.getId()));
+            stmt.executeQuery();
+        } catch (SQLException e) {
+            System.err.println("Error sending chat notification: " + e.getMessage());
+        }
+    }
+    
     /**
      * Get all messages in a conversation
      */
     public List<ChatMessage> getConversationMessages(int conversationId) {
         String query = """
             SELECT cm.id, cm.conversation_id, cm.sender_id, cm.content, 
-                   cm.attachment, cm.attachment_filename, cm.attachment_mime_type,
+                   (cm.attachment_hash IS NOT NULL) as has_attachment, cm.attachment_filename, cm.attachment_mime_type,
                    cm.is_read, cm.sent_at, cm.read_at,
                    CASE 
                        WHEN u.role = 'PARENT' THEN COALESCE(
@@ -80,7 +173,7 @@ public class ChatMessageDAO {
             
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                messages.add(mapResultSetToChatMessage(rs));
+                messages.add(mapPageRow(rs));
             }
             
         } catch (SQLException e) {
@@ -94,39 +187,38 @@ public class ChatMessageDAO {
      * Get recent messages in a conversation (limited count)
      */
     public List<ChatMessage> getRecentMessages(int conversationId, int limit) {
-        String query = """
-            SELECT cm.id, cm.conversation_id, cm.sender_id, cm.content, 
-                   cm.attachment, cm.attachment_filename, cm.attachment_mime_type,
-                   cm.is_read, cm.sent_at, cm.read_at,
-                   CASE 
-                       WHEN u.role = 'PARENT' THEN COALESCE(
-                           (SELECT p.name FROM parents p WHERE p.user_id = u.id LIMIT 1), 
-                           u.username
-                       )
-                       ELSE u.username
-                   END as sender_name, u.role as sender_role
-            FROM chat_messages cm
-            JOIN users u ON cm.sender_id = u.id
-            WHERE cm.conversation_id = ?
-            ORDER BY cm.sent_at DESC
-            LIMIT ?
-            """;
+        return getMessagesBefore(conversationId, null, 0, limit);
+    }
+    
+    /**
+     * Get up to {@code limit} messages older than the (sentAt, id) cursor, in chronological order.
+     * A null cursor returns the latest page. Attachment bytes are not loaded.
+     */
+    public List<ChatMessage> getMessagesBefore(int conversationId, LocalDateTime beforeSentAt, int beforeId, int limit) {
+        String query = "SELECT " + PAGE_COLUMNS + PAGE_FROM
+            + (beforeSentAt != null ? " AND (cm.sent_at, cm.id) < (?, ?)" : "")
+            + " ORDER BY cm.sent_at DESC, cm.id DESC LIMIT ?";
             
         List<ChatMessage> messages = new ArrayList<>();
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setInt(1, conversationId);
-            stmt.setInt(2, limit);
+            int index = 1;
+            stmt.setInt(index++, conversationId);
+            if (beforeSentAt != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(beforeSentAt));
+                stmt.setInt(index++, beforeId);
+            }
+            stmt.setInt(index, limit);
             
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                messages.add(mapResultSetToChatMessage(rs));
+                messages.add(mapPageRow(rs));
             }
             
-            // Reverse to get chronological order
-            messages.sort((m1, m2) -> m1.getSentAt().compareTo(m2.getSentAt()));
+            // Fetched newest first; reverse to get chronological order
+            Collections.reverse(messages);
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -136,22 +228,113 @@ public class ChatMessageDAO {
     }
     
     /**
-     * Mark messages as read
+     * Get the messages of a conversation with the given ids (e.g. those announced by a
+     * notification), in chronological order. Ids of other conversations are ignored.
+     * Attachment bytes are not loaded.
+     */
+    public List<ChatMessage> getMessagesByIds(int conversationId, Collection<Integer> messageIds) {
+        String query = "SELECT " + PAGE_COLUMNS + PAGE_FROM
+            + " AND cm.id = ANY(?)"
+            + " ORDER BY cm.sent_at ASC, cm.id ASC";
+            
+        List<ChatMessage> messages = new ArrayList<>();
+        if (messageIds.isEmpty()) {
+            return messages;
+        }
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, conversationId);
+            stmt.setArray(2, conn.createArrayOf("integer", messageIds.toArray()));
+            
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                messages.add(mapPageRow(rs));
+            }
+            
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        
+        return messages;
+    }
+    
+    /**
+     * Get the attachment bytes of a message, or null if it has none
+     */
+    public byte[] getAttachment(int messageId) {
+        return BlobStore.getInstance().read(getAttachmentHash(messageId));
+    }
+    
+    /**
+     * Stream the attachment of a message to an OutputStream (e.g. a file being saved) without
+     * holding it on the heap as one array. Returns false if the message has no attachment.
+     */
+    public boolean copyAttachment(int messageId, OutputStream out) throws IOException {
+        return BlobStore.getInstance().copyTo(getAttachmentHash(messageId), out);
+    }
+    
+    private String getAttachmentHash(int messageId) {
+        String query = "SELECT attachment_hash FROM chat_messages WHERE id = ?";
+            
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, messageId);
+            
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getString("attachment_hash");
+            }
+            
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Mark messages as read and reset the reader's unread counter.
+     * The counter row is updated first so its lock orders this against a concurrent
+     * sendMessage: a message is either marked read here or counted after the reset.
      */
     public boolean markMessagesAsRead(int conversationId, int userId) {
+        String resetUnread = """
+            UPDATE conversations
+            SET participant1_unread = CASE WHEN participant1_id = ? THEN 0 ELSE participant1_unread END,
+                participant2_unread = CASE WHEN participant2_id = ? THEN 0 ELSE participant2_unread END
+            WHERE id = ?
+            """;
         String query = """
             UPDATE chat_messages 
             SET is_read = true, read_at = CURRENT_TIMESTAMP
             WHERE conversation_id = ? AND sender_id != ? AND is_read = false
             """;
             
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
             
-            stmt.setInt(1, conversationId);
-            stmt.setInt(2, userId);
-            
-            return stmt.executeUpdate() >= 0; // Can be 0 if no unread messages
+            try (PreparedStatement unreadStmt = conn.prepareStatement(resetUnread);
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                
+                unreadStmt.setInt(1, userId);
+                unreadStmt.setInt(2, userId);
+                unreadStmt.setInt(3, conversationId);
+                unreadStmt.executeUpdate();
+                
+                stmt.setInt(1, conversationId);
+                stmt.setInt(2, userId);
+                stmt.executeUpdate(); // Can be 0 if no unread messages
+                
+                conn.commit();
+                return true;
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -160,20 +343,20 @@ public class ChatMessageDAO {
     }
     
     /**
-     * Get unread message count for a conversation
+     * Get unread message count for a conversation from its maintained counter
      */
     public int getUnreadCount(int conversationId, int userId) {
         String query = """
-            SELECT COUNT(*) as unread_count
-            FROM chat_messages
-            WHERE conversation_id = ? AND sender_id != ? AND is_read = false
+            SELECT CASE WHEN participant1_id = ? THEN participant1_unread ELSE participant2_unread END as unread_count
+            FROM conversations
+            WHERE id = ?
             """;
             
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setInt(1, conversationId);
-            stmt.setInt(2, userId);
+            stmt.setInt(1, userId);
+            stmt.setInt(2, conversationId);
             
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -193,7 +376,7 @@ public class ChatMessageDAO {
     public ChatMessage getMessageById(int messageId) {
         String query = """
             SELECT cm.id, cm.conversation_id, cm.sender_id, cm.content, 
-                   cm.attachment, cm.attachment_filename, cm.attachment_mime_type,
+                   (cm.attachment_hash IS NOT NULL) as has_attachment, cm.attachment_filename, cm.attachment_mime_type,
                    cm.is_read, cm.sent_at, cm.read_at,
                    CASE 
                        WHEN u.role = 'PARENT' THEN COALESCE(
@@ -214,7 +397,7 @@ public class ChatMessageDAO {
             
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return mapResultSetToChatMessage(rs);
+                return mapPageRow(rs);
             }
             
         } catch (SQLException e) {
@@ -224,6 +407,15 @@ public class ChatMessageDAO {
         return null;
     }
     
+    /**
+     * Map a message list row, which carries an attachment flag instead of the bytes
+     */
+    private ChatMessage mapPageRow(ResultSet rs) throws SQLException {
+        ChatMessage message = mapResultSetToChatMessage(rs);
+        message.setAttachmentNotLoaded(rs.getBoolean("has_attachment"));
+        return message;
+    }
+    
     /**
      * Map ResultSet to ChatMessage object
      */
@@ -233,7 +425,6 @@ public class ChatMessageDAO {
         message.setConversationId(rs.getInt("conversation_id"));
         message.setSenderId(rs.getInt("sender_id"));
         message.setContent(rs.getString("content"));
-        message.setAttachment(rs.getBytes("attachment"));
         message.setAttachmentFilename(rs.getString("attachment_filename"));
         message.setAttachmentMimeType(rs.getString("attachment_mime_type"));
         message.setRead(rs.getBoolean("is_read"));
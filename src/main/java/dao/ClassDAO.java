@@ -19,7 +19,7 @@ public class ClassDAO {
         String sql = "INSERT INTO classes (name, school_id, teacher_id, grade_level, capacity) VALUES (?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, clazz.getName());
             stmt.setInt(2, clazz.getSchoolId());
@@ -34,6 +34,14 @@ public class ClassDAO {
             stmt.setInt(5, clazz.getCapacity());
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        clazz.setId(generatedKeys.getInt(1));
+                    }
+                }
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -260,6 +268,9 @@ public class ClassDAO {
             stmt.setInt(5, clazz.getId());
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -295,6 +306,9 @@ public class ClassDAO {
             
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -316,6 +330,9 @@ public class ClassDAO {
             stmt.setInt(2, classId);
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -336,6 +353,9 @@ public class ClassDAO {
             stmt.setInt(1, classId);
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -15,7 +15,8 @@ import java.util.Map;
 public class CommentDAO {
     
     /**
-     * Create a new comment
+     * Create a new comment. A comment created already approved is counted on its post
+     * in the same transaction.
      */
     public boolean createComment(Comment comment) {
         String sql = """
@@ -23,23 +24,32 @@ public class CommentDAO {
             VALUES (?, ?, ?, ?)
         """;
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setInt(1, comment.getPostId());
-            stmt.setInt(2, comment.getAuthorId());
-            stmt.setString(3, comment.getContent());
-            stmt.setBoolean(4, comment.isApproved());
-            
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                
+                stmt.setInt(1, comment.getPostId());
+                stmt.setInt(2, comment.getAuthorId());
+                stmt.setString(3, comment.getContent());
+                stmt.setBoolean(4, comment.isApproved());
+                
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         comment.setId(generatedKeys.getInt(1));
                     }
                 }
+                if (comment.isApproved()) {
+                    adjustCommentCount(conn, comment.getPostId(), 1);
+                }
+                conn.commit();
                 return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
             
         } catch (SQLException e) {
@@ -82,6 +92,47 @@ public class CommentDAO {
         return comments;
     }
     
+    /**
+     * Get the approved comments of several posts (e.g. one feed page) with one query, grouped
+     * by post ID in creation order. Posts without approved comments map to an empty list.
+     */
+    public Map<Integer, List<Comment>> getApprovedCommentsByPosts(List<Integer> postIds) {
+        Map<Integer, List<Comment>> commentsByPost = new HashMap<>();
+        for (int postId : postIds) {
+            commentsByPost.put(postId, new ArrayList<>());
+        }
+        if (postIds.isEmpty()) {
+            return commentsByPost;
+        }
+        
+        String sql = """
+            SELECT c.*, u.username as author_name, p.title as post_title
+            FROM comments c
+            JOIN users u ON c.author_id = u.id
+            JOIN posts p ON c.post_id = p.id
+            WHERE c.post_id = ANY(?) AND c.is_approved = true
+            ORDER BY c.post_id, c.created_at ASC
+        """;
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setArray(1, conn.createArrayOf("integer", postIds.toArray()));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Comment comment = mapResultSetToComment(rs);
+                    commentsByPost.get(comment.getPostId()).add(comment);
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error getting approved comments by posts: " + e.getMessage());
+        }
+        
+        return commentsByPost;
+    }
+    
     /**
      * Get all comments for a specific post (including unapproved for moderation)
      */
@@ -185,56 +236,22 @@ public class CommentDAO {
      * Approve a comment
      */
     public boolean approveComment(int commentId) {
-        String sql = "UPDATE comments SET is_approved = true, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, commentId);
-            return stmt.executeUpdate() > 0;
-            
-        } catch (SQLException e) {
-            System.err.println("Error approving comment: " + e.getMessage());
-            return false;
-        }
+        return setApproved(commentId, true, "Error approving comment: ");
     }
     
     /**
      * Reject/unapprove a comment
      */
     public boolean rejectComment(int commentId) {
-        String sql = "UPDATE comments SET is_approved = false, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, commentId);
-            return stmt.executeUpdate() > 0;
-            
-        } catch (SQLException e) {
-            System.err.println("Error rejecting comment: " + e.getMessage());
-            return false;
-        }
+        return setApproved(commentId, false, "Error rejecting comment: ");
     }
     
     /**
      * Delete a comment
      */
     public boolean deleteComment(int commentId, int authorId) {
-        String sql = "DELETE FROM comments WHERE id = ? AND author_id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, commentId);
-            stmt.setInt(2, authorId);
-            
-            return stmt.executeUpdate() > 0;
-            
-        } catch (SQLException e) {
-            System.err.println("Error deleting comment: " + e.getMessage());
-            return false;
-        }
+        String sql = "DELETE FROM comments WHERE id = ? AND author_id = ? RETURNING post_id, is_approved";
+        return delete(sql, commentId, authorId, "Error deleting comment: ");
     }
     
     /**
@@ -246,22 +263,129 @@ public class CommentDAO {
             WHERE id = ? AND post_id IN (
                 SELECT id FROM posts WHERE author_id = ?
             )
+            RETURNING post_id, is_approved
+        """;
+        return delete(sql, commentId, teacherId, "Error deleting comment by teacher: ");
+    }
+    
+    /**
+     * Recompute posts.comment_count from the comments table for every post whose counter
+     * has drifted, e.g. after comments were changed directly in the database. Every comment
+     * write locks the post row when it adjusts the counter, which orders it with the recount.
+     * Returns the number of posts corrected, or -1 on error.
+     */
+    public int recountCommentCounts() {
+        String driftedSql = """
+            SELECT p.id
+            FROM posts p
+            LEFT JOIN comments cm ON cm.post_id = p.id AND cm.is_approved = true
+            GROUP BY p.id
+            HAVING p.comment_count <> COUNT(cm.id)
+        """;
+        String lockSql = "SELECT id FROM posts WHERE id = ? FOR NO KEY UPDATE";
+        String updateSql = """
+            UPDATE posts SET comment_count = counted.approved
+            FROM (SELECT COUNT(*) AS approved FROM comments WHERE post_id = ? AND is_approved = true) counted
+            WHERE id = ? AND comment_count <> counted.approved
         """;
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, commentId);
-            stmt.setInt(2, teacherId);
+        try {
+            return DriftRepair.correct(driftedSql, lockSql, updateSql);
+        } catch (SQLException e) {
+            System.err.println("Error recounting post comment counts: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Change a comment's approval and, when that changes whether it is counted, its post's
+     * comment_count, in one transaction. The comment row is locked first so concurrent
+     * moderation of the same comment counts the transition once.
+     */
+    private boolean setApproved(int commentId, boolean approved, String errorMessage) {
+        String lockSql = "SELECT post_id, is_approved FROM comments WHERE id = ? FOR UPDATE";
+        String updateSql = "UPDATE comments SET is_approved = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int postId;
+                boolean wasApproved;
+                try (PreparedStatement stmt = conn.prepareStatement(lockSql)) {
+                    stmt.setInt(1, commentId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        postId = rs.getInt("post_id");
+                        wasApproved = rs.getBoolean("is_approved");
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+                    stmt.setBoolean(1, approved);
+                    stmt.setInt(2, commentId);
+                    stmt.executeUpdate();
+                }
+                if (approved != wasApproved) {
+                    adjustCommentCount(conn, postId, approved ? 1 : -1);
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
             
-            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Run a DELETE ... RETURNING post_id, is_approved and uncount the comment if it was approved
+     */
+    private boolean delete(String sql, int commentId, int userId, String errorMessage) {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                stmt.setInt(1, commentId);
+                stmt.setInt(2, userId);
+                
+                boolean deleted = false;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        deleted = true;
+                        if (rs.getBoolean("is_approved")) {
+                            adjustCommentCount(conn, rs.getInt("post_id"), -1);
+                        }
+                    }
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
             
         } catch (SQLException e) {
-            System.err.println("Error deleting comment by teacher: " + e.getMessage());
+            System.err.println(errorMessage + e.getMessage());
             return false;
         }
     }
     
+    private void adjustCommentCount(Connection conn, int postId, int delta) throws SQLException {
+        String sql = "UPDATE posts SET comment_count = comment_count + ? WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, delta);
+            stmt.setInt(2, postId);
+            stmt.executeUpdate();
+        }
+    }
+    
     /**
      * Get comment statistics for moderation
      */
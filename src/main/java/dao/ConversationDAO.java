@@ -6,6 +6,7 @@ import util.DatabaseUtil;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -138,40 +139,44 @@ public class ConversationDAO {
     }
     
     /**
-     * Get all conversations for a user
+     * Get all conversations for a user.
+     * Parent display names come from one pass over the parents table joined in, rather than
+     * a correlated subquery per participant per row, and unread counts are the counters
+     * ChatMessageDAO maintains on each conversation.
      */
     public List<Conversation> getUserConversations(int userId) {
+        return findUserConversations(userId, null);
+    }
+    
+    /**
+     * Get only the given conversations of a user, e.g. to refresh the rows of conversations
+     * with new messages without reloading the whole list
+     */
+    public List<Conversation> getUserConversations(int userId, Collection<Integer> conversationIds) {
+        return findUserConversations(userId, conversationIds);
+    }
+    
+    private List<Conversation> findUserConversations(int userId, Collection<Integer> conversationIds) {
         String query = """
             SELECT c.id, c.participant1_id, c.participant2_id, c.last_message, 
                    c.last_message_at, c.is_active,
-                   CASE 
-                       WHEN u1.role = 'PARENT' THEN COALESCE(
-                           (SELECT p.name FROM parents p WHERE p.user_id = u1.id LIMIT 1), 
-                           u1.username
-                       )
-                       ELSE u1.username
-                   END as participant1_name, u1.role as participant1_role,
-                   CASE 
-                       WHEN u2.role = 'PARENT' THEN COALESCE(
-                           (SELECT p.name FROM parents p WHERE p.user_id = u2.id LIMIT 1), 
-                           u2.username
-                       )
-                       ELSE u2.username
-                   END as participant2_name, u2.role as participant2_role,
-                   COALESCE(unread.unread_count, 0) as unread_count
+                   CASE WHEN u1.role = 'PARENT' THEN COALESCE(pn1.name, u1.username) ELSE u1.username END
+                       as participant1_name, u1.role as participant1_role,
+                   CASE WHEN u2.role = 'PARENT' THEN COALESCE(pn2.name, u2.username) ELSE u2.username END
+                       as participant2_name, u2.role as participant2_role,
+                   CASE WHEN c.participant1_id = ? THEN c.participant1_unread ELSE c.participant2_unread END
+                       as unread_count
             FROM conversations c
             JOIN users u1 ON c.participant1_id = u1.id
             JOIN users u2 ON c.participant2_id = u2.id
-            LEFT JOIN (
-                SELECT conversation_id, COUNT(*) as unread_count
-                FROM chat_messages
-                WHERE is_read = false AND sender_id != ?
-                GROUP BY conversation_id
-            ) unread ON c.id = unread.conversation_id
+            -- One idx_parents_user_id lookup per participant
+            LEFT JOIN LATERAL (SELECT p.name FROM parents p WHERE p.user_id = u1.id ORDER BY p.id LIMIT 1) pn1 ON true
+            LEFT JOIN LATERAL (SELECT p.name FROM parents p WHERE p.user_id = u2.id ORDER BY p.id LIMIT 1) pn2 ON true
             WHERE (c.participant1_id = ? OR c.participant2_id = ?) 
                   AND c.is_active = true
-            ORDER BY c.last_message_at DESC NULLS LAST
-            """;
+            """
+            + (conversationIds != null ? " AND c.id = ANY(?)" : "")
+            + " ORDER BY c.last_message_at DESC NULLS LAST";
             
         List<Conversation> conversations = new ArrayList<>();
         
@@ -181,6 +186,9 @@ public class ConversationDAO {
             stmt.setInt(1, userId);
             stmt.setInt(2, userId);
             stmt.setInt(3, userId);
+            if (conversationIds != null) {
+                stmt.setArray(4, conn.createArrayOf("integer", conversationIds.toArray()));
+            }
             
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
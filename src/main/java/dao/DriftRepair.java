@@ -0,0 +1,62 @@
+package dao;
+
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corrects a denormalized counter row by row while its writers keep running. The rows whose
+ * counter has drifted are found first; each is then corrected in its own transaction that
+ * locks the row, the lock every writer of the counter takes in its own transaction, and only
+ * then recounts. A write committed while waiting is included in the count and one still in
+ * progress applies its change on top of the corrected value, so no concurrent update is lost.
+ */
+final class DriftRepair {
+
+    private DriftRepair() {
+    }
+
+    /**
+     * Run the repair. {@code driftedSql} selects the keys of the drifted rows as its first
+     * column; {@code lockSql} locks the row of one key; {@code updateSql} recounts it, with the
+     * key bound to every parameter, and updates only a row that still differs.
+     * Returns the number of rows corrected.
+     */
+    static int correct(String driftedSql, String lockSql, String updateSql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            List<Object> drifted = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(driftedSql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    drifted.add(rs.getObject(1));
+                }
+            }
+
+            int corrected = 0;
+            conn.setAutoCommit(false);
+            try (PreparedStatement lock = conn.prepareStatement(lockSql);
+                 PreparedStatement update = conn.prepareStatement(updateSql)) {
+                int keyParameters = update.getParameterMetaData().getParameterCount();
+                for (Object key : drifted) {
+                    lock.setObject(1, key);
+                    lock.executeQuery().close();
+                    // The recount is its own statement, whose snapshot is taken after the lock was granted
+                    for (int i = 1; i <= keyParameters; i++) {
+                        update.setObject(i, key);
+                    }
+                    corrected += update.executeUpdate();
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            return corrected;
+        }
+    }
+}
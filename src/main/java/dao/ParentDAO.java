@@ -65,6 +65,7 @@ public class ParentDAO {
                 }
                 
                 conn.commit();
+                AuthorizationDAO.invalidateAccessScopes();
                 return true;
                 
             } catch (SQLException e) {
@@ -228,17 +229,11 @@ public class ParentDAO {
     public Map<String, Object> getChildQuickStats(int studentId) {
         Map<String, Object> stats = new HashMap<>();
         
-        // Get attendance statistics for the current month
+        // Get attendance statistics for the current month from its rollup row (none until a record exists)
         String attendanceSql = """
-            SELECT 
-                COUNT(*) as total_days,
-                SUM(CASE WHEN status = 'PRESENT' THEN 1 ELSE 0 END) as present_days,
-                SUM(CASE WHEN status = 'ABSENT' THEN 1 ELSE 0 END) as absent_days,
-                SUM(CASE WHEN status = 'LATE' THEN 1 ELSE 0 END) as late_days
-            FROM attendance 
-            WHERE student_id = ? 
-            AND EXTRACT(MONTH FROM date) = EXTRACT(MONTH FROM CURRENT_DATE)
-            AND EXTRACT(YEAR FROM date) = EXTRACT(YEAR FROM CURRENT_DATE)
+            SELECT total_days, present_days, absent_days, late_days
+            FROM attendance_monthly_rollups
+            WHERE student_id = ? AND month = date_trunc('month', CURRENT_DATE)::date
         """;
         
         try (Connection conn = DatabaseUtil.getConnection();
@@ -380,6 +375,9 @@ public class ParentDAO {
             stmt.setString(4, relationship);
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -401,6 +399,9 @@ public class ParentDAO {
             stmt.setInt(2, studentId);
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -7,11 +7,40 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Data Access Object for Physical Development Records
  */
 public class PhysicalDevelopmentDAO {
+    // Only the columns growth analysis needs, straight from the tables rather than the summary view
+    private static final String GROWTH_QUERY = "SELECT pdr.id, pdr.student_id, pdr.height_cm, pdr.weight_kg, pdr.bmi, " +
+                    "pdr.measurement_date, s.dob, s.gender FROM physical_development_records pdr " +
+                    "JOIN students s ON pdr.student_id = s.id ";
+    private static final String GROWTH_ORDER = "ORDER BY pdr.student_id, pdr.measurement_date, pdr.id";
+    
+    // Every student of a class with their measurements, oldest first; students without any get one row of NULLs
+    private static final String CLASS_REPORT_QUERY = "SELECT s.class_id, s.id AS student_id, s.name AS student_name, s.dob, s.gender, " +
+                    "pdr.id, pdr.height_cm, pdr.weight_kg, pdr.bmi, pdr.measurement_date " +
+                    "FROM students s LEFT JOIN physical_development_records pdr ON pdr.student_id = s.id " +
+                    "WHERE s.class_id = ANY(?) ORDER BY s.class_id, s.name, s.id, pdr.measurement_date, pdr.id";
+    
+    // Same columns as physical_development_summary, but the class filter is applied before the
+    // LAG window so only the class's records are scanned, not every record in the school
+    private static final String CLASS_SUMMARY_QUERY = "SELECT pdr.id, s.id AS student_id, s.name AS student_name, s.dob, " +
+                    "pdr.height_cm, pdr.weight_kg, pdr.bmi, pdr.measurement_date, pdr.recorded_by, " +
+                    "u.username AS recorded_by_teacher, pdr.notes, pdr.created_at, " +
+                    "EXTRACT(YEAR FROM AGE(pdr.measurement_date, s.dob)) AS age_years, " +
+                    "EXTRACT(MONTH FROM AGE(pdr.measurement_date, s.dob)) % 12 AS age_months, " +
+                    "LAG(pdr.height_cm) OVER w AS prev_height, " +
+                    "LAG(pdr.weight_kg) OVER w AS prev_weight, " +
+                    "LAG(pdr.bmi) OVER w AS prev_bmi " +
+                    "FROM physical_development_records pdr " +
+                    "JOIN students s ON pdr.student_id = s.id " +
+                    "JOIN users u ON pdr.recorded_by = u.id " +
+                    "WHERE s.class_id = ? " +
+                    "WINDOW w AS (PARTITION BY s.id ORDER BY pdr.measurement_date) " +
+                    "ORDER BY s.name, pdr.measurement_date DESC";
     
     /**
      * Add a new physical development record
@@ -95,12 +124,9 @@ public class PhysicalDevelopmentDAO {
      */
     public List<PhysicalDevelopmentRecord> getClassRecords(int classId) {
         List<PhysicalDevelopmentRecord> records = new ArrayList<>();
-        String sql = "SELECT pds.* FROM physical_development_summary pds " +
-                    "JOIN students s ON pds.student_id = s.id " +
-                    "WHERE s.class_id = ? ORDER BY pds.student_name, pds.measurement_date DESC";
         
         try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(CLASS_SUMMARY_QUERY)) {
             
             pstmt.setInt(1, classId);
             ResultSet rs = pstmt.executeQuery();
@@ -118,6 +144,89 @@ public class PhysicalDevelopmentDAO {
         return records;
     }
     
+    /**
+     * Get a student's measurements for growth analysis, oldest first, with the student's
+     * date of birth and gender
+     */
+    public List<PhysicalDevelopmentRecord> getStudentGrowthMeasurements(int studentId) {
+        return getGrowthMeasurements(GROWTH_QUERY + "WHERE pdr.student_id = ? " + GROWTH_ORDER, studentId,
+                "Error retrieving student growth measurements: ");
+    }
+    
+    /**
+     * Stream every student of the given classes with their measurements to the consumer, with
+     * the student's class id, in one query: class by class, ordered by student name and then
+     * oldest measurement first. A student without measurements is passed once, with a null
+     * measurement date. Returns false if the query failed.
+     */
+    public boolean forEachClassMeasurement(int[] classIds, BiConsumer<Integer, PhysicalDevelopmentRecord> consumer) {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(CLASS_REPORT_QUERY)) {
+            
+            Integer[] boxedIds = new Integer[classIds.length];
+            for (int i = 0; i < classIds.length; i++) {
+                boxedIds[i] = classIds[i];
+            }
+            pstmt.setArray(1, conn.createArrayOf("integer", boxedIds));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    PhysicalDevelopmentRecord record = new PhysicalDevelopmentRecord();
+                    record.setId(rs.getInt("id"));
+                    record.setStudentId(rs.getInt("student_id"));
+                    record.setStudentName(rs.getString("student_name"));
+                    Date dob = rs.getDate("dob");
+                    record.setStudentDob(dob != null ? dob.toLocalDate() : null);
+                    record.setStudentGender(rs.getString("gender"));
+                    Date measurementDate = rs.getDate("measurement_date");
+                    if (measurementDate != null) {
+                        record.setMeasurementDate(measurementDate.toLocalDate());
+                        record.setHeightCm(rs.getBigDecimal("height_cm"));
+                        record.setWeightKg(rs.getBigDecimal("weight_kg"));
+                        record.setBmi(rs.getBigDecimal("bmi"));
+                    }
+                    consumer.accept(rs.getInt("class_id"), record);
+                }
+            }
+            return true;
+            
+        } catch (SQLException e) {
+            System.err.println("Error retrieving class growth report: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    private List<PhysicalDevelopmentRecord> getGrowthMeasurements(String sql, int id, String errorMessage) {
+        List<PhysicalDevelopmentRecord> records = new ArrayList<>();
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    PhysicalDevelopmentRecord record = new PhysicalDevelopmentRecord();
+                    record.setId(rs.getInt("id"));
+                    record.setStudentId(rs.getInt("student_id"));
+                    record.setHeightCm(rs.getBigDecimal("height_cm"));
+                    record.setWeightKg(rs.getBigDecimal("weight_kg"));
+                    record.setBmi(rs.getBigDecimal("bmi"));
+                    record.setMeasurementDate(rs.getDate("measurement_date").toLocalDate());
+                    Date dob = rs.getDate("dob");
+                    record.setStudentDob(dob != null ? dob.toLocalDate() : null);
+                    record.setStudentGender(rs.getString("gender"));
+                    records.add(record);
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return records;
+    }
+    
     /**
      * Update an existing physical development record
      */
@@ -1,90 +1,118 @@
 package dao;
 
 import model.Post;
+import util.BlobStore;
 import util.DatabaseUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Data Access Object for Post operations with photo support and scheduling
  */
 public class PostDAO {
     
+    // Feed columns: everything except image bytes, which are fetched per page with getPostImages
+    private static final String FEED_COLUMNS = """
+            p.id, p.title, p.content, p.author_id, p.class_id, p.post_type, p.category,
+            p.photo_filename, p.photo_hash,
+            p.scheduled_date, p.event_date, p.visibility, p.is_published, p.is_pinned,
+            p.created_at, p.updated_at,
+            u.username as author_name, c.name as class_name, p.comment_count
+            """;
+    
+    private static final String FEED_FROM = """
+             FROM posts p
+            JOIN users u ON p.author_id = u.id
+            LEFT JOIN classes c ON p.class_id = c.id
+            """;
+    
+    // Pinned first, then newest; id breaks ties so the keyset cursor is unique
+    private static final String FEED_AFTER = " AND (p.is_pinned, p.created_at, p.id) < (?, ?, ?)";
+    private static final String FEED_ORDER = " ORDER BY p.is_pinned DESC, p.created_at DESC, p.id DESC LIMIT ?";
+    
     /**
      * Create a new post
      */
     public boolean createPost(Post post) {
         String sql = """
             INSERT INTO posts (title, content, author_id, class_id, post_type, category,
-                             photo_attachment, photo_filename, scheduled_date, event_date,
-                             visibility, is_published, is_pinned)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                             photo_hash, photo_filename, scheduled_date, event_date,
+                             visibility, is_published, is_pinned, photo_thumbnail)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, post.getTitle());
-            stmt.setString(2, post.getContent());
-            stmt.setInt(3, post.getAuthorId());
-            
-            if (post.getClassId() != null) {
-                stmt.setInt(4, post.getClassId());
-            } else {
-                stmt.setNull(4, Types.INTEGER);
-            }
-            
-            // Set post type (this was missing!)
-            stmt.setString(5, post.getPostType() != null ? post.getPostType() : Post.TYPE_CLASS_ACTIVITY);
-            
-            // Set category (for announcements)
-            if (post.getCategory() != null) {
-                stmt.setString(6, post.getCategory());
-            } else {
-                stmt.setNull(6, Types.VARCHAR);
-            }
-            
-            if (post.getPhotoAttachment() != null) {
-                stmt.setBytes(7, post.getPhotoAttachment());
-                stmt.setString(8, post.getPhotoFilename());
-            } else {
-                stmt.setNull(7, Types.BINARY);
-                stmt.setNull(8, Types.VARCHAR);
-            }
-            
-            if (post.getScheduledDate() != null) {
-                stmt.setDate(9, Date.valueOf(post.getScheduledDate()));
-            } else {
-                stmt.setNull(9, Types.DATE);
-            }
-            
-            // Set event date (for announcements)
-            if (post.getEventDate() != null) {
-                stmt.setDate(10, Date.valueOf(post.getEventDate()));
-            } else {
-                stmt.setNull(10, Types.DATE);
-            }
-            
-            stmt.setString(11, post.getVisibility());
-            stmt.setBoolean(12, post.isPublished());
-            stmt.setBoolean(13, post.isPinned());
-            
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        post.setId(generatedKeys.getInt(1));
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            // The photo reference is taken in the same transaction as the row that holds it
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                
+                stmt.setString(1, post.getTitle());
+                stmt.setString(2, post.getContent());
+                stmt.setInt(3, post.getAuthorId());
+                
+                if (post.getClassId() != null) {
+                    stmt.setInt(4, post.getClassId());
+                } else {
+                    stmt.setNull(4, Types.INTEGER);
+                }
+                
+                // Set post type (this was missing!)
+                stmt.setString(5, post.getPostType() != null ? post.getPostType() : Post.TYPE_CLASS_ACTIVITY);
+                
+                // Set category (for announcements)
+                if (post.getCategory() != null) {
+                    stmt.setString(6, post.getCategory());
+                } else {
+                    stmt.setNull(6, Types.VARCHAR);
+                }
+                
+                setPhoto(stmt, 7, BlobStore.getInstance().store(conn, post.getPhotoAttachment()), post);
+                
+                if (post.getScheduledDate() != null) {
+                    stmt.setDate(9, Date.valueOf(post.getScheduledDate()));
+                } else {
+                    stmt.setNull(9, Types.DATE);
+                }
+                
+                // Set event date (for announcements)
+                if (post.getEventDate() != null) {
+                    stmt.setDate(10, Date.valueOf(post.getEventDate()));
+                } else {
+                    stmt.setNull(10, Types.DATE);
+                }
+                
+                stmt.setString(11, post.getVisibility());
+                stmt.setBoolean(12, post.isPublished());
+                stmt.setBoolean(13, post.isPinned());
+                setThumbnail(stmt, 14, post);
+                
+                int rowsAffected = stmt.executeUpdate();
+                
+                if (rowsAffected > 0) {
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            post.setId(generatedKeys.getInt(1));
+                        }
                     }
+                    conn.commit();
+                    return true;
                 }
-                return true;
+                conn.rollback();
+                
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
             }
             
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             System.err.println("Error creating post: " + e.getMessage());
         }
         
@@ -97,15 +125,12 @@ public class PostDAO {
     public List<Post> getPostsByClass(int classId) {
         List<Post> posts = new ArrayList<>();
         String sql = """
-            SELECT p.*, u.username as author_name, c.name as class_name,
-                   COUNT(cm.id) as comment_count
+            SELECT p.*, u.username as author_name, c.name as class_name
             FROM posts p
             JOIN users u ON p.author_id = u.id
             LEFT JOIN classes c ON p.class_id = c.id
-            LEFT JOIN comments cm ON p.id = cm.post_id AND cm.is_approved = true
             WHERE p.class_id = ? AND p.is_published = true
               AND (p.scheduled_date IS NULL OR p.scheduled_date <= CURRENT_DATE)
-            GROUP BY p.id, u.username, c.name
             ORDER BY p.created_at DESC
         """;
         
@@ -134,14 +159,11 @@ public class PostDAO {
     public List<Post> getPostsByAuthor(int authorId) {
         List<Post> posts = new ArrayList<>();
         String sql = """
-            SELECT p.*, u.username as author_name, c.name as class_name,
-                   COUNT(cm.id) as comment_count
+            SELECT p.*, u.username as author_name, c.name as class_name
             FROM posts p
             JOIN users u ON p.author_id = u.id
             LEFT JOIN classes c ON p.class_id = c.id
-            LEFT JOIN comments cm ON p.id = cm.post_id AND cm.is_approved = true
             WHERE p.author_id = ?
-            GROUP BY p.id, u.username, c.name
             ORDER BY p.created_at DESC
         """;
         
@@ -170,16 +192,13 @@ public class PostDAO {
     public List<Post> getVisiblePostsForParents(int classId) {
         List<Post> posts = new ArrayList<>();
         String sql = """
-            SELECT p.*, u.username as author_name, c.name as class_name,
-                   COUNT(cm.id) as comment_count
+            SELECT p.*, u.username as author_name, c.name as class_name
             FROM posts p
             JOIN users u ON p.author_id = u.id
             LEFT JOIN classes c ON p.class_id = c.id
-            LEFT JOIN comments cm ON p.id = cm.post_id AND cm.is_approved = true
             WHERE p.class_id = ? AND p.is_published = true
               AND p.visibility IN ('ALL', 'PARENTS_ONLY')
               AND (p.scheduled_date IS NULL OR p.scheduled_date <= CURRENT_DATE)
-            GROUP BY p.id, u.username, c.name
             ORDER BY p.created_at DESC
         """;
         
@@ -202,14 +221,218 @@ public class PostDAO {
         return posts;
     }
     
+    /**
+     * Get a page of posts of one type by any of the given authors, pinned first and newest first.
+     * Pass the last post of the previous page as {@code after}, or null for the first page.
+     * Photo bytes are not loaded.
+     */
+    public List<Post> getPostsByAuthorsPage(int[] authorIds, String postType, Post after, int limit) {
+        String sql = "SELECT " + FEED_COLUMNS + FEED_FROM
+            + " WHERE p.author_id = ANY(?) AND p.post_type = ?"
+            + (after != null ? FEED_AFTER : "")
+            + FEED_ORDER;
+        
+        return getFeedPage(sql, authorIds, postType, after, limit, "Error getting posts by authors page: ");
+    }
+    
+    /**
+     * Get a page of posts of one type visible to parents in any of the given classes,
+     * pinned first and newest first. Pass the last post of the previous page as {@code after},
+     * or null for the first page. Photo bytes are not loaded.
+     */
+    public List<Post> getVisiblePostsForParentsPage(int[] classIds, String postType, Post after, int limit) {
+        String sql = "SELECT " + FEED_COLUMNS + FEED_FROM
+            + " WHERE p.class_id = ANY(?) AND p.post_type = ? AND p.is_published = true"
+            + " AND p.visibility IN ('ALL', 'PARENTS_ONLY')"
+            + " AND (p.scheduled_date IS NULL OR p.scheduled_date <= CURRENT_DATE)"
+            + (after != null ? FEED_AFTER : "")
+            + FEED_ORDER;
+        
+        return getFeedPage(sql, classIds, postType, after, limit, "Error getting visible posts page: ");
+    }
+    
+    /**
+     * Get a page of school announcements in one school that a viewer may see, pinned first and
+     * newest first: their own announcements in any state, plus published, no longer scheduled
+     * ones whose visibility is in {@code visibilities}. Pass the last post of the previous page
+     * as {@code after}, or null for the first page. Photo bytes are not loaded.
+     */
+    public List<Post> getSchoolAnnouncementsPage(int schoolId, int viewerId, String[] visibilities, Post after, int limit) {
+        List<Post> posts = new ArrayList<>();
+        String sql = "SELECT " + FEED_COLUMNS + FEED_FROM
+            + " WHERE p.post_type = 'SCHOOL_ANNOUNCEMENT' AND u.school_id = ?"
+            + " AND (p.author_id = ? OR (p.is_published = true AND p.visibility = ANY(?)"
+            + " AND (p.scheduled_date IS NULL OR p.scheduled_date <= CURRENT_DATE)))"
+            + (after != null ? FEED_AFTER : "")
+            + FEED_ORDER;
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, schoolId);
+            stmt.setInt(2, viewerId);
+            stmt.setArray(3, conn.createArrayOf("varchar", visibilities));
+            bindPage(stmt, 4, after, limit);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    posts.add(mapFeedRow(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error getting school announcements page: " + e.getMessage());
+        }
+        
+        return posts;
+    }
+    
+    private List<Post> getFeedPage(String sql, int[] ids, String postType, Post after, int limit, String errorMessage) {
+        List<Post> posts = new ArrayList<>();
+        if (ids.length == 0) {
+            return posts;
+        }
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            Integer[] boxedIds = new Integer[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                boxedIds[i] = ids[i];
+            }
+            
+            stmt.setArray(1, conn.createArrayOf("integer", boxedIds));
+            stmt.setString(2, postType);
+            bindPage(stmt, 3, after, limit);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    posts.add(mapFeedRow(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+        }
+        
+        return posts;
+    }
+    
+    /**
+     * Fetch the images of several posts in one query, passing each post ID and its bytes to
+     * {@code onImage} as the row is read: the thumbnail where one exists (else the original)
+     * when {@code preferThumbnail} is set, otherwise the original photo. Posts without a photo
+     * are skipped. Rows are fetched one at a time through a cursor, so only one image is held
+     * by the driver at once and the caller can start decoding while later rows are in flight.
+     * Originals come from the blob store once the cursor is closed.
+     * Returns false if the query failed.
+     */
+    public boolean getPostImages(int[] postIds, boolean preferThumbnail, BiConsumer<Integer, byte[]> onImage) {
+        if (postIds.length == 0) {
+            return true;
+        }
+        String sql = "SELECT id, photo_hash, " + (preferThumbnail ? "photo_thumbnail" : "NULL::bytea")
+            + " as thumbnail FROM posts WHERE id = ANY(?) AND photo_hash IS NOT NULL";
+        Map<Integer, String> originals = new LinkedHashMap<>();
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            // The driver only honours the fetch size inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                Integer[] boxedIds = new Integer[postIds.length];
+                for (int i = 0; i < postIds.length; i++) {
+                    boxedIds[i] = postIds[i];
+                }
+                stmt.setArray(1, conn.createArrayOf("integer", boxedIds));
+                stmt.setFetchSize(1);
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int postId = rs.getInt("id");
+                        try (InputStream in = rs.getBinaryStream("thumbnail")) {
+                            if (in != null) {
+                                onImage.accept(postId, in.readAllBytes());
+                            } else {
+                                originals.put(postId, rs.getString("photo_hash"));
+                            }
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (SQLException | IOException e) {
+            System.err.println("Error getting post images: " + e.getMessage());
+            return false;
+        }
+        
+        for (Map.Entry<Integer, String> entry : originals.entrySet()) {
+            byte[] photo = BlobStore.getInstance().read(entry.getValue());
+            if (photo != null) {
+                onImage.accept(entry.getKey(), photo);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Bind the keyset cursor (when continuing after a post) and the page size, from {@code index} on
+     */
+    private void bindPage(PreparedStatement stmt, int index, Post after, int limit) throws SQLException {
+        if (after != null) {
+            stmt.setBoolean(index++, after.isPinned());
+            stmt.setTimestamp(index++, Timestamp.valueOf(after.getCreatedAt()));
+            stmt.setInt(index++, after.getId());
+        }
+        stmt.setInt(index, limit);
+    }
+    
+    /**
+     * Fill in the photo and thumbnail of a post that was loaded without them (e.g. from a feed page).
+     * Returns false if the post no longer exists, the query failed or the photo could not be
+     * read; the post is then left as it was.
+     */
+    public boolean loadPhoto(Post post) {
+        String sql = "SELECT photo_hash, photo_thumbnail FROM posts WHERE id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, post.getId());
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    String photoHash = rs.getString("photo_hash");
+                    byte[] photo = BlobStore.getInstance().read(photoHash);
+                    if (photoHash != null && photo == null) {
+                        System.err.println("Error getting post photo: blob " + photoHash + " could not be read");
+                        return false;
+                    }
+                    post.setPhotoAttachment(photo);
+                    post.setPhotoHash(photoHash);
+                    post.setPhotoThumbnail(rs.getBytes("photo_thumbnail"));
+                    return true;
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Error getting post photo: " + e.getMessage());
+        }
+        
+        return false;
+    }
+    
     /**
      * Get scheduled posts that should be published today
      */
     public List<Post> getScheduledPostsForToday() {
         List<Post> posts = new ArrayList<>();
         String sql = """
-            SELECT p.*, u.username as author_name, c.name as class_name,
-                   0 as comment_count
+            SELECT p.*, u.username as author_name, c.name as class_name
             FROM posts p
             JOIN users u ON p.author_id = u.id
             LEFT JOIN classes c ON p.class_id = c.id
@@ -240,60 +463,94 @@ public class PostDAO {
         String sql = """
             UPDATE posts 
             SET title = ?, content = ?, class_id = ?, post_type = ?, category = ?,
-                photo_attachment = ?, photo_filename = ?, scheduled_date = ?, event_date = ?,
-                visibility = ?, is_published = ?, is_pinned = ?, updated_at = CURRENT_TIMESTAMP
+                photo_hash = ?, photo_filename = ?, scheduled_date = ?, event_date = ?,
+                visibility = ?, is_published = ?, is_pinned = ?,
+                photo_thumbnail = CASE WHEN ? THEN ? ELSE photo_thumbnail END,
+                updated_at = CURRENT_TIMESTAMP
             WHERE id = ? AND author_id = ?
         """;
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, post.getTitle());
-            stmt.setString(2, post.getContent());
-            
-            if (post.getClassId() != null) {
-                stmt.setInt(3, post.getClassId());
-            } else {
-                stmt.setNull(3, Types.INTEGER);
-            }
-            
-            stmt.setString(4, post.getPostType() != null ? post.getPostType() : Post.TYPE_CLASS_ACTIVITY);
-            
-            if (post.getCategory() != null) {
-                stmt.setString(5, post.getCategory());
-            } else {
-                stmt.setNull(5, Types.VARCHAR);
-            }
-            
-            if (post.getPhotoAttachment() != null) {
-                stmt.setBytes(6, post.getPhotoAttachment());
-                stmt.setString(7, post.getPhotoFilename());
-            } else {
-                stmt.setNull(6, Types.BINARY);
-                stmt.setNull(7, Types.VARCHAR);
-            }
-            
-            if (post.getScheduledDate() != null) {
-                stmt.setDate(8, Date.valueOf(post.getScheduledDate()));
-            } else {
-                stmt.setNull(8, Types.DATE);
-            }
-            
-            if (post.getEventDate() != null) {
-                stmt.setDate(9, Date.valueOf(post.getEventDate()));
-            } else {
-                stmt.setNull(9, Types.DATE);
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                // Lock the row so the reference being replaced is released exactly once
+                String oldHash;
+                try (PreparedStatement select = conn.prepareStatement(
+                        "SELECT photo_hash FROM posts WHERE id = ? AND author_id = ? FOR UPDATE")) {
+                    select.setInt(1, post.getId());
+                    select.setInt(2, post.getAuthorId());
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        oldHash = rs.getString("photo_hash");
+                    }
+                }
+                
+                stmt.setString(1, post.getTitle());
+                stmt.setString(2, post.getContent());
+                
+                if (post.getClassId() != null) {
+                    stmt.setInt(3, post.getClassId());
+                } else {
+                    stmt.setNull(3, Types.INTEGER);
+                }
+                
+                stmt.setString(4, post.getPostType() != null ? post.getPostType() : Post.TYPE_CLASS_ACTIVITY);
+                
+                if (post.getCategory() != null) {
+                    stmt.setString(5, post.getCategory());
+                } else {
+                    stmt.setNull(5, Types.VARCHAR);
+                }
+                
+                // Only a replaced photo is stored and the old one released; otherwise the post
+                // keeps its photo and thumbnail, whether or not they were loaded
+                boolean photoReplaced = post.isPhotoReplaced();
+                if (photoReplaced) {
+                    BlobStore blobStore = BlobStore.getInstance();
+                    setPhoto(stmt, 6, blobStore.store(conn, post.getPhotoAttachment()), post);
+                    blobStore.release(conn, oldHash);
+                } else {
+                    setPhoto(stmt, 6, oldHash, post);
+                }
+                
+                if (post.getScheduledDate() != null) {
+                    stmt.setDate(8, Date.valueOf(post.getScheduledDate()));
+                } else {
+                    stmt.setNull(8, Types.DATE);
+                }
+                
+                if (post.getEventDate() != null) {
+                    stmt.setDate(9, Date.valueOf(post.getEventDate()));
+                } else {
+                    stmt.setNull(9, Types.DATE);
+                }
+                
+                stmt.setString(10, post.getVisibility());
+                stmt.setBoolean(11, post.isPublished());
+                stmt.setBoolean(12, post.isPinned());
+                stmt.setBoolean(13, photoReplaced);
+                setThumbnail(stmt, 14, post);
+                stmt.setInt(15, post.getId());
+                stmt.setInt(16, post.getAuthorId());
+                
+                boolean updated = stmt.executeUpdate() > 0;
+                conn.commit();
+                if (updated) {
+                    // The post may have moved to another class; cached post access is keyed on it
+                    AuthorizationDAO.invalidateAccessScopes();
+                }
+                return updated;
+                
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
             }
             
-            stmt.setString(10, post.getVisibility());
-            stmt.setBoolean(11, post.isPublished());
-            stmt.setBoolean(12, post.isPinned());
-            stmt.setInt(13, post.getId());
-            stmt.setInt(14, post.getAuthorId());
-            
-            return stmt.executeUpdate() > 0;
-            
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             System.err.println("Error updating post: " + e.getMessage());
             return false;
         }
@@ -303,15 +560,29 @@ public class PostDAO {
      * Delete a post (only by the author)
      */
     public boolean deletePost(int postId, int authorId) {
-        String sql = "DELETE FROM posts WHERE id = ? AND author_id = ?";
+        String sql = "DELETE FROM posts WHERE id = ? AND author_id = ? RETURNING photo_hash";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, postId);
-            stmt.setInt(2, authorId);
-            
-            return stmt.executeUpdate() > 0;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                stmt.setInt(1, postId);
+                stmt.setInt(2, authorId);
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                    BlobStore.getInstance().release(conn, rs.getString("photo_hash"));
+                }
+                conn.commit();
+                return true;
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
             
         } catch (SQLException e) {
             System.err.println("Error deleting post: " + e.getMessage());
@@ -324,14 +595,11 @@ public class PostDAO {
      */
     public Post getPostById(int postId) {
         String sql = """
-            SELECT p.*, u.username as author_name, c.name as class_name,
-                   COUNT(cm.id) as comment_count
+            SELECT p.*, u.username as author_name, c.name as class_name
             FROM posts p
             JOIN users u ON p.author_id = u.id
             LEFT JOIN classes c ON p.class_id = c.id
-            LEFT JOIN comments cm ON p.id = cm.post_id AND cm.is_approved = true
             WHERE p.id = ?
-            GROUP BY p.id, u.username, c.name
         """;
         
         try (Connection conn = DatabaseUtil.getConnection();
@@ -363,7 +631,7 @@ public class PostDAO {
                 COUNT(*) as total_posts,
                 SUM(CASE WHEN is_published THEN 1 ELSE 0 END) as published_posts,
                 SUM(CASE WHEN scheduled_date > CURRENT_DATE THEN 1 ELSE 0 END) as scheduled_posts,
-                SUM(CASE WHEN photo_attachment IS NOT NULL THEN 1 ELSE 0 END) as posts_with_photos
+                SUM(CASE WHEN photo_hash IS NOT NULL THEN 1 ELSE 0 END) as posts_with_photos
             FROM posts 
             WHERE author_id = ?
         """;
@@ -394,9 +662,45 @@ public class PostDAO {
     }
     
     /**
-     * Map ResultSet to Post object
+     * Bind the photo hash at {@code index} and its filename after it
+     */
+    private void setPhoto(PreparedStatement stmt, int index, String photoHash, Post post) throws SQLException {
+        if (photoHash != null) {
+            stmt.setString(index, photoHash);
+            stmt.setString(index + 1, post.getPhotoFilename());
+        } else {
+            stmt.setNull(index, Types.CHAR);
+            stmt.setNull(index + 1, Types.VARCHAR);
+        }
+    }
+    
+    private void setThumbnail(PreparedStatement stmt, int index, Post post) throws SQLException {
+        if (post.getPhotoThumbnail() != null) {
+            stmt.setBytes(index, post.getPhotoThumbnail());
+        } else {
+            stmt.setNull(index, Types.BINARY);
+        }
+    }
+    
+    /**
+     * Map a feed row, which has the photo hash instead of the photo and thumbnail bytes
      */
+    private Post mapFeedRow(ResultSet rs) throws SQLException {
+        Post post = mapResultSetToPost(rs, false);
+        String photoHash = rs.getString("photo_hash");
+        post.setPhotoNotLoaded(photoHash != null);
+        post.setPhotoHash(photoHash);
+        return post;
+    }
+    
     private Post mapResultSetToPost(ResultSet rs) throws SQLException {
+        return mapResultSetToPost(rs, true);
+    }
+    
+    /**
+     * Map ResultSet to Post object
+     */
+    private Post mapResultSetToPost(ResultSet rs, boolean includePhoto) throws SQLException {
         Post post = new Post();
         post.setId(rs.getInt("id"));
         post.setTitle(rs.getString("title"));
@@ -414,7 +718,13 @@ public class PostDAO {
         // Set category (for announcements)
         post.setCategory(rs.getString("category"));
         
-        post.setPhotoAttachment(rs.getBytes("photo_attachment"));
+        if (includePhoto) {
+            // The photo itself is in the blob store and only read on demand (loadPhoto)
+            post.setPhotoThumbnail(rs.getBytes("photo_thumbnail"));
+            String photoHash = rs.getString("photo_hash");
+            post.setPhotoNotLoaded(photoHash != null);
+            post.setPhotoHash(photoHash);
+        }
         post.setPhotoFilename(rs.getString("photo_filename"));
         
         Date scheduledDate = rs.getDate("scheduled_date");
@@ -2,6 +2,8 @@ package dao;
 
 import model.Student;
 import util.DatabaseUtil;
+import util.SchemaCapabilities;
+import util.TextNormalizer;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -14,14 +16,16 @@ import java.util.List;
  */
 public class StudentDAO {
     
+    private final AttendanceDAO attendanceDAO = new AttendanceDAO();
+    
     /**
      * Create new student
      */
     public boolean create(Student student) {
-        String sql = "INSERT INTO students (name, dob, gender, class_id, address, profile_image) VALUES (?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO students (name, dob, gender, class_id, address, profile_image, profile_thumbnail) VALUES (?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, student.getName());
             stmt.setDate(2, Date.valueOf(student.getDob()));
@@ -35,8 +39,21 @@ public class StudentDAO {
             } else {
                 stmt.setNull(6, java.sql.Types.BINARY);
             }
+            if (student.getProfileThumbnail() != null) {
+                stmt.setBytes(7, student.getProfileThumbnail());
+            } else {
+                stmt.setNull(7, java.sql.Types.BINARY);
+            }
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        student.setId(generatedKeys.getInt(1));
+                    }
+                }
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -114,18 +131,45 @@ public class StudentDAO {
     }
     
     /**
-     * Search students by name
+     * Search students by name, ignoring case and Vietnamese diacritics, best matches first:
+     * names with a word starting with the query, then names containing it, then (where pg_trgm
+     * is installed) names similar to it despite a typo. Returns at most {@code limit} students.
      */
-    public List<Student> searchByName(String name) {
+    public List<Student> searchByName(String name, int limit) {
         List<Student> students = new ArrayList<>();
+        String query = TextNormalizer.fold(name);
+        if (query.isEmpty()) {
+            return students;
+        }
+        
+        // search_name is the folded name; with pg_trgm its GIN index serves both LIKE and <%
+        boolean trigram = SchemaCapabilities.get().hasStudentTrigramSearch();
         String sql = "SELECT s.*, c.name as class_name FROM students s " +
                      "LEFT JOIN classes c ON s.class_id = c.id " +
-                     "WHERE LOWER(s.name) LIKE LOWER(?) ORDER BY s.name";
+                     "WHERE s.search_name LIKE ? ESCAPE '\\'" + (trigram ? " OR ? <% s.search_name " : " ") +
+                     "ORDER BY (s.search_name LIKE ? ESCAPE '\\' OR s.search_name LIKE ? ESCAPE '\\') DESC, " +
+                     "(s.search_name LIKE ? ESCAPE '\\') DESC, " +
+                     (trigram ? "word_similarity(?, s.search_name) DESC, " : "") +
+                     "s.name, s.id LIMIT ?";
+        
+        String escaped = query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        String contains = "%" + escaped + "%";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, "%" + name + "%");
+            int index = 1;
+            stmt.setString(index++, contains);
+            if (trigram) {
+                stmt.setString(index++, query);
+            }
+            stmt.setString(index++, escaped + "%");
+            stmt.setString(index++, "% " + escaped + "%");
+            stmt.setString(index++, contains);
+            if (trigram) {
+                stmt.setString(index++, query);
+            }
+            stmt.setInt(index, limit);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -142,29 +186,62 @@ public class StudentDAO {
      * Update student
      */
     public boolean update(Student student) {
-        String sql = "UPDATE students SET name = ?, dob = ?, gender = ?, class_id = ?, address = ?, profile_image = ? WHERE id = ?";
+        String sql = "UPDATE students SET name = ?, dob = ?, gender = ?, class_id = ?, address = ?, profile_image = ?, profile_thumbnail = ? WHERE id = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, student.getName());
-            stmt.setDate(2, Date.valueOf(student.getDob()));
-            stmt.setString(3, student.getGender() != null ? student.getGender() : "MALE");
-            stmt.setInt(4, student.getClassId());
-            stmt.setString(5, student.getAddress());
-            
-            // Handle profile image
-            if (student.getProfileImage() != null) {
-                stmt.setBytes(6, student.getProfileImage());
-            } else {
-                stmt.setNull(6, java.sql.Types.BINARY);
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                // Locked like an attendance write, so the class rollups move with no write in between
+                Integer oldClassId = null;
+                try (PreparedStatement lock = conn.prepareStatement("SELECT class_id FROM students WHERE id = ? FOR NO KEY UPDATE")) {
+                    lock.setInt(1, student.getId());
+                    try (ResultSet rs = lock.executeQuery()) {
+                        if (rs.next()) {
+                            oldClassId = (Integer) rs.getObject("class_id");
+                        }
+                    }
+                }
+                
+                stmt.setString(1, student.getName());
+                stmt.setDate(2, Date.valueOf(student.getDob()));
+                stmt.setString(3, student.getGender() != null ? student.getGender() : "MALE");
+                stmt.setInt(4, student.getClassId());
+                stmt.setString(5, student.getAddress());
+                
+                // Handle profile image
+                if (student.getProfileImage() != null) {
+                    stmt.setBytes(6, student.getProfileImage());
+                } else {
+                    stmt.setNull(6, java.sql.Types.BINARY);
+                }
+                if (student.getProfileThumbnail() != null) {
+                    stmt.setBytes(7, student.getProfileThumbnail());
+                } else {
+                    stmt.setNull(7, java.sql.Types.BINARY);
+                }
+                
+                stmt.setInt(8, student.getId());
+                
+                int rowsAffected = stmt.executeUpdate();
+                if (rowsAffected > 0 && (oldClassId == null || oldClassId != student.getClassId())) {
+                    // The student's attendance now counts towards the new class
+                    if (oldClassId != null) {
+                        attendanceDAO.shiftStudentRollups(conn, student.getId(), oldClassId, -1);
+                    }
+                    attendanceDAO.shiftStudentRollups(conn, student.getId(), student.getClassId(), 1);
+                }
+                conn.commit();
+                if (rowsAffected > 0) {
+                    AuthorizationDAO.invalidateAccessScopes();
+                }
+                return rowsAffected > 0;
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
             
-            stmt.setInt(7, student.getId());
-            
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
-            
         } catch (SQLException e) {
             System.err.println("Error updating student: " + e.getMessage());
             return false;
@@ -172,10 +249,10 @@ public class StudentDAO {
     }
     
     /**
-     * Update student profile image
+     * Update student profile image together with its list-view thumbnail
      */
-    public boolean updateProfileImage(int studentId, byte[] profileImageData) {
-        String sql = "UPDATE students SET profile_image = ? WHERE id = ?";
+    public boolean updateProfileImage(int studentId, byte[] profileImageData, byte[] thumbnailData) {
+        String sql = "UPDATE students SET profile_image = ?, profile_thumbnail = ? WHERE id = ?";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -185,7 +262,12 @@ public class StudentDAO {
             } else {
                 stmt.setNull(1, java.sql.Types.BINARY);
             }
-            stmt.setInt(2, studentId);
+            if (thumbnailData != null) {
+                stmt.setBytes(2, thumbnailData);
+            } else {
+                stmt.setNull(2, java.sql.Types.BINARY);
+            }
+            stmt.setInt(3, studentId);
             
             int rowsAffected = stmt.executeUpdate();
             return rowsAffected > 0;
@@ -208,6 +290,9 @@ public class StudentDAO {
             stmt.setInt(1, id);
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -282,6 +367,7 @@ public class StudentDAO {
         student.setClassId(rs.getInt("class_id"));
         student.setAddress(rs.getString("address"));
         student.setProfileImage(rs.getBytes("profile_image"));
+        student.setProfileThumbnail(rs.getBytes("profile_thumbnail"));
         
         Timestamp createdAt = rs.getTimestamp("created_at");
         if (createdAt != null) {
@@ -43,6 +43,7 @@ public class TeacherDAO {
                 // No separate teacher profile table to delete in current schema
                 
                 conn.commit();
+                AuthorizationDAO.invalidateAccessScopes();
                 return true;
                 
             } catch (SQLException e) {
@@ -186,6 +187,9 @@ public class TeacherDAO {
             stmt.setInt(2, classId);
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -206,6 +210,9 @@ public class TeacherDAO {
             stmt.setInt(1, classId);
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                AuthorizationDAO.invalidateAccessScopes();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
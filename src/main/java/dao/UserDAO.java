@@ -325,41 +325,34 @@ public class UserDAO {
         return users;
     }
     
+    /**
+     * Users with school names and child names (for parent users), for UI display
+     */
+    private static final String DISPLAY_QUERY = """
+        SELECT u.*, s.name as school_name, 
+               CASE 
+                   WHEN u.role = 'PARENT' THEN st.name
+                   ELSE NULL 
+               END as child_name
+        FROM users u 
+        LEFT JOIN schools s ON u.school_id = s.id 
+        LEFT JOIN parents p ON u.id = p.user_id AND u.role = 'PARENT'
+        LEFT JOIN students st ON p.student_id = st.id
+        """;
+    
     /**
      * Get all users with school names and child names (for parent users) for UI display
      */
     public List<User> findAllWithSchoolNamesAndChildren() {
         List<User> users = new ArrayList<>();
-        String sql = """
-            SELECT u.*, s.name as school_name, 
-                   CASE 
-                       WHEN u.role = 'PARENT' THEN st.name
-                       ELSE NULL 
-                   END as child_name
-            FROM users u 
-            LEFT JOIN schools s ON u.school_id = s.id 
-            LEFT JOIN parents p ON u.id = p.user_id AND u.role = 'PARENT'
-            LEFT JOIN students st ON p.student_id = st.id
-            ORDER BY u.role, u.username
-            """;
+        String sql = DISPLAY_QUERY + "ORDER BY u.role, u.username";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
-                User user = mapResultSetToUser(rs);
-                // Set school name if available
-                String schoolName = rs.getString("school_name");
-                if (schoolName != null) {
-                    user.setSchoolName(schoolName);
-                }
-                // Set child name if available (for parent users)
-                String childName = rs.getString("child_name");
-                if (childName != null) {
-                    user.setChildName(childName);
-                }
-                users.add(user);
+                users.add(mapResultSetToDisplayUser(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error finding all users with school names and children: " + e.getMessage());
@@ -367,6 +360,43 @@ public class UserDAO {
         return users;
     }
     
+    /**
+     * Find one user with school name and child name, to refresh a single table row
+     */
+    public User findByIdWithSchoolNameAndChild(int id) {
+        String sql = DISPLAY_QUERY + "WHERE u.id = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, id);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToDisplayUser(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding user with school name and child: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    private User mapResultSetToDisplayUser(ResultSet rs) throws SQLException {
+        User user = mapResultSetToUser(rs);
+        // Set school name if available
+        String schoolName = rs.getString("school_name");
+        if (schoolName != null) {
+            user.setSchoolName(schoolName);
+        }
+        // Set child name if available (for parent users)
+        String childName = rs.getString("child_name");
+        if (childName != null) {
+            user.setChildName(childName);
+        }
+        return user;
+    }
+    
     /**
      * Get all schools for dropdown options
      */
@@ -24,6 +24,12 @@ public class Attendance {
     private byte[] checkInImage;
     private byte[] checkOutImage;
     
+    // List queries skip the image bytes; these record whether images exist and whether they were loaded
+    private boolean checkInImageLoaded = true;
+    private boolean checkOutImageLoaded = true;
+    private boolean checkInImagePresent;
+    private boolean checkOutImagePresent;
+    
     // Additional fields for display
     private String studentName;
     
@@ -80,6 +86,21 @@ public class Attendance {
         this.createdAt = createdAt;
     }
     
+    // Copy constructor, e.g. to hand a record to a background save while the table keeps its own
+    public Attendance(Attendance source) {
+        this.id = source.id;
+        this.studentId = source.studentId;
+        this.date = source.date;
+        this.status = source.status;
+        this.checkInTime = source.checkInTime;
+        this.lateArrivalTime = source.lateArrivalTime;
+        this.checkOutTime = source.checkOutTime;
+        this.excuseReason = source.excuseReason;
+        this.createdAt = source.createdAt;
+        this.studentName = source.studentName;
+        copyImagesFrom(source);
+    }
+    
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -112,10 +133,52 @@ public class Attendance {
     public void setExcuseReason(String excuseReason) { this.excuseReason = excuseReason; }
     
     public byte[] getCheckInImage() { return checkInImage; }
-    public void setCheckInImage(byte[] checkInImage) { this.checkInImage = checkInImage; }
+    public void setCheckInImage(byte[] checkInImage) {
+        this.checkInImage = checkInImage;
+        this.checkInImageLoaded = true;
+    }
     
     public byte[] getCheckOutImage() { return checkOutImage; }
-    public void setCheckOutImage(byte[] checkOutImage) { this.checkOutImage = checkOutImage; }
+    public void setCheckOutImage(byte[] checkOutImage) {
+        this.checkOutImage = checkOutImage;
+        this.checkOutImageLoaded = true;
+    }
+    
+    /**
+     * Mark the images as existing (or not) in the database without loading their bytes
+     */
+    public void setImagesNotLoaded(boolean checkInImagePresent, boolean checkOutImagePresent) {
+        this.checkInImage = null;
+        this.checkOutImage = null;
+        this.checkInImageLoaded = false;
+        this.checkOutImageLoaded = false;
+        this.checkInImagePresent = checkInImagePresent;
+        this.checkOutImagePresent = checkOutImagePresent;
+    }
+    
+    /**
+     * Copy the images of another record with their loaded state, so an image that was never
+     * loaded stays unloaded here too and is left alone when this record is saved
+     */
+    public void copyImagesFrom(Attendance source) {
+        this.checkInImage = source.checkInImage;
+        this.checkOutImage = source.checkOutImage;
+        this.checkInImageLoaded = source.checkInImageLoaded;
+        this.checkOutImageLoaded = source.checkOutImageLoaded;
+        this.checkInImagePresent = source.checkInImagePresent;
+        this.checkOutImagePresent = source.checkOutImagePresent;
+    }
+    
+    public boolean isCheckInImageLoaded() { return checkInImageLoaded; }
+    public boolean isCheckOutImageLoaded() { return checkOutImageLoaded; }
+    
+    public boolean hasCheckInImage() {
+        return checkInImageLoaded ? checkInImage != null : checkInImagePresent;
+    }
+    
+    public boolean hasCheckOutImage() {
+        return checkOutImageLoaded ? checkOutImage != null : checkOutImagePresent;
+    }
     
     // Helper methods
     public boolean isPresent() { return "PRESENT".equals(status); }
@@ -14,6 +14,9 @@ public class ChatMessage {
     private byte[] attachment;
     private String attachmentFilename;
     private String attachmentMimeType;
+    // False when loaded from a message list query, which only reports whether an attachment exists
+    private boolean attachmentLoaded = true;
+    private boolean attachmentPresent;
     private boolean isRead;
     private LocalDateTime sentAt;
     private LocalDateTime readAt;
@@ -74,6 +77,20 @@ public class ChatMessage {
     
     public void setAttachment(byte[] attachment) {
         this.attachment = attachment;
+        this.attachmentLoaded = true;
+    }
+    
+    /**
+     * Mark the attachment bytes as not loaded, recording only whether the message has one
+     */
+    public void setAttachmentNotLoaded(boolean present) {
+        this.attachment = null;
+        this.attachmentLoaded = false;
+        this.attachmentPresent = present;
+    }
+    
+    public boolean isAttachmentLoaded() {
+        return attachmentLoaded;
     }
     
     public String getAttachmentFilename() {
@@ -133,6 +150,9 @@ public class ChatMessage {
     }
     
     public boolean hasAttachment() {
+        if (!attachmentLoaded) {
+            return attachmentPresent;
+        }
         return attachment != null && attachment.length > 0;
     }
     
@@ -0,0 +1,81 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * A student's measurements with their age and height, weight and BMI z-scores against the
+ * growth reference, oldest first. Values are kept in parallel arrays indexed by measurement;
+ * a z-score is NaN when the age at that measurement is outside the reference.
+ */
+public class GrowthProfile {
+    private final int studentId;
+    private final boolean male;
+    private final int[] recordIds;
+    private final LocalDate[] dates;
+    private final double[] ageMonths;
+    private final double[] heights;
+    private final double[] weights;
+    private final double[] bmis;
+    private final double[] heightZ;
+    private final double[] weightZ;
+    private final double[] bmiZ;
+
+    public GrowthProfile(int studentId, boolean male, int[] recordIds, LocalDate[] dates, double[] ageMonths,
+                         double[] heights, double[] weights, double[] bmis,
+                         double[] heightZ, double[] weightZ, double[] bmiZ) {
+        this.studentId = studentId;
+        this.male = male;
+        this.recordIds = recordIds;
+        this.dates = dates;
+        this.ageMonths = ageMonths;
+        this.heights = heights;
+        this.weights = weights;
+        this.bmis = bmis;
+        this.heightZ = heightZ;
+        this.weightZ = weightZ;
+        this.bmiZ = bmiZ;
+    }
+
+    public int getStudentId() { return studentId; }
+    public boolean isMale() { return male; }
+
+    /**
+     * Number of measurements
+     */
+    public int size() { return recordIds.length; }
+
+    public int getRecordId(int i) { return recordIds[i]; }
+    public LocalDate getDate(int i) { return dates[i]; }
+    public double getAgeMonths(int i) { return ageMonths[i]; }
+    public double getHeight(int i) { return heights[i]; }
+    public double getWeight(int i) { return weights[i]; }
+    public double getBmi(int i) { return bmis[i]; }
+    public double getHeightZ(int i) { return heightZ[i]; }
+    public double getWeightZ(int i) { return weightZ[i]; }
+    public double getBmiZ(int i) { return bmiZ[i]; }
+
+    /**
+     * Index of the most recent measurement, or -1 if there are none
+     */
+    public int latest() { return recordIds.length - 1; }
+
+    /**
+     * Index of the measurement with the given record id, or -1
+     */
+    public int indexOf(int recordId) {
+        for (int i = recordIds.length - 1; i >= 0; i--) {
+            if (recordIds[i] == recordId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Approximate memory held by the profile, for cache accounting
+     */
+    public long getSizeInBytes() {
+        // Seven double arrays, the ids and the date references (dates are ~32 bytes each)
+        return 128 + (long) recordIds.length * (7 * 8 + 4 + 8 + 32);
+    }
+}
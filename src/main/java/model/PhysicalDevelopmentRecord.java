@@ -20,6 +20,8 @@ public class PhysicalDevelopmentRecord {
     
     // Additional fields for display purposes
     private String studentName;
+    private LocalDate studentDob;
+    private String studentGender;
     private String recordedByTeacher;
     private int ageYears;
     private int ageMonths;
@@ -86,6 +88,12 @@ public class PhysicalDevelopmentRecord {
     public String getStudentName() { return studentName; }
     public void setStudentName(String studentName) { this.studentName = studentName; }
     
+    public LocalDate getStudentDob() { return studentDob; }
+    public void setStudentDob(LocalDate studentDob) { this.studentDob = studentDob; }
+    
+    public String getStudentGender() { return studentGender; }
+    public void setStudentGender(String studentGender) { this.studentGender = studentGender; }
+    
     public String getRecordedByTeacher() { return recordedByTeacher; }
     public void setRecordedByTeacher(String recordedByTeacher) { this.recordedByTeacher = recordedByTeacher; }
     
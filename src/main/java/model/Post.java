@@ -20,6 +20,10 @@ public class Post {
     private String category; // For announcements: EVENT, HOLIDAY, SCHEDULE, GENERAL
     private byte[] photoAttachment; // Binary data for photo uploads
     private String photoFilename; // Original filename for the photo
+    private byte[] photoThumbnail; // Small JPEG of photoAttachment for the feed
+    private boolean photoLoaded = true; // False for feed rows, which leave out the photo bytes
+    private boolean photoPresent;
+    private String photoHash; // Blob store hash of the saved photo, until a new photo is attached
     private LocalDate scheduledDate; // For scheduling posts in advance (null for immediate)
     private LocalDate eventDate; // For announcements: when the event will happen
     private String visibility; // ALL, PARENTS_ONLY, TEACHERS_ONLY
@@ -106,11 +110,40 @@ public class Post {
     public void setCategory(String category) { this.category = category; }
     
     public byte[] getPhotoAttachment() { return photoAttachment; }
-    public void setPhotoAttachment(byte[] photoAttachment) { this.photoAttachment = photoAttachment; }
+    public void setPhotoAttachment(byte[] photoAttachment) {
+        this.photoAttachment = photoAttachment;
+        this.photoLoaded = true;
+        this.photoHash = null;
+    }
+    
+    /**
+     * Mark the photo bytes as not loaded, recording only whether the post has a photo
+     */
+    public void setPhotoNotLoaded(boolean present) {
+        this.photoAttachment = null;
+        this.photoLoaded = false;
+        this.photoPresent = present;
+    }
+    
+    public boolean isPhotoLoaded() { return photoLoaded; }
+    
+    public String getPhotoHash() { return photoHash; }
+    public void setPhotoHash(String photoHash) { this.photoHash = photoHash; }
+    
+    /**
+     * Whether a photo was attached (or removed) since the post was read, so saving it must
+     * store the new photo; an unchanged photo keeps the blob it already references
+     */
+    public boolean isPhotoReplaced() {
+        return photoLoaded && photoHash == null;
+    }
     
     public String getPhotoFilename() { return photoFilename; }
     public void setPhotoFilename(String photoFilename) { this.photoFilename = photoFilename; }
     
+    public byte[] getPhotoThumbnail() { return photoThumbnail; }
+    public void setPhotoThumbnail(byte[] photoThumbnail) { this.photoThumbnail = photoThumbnail; }
+    
     public LocalDate getScheduledDate() { return scheduledDate; }
     public void setScheduledDate(LocalDate scheduledDate) { this.scheduledDate = scheduledDate; }
     
@@ -144,6 +177,9 @@ public class Post {
     
     // Helper methods
     public boolean hasPhoto() {
+        if (!photoLoaded) {
+            return photoPresent;
+        }
         return photoAttachment != null && photoAttachment.length > 0;
     }
     
@@ -15,6 +15,7 @@ public class Student {
     private String address;
     private LocalDateTime createdAt;
     private byte[] profileImage; // Binary data for profile image
+    private byte[] profileThumbnail; // Small JPEG of profileImage for list views
     
     // Additional fields for display
     private String className; // For joining with class table
@@ -68,6 +69,9 @@ public class Student {
     public byte[] getProfileImage() { return profileImage; }
     public void setProfileImage(byte[] profileImage) { this.profileImage = profileImage; }
     
+    public byte[] getProfileThumbnail() { return profileThumbnail; }
+    public void setProfileThumbnail(byte[] profileThumbnail) { this.profileThumbnail = profileThumbnail; }
+    
     // Helper method to calculate age
     public int getAge() {
         if (dob != null) {
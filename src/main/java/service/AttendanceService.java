@@ -1,19 +1,32 @@
 package service;
 
 import dao.AttendanceDAO;
+import dao.AttendanceDAO.AttendanceImages;
 import dao.AttendanceDAO.AttendanceStats;
+import dao.AttendanceDAO.DailyRollup;
 import dao.StudentDAO;
 import model.Attendance;
 import model.Student;
+import util.BoundedLruCache;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for attendance management operations
  */
 public class AttendanceService {
+    // Check-in/check-out images fetched on demand, shared by all panels and bounded by total bytes;
+    // dropped once the record has been saved here, images saved by other clients show up when the entry expires
+    private static final BoundedLruCache<String, AttendanceImages> IMAGE_CACHE =
+            new BoundedLruCache<>(32L * 1024 * 1024, AttendanceImages::getSizeInBytes, Duration.ofMinutes(10));
+    
     private AttendanceDAO attendanceDAO;
     private StudentDAO studentDAO;
     
@@ -26,48 +39,13 @@ public class AttendanceService {
      * Mark attendance for a student
      */
     public boolean markAttendance(Attendance attendance) {
-        // Validate input
-        if (attendance.getStudentId() <= 0) {
-            throw new IllegalArgumentException("Invalid student ID");
-        }
-        
-        if (attendance.getDate() == null) {
-            throw new IllegalArgumentException("Date is required");
-        }
-        
-        if (attendance.getStatus() == null || attendance.getStatus().trim().isEmpty()) {
-            throw new IllegalArgumentException("Status is required");
-        }
-        
-        // Validate status
-        String status = attendance.getStatus().toUpperCase();
-        if (!status.equals("PRESENT") && !status.equals("ABSENT") && !status.equals("LATE")) {
-            throw new IllegalArgumentException("Invalid status. Must be PRESENT, ABSENT, or LATE");
-        }
-        attendance.setStatus(status);
-        
-        // Validate check-in time for present students
-        if ("PRESENT".equals(status) && attendance.getCheckInTime() == null) {
-            attendance.setCheckInTime(LocalTime.now());
-        }
-        
-        // Validate late arrival time for late students
-        if ("LATE".equals(status)) {
-            if (attendance.getLateArrivalTime() == null) {
-                attendance.setLateArrivalTime(LocalTime.now());
-            }
-            if (attendance.getCheckInTime() == null) {
-                attendance.setCheckInTime(attendance.getLateArrivalTime());
-            }
-        }
+        validateAndNormalize(attendance);
         
-        // Clear check-in time for absent students
-        if ("ABSENT".equals(status)) {
-            attendance.setCheckInTime(null);
-            attendance.setLateArrivalTime(null);
+        boolean saved = attendanceDAO.create(attendance);
+        if (saved) {
+            IMAGE_CACHE.remove(imageCacheKey(attendance));
         }
-        
-        return attendanceDAO.create(attendance);
+        return saved;
     }
     
     /**
@@ -78,7 +56,21 @@ public class AttendanceService {
             throw new IllegalArgumentException("Invalid attendance ID");
         }
         
-        // Validate input (same validation as markAttendance but without creating)
+        // Same validation as markAttendance but without creating
+        validateAndNormalize(attendance);
+        
+        boolean saved = attendanceDAO.update(attendance);
+        if (saved) {
+            IMAGE_CACHE.remove(imageCacheKey(attendance));
+        }
+        return saved;
+    }
+    
+    /**
+     * Validate an attendance record and fill in the times implied by its status
+     */
+    private void validateAndNormalize(Attendance attendance) {
+        // Validate input
         if (attendance.getStudentId() <= 0) {
             throw new IllegalArgumentException("Invalid student ID");
         }
@@ -118,31 +110,46 @@ public class AttendanceService {
             attendance.setCheckInTime(null);
             attendance.setLateArrivalTime(null);
         }
-        
-        return attendanceDAO.update(attendance);
     }
     
     /**
      * Mark multiple students' attendance at once
      */
     public boolean markBulkAttendance(List<Attendance> attendanceList) {
+        return markBulkAttendanceDetailed(attendanceList).isAllSaved();
+    }
+    
+    /**
+     * Mark multiple students' attendance in one batched transaction and report the outcome per record
+     */
+    public BulkAttendanceResult markBulkAttendanceDetailed(List<Attendance> attendanceList) {
         if (attendanceList == null || attendanceList.isEmpty()) {
             throw new IllegalArgumentException("Attendance list cannot be empty");
         }
         
-        boolean success = true;
+        BulkAttendanceResult result = new BulkAttendanceResult();
+        List<Attendance> valid = new ArrayList<>();
         for (Attendance attendance : attendanceList) {
             try {
-                if (!markAttendance(attendance)) {
-                    success = false;
-                }
-            } catch (Exception e) {
+                validateAndNormalize(attendance);
+                valid.add(attendance);
+            } catch (IllegalArgumentException e) {
                 System.err.println("Error marking attendance for student " + attendance.getStudentId() + ": " + e.getMessage());
-                success = false;
+                result.addFailure(attendance, e.getMessage());
+            }
+        }
+        
+        boolean[] saved = attendanceDAO.createBatch(valid);
+        for (int i = 0; i < valid.size(); i++) {
+            if (saved[i]) {
+                IMAGE_CACHE.remove(imageCacheKey(valid.get(i)));
+                result.addSaved(valid.get(i));
+            } else {
+                result.addFailure(valid.get(i), "Could not be saved");
             }
         }
         
-        return success;
+        return result;
     }
     
     /**
@@ -160,6 +167,49 @@ public class AttendanceService {
         return attendanceDAO.findByStudentAndDate(studentId, date);
     }
     
+    /**
+     * Read the check-in/check-out images that list queries left unloaded, without changing the
+     * record, so it can run off the EDT; apply the result with applyAttendanceImages.
+     * Returns null if the images could not be read.
+     */
+    public AttendanceImages fetchAttendanceImages(Attendance attendance) {
+        if (!attendance.hasCheckInImage() && !attendance.hasCheckOutImage()) {
+            return new AttendanceImages(null, null);
+        }
+        
+        String key = imageCacheKey(attendance);
+        AttendanceImages images = IMAGE_CACHE.get(key);
+        if (images == null) {
+            images = attendanceDAO.findImages(attendance.getStudentId(), attendance.getDate());
+            if (images == null) {
+                return null;
+            }
+            IMAGE_CACHE.put(key, images);
+        }
+        return images;
+    }
+    
+    /**
+     * Mark fetched images as loaded on the record. An image the record says exists but that
+     * came back empty stays unloaded, so a save cannot replace it with NULL.
+     * Returns whether both images are now loaded.
+     */
+    public boolean applyAttendanceImages(Attendance attendance, AttendanceImages images) {
+        if (!attendance.isCheckInImageLoaded()
+                && (images.getCheckInImage() != null || !attendance.hasCheckInImage())) {
+            attendance.setCheckInImage(images.getCheckInImage());
+        }
+        if (!attendance.isCheckOutImageLoaded()
+                && (images.getCheckOutImage() != null || !attendance.hasCheckOutImage())) {
+            attendance.setCheckOutImage(images.getCheckOutImage());
+        }
+        return attendance.isCheckInImageLoaded() && attendance.isCheckOutImageLoaded();
+    }
+    
+    private static String imageCacheKey(Attendance attendance) {
+        return attendance.getStudentId() + ":" + attendance.getDate();
+    }
+    
     /**
      * Get attendance records for a specific date
      */
@@ -232,7 +282,12 @@ public class AttendanceService {
             throw new IllegalArgumentException("Invalid attendance ID");
         }
         
-        return attendanceDAO.delete(attendanceId);
+        boolean deleted = attendanceDAO.delete(attendanceId);
+        if (deleted) {
+            // Only the id is known here, so drop every cached image
+            IMAGE_CACHE.clear();
+        }
+        return deleted;
     }
     
     /**
@@ -284,7 +339,7 @@ public class AttendanceService {
         }
         
         // Generate default attendance records (all marked as absent initially)
-        List<Attendance> defaultAttendance = new java.util.ArrayList<>();
+        List<Attendance> defaultAttendance = new ArrayList<>();
         for (Student student : students) {
             Attendance attendance = new Attendance();
             attendance.setStudentId(student.getId());
@@ -314,28 +369,28 @@ public class AttendanceService {
      * Get summary of attendance for a class on a specific date
      */
     public AttendanceSummary getClassAttendanceSummary(int classId, LocalDate date) {
-        List<Attendance> attendanceList = getClassAttendance(classId, date);
-        
-        int totalStudents = attendanceList.size();
-        int presentCount = 0;
-        int absentCount = 0;
-        int lateCount = 0;
+        if (classId <= 0) {
+            throw new IllegalArgumentException("Invalid class ID");
+        }
         
-        for (Attendance attendance : attendanceList) {
-            switch (attendance.getStatus()) {
-                case "PRESENT":
-                    presentCount++;
-                    break;
-                case "ABSENT":
-                    absentCount++;
-                    break;
-                case "LATE":
-                    lateCount++;
-                    break;
-            }
+        if (date == null) {
+            throw new IllegalArgumentException("Date is required");
         }
         
-        return new AttendanceSummary(totalStudents, presentCount, absentCount, lateCount);
+        DailyRollup rollup = attendanceDAO.getClassDailyRollup(classId, date);
+        
+        // Students without a record for the day count as absent
+        int unrecorded = Math.max(0, rollup.getClassSize() - rollup.getTotalCount());
+        return new AttendanceSummary(rollup.getClassSize(), rollup.getPresentCount(),
+                rollup.getAbsentCount() + unrecorded, rollup.getLateCount());
+    }
+    
+    /**
+     * Recompute the attendance rollups from the attendance records, correcting any drift.
+     * Returns the number of rollup rows changed, or -1 on error.
+     */
+    public int repairRollups() {
+        return attendanceDAO.recountRollups();
     }
     
     /**
@@ -371,4 +426,29 @@ public class AttendanceService {
             return totalStudents > 0 ? (double) lateCount / totalStudents * 100 : 0;
         }
     }
+    
+    /**
+     * Inner class for the per-record outcome of a bulk save
+     */
+    public static class BulkAttendanceResult {
+        private final List<Attendance> saved = new ArrayList<>();
+        private final Map<Attendance, String> failures = new LinkedHashMap<>();
+        
+        void addSaved(Attendance attendance) {
+            saved.add(attendance);
+        }
+        
+        void addFailure(Attendance attendance, String reason) {
+            failures.put(attendance, reason);
+        }
+        
+        public List<Attendance> getSaved() { return Collections.unmodifiableList(saved); }
+        public Map<Attendance, String> getFailures() { return Collections.unmodifiableMap(failures); }
+        public int getSavedCount() { return saved.size(); }
+        public int getFailedCount() { return failures.size(); }
+        
+        public boolean isAllSaved() {
+            return failures.isEmpty();
+        }
+    }
 }
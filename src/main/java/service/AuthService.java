@@ -40,6 +40,7 @@ public class AuthService {
         User user = userDAO.authenticate(username, password);
         if (user != null) {
             this.currentUser = user;
+            getAuthorizationService().refreshSnapshot();
             return true;
         }
         return false;
@@ -50,6 +51,9 @@ public class AuthService {
      */
     public void logout() {
         this.currentUser = null;
+        if (authorizationService != null) {
+            authorizationService.clearSnapshot();
+        }
     }
     
     /**
@@ -2,17 +2,31 @@ package service;
 
 import dao.UserDAO;
 import dao.AuthorizationDAO;
+import dao.AuthorizationDAO.AccessScope;
 import model.User;
-import java.util.List;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Authorization service for managing user permissions and access control
+ * Authorization service for managing user permissions and access control.
+ * Access checks are answered from a per-session snapshot of the user's permissions and
+ * accessible classes and students, built at login and rebuilt when assignments change.
+ * Changes made in this process apply on the next check; changes made by other clients
+ * apply once the snapshot expires.
  */
 public class AuthorizationService {
     private AuthService authService;
     private UserDAO userDAO;
     private AuthorizationDAO authDAO;
+    private volatile AuthorizationSnapshot snapshot;
+    
+    // Assignment changes made by other clients do not bump the in-process version, so snapshots also expire
+    private static final long SNAPSHOT_TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
     
     // Define permissions as constants
     public static final String PERM_CREATE_USERS = "CREATE_USERS";
@@ -28,6 +42,66 @@ public class AuthorizationService {
     public static final String PERM_SEND_MESSAGES = "SEND_MESSAGES";
     public static final String PERM_MANAGE_SCHOOL = "MANAGE_SCHOOL";
     
+    /**
+     * Permission constants as an enum so each role's permissions fit in an EnumSet
+     */
+    public enum Permission {
+        CREATE_USERS, CREATE_STUDENTS, CREATE_POSTS, COMMENT_POSTS, LIKE_POSTS, UPDATE_STUDENTS,
+        VIEW_ALL_POSTS, VIEW_CLASS_POSTS, MANAGE_ATTENDANCE, VIEW_REPORTS, SEND_MESSAGES, MANAGE_SCHOOL
+    }
+    
+    private static final Map<String, Set<Permission>> ROLE_PERMISSIONS = new HashMap<>();
+    static {
+        // Hiệu trưởng có full quyền: Tạo account phụ huynh/ giáo viên, học sinh, tạo post, inbox….
+        ROLE_PERMISSIONS.put("PRINCIPAL", Collections.unmodifiableSet(EnumSet.allOf(Permission.class)));
+        
+        // Giáo viên có quyền tạo post thông tin học sinh, bình luận, update thông tin học sinh
+        ROLE_PERMISSIONS.put("TEACHER", Collections.unmodifiableSet(EnumSet.of(
+            Permission.CREATE_POSTS,      // Tạo post thông tin học sinh
+            Permission.COMMENT_POSTS,     // Bình luận
+            Permission.UPDATE_STUDENTS,   // Update thông tin học sinh
+            Permission.VIEW_CLASS_POSTS,  // Xem posts của lớp mình dạy
+            Permission.MANAGE_ATTENDANCE, // Điểm danh học sinh
+            Permission.SEND_MESSAGES,     // Gửi tin nhắn với phụ huynh
+            Permission.LIKE_POSTS         // Like posts
+        )));
+        
+        // Phụ huynh có quyền bình luận, like post của giáo viên
+        ROLE_PERMISSIONS.put("PARENT", Collections.unmodifiableSet(EnumSet.of(
+            Permission.COMMENT_POSTS,     // Bình luận
+            Permission.LIKE_POSTS,        // Like post
+            Permission.VIEW_CLASS_POSTS,  // Xem posts của lớp con mình
+            Permission.SEND_MESSAGES      // Gửi tin nhắn với giáo viên
+        )));
+    }
+    
+    /**
+     * What the current user may do and reach, captured once per session.
+     * Stale once AuthorizationDAO's assignments version moves past the one it was built at,
+     * or once it is older than SNAPSHOT_TTL_NANOS.
+     */
+    private static final class AuthorizationSnapshot {
+        private final int userId;
+        private final long version;
+        private final Set<Permission> permissions;
+        private final AccessScope scope;
+        // post ID -> class ID (-1 for posts without a class), filled in as posts are checked
+        private final Map<Integer, Integer> postClassIds = new ConcurrentHashMap<>();
+        private final long builtAtNanos = System.nanoTime();
+        
+        AuthorizationSnapshot(int userId, long version, Set<Permission> permissions, AccessScope scope) {
+            this.userId = userId;
+            this.version = version;
+            this.permissions = permissions;
+            this.scope = scope;
+        }
+        
+        boolean isCurrent(int userId, long version) {
+            return this.userId == userId && this.version == version
+                    && System.nanoTime() - builtAtNanos < SNAPSHOT_TTL_NANOS;
+        }
+    }
+    
     public AuthorizationService(AuthService authService) {
         this.authService = authService;
         this.userDAO = new UserDAO();
@@ -35,81 +109,86 @@ public class AuthorizationService {
     }
     
     /**
-     * Check if current user has a specific permission
+     * Build the snapshot for the current user; called at login so the first checks are warm
      */
-    public boolean hasPermission(String permission) {
-        if (!authService.isLoggedIn()) {
-            return false;
-        }
-        
-        User currentUser = authService.getCurrentUser();
-        return hasPermissionForRole(currentUser.getRole(), permission);
+    public void refreshSnapshot() {
+        snapshot = null;
+        currentSnapshot();
     }
     
     /**
-     * Check if a role has a specific permission
+     * Drop the snapshot, e.g. at logout
      */
-    private boolean hasPermissionForRole(String role, String permission) {
-        switch (role) {
-            case "PRINCIPAL":
-                return getPrincipalPermissions().contains(permission);
-            case "TEACHER":
-                return getTeacherPermissions().contains(permission);
-            case "PARENT":
-                return getParentPermissions().contains(permission);
-            default:
-                return false;
-        }
+    public void clearSnapshot() {
+        snapshot = null;
     }
     
     /**
-     * Get all permissions for Principal (School Admin)
-     * Hiệu trưởng có full quyền: Tạo account phụ huynh/ giáo viên, học sinh, tạo post, inbox….
+     * Get the snapshot for the current user, rebuilding it if the user or assignments changed or it expired.
+     * Returns null if nobody is logged in.
      */
-    private List<String> getPrincipalPermissions() {
-        return Arrays.asList(
-            PERM_CREATE_USERS,      // Tạo account phụ huynh/giáo viên
-            PERM_CREATE_STUDENTS,   // Tạo học sinh
-            PERM_CREATE_POSTS,      // Tạo post
-            PERM_COMMENT_POSTS,     // Bình luận
-            PERM_LIKE_POSTS,        // Like post
-            PERM_UPDATE_STUDENTS,   // Update thông tin học sinh
-            PERM_VIEW_ALL_POSTS,    // Xem tất cả posts
-            PERM_VIEW_CLASS_POSTS,  // Xem posts của lớp
-            PERM_MANAGE_ATTENDANCE, // Quản lý điểm danh
-            PERM_VIEW_REPORTS,      // Xem báo cáo
-            PERM_SEND_MESSAGES,     // Gửi tin nhắn
-            PERM_MANAGE_SCHOOL      // Quản lý trường
-        );
+    private AuthorizationSnapshot currentSnapshot() {
+        User currentUser = authService.getCurrentUser();
+        if (currentUser == null) {
+            return null;
+        }
+        
+        AuthorizationSnapshot current = snapshot;
+        if (current != null && current.isCurrent(currentUser.getId(), AuthorizationDAO.getAssignmentsVersion())) {
+            return current;
+        }
+        
+        synchronized (this) {
+            current = snapshot;
+            long version = AuthorizationDAO.getAssignmentsVersion();
+            if (current != null && current.isCurrent(currentUser.getId(), version)) {
+                return current;
+            }
+            
+            AccessScope scope = authDAO.getAccessScope(currentUser.getId(), currentUser.getRole(), currentUser.getSchoolId());
+            if (scope == null) {
+                // Deny access for now and retry on the next check rather than caching the failure
+                return new AuthorizationSnapshot(currentUser.getId(), version, permissionsFor(currentUser.getRole()),
+                        new AccessScope(Collections.emptySet(), Collections.emptySet()));
+            }
+            
+            current = new AuthorizationSnapshot(currentUser.getId(), version, permissionsFor(currentUser.getRole()), scope);
+            snapshot = current;
+            return current;
+        }
+    }
+    
+    private static Set<Permission> permissionsFor(String role) {
+        Set<Permission> permissions = role != null ? ROLE_PERMISSIONS.get(role) : null;
+        return permissions != null ? permissions : Collections.emptySet();
+    }
+    
+    private static Permission toPermission(String permission) {
+        try {
+            return Permission.valueOf(permission);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
     }
     
     /**
-     * Get all permissions for Teacher
-     * Giáo viên có quyền tạo post thông tin học sinh, bình luận, update thông tin học sinh
+     * Check if current user has a specific permission
      */
-    private List<String> getTeacherPermissions() {
-        return Arrays.asList(
-            PERM_CREATE_POSTS,      // Tạo post thông tin học sinh
-            PERM_COMMENT_POSTS,     // Bình luận
-            PERM_UPDATE_STUDENTS,   // Update thông tin học sinh
-            PERM_VIEW_CLASS_POSTS,  // Xem posts của lớp mình dạy
-            PERM_MANAGE_ATTENDANCE, // Điểm danh học sinh
-            PERM_SEND_MESSAGES,     // Gửi tin nhắn với phụ huynh
-            PERM_LIKE_POSTS         // Like posts
-        );
+    public boolean hasPermission(String permission) {
+        if (!authService.isLoggedIn()) {
+            return false;
+        }
+        
+        User currentUser = authService.getCurrentUser();
+        return hasPermissionForRole(currentUser.getRole(), permission);
     }
     
     /**
-     * Get all permissions for Parent
-     * Phụ huynh có quyền bình luận, like post của giáo viên
+     * Check if a role has a specific permission
      */
-    private List<String> getParentPermissions() {
-        return Arrays.asList(
-            PERM_COMMENT_POSTS,     // Bình luận
-            PERM_LIKE_POSTS,        // Like post
-            PERM_VIEW_CLASS_POSTS,  // Xem posts của lớp con mình
-            PERM_SEND_MESSAGES      // Gửi tin nhắn với giáo viên
-        );
+    private boolean hasPermissionForRole(String role, String permission) {
+        Permission perm = toPermission(permission);
+        return perm != null && permissionsFor(role).contains(perm);
     }
     
     /**
@@ -119,28 +198,8 @@ public class AuthorizationService {
      * For principals: can access all classes in their school
      */
     public boolean canAccessClass(int classId) {
-        if (!authService.isLoggedIn()) {
-            return false;
-        }
-        
-        User currentUser = authService.getCurrentUser();
-        
-        switch (currentUser.getRole()) {
-            case "PRINCIPAL":
-                // Principal can access all classes in their school
-                return canAccessSchool(getClassSchoolId(classId));
-                
-            case "TEACHER":
-                // Teacher can only access their assigned class
-                return isTeacherAssignedToClass(currentUser.getId(), classId);
-                
-            case "PARENT":
-                // Parent can only access their child's class
-                return isParentChildInClass(currentUser.getId(), classId);
-                
-            default:
-                return false;
-        }
+        AuthorizationSnapshot current = currentSnapshot();
+        return current != null && current.scope.getClassIds().contains(classId);
     }
     
     /**
@@ -194,12 +253,7 @@ public class AuthorizationService {
             return false;
         }
         
-        // If user has VIEW_ALL_POSTS permission (Principal), they can view any class
-        if (hasPermission(PERM_VIEW_ALL_POSTS)) {
-            return canAccessSchool(getClassSchoolId(classId));
-        }
-        
-        // Otherwise, check specific class access
+        // Principal's scope is every class in their school, so this also covers VIEW_ALL_POSTS
         return canAccessClass(classId);
     }
     
@@ -211,8 +265,9 @@ public class AuthorizationService {
             return false;
         }
         
-        int studentClassId = getStudentClassId(studentId);
-        return canAccessClass(studentClassId);
+        // The scope holds every student in the classes the user can access
+        AuthorizationSnapshot current = currentSnapshot();
+        return current != null && current.scope.getStudentIds().contains(studentId);
     }
     
     /**
@@ -244,57 +299,32 @@ public class AuthorizationService {
         }
     }
     
-    // Helper methods using AuthorizationDAO
-    
-    private int getClassSchoolId(int classId) {
-        return authDAO.getClassSchoolId(classId);
-    }
-    
-    private boolean isTeacherAssignedToClass(int teacherId, int classId) {
-        return authDAO.isTeacherAssignedToClass(teacherId, classId);
-    }
-    
-    private boolean isParentChildInClass(int parentUserId, int classId) {
-        return authDAO.isParentChildInClass(parentUserId, classId);
-    }
-    
-    private int getStudentClassId(int studentId) {
-        return authDAO.getStudentClassId(studentId);
-    }
-    
     /**
      * Check if current user can access a specific post
      */
     public boolean canAccessPost(int postId) {
-        if (!authService.isLoggedIn()) {
+        AuthorizationSnapshot current = currentSnapshot();
+        if (current == null) {
             return false;
         }
         
-        User currentUser = authService.getCurrentUser();
-        return authDAO.canUserAccessPost(currentUser.getId(), currentUser.getRole(), postId);
+        Integer cached = current.postClassIds.get(postId);
+        int classId = cached != null ? cached : authDAO.getPostClassId(postId);
+        if (cached == null && classId != AuthorizationDAO.LOOKUP_FAILED) {
+            // A failed lookup is denied this time but not remembered, so the next check retries
+            current.postClassIds.put(postId, classId);
+        }
+        return classId >= 0 && current.scope.getClassIds().contains(classId);
     }
     
     /**
      * Get all class IDs that current user can access
      */
     public int[] getAccessibleClassIds() {
-        if (!authService.isLoggedIn()) {
+        AuthorizationSnapshot current = currentSnapshot();
+        if (current == null) {
             return new int[0];
         }
-        
-        User currentUser = authService.getCurrentUser();
-        
-        switch (currentUser.getRole()) {
-            case "TEACHER":
-                return authDAO.getTeacherClassIds(currentUser.getId());
-            case "PARENT":
-                return authDAO.getParentChildrenClassIds(currentUser.getId());
-            case "PRINCIPAL":
-                // Principal can access all classes in their school
-                // This would need a separate method to get all classes in school
-                return new int[0]; // TODO: Implement getAllSchoolClassIds
-            default:
-                return new int[0];
-        }
+        return current.scope.getClassIds().stream().mapToInt(Integer::intValue).sorted().toArray();
     }
 }
@@ -6,7 +6,11 @@ import dao.UserDAO;
 import model.ChatMessage;
 import model.Conversation;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +35,13 @@ public class ChatService {
         return conversationDAO.getUserConversations(userId);
     }
     
+    /**
+     * Get the given conversations of a user, to refresh their rows in the conversation list
+     */
+    public List<Conversation> getUserConversations(int userId, Collection<Integer> conversationIds) {
+        return conversationDAO.getUserConversations(userId, conversationIds);
+    }
+    
     /**
      * Get or create a conversation between two users
      */
@@ -50,28 +61,62 @@ public class ChatService {
             }
         }
         
-        ChatMessage message = new ChatMessage();
-        message.setConversationId(conversationId);
-        message.setSenderId(senderId);
-        message.setContent(content != null ? content.trim() : "");
+        ChatMessage message = createMessage(conversationId, senderId, content);
         message.setAttachment(attachment);
         message.setAttachmentFilename(attachmentFilename);
         message.setAttachmentMimeType(attachmentMimeType);
-        message.setSentAt(LocalDateTime.now());
         
         boolean sent = chatMessageDAO.sendMessage(message);
-        
         if (sent) {
-            // Update conversation's last message
-            String lastMessagePreview = content != null && !content.trim().isEmpty() ? 
-                content.trim() : (attachment != null ? "📎 " + attachmentFilename : "");
-            
-            conversationDAO.updateLastMessage(conversationId, lastMessagePreview, message.getSentAt());
+            updateLastMessage(message, attachment != null);
+        }
+        return sent;
+    }
+    
+    /**
+     * Send a message with a file attachment streamed from disk, so a large file is never
+     * held in memory. A null file sends a text-only message.
+     */
+    public boolean sendMessage(int conversationId, int senderId, String content, Path attachmentFile) throws IOException {
+        if (attachmentFile == null) {
+            return sendMessage(conversationId, senderId, content, null, null, null);
+        }
+        
+        long size = Files.size(attachmentFile);
+        if ((content == null || content.trim().isEmpty()) && size == 0) {
+            return false; // Can't send empty message without attachment
         }
         
+        String mimeType = Files.probeContentType(attachmentFile);
+        ChatMessage message = createMessage(conversationId, senderId, content);
+        message.setAttachmentFilename(attachmentFile.getFileName().toString());
+        message.setAttachmentMimeType(mimeType != null ? mimeType : "application/octet-stream");
+        
+        boolean sent = chatMessageDAO.sendMessage(message, attachmentFile);
+        if (sent) {
+            updateLastMessage(message, true);
+        }
         return sent;
     }
     
+    private ChatMessage createMessage(int conversationId, int senderId, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setConversationId(conversationId);
+        message.setSenderId(senderId);
+        message.setContent(content != null ? content.trim() : "");
+        return message;
+    }
+    
+    /**
+     * Update the conversation's last message preview after a send
+     */
+    private void updateLastMessage(ChatMessage message, boolean hasAttachment) {
+        String lastMessagePreview = !message.getContent().isEmpty() ? 
+            message.getContent() : (hasAttachment ? "📎 " + message.getAttachmentFilename() : "");
+        
+        conversationDAO.updateLastMessage(message.getConversationId(), lastMessagePreview, message.getSentAt());
+    }
+    
     /**
      * Get messages in a conversation
      */
@@ -86,6 +131,51 @@ public class ChatService {
         return chatMessageDAO.getRecentMessages(conversationId, limit);
     }
     
+    /**
+     * Get the page of messages just before the given (oldest loaded) message
+     */
+    public List<ChatMessage> getMessagesBefore(ChatMessage oldest, int limit) {
+        return chatMessageDAO.getMessagesBefore(oldest.getConversationId(), oldest.getSentAt(), oldest.getId(), limit);
+    }
+    
+    /**
+     * Get the messages of a conversation with the given ids, in chronological order
+     */
+    public List<ChatMessage> getMessagesByIds(int conversationId, Collection<Integer> messageIds) {
+        return chatMessageDAO.getMessagesByIds(conversationId, messageIds);
+    }
+    
+    /**
+     * Load the attachment bytes of a message fetched without them
+     */
+    public boolean loadAttachment(ChatMessage message) {
+        if (message.isAttachmentLoaded()) {
+            return true;
+        }
+        byte[] attachment = chatMessageDAO.getAttachment(message.getId());
+        if (attachment == null) {
+            return false;
+        }
+        message.setAttachment(attachment);
+        return true;
+    }
+    
+    /**
+     * Save the attachment of a message to a file, streamed from the database through a small
+     * buffer. Returns false, removing the partial file, if the message has no attachment.
+     */
+    public boolean saveAttachment(ChatMessage message, Path target) throws IOException {
+        boolean saved = false;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            saved = chatMessageDAO.copyAttachment(message.getId(), out);
+        } finally {
+            if (!saved) {
+                Files.deleteIfExists(target);
+            }
+        }
+        return saved;
+    }
+    
     /**
      * Mark messages as read when user opens conversation
      */
@@ -3,6 +3,7 @@ package service;
 import dao.ParentDAO;
 import model.Student;
 import dao.StudentDAO;
+import util.ProfileImageUtil;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -137,7 +138,8 @@ public class ParentService {
             return false; // Child doesn't belong to this parent
         }
         
-        // Update the profile image
-        return studentDAO.updateProfileImage(studentId, profileImageData);
+        // Update the profile image; the thumbnail is generated once here for list views
+        byte[] thumbnail = ProfileImageUtil.createProfileThumbnail(profileImageData);
+        return studentDAO.updateProfileImage(studentId, profileImageData, thumbnail);
     }
 }
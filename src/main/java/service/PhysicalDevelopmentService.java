@@ -1,16 +1,41 @@
 package service;
 
 import dao.PhysicalDevelopmentDAO;
+import model.GrowthProfile;
 import model.PhysicalDevelopmentRecord;
+import util.BoundedLruCache;
+import util.GrowthStandards;
+import util.GrowthStandards.Indicator;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for Physical Development operations
  */
 public class PhysicalDevelopmentService {
+    // Growth profiles shared by all panels, dropped once one of the student's records has been
+    // saved here; records saved by other clients show up when the entry expires
+    private static final BoundedLruCache<Integer, GrowthProfile> GROWTH_CACHE =
+            new BoundedLruCache<>(4L * 1024 * 1024, GrowthProfile::getSizeInBytes, Duration.ofMinutes(10));
+    
+    // WHO convention for converting an age in days to months
+    private static final double DAYS_PER_MONTH = 30.4375;
+    
+    /** Measurement interval used when none is given: once a term */
+    public static final int DEFAULT_MEASUREMENT_INTERVAL_DAYS = 90;
+    
+    // A z-score change of about two thirds crosses one of the major percentile lines
+    private static final double PERCENTILE_CROSSING_Z = 0.67;
+    
     private PhysicalDevelopmentDAO physicalDAO;
     
     public PhysicalDevelopmentService() {
@@ -44,7 +69,11 @@ public class PhysicalDevelopmentService {
             notes
         );
         
-        return physicalDAO.addRecord(record);
+        boolean saved = physicalDAO.addRecord(record);
+        if (saved) {
+            GROWTH_CACHE.remove(studentId);
+        }
+        return saved;
     }
     
     /**
@@ -77,14 +106,23 @@ public class PhysicalDevelopmentService {
             throw new IllegalArgumentException("Height and weight must be positive values");
         }
         
-        return physicalDAO.updateRecord(record);
+        boolean saved = physicalDAO.updateRecord(record);
+        if (saved) {
+            GROWTH_CACHE.remove(record.getStudentId());
+        }
+        return saved;
     }
     
     /**
      * Delete a physical development record
      */
     public boolean deletePhysicalRecord(int recordId) {
-        return physicalDAO.deleteRecord(recordId);
+        boolean deleted = physicalDAO.deleteRecord(recordId);
+        if (deleted) {
+            // Only the record id is known here; deletions are rare, so drop every cached profile
+            GROWTH_CACHE.clear();
+        }
+        return deleted;
     }
     
     /**
@@ -97,15 +135,109 @@ public class PhysicalDevelopmentService {
     }
     
     /**
-     * Calculate BMI growth categories for kindergarten children
+     * Get a student's measurements scored against the growth reference, or null if the
+     * student has no measurements
      */
-    public String getBMICategory(BigDecimal bmi, int ageMonths) {
+    public GrowthProfile getGrowthProfile(int studentId) {
+        GrowthProfile profile = GROWTH_CACHE.get(studentId);
+        if (profile == null) {
+            profile = buildProfiles(physicalDAO.getStudentGrowthMeasurements(studentId)).get(studentId);
+            if (profile != null) {
+                GROWTH_CACHE.put(studentId, profile);
+            }
+        }
+        return profile;
+    }
+    
+    /**
+     * Score records ordered by student and date: the values of all students are laid out in
+     * flat arrays, scored per indicator in one call, then split into one profile per student
+     */
+    private Map<Integer, GrowthProfile> buildProfiles(List<PhysicalDevelopmentRecord> records) {
+        int n = records.size();
+        int[] recordIds = new int[n];
+        int[] studentIds = new int[n];
+        LocalDate[] dates = new LocalDate[n];
+        boolean[] male = new boolean[n];
+        double[] ageMonths = new double[n];
+        double[] heights = new double[n];
+        double[] weights = new double[n];
+        double[] bmis = new double[n];
+        
+        for (int i = 0; i < n; i++) {
+            PhysicalDevelopmentRecord record = records.get(i);
+            recordIds[i] = record.getId();
+            studentIds[i] = record.getStudentId();
+            dates[i] = record.getMeasurementDate();
+            male[i] = !"FEMALE".equals(record.getStudentGender());
+            ageMonths[i] = record.getStudentDob() != null
+                    ? ChronoUnit.DAYS.between(record.getStudentDob(), dates[i]) / DAYS_PER_MONTH
+                    : Double.NaN;
+            heights[i] = record.getHeightCm().doubleValue();
+            weights[i] = record.getWeightKg().doubleValue();
+            bmis[i] = record.getBmi() != null
+                    ? record.getBmi().doubleValue()
+                    : weights[i] / Math.pow(heights[i] / 100, 2);
+        }
+        
+        GrowthStandards standards = GrowthStandards.get();
+        double[] heightZ = new double[n];
+        double[] weightZ = new double[n];
+        double[] bmiZ = new double[n];
+        standards.zScores(Indicator.HEIGHT, male, ageMonths, heights, heightZ);
+        standards.zScores(Indicator.WEIGHT, male, ageMonths, weights, weightZ);
+        standards.zScores(Indicator.BMI, male, ageMonths, bmis, bmiZ);
+        
+        Map<Integer, GrowthProfile> profiles = new LinkedHashMap<>();
+        int from = 0;
+        while (from < n) {
+            int to = from + 1;
+            while (to < n && studentIds[to] == studentIds[from]) {
+                to++;
+            }
+            profiles.put(studentIds[from], new GrowthProfile(studentIds[from], male[from],
+                    Arrays.copyOfRange(recordIds, from, to), Arrays.copyOfRange(dates, from, to),
+                    Arrays.copyOfRange(ageMonths, from, to), Arrays.copyOfRange(heights, from, to),
+                    Arrays.copyOfRange(weights, from, to), Arrays.copyOfRange(bmis, from, to),
+                    Arrays.copyOfRange(heightZ, from, to), Arrays.copyOfRange(weightZ, from, to),
+                    Arrays.copyOfRange(bmiZ, from, to)));
+            from = to;
+        }
+        return profiles;
+    }
+    
+    /**
+     * Calculate the BMI category of a child from the BMI-for-age z-score, with the WHO cut-offs:
+     * under 5 years overweight above +2 and obese above +3, from 5 years above +1 and +2;
+     * underweight below -2. Ages outside the growth reference use fixed BMI thresholds.
+     */
+    public String getBMICategory(BigDecimal bmi, double ageMonths, boolean isMale) {
         if (bmi == null) return "Unknown";
         
+        double z = GrowthStandards.get().zScore(Indicator.BMI, isMale, ageMonths, bmi.doubleValue());
+        if (Double.isNaN(z)) {
+            return getBMICategory(bmi);
+        }
+        
+        double overweight = ageMonths < 60 ? 2 : 1;
+        if (z < -2) {
+            return "Underweight";
+        } else if (z <= overweight) {
+            return "Normal";
+        } else if (z <= overweight + 1) {
+            return "Overweight";
+        } else {
+            return "Obese";
+        }
+    }
+    
+    /**
+     * Fixed BMI thresholds for when there is no growth reference for the child's age
+     */
+    private String getBMICategory(BigDecimal bmi) {
         double bmiValue = bmi.doubleValue();
         
         // Simplified BMI categories for kindergarten children (3-6 years)
-        // These are general guidelines and should be used with pediatric growth charts
         if (bmiValue < 14.0) {
             return "Underweight";
         } else if (bmiValue < 17.0) {
@@ -118,22 +250,73 @@ public class PhysicalDevelopmentService {
     }
     
     /**
-     * Get growth trend analysis for a student
+     * Percentile (0-100) of a z-score, or NaN if there is none
      */
-    public String getGrowthTrend(List<PhysicalDevelopmentRecord> records) {
-        if (records == null || records.size() < 2) {
+    public double getPercentile(double z) {
+        return GrowthStandards.percentile(z);
+    }
+    
+    /**
+     * Get growth trend analysis from a student's profile: how the height and weight
+     * percentiles moved between the last two measurements. Falls back to the raw changes
+     * when the ages are outside the growth reference.
+     */
+    public String getGrowthTrend(GrowthProfile profile) {
+        if (profile == null || profile.size() < 2) {
             return "Insufficient data for trend analysis";
         }
         
-        // Sort by date (most recent first)
-        records.sort((r1, r2) -> r2.getMeasurementDate().compareTo(r1.getMeasurementDate()));
+        int latest = profile.latest();
+        int previous = latest - 1;
+        double heightChange = profile.getHeightZ(latest) - profile.getHeightZ(previous);
+        double weightChange = profile.getWeightZ(latest) - profile.getWeightZ(previous);
+        if (Double.isNaN(heightChange) || Double.isNaN(weightChange)) {
+            return describeChanges(profile.getHeight(latest) - profile.getHeight(previous),
+                                   profile.getWeight(latest) - profile.getWeight(previous));
+        }
         
-        PhysicalDevelopmentRecord latest = records.get(0);
-        PhysicalDevelopmentRecord previous = records.get(1);
+        return "Height " + describePercentileChange(profile.getHeightZ(previous), heightChange)
+                + ", weight " + describePercentileChange(profile.getWeightZ(previous), weightChange);
+    }
+    
+    private String describePercentileChange(double previousZ, double change) {
+        String movement;
+        if (change >= PERCENTILE_CROSSING_Z) {
+            movement = "rising";
+        } else if (change <= -PERCENTILE_CROSSING_Z) {
+            movement = "falling";
+        } else {
+            movement = "steady";
+        }
+        return movement + " (P" + Math.round(getPercentile(previousZ))
+                + " \u2192 P" + Math.round(getPercentile(previousZ + change)) + ")";
+    }
+    
+    /**
+     * Get growth trend analysis from the two most recent of the given records
+     */
+    public String getGrowthTrend(List<PhysicalDevelopmentRecord> records) {
+        if (records == null || records.size() < 2) {
+            return "Insufficient data for trend analysis";
+        }
         
-        double heightChange = latest.getHeightCm().doubleValue() - previous.getHeightCm().doubleValue();
-        double weightChange = latest.getWeightKg().doubleValue() - previous.getWeightKg().doubleValue();
+        // Find the two most recent records without reordering the caller's list
+        PhysicalDevelopmentRecord latest = null;
+        PhysicalDevelopmentRecord previous = null;
+        for (PhysicalDevelopmentRecord record : records) {
+            if (latest == null || record.getMeasurementDate().isAfter(latest.getMeasurementDate())) {
+                previous = latest;
+                latest = record;
+            } else if (previous == null || record.getMeasurementDate().isAfter(previous.getMeasurementDate())) {
+                previous = record;
+            }
+        }
         
+        return describeChanges(latest.getHeightCm().doubleValue() - previous.getHeightCm().doubleValue(),
+                               latest.getWeightKg().doubleValue() - previous.getWeightKg().doubleValue());
+    }
+    
+    private String describeChanges(double heightChange, double weightChange) {
         StringBuilder trend = new StringBuilder();
         
         if (heightChange > 2.0) {
@@ -168,14 +351,206 @@ public class PhysicalDevelopmentService {
      */
     public boolean isMeasurementDue(int studentId, int intervalDays) {
         PhysicalDevelopmentRecord latest = getLatestPhysicalData(studentId);
-        if (latest == null) {
-            return true; // No previous measurement
+        return isMeasurementDue(latest != null ? latest.getMeasurementDate() : null, intervalDays, LocalDate.now());
+    }
+    
+    /**
+     * A measurement is due once the interval has passed since the last one, or if there is none
+     */
+    private static boolean isMeasurementDue(LocalDate lastMeasurement, int intervalDays, LocalDate today) {
+        return lastMeasurement == null || !lastMeasurement.plusDays(intervalDays).isAfter(today);
+    }
+    
+    /**
+     * Get the growth report of a class: every student's latest measurement, the change and
+     * growth rate since the one before, and whether a new measurement is due.
+     * The whole class is read in one query; each student's rows are folded into a summary as
+     * they arrive, so only the last two measurements per student are kept.
+     */
+    public ClassGrowthReport getClassGrowthReport(int classId, int intervalDays) {
+        if (classId <= 0) {
+            throw new IllegalArgumentException("Invalid class ID");
+        }
+        return getClassGrowthReports(new int[] { classId }, intervalDays).get(classId);
+    }
+    
+    /**
+     * Get the growth reports of several classes keyed by class id, e.g. for a student list
+     * spanning classes, from the same single query as one class report
+     */
+    public Map<Integer, ClassGrowthReport> getClassGrowthReports(int[] classIds, int intervalDays) {
+        if (intervalDays <= 0) {
+            throw new IllegalArgumentException("Measurement interval must be positive");
         }
         
-        LocalDate lastMeasurement = latest.getMeasurementDate();
         LocalDate today = LocalDate.now();
+        Map<Integer, List<StudentGrowthSummary>> studentsByClass = new LinkedHashMap<>();
+        for (int classId : classIds) {
+            studentsByClass.put(classId, new ArrayList<>());
+        }
+        boolean loaded = classIds.length == 0 || physicalDAO.forEachClassMeasurement(classIds, (classId, record) -> {
+            List<StudentGrowthSummary> students = studentsByClass.get(classId);
+            StudentGrowthSummary current = students.isEmpty() ? null : students.get(students.size() - 1);
+            if (current == null || current.getStudentId() != record.getStudentId()) {
+                current = new StudentGrowthSummary(record.getStudentId(), record.getStudentName(),
+                        !"FEMALE".equals(record.getStudentGender()), record.getStudentDob());
+                students.add(current);
+            }
+            if (record.getMeasurementDate() != null) {
+                current.add(record.getMeasurementDate(), record.getHeightCm().doubleValue(),
+                            record.getWeightKg().doubleValue(),
+                            record.getBmi() != null ? record.getBmi().doubleValue() : Double.NaN);
+            }
+        });
         
-        return lastMeasurement.plusDays(intervalDays).isBefore(today) || 
-               lastMeasurement.plusDays(intervalDays).isEqual(today);
+        Map<Integer, ClassGrowthReport> reports = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<StudentGrowthSummary>> entry : studentsByClass.entrySet()) {
+            List<StudentGrowthSummary> students = entry.getValue();
+            if (!loaded) {
+                students.clear(); // Error already logged; report no students rather than part of a class
+            }
+            for (StudentGrowthSummary student : students) {
+                student.measurementDue = isMeasurementDue(student.getLatestDate(), intervalDays, today);
+            }
+            reports.put(entry.getKey(), new ClassGrowthReport(entry.getKey(), intervalDays, today, students));
+        }
+        return reports;
+    }
+    
+    /**
+     * Get the students of a class due for a new measurement, from one class report query
+     */
+    public List<StudentGrowthSummary> getStudentsDueForMeasurement(int classId, int intervalDays) {
+        return getClassGrowthReport(classId, intervalDays).getDueStudents();
+    }
+    
+    /**
+     * Inner class for a class growth report
+     */
+    public static class ClassGrowthReport {
+        private final int classId;
+        private final int intervalDays;
+        private final LocalDate reportDate;
+        private final List<StudentGrowthSummary> students;
+        
+        public ClassGrowthReport(int classId, int intervalDays, LocalDate reportDate, List<StudentGrowthSummary> students) {
+            this.classId = classId;
+            this.intervalDays = intervalDays;
+            this.reportDate = reportDate;
+            this.students = Collections.unmodifiableList(students);
+        }
+        
+        public int getClassId() { return classId; }
+        public int getIntervalDays() { return intervalDays; }
+        public LocalDate getReportDate() { return reportDate; }
+        
+        /**
+         * Every student of the class, by name
+         */
+        public List<StudentGrowthSummary> getStudents() { return students; }
+        
+        public StudentGrowthSummary getStudent(int studentId) {
+            for (StudentGrowthSummary student : students) {
+                if (student.getStudentId() == studentId) {
+                    return student;
+                }
+            }
+            return null;
+        }
+        
+        public List<StudentGrowthSummary> getDueStudents() {
+            List<StudentGrowthSummary> due = new ArrayList<>();
+            for (StudentGrowthSummary student : students) {
+                if (student.isMeasurementDue()) {
+                    due.add(student);
+                }
+            }
+            return due;
+        }
+        
+        public int getDueCount() {
+            return getDueStudents().size();
+        }
+    }
+    
+    /**
+     * Inner class for one student's line of a class growth report. Measurements are added
+     * oldest first; only the latest and the one before are kept.
+     */
+    public static class StudentGrowthSummary {
+        private final int studentId;
+        private final String studentName;
+        private final boolean male;
+        private final LocalDate dob;
+        private int measurementCount;
+        private LocalDate latestDate;
+        private double latestHeight = Double.NaN;
+        private double latestWeight = Double.NaN;
+        private double latestBmi = Double.NaN;
+        private LocalDate previousDate;
+        private double previousHeight = Double.NaN;
+        private double previousWeight = Double.NaN;
+        private boolean measurementDue;
+        
+        public StudentGrowthSummary(int studentId, String studentName, boolean male, LocalDate dob) {
+            this.studentId = studentId;
+            this.studentName = studentName;
+            this.male = male;
+            this.dob = dob;
+        }
+        
+        void add(LocalDate date, double heightCm, double weightKg, double bmi) {
+            measurementCount++;
+            previousDate = latestDate;
+            previousHeight = latestHeight;
+            previousWeight = latestWeight;
+            latestDate = date;
+            latestHeight = heightCm;
+            latestWeight = weightKg;
+            latestBmi = Double.isNaN(bmi) ? weightKg / Math.pow(heightCm / 100, 2) : bmi;
+        }
+        
+        public int getStudentId() { return studentId; }
+        public String getStudentName() { return studentName; }
+        public boolean isMale() { return male; }
+        public LocalDate getDob() { return dob; }
+        public int getMeasurementCount() { return measurementCount; }
+        public boolean hasMeasurements() { return measurementCount > 0; }
+        
+        /** Date of the latest measurement, or null if there is none */
+        public LocalDate getLatestDate() { return latestDate; }
+        public double getLatestHeight() { return latestHeight; }
+        public double getLatestWeight() { return latestWeight; }
+        public double getLatestBmi() { return latestBmi; }
+        public LocalDate getPreviousDate() { return previousDate; }
+        public boolean isMeasurementDue() { return measurementDue; }
+        
+        /** Height change since the previous measurement in cm, NaN with fewer than two */
+        public double getHeightChange() { return latestHeight - previousHeight; }
+        
+        /** Weight change since the previous measurement in kg, NaN with fewer than two */
+        public double getWeightChange() { return latestWeight - previousWeight; }
+        
+        /** Height growth per month between the last two measurements, NaN if not measurable */
+        public double getHeightVelocity() { return perMonth(getHeightChange()); }
+        
+        /** Weight gain per month between the last two measurements, NaN if not measurable */
+        public double getWeightVelocity() { return perMonth(getWeightChange()); }
+        
+        /** Age in months at the latest measurement, NaN without a measurement or date of birth */
+        public double getLatestAgeMonths() {
+            if (latestDate == null || dob == null) {
+                return Double.NaN;
+            }
+            return ChronoUnit.DAYS.between(dob, latestDate) / DAYS_PER_MONTH;
+        }
+        
+        private double perMonth(double change) {
+            if (previousDate == null) {
+                return Double.NaN;
+            }
+            long days = ChronoUnit.DAYS.between(previousDate, latestDate);
+            return days > 0 ? change / (days / DAYS_PER_MONTH) : Double.NaN;
+        }
     }
 }
@@ -9,6 +9,7 @@ import model.Comment;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Service class for post management with business logic for scheduling and visibility rules
@@ -51,6 +52,7 @@ public class PostService {
             return false;
         }
         
+        // A feed post's photo need not be loaded: unless replaced, the stored one is kept
         return postDAO.updatePost(post);
     }
     
@@ -82,6 +84,56 @@ public class PostService {
         return postDAO.getPostsByClass(classId);
     }
     
+    /**
+     * Get a page of posts of one type by any of the given authors, pinned first then newest.
+     * Pass the last post of the previous page, or null for the first page.
+     */
+    public List<Post> getPostsByAuthorsPage(int[] authorIds, String postType, Post after, int limit) {
+        return postDAO.getPostsByAuthorsPage(authorIds, postType, after, limit);
+    }
+    
+    /**
+     * Get a page of posts of one type visible to parents in any of the given classes.
+     * Pass the last post of the previous page, or null for the first page.
+     */
+    public List<Post> getVisiblePostsForParentsPage(int[] classIds, String postType, Post after, int limit) {
+        return postDAO.getVisiblePostsForParentsPage(classIds, postType, after, limit);
+    }
+    
+    /**
+     * Get a page of the school announcements a user may see: teachers and the principal see
+     * those for all staff, parents those for all parents, and authors always see their own.
+     * Pass the last post of the previous page, or null for the first page.
+     */
+    public List<Post> getSchoolAnnouncementsPage(int schoolId, int userId, String userRole, Post after, int limit) {
+        String[] visibilities = "PARENT".equals(userRole)
+            ? new String[] { "ALL", "PARENTS_ONLY" }
+            : new String[] { "ALL", "TEACHERS_ONLY" };
+        return postDAO.getSchoolAnnouncementsPage(schoolId, userId, visibilities, after, limit);
+    }
+    
+    /**
+     * Stream the card images (thumbnail, else original photo) of several posts from one query,
+     * passing each post ID and its bytes to the callback as they are read
+     */
+    public boolean getPostCardImages(int[] postIds, BiConsumer<Integer, byte[]> onImage) {
+        return postDAO.getPostImages(postIds, true, onImage);
+    }
+    
+    /**
+     * Fetch the photo and thumbnail of a post loaded from a feed page, if not loaded yet
+     */
+    public boolean loadPhoto(Post post) {
+        if (post.isPhotoLoaded()) {
+            return true;
+        }
+        if (!post.hasPhoto()) {
+            post.setPhotoAttachment(null);
+            return true;
+        }
+        return postDAO.loadPhoto(post);
+    }
+    
     /**
      * Get a specific post by ID
      */
@@ -142,6 +194,13 @@ public class PostService {
         return commentDAO.getApprovedCommentsByPost(postId);
     }
     
+    /**
+     * Get approved comments for several posts in one query, keyed by post ID
+     */
+    public Map<Integer, List<Comment>> getApprovedComments(List<Integer> postIds) {
+        return commentDAO.getApprovedCommentsByPosts(postIds);
+    }
+    
     /**
      * Get all comments for a post (for teacher moderation)
      */
@@ -184,6 +243,14 @@ public class PostService {
         return commentDAO.deleteComment(commentId, authorId);
     }
     
+    /**
+     * Recompute the approved comment count of every post whose stored count has drifted.
+     * Returns the number of posts corrected, or -1 on error.
+     */
+    public int repairCommentCounts() {
+        return commentDAO.recountCommentCounts();
+    }
+    
     /**
      * Get post statistics for a teacher
      */
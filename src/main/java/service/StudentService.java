@@ -9,6 +9,8 @@ import java.util.List;
  * Service class for student management operations
  */
 public class StudentService {
+    public static final int DEFAULT_SEARCH_LIMIT = 50;
+    
     private StudentDAO studentDAO;
     
     public StudentService() {
@@ -79,13 +81,21 @@ public class StudentService {
     }
     
     /**
-     * Search students by name
+     * Search students by name, best matches first, up to DEFAULT_SEARCH_LIMIT results
      */
     public List<Student> searchStudents(String name) {
+        return searchStudents(name, DEFAULT_SEARCH_LIMIT);
+    }
+    
+    /**
+     * Search students by name ignoring case and diacritics, returning at most {@code limit}
+     * best matches. A blank name returns every student.
+     */
+    public List<Student> searchStudents(String name, int limit) {
         if (name == null || name.trim().isEmpty()) {
             return getAllStudents();
         }
-        return studentDAO.searchByName(name.trim());
+        return studentDAO.searchByName(name.trim(), limit);
     }
     
     /**
@@ -175,6 +175,13 @@ public class UserService {
         return userDAO.findAllWithSchoolNamesAndChildren();
     }
     
+    /**
+     * Get one user with school name and child name, as shown in the user table
+     */
+    public User getUserWithSchoolName(int id) {
+        return userDAO.findByIdWithSchoolNameAndChild(id);
+    }
+    
     /**
      * Get all schools for dropdown options
      */
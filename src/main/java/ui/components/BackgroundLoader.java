@@ -0,0 +1,117 @@
+package ui.components;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs service calls off the Event Dispatch Thread and hands the result back on it.
+ * A panel keeps one loader per kind of data it shows; starting a new load supersedes
+ * the one in flight, whose result is then dropped so a slow query for an old
+ * date or class can never overwrite newer data. While loading, the owner shows a
+ * wait cursor and the (optional) indicator from {@link #getIndicator()} is visible.
+ */
+public class BackgroundLoader {
+
+    /**
+     * Work to run in the background, typically a service or DAO call
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    // Shared by all panels and kept below the connection pool size so UI loads cannot exhaust it
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ui-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final JComponent owner;
+    private final JProgressBar indicator;
+    private SwingWorker<?, ?> current;
+
+    public BackgroundLoader(JComponent owner) {
+        this.owner = owner;
+        this.indicator = new JProgressBar();
+        indicator.setIndeterminate(true);
+        indicator.setPreferredSize(new Dimension(80, 12));
+        indicator.setVisible(false);
+    }
+
+    /**
+     * Small progress bar that is only visible while a load is running
+     */
+    public JProgressBar getIndicator() {
+        return indicator;
+    }
+
+    /**
+     * Run the task in the background, superseding any load still in flight.
+     * Must be called on the EDT; both callbacks also run on the EDT.
+     */
+    public <T> void load(Task<T> task, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        cancel();
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                if (current != this) {
+                    return; // Superseded or cancelled
+                }
+                current = null;
+                setBusy(false);
+                try {
+                    onSuccess.accept(get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    cause.printStackTrace();
+                    onError.accept(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        current = worker;
+        setBusy(true);
+        EXECUTOR.execute(worker);
+    }
+
+    /**
+     * Drop the load in flight, if any. Its query still finishes, but the result is discarded.
+     */
+    public void cancel() {
+        if (current != null) {
+            // Not interrupted: a JDBC call cannot be interrupted safely and the connection must go back to the pool
+            current.cancel(false);
+            current = null;
+            setBusy(false);
+        }
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    private void setBusy(boolean busy) {
+        indicator.setVisible(busy);
+        owner.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+    }
+}
@@ -6,7 +6,7 @@ import java.awt.*;
 
 public class CustomMessageDialog extends JDialog {
 
-    public enum Type { INFO, SUCCESS, ERROR }
+    public enum Type { INFO, SUCCESS, WARNING, ERROR }
 
     private Color bgColor = AppColor.getColor("lightBrown");
     private Color textColor = Color.BLACK;
@@ -36,7 +36,7 @@ public class CustomMessageDialog extends JDialog {
         JLabel iconLabel = new JLabel();
         String iconPath = switch(type) {
             case SUCCESS -> "src/main/resources/images/star.png";
-            case ERROR -> "src/main/resources/images/warning.png";
+            case WARNING, ERROR -> "src/main/resources/images/warning.png";
             case INFO -> "src/main/resources/images/info.png";
         };
         ImageIcon icon = new ImageIcon(iconPath);
@@ -6,7 +6,11 @@ import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Consumer;
+import util.SearchIndex;
 
 /**
  * Reusable data table component with common functionality like
@@ -20,6 +24,19 @@ public class DataTable extends JPanel {
     private Consumer<Integer> rowSelectionHandler;
     private Consumer<Integer> doubleClickHandler;
     
+    // Optional token index over the rows, keyed by the value in keyColumn
+    private SearchIndex<Object> searchIndex;
+    private int keyColumn;
+    private int[] searchColumns;
+    private String indexQuery;
+    private Set<Object> indexMatches;
+    private final RowFilter<DefaultTableModel, Integer> indexFilter = new RowFilter<>() {
+        @Override
+        public boolean include(Entry<? extends DefaultTableModel, ? extends Integer> entry) {
+            return indexMatches == null || indexMatches.contains(entry.getValue(keyColumn));
+        }
+    };
+    
     public DataTable(String[] columnNames) {
         initializeComponents(columnNames);
         setupLayout();
@@ -112,17 +129,84 @@ public class DataTable extends JPanel {
         this.doubleClickHandler = handler;
     }
     
+    /**
+     * Index the rows for searchIndexed(): rows are identified by the value in keyColumn (e.g. the ID)
+     * and matched on the text of searchColumns, ignoring case and Vietnamese diacritics.
+     * Rows already in the table are indexed too.
+     */
+    public void enableSearchIndex(int keyColumn, int... searchColumns) {
+        this.searchIndex = new SearchIndex<>();
+        this.keyColumn = keyColumn;
+        this.searchColumns = searchColumns.clone();
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            indexRow(row);
+        }
+    }
+    
     /**
      * Add a row to the table
      */
     public void addRow(Object[] rowData) {
+        if (searchIndex != null) {
+            searchIndex.put(rowData[keyColumn], searchText(rowData));
+            refreshIndexMatch(rowData[keyColumn]);
+        }
         tableModel.addRow(rowData);
     }
     
+    /**
+     * Replace the row with the same key, or add it if there is none; requires the search index
+     */
+    public void putRow(Object[] rowData) {
+        requireSearchIndex();
+        int row = findRow(rowData[keyColumn]);
+        if (row < 0) {
+            addRow(rowData);
+            return;
+        }
+        searchIndex.put(rowData[keyColumn], searchText(rowData));
+        refreshIndexMatch(rowData[keyColumn]);
+        for (int column = 0; column < rowData.length && column < tableModel.getColumnCount(); column++) {
+            tableModel.setValueAt(rowData[column], row, column);
+        }
+    }
+    
+    /**
+     * Remove the row with the given key; returns false if there is none. Requires the search index
+     */
+    public boolean removeRow(Object key) {
+        requireSearchIndex();
+        int row = findRow(key);
+        if (row < 0) {
+            return false;
+        }
+        searchIndex.remove(key);
+        tableModel.removeRow(row);
+        return true;
+    }
+    
+    /**
+     * Model index of the row with the given key, or -1
+     */
+    public int findRow(Object key) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if (key.equals(tableModel.getValueAt(row, keyColumn))) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
     /**
      * Clear all rows
      */
     public void clearRows() {
+        if (searchIndex != null) {
+            searchIndex.clear();
+            if (indexMatches != null) {
+                indexMatches.clear();
+            }
+        }
         tableModel.setRowCount(0);
     }
     
@@ -194,13 +278,87 @@ public class DataTable extends JPanel {
         }
     }
     
+    /**
+     * Show only the rows whose indexed columns contain every word of the search text, ignoring
+     * case and diacritics; a blank search shows every row. Requires the search index
+     */
+    public void searchIndexed(String searchText) {
+        requireSearchIndex();
+        if (searchText == null || searchText.trim().isEmpty()) {
+            clearFilter();
+            return;
+        }
+        indexQuery = searchText;
+        indexMatches = searchIndex.search(searchText);
+        sorter.setRowFilter(indexFilter);
+    }
+    
+    /**
+     * Show only the rows with the given keys, e.g. the results of a database search; rows
+     * put later keep their visibility. Requires the search index
+     */
+    public void showRows(Collection<?> keys) {
+        requireSearchIndex();
+        indexQuery = null;
+        indexMatches = new HashSet<>(keys);
+        sorter.setRowFilter(indexFilter);
+    }
+    
+    /**
+     * Number of rows shown after filtering
+     */
+    public int getVisibleRowCount() {
+        return table.getRowCount();
+    }
+    
     /**
      * Clear any applied filters
      */
     public void clearFilter() {
+        indexQuery = null;
+        indexMatches = null;
         sorter.setRowFilter(null);
     }
     
+    private void indexRow(int row) {
+        Object[] rowData = new Object[tableModel.getColumnCount()];
+        for (int column = 0; column < rowData.length; column++) {
+            rowData[column] = tableModel.getValueAt(row, column);
+        }
+        searchIndex.put(rowData[keyColumn], searchText(rowData));
+    }
+    
+    private String searchText(Object[] rowData) {
+        StringBuilder text = new StringBuilder();
+        for (int column : searchColumns) {
+            if (column < rowData.length && rowData[column] != null) {
+                text.append(rowData[column]).append(' ');
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Match a changed row against the active search before the model fires its event,
+     * so the sorter filters the row with the new text
+     */
+    private void refreshIndexMatch(Object key) {
+        if (indexQuery == null) {
+            return;
+        }
+        if (searchIndex.matches(key, indexQuery)) {
+            indexMatches.add(key);
+        } else {
+            indexMatches.remove(key);
+        }
+    }
+    
+    private void requireSearchIndex() {
+        if (searchIndex == null) {
+            throw new IllegalStateException("Search index not enabled for this table");
+        }
+    }
+    
     /**
      * Get the underlying JTable for direct access if needed
      */
@@ -0,0 +1,141 @@
+package ui.components;
+
+import util.ImageCache;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Fetches a batch of images in the background and decodes them on a small pool, handing
+ * each icon to the EDT as soon as it is ready so a list of cards can be shown straight away
+ * and fill in its pictures as they arrive.
+ *
+ * Fetches run one at a time on a single thread, so image loading never holds more than one
+ * pooled connection. The decode queue is bounded: when it is full the fetch thread decodes
+ * the next image itself, which throttles the query instead of piling raw bytes up on the heap.
+ */
+public class ProgressiveImageLoader {
+
+    /**
+     * Reads the images of a batch, typically with one streamed query, passing each key and its
+     * bytes to the sink as soon as they are read. Returns false if the batch could not be read.
+     */
+    @FunctionalInterface
+    public interface BatchFetch<K> {
+        boolean fetch(BiConsumer<K, byte[]> sink) throws Exception;
+    }
+
+    private static final int DECODER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int DECODE_QUEUE_SIZE = 16;
+
+    private static final ExecutorService FETCH_EXECUTOR = Executors.newSingleThreadExecutor(daemonThreads("image-fetch"));
+    private static final ExecutorService DECODE_EXECUTOR = new ThreadPoolExecutor(
+            DECODER_THREADS, DECODER_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(DECODE_QUEUE_SIZE), daemonThreads("image-decode"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private ProgressiveImageLoader() {
+    }
+
+    /**
+     * Fetch a batch and decode every image scaled to fit within the given size, preserving its
+     * aspect ratio. {@code onDecoded} runs on the EDT once per image, in completion order, with
+     * a null icon if the bytes could not be decoded. {@code onFinished} then runs on the EDT
+     * once, with false if the fetch failed; keys the fetch never passed on got no callback.
+     * May be called from any thread.
+     */
+    public static <K> void load(BatchFetch<K> fetch, int maxWidth, int maxHeight,
+                                BiConsumer<K, ImageIcon> onDecoded, Consumer<Boolean> onFinished) {
+        FETCH_EXECUTOR.execute(() -> {
+            // The fetch itself plus each image still decoding; the last to finish reports
+            AtomicInteger outstanding = new AtomicInteger(1);
+            AtomicBoolean fetched = new AtomicBoolean();
+            Runnable finish = () -> {
+                if (outstanding.decrementAndGet() == 0) {
+                    SwingUtilities.invokeLater(() -> onFinished.accept(fetched.get()));
+                }
+            };
+            try {
+                fetched.set(fetch.fetch((key, data) -> {
+                    outstanding.incrementAndGet();
+                    DECODE_EXECUTOR.execute(() -> {
+                        // A corrupt image must not stall the countdown, or onFinished never runs
+                        ImageIcon icon = null;
+                        try {
+                            icon = decode(data, maxWidth, maxHeight);
+                        } catch (RuntimeException e) {
+                            System.err.println("Error decoding image: " + e);
+                        } finally {
+                            ImageIcon decoded = icon;
+                            SwingUtilities.invokeLater(() -> onDecoded.accept(key, decoded));
+                            finish.run();
+                        }
+                    });
+                }));
+            } catch (Exception e) {
+                System.err.println("Error fetching images: " + e.getMessage());
+            } finally {
+                finish.run();
+            }
+        });
+    }
+
+    /**
+     * Decode and scale through the shared image cache, so a page shown again is not decoded twice
+     */
+    private static ImageIcon decode(byte[] data, int maxWidth, int maxHeight) {
+        return ImageCache.getInstance().get(ImageCache.contentKey(data), maxWidth, maxHeight, () -> {
+            try {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+                return image != null ? new ImageIcon(scaleToFit(image, maxWidth, maxHeight)) : null;
+            } catch (IOException e) {
+                System.err.println("Error decoding image: " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Scale eagerly here rather than with getScaledInstance, which would defer the work to the
+     * first paint on the EDT
+     */
+    private static BufferedImage scaleToFit(BufferedImage image, int maxWidth, int maxHeight) {
+        double scale = Math.min((double) maxWidth / image.getWidth(), (double) maxHeight / image.getHeight());
+        int width = Math.max(1, (int) (image.getWidth() * scale));
+        int height = Math.max(1, (int) (image.getHeight() * scale));
+        if (width == image.getWidth() && height == image.getHeight()) {
+            return image;
+        }
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
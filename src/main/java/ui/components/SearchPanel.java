@@ -7,17 +7,23 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.function.Consumer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 /**
  * Reusable search panel component with search field and buttons
  */
 public class SearchPanel extends JPanel {
+    /** Pause in typing, in milliseconds, before a search-as-you-type runs */
+    public static final int DEFAULT_TYPING_DELAY = 150;
+    
     private JTextField searchField;
     private JButton searchButton;
     private JButton clearButton;
     private JLabel searchLabel;
     private Consumer<String> searchHandler;
     private Runnable clearHandler;
+    private Timer typingTimer;
     
     public SearchPanel(String labelText) {
         this(labelText, 20);
@@ -91,6 +97,9 @@ public class SearchPanel extends JPanel {
     
     private void performClear() {
         searchField.setText("");
+        if (typingTimer != null) {
+            typingTimer.stop(); // The clear handler below replaces the pending search
+        }
         if (clearHandler != null) {
             clearHandler.run();
         }
@@ -110,6 +119,35 @@ public class SearchPanel extends JPanel {
         this.clearHandler = handler;
     }
     
+    /**
+     * Search as the user types: the search handler runs once typing pauses for delayMillis,
+     * so a burst of keystrokes triggers a single search
+     */
+    public void enableSearchAsYouType(int delayMillis) {
+        if (typingTimer == null) {
+            typingTimer = new Timer(delayMillis, e -> performSearch());
+            typingTimer.setRepeats(false);
+            searchField.getDocument().addDocumentListener(new DocumentListener() {
+                @Override
+                public void insertUpdate(DocumentEvent e) {
+                    typingTimer.restart();
+                }
+                
+                @Override
+                public void removeUpdate(DocumentEvent e) {
+                    typingTimer.restart();
+                }
+                
+                @Override
+                public void changedUpdate(DocumentEvent e) {
+                    // Attribute changes only
+                }
+            });
+        } else {
+            typingTimer.setInitialDelay(delayMillis);
+        }
+    }
+    
     /**
      * Get the current search text
      */
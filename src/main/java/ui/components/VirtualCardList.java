@@ -0,0 +1,559 @@
+package ui.components;
+
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vertical list of cards, for use as the view of a JScrollPane, that only has components for
+ * the items in the viewport plus a few above and below. Cards scrolled out of range go back to
+ * a pool and are bound to the next item that comes into view, so a feed of thousands of items
+ * costs about as many components as fit on screen.
+ *
+ * Item heights are measured once, at the list's width, and cached; items not measured yet count
+ * with the average measured height. When a height changes above the viewport (an item measured
+ * for the first time, or items inserted at the top) the view is shifted by the difference, so
+ * the cards on screen stay where they are.
+ *
+ * Must be used on the EDT.
+ */
+public class VirtualCardList<T> extends JComponent implements Scrollable {
+
+    /**
+     * Builds and fills the cards of a list
+     */
+    public interface CardRenderer<T> {
+        /**
+         * Create an empty card for items of the given type
+         */
+        JComponent createCard(Object type);
+
+        /**
+         * Show an item in a card created for its type, replacing whatever the card showed before
+         */
+        void bindCard(JComponent card, T item);
+
+        /**
+         * Cards are only reused between items of the same type; items that need differently
+         * built cards (e.g. with or without an image) return different types
+         */
+        default Object cardType(T item) {
+            return Boolean.TRUE;
+        }
+    }
+
+    private static final int DEFAULT_OVERSCAN = 3;
+    private static final int DEFAULT_ESTIMATED_HEIGHT = 100;
+    private static final int MAX_POOLED_PER_TYPE = 8;
+    private static final int UNMEASURED = -1;
+
+    private final CardRenderer<T> renderer;
+    private final List<T> items = new ArrayList<>();
+    private int[] heights = new int[0];
+    private int[] offsets = new int[1]; // offsets[i] is the top of item i; offsets[size] the total height
+    private boolean offsetsDirty;
+    private int measuredCount;
+    private long measuredTotal;
+    private int measuredWidth = -1;
+
+    private final Map<Integer, JComponent> activeCards = new HashMap<>();
+    private final Map<JComponent, Object> cardTypes = new HashMap<>();
+    private final Map<Object, Deque<JComponent>> pool = new HashMap<>();
+
+    private int overscan = DEFAULT_OVERSCAN;
+    private int estimatedHeight = DEFAULT_ESTIMATED_HEIGHT;
+    private int gap;
+    private JComponent placeholder;
+    private boolean layingOut;
+    private final ChangeListener scrollListener = e -> layoutCards();
+
+    public VirtualCardList(CardRenderer<T> renderer) {
+        this.renderer = renderer;
+        setLayout(null);
+    }
+
+    /**
+     * Number of items above and below the viewport that also get cards
+     */
+    public void setOverscan(int overscan) {
+        this.overscan = Math.max(0, overscan);
+    }
+
+    /**
+     * Height assumed for items not measured yet, until the first items are measured
+     */
+    public void setEstimatedHeight(int estimatedHeight) {
+        this.estimatedHeight = Math.max(1, estimatedHeight);
+    }
+
+    /**
+     * Vertical space between cards
+     */
+    public void setGap(int gap) {
+        this.gap = Math.max(0, gap);
+        invalidateAllHeights();
+    }
+
+    /**
+     * Component filling the list while it has no items, e.g. a "No posts" label
+     */
+    public void setPlaceholder(JComponent placeholder) {
+        if (this.placeholder != null) {
+            remove(this.placeholder);
+        }
+        this.placeholder = placeholder;
+        relayout();
+    }
+
+    /**
+     * Replace all items
+     */
+    public void setItems(List<? extends T> newItems) {
+        recycleAll();
+        items.clear();
+        items.addAll(newItems);
+        heights = new int[items.size()];
+        Arrays.fill(heights, UNMEASURED);
+        measuredCount = 0;
+        measuredTotal = 0;
+        offsetsDirty = true;
+        relayout();
+    }
+
+    /**
+     * Append items at the end
+     */
+    public void addItems(List<? extends T> newItems) {
+        insertItems(items.size(), newItems);
+    }
+
+    /**
+     * Insert items before the given index. Items inserted above the viewport push the view down
+     * by their height, so the visible cards do not move.
+     */
+    public void insertItems(int index, List<? extends T> newItems) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+        int count = newItems.size();
+        int anchor = firstVisibleIndex();
+        int heightBefore = totalHeight();
+
+        recycleAll();
+        items.addAll(index, newItems);
+        int[] grown = new int[items.size()];
+        System.arraycopy(heights, 0, grown, 0, index);
+        Arrays.fill(grown, index, index + count, UNMEASURED);
+        System.arraycopy(heights, index, grown, index + count, heights.length - index);
+        heights = grown;
+        offsetsDirty = true;
+
+        if (index <= anchor && heightBefore > 0) {
+            shiftView(totalHeight() - heightBefore);
+        }
+        relayout();
+    }
+
+    /**
+     * Remove all items
+     */
+    public void clear() {
+        setItems(List.of());
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public T getItem(int index) {
+        return items.get(index);
+    }
+
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Rebind and measure an item again after its content changed; items without a card are
+     * only measured again when they next come into view
+     */
+    public void itemChanged(int index) {
+        if (index < 0 || index >= items.size()) {
+            return;
+        }
+        forgetHeight(index);
+        JComponent card = activeCards.get(index);
+        if (card != null) {
+            renderer.bindCard(card, items.get(index));
+        }
+        relayout();
+    }
+
+    /**
+     * Same as itemChanged(indexOf(item)); a linear search
+     */
+    public void itemChanged(T item) {
+        itemChanged(items.indexOf(item));
+    }
+
+    /**
+     * Measure every item again, e.g. after a font change
+     */
+    public void invalidateAllHeights() {
+        Arrays.fill(heights, UNMEASURED);
+        measuredCount = 0;
+        measuredTotal = 0;
+        offsetsDirty = true;
+        relayout();
+    }
+
+    /**
+     * Scroll so the given item is at the top of the viewport
+     */
+    public void scrollToItem(int index) {
+        if (index < 0 || index >= items.size()) {
+            return;
+        }
+        updateOffsets();
+        scrollRectToVisible(new Rectangle(0, offsets[index], 1, getVisibleRect().height));
+    }
+
+    /**
+     * Scroll to the end of the list
+     */
+    public void scrollToEnd() {
+        updateOffsets();
+        scrollRectToVisible(new Rectangle(0, Math.max(0, totalHeight() - 1), 1, 1));
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (getParent() instanceof JViewport viewport) {
+            // The viewport moves the view without laying it out; cards follow the scroll position
+            viewport.addChangeListener(scrollListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (getParent() instanceof JViewport viewport) {
+            viewport.removeChangeListener(scrollListener);
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    public void doLayout() {
+        layoutCards();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        Insets insets = getInsets();
+        int height = items.isEmpty() && placeholder != null
+                ? placeholder.getPreferredSize().height
+                : totalHeight();
+        return new Dimension(insets.left + insets.right, height + insets.top + insets.bottom);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+    }
+
+    /**
+     * Bind cards to the items in and near the viewport, recycle the others, and position them.
+     * Runs again if the view had to be moved, as the move may bring unmeasured items into range.
+     */
+    private void layoutCards() {
+        if (layingOut) {
+            return; // Moving the view re-enters through the viewport listener
+        }
+        layingOut = true;
+        try {
+            for (int pass = 0; pass < 3 && layoutPass(); pass++) {
+                // Heights are cached, so this settles after one or two extra passes
+            }
+        } finally {
+            layingOut = false;
+        }
+        repaint();
+    }
+
+    /**
+     * One layout of the cards; returns true if the view was moved to keep the first visible card in place
+     */
+    private boolean layoutPass() {
+        Insets insets = getInsets();
+        int width = Math.max(0, getWidth() - insets.left - insets.right);
+        if (width != measuredWidth) {
+            measuredWidth = width;
+            Arrays.fill(heights, UNMEASURED);
+            measuredCount = 0;
+            measuredTotal = 0;
+            offsetsDirty = true;
+        }
+
+        if (items.isEmpty()) {
+            recycleAll();
+            if (placeholder != null) {
+                if (placeholder.getParent() != this) {
+                    add(placeholder);
+                }
+                placeholder.setBounds(insets.left, insets.top, width, Math.max(0, getHeight() - insets.top - insets.bottom));
+                placeholder.validate();
+            }
+            return false;
+        }
+        if (placeholder != null && placeholder.getParent() == this) {
+            remove(placeholder);
+        }
+        if (width == 0) {
+            return false;
+        }
+
+        Rectangle visible = getVisibleRect();
+        int anchor = indexAt(visible.y - insets.top);
+        int anchorTop = offsetOf(anchor);
+
+        // Measure the range first; newly measured heights move everything below them
+        int first = Math.max(0, anchor - overscan);
+        int last = Math.min(items.size() - 1, indexAt(visible.y - insets.top + visible.height) + overscan);
+        for (Map.Entry<Integer, JComponent> entry : new ArrayList<>(activeCards.entrySet())) {
+            if (entry.getKey() < first || entry.getKey() > last) {
+                activeCards.remove(entry.getKey());
+                recycle(entry.getValue()); // Pooled before binding, so the range can reuse it
+            }
+        }
+        Map<Integer, JComponent> bound = new HashMap<>();
+        for (int i = first; i <= last; i++) {
+            JComponent card = cardFor(i);
+            bound.put(i, card);
+            if (heights[i] == UNMEASURED) {
+                setHeight(i, measure(card, width) + gap);
+            }
+        }
+        // Measuring may have grown the items, so the range can reach further down
+        int newLast = Math.min(items.size() - 1, indexAt(visible.y - insets.top + visible.height) + overscan);
+        for (int i = last + 1; i <= newLast; i++) {
+            JComponent card = cardFor(i);
+            bound.put(i, card);
+            if (heights[i] == UNMEASURED) {
+                setHeight(i, measure(card, width) + gap);
+            }
+        }
+
+        activeCards.clear();
+        activeCards.putAll(bound);
+
+        for (Map.Entry<Integer, JComponent> entry : bound.entrySet()) {
+            int i = entry.getKey();
+            JComponent card = entry.getValue();
+            card.setBounds(insets.left, insets.top + offsetOf(i), width, heights[i] - gap);
+            card.validate();
+        }
+
+        int drift = offsetOf(anchor) - anchorTop;
+        Dimension preferred = getPreferredSize();
+        if (getHeight() != preferred.height) {
+            setSize(getWidth(), preferred.height);
+            if (getParent() instanceof JViewport viewport) {
+                viewport.setViewSize(new Dimension(getWidth(), preferred.height));
+            }
+        }
+        return shiftView(drift);
+    }
+
+    /**
+     * The card bound to an item, taking one from the pool or creating it if the item has none
+     */
+    private JComponent cardFor(int index) {
+        JComponent card = activeCards.get(index);
+        T item = items.get(index);
+        Object type = renderer.cardType(item);
+        if (card != null && type.equals(cardTypes.get(card))) {
+            return card;
+        }
+        if (card != null) {
+            activeCards.remove(index);
+            recycle(card);
+        }
+
+        Deque<JComponent> free = pool.get(type);
+        card = free != null ? free.poll() : null;
+        if (card == null) {
+            card = renderer.createCard(type);
+            cardTypes.put(card, type);
+        }
+        renderer.bindCard(card, item);
+        if (card.getParent() != this) {
+            add(card);
+        } else {
+            card.setVisible(true);
+        }
+        return card;
+    }
+
+    private void recycle(JComponent card) {
+        Object type = cardTypes.get(card);
+        Deque<JComponent> free = pool.computeIfAbsent(type, t -> new ArrayDeque<>());
+        if (free.size() < MAX_POOLED_PER_TYPE) {
+            card.setVisible(false); // Stays a child so reuse skips add/remove
+            free.push(card);
+        } else {
+            remove(card);
+            cardTypes.remove(card);
+        }
+    }
+
+    private void recycleAll() {
+        for (JComponent card : activeCards.values()) {
+            recycle(card);
+        }
+        activeCards.clear();
+    }
+
+    /**
+     * Preferred height of a card laid out at the given width; wrapped text only knows its
+     * height once it has a width
+     */
+    private int measure(JComponent card, int width) {
+        card.setSize(width, Short.MAX_VALUE);
+        card.validate();
+        card.setSize(width, card.getPreferredSize().height);
+        card.validate();
+        return Math.max(1, card.getPreferredSize().height);
+    }
+
+    private void setHeight(int index, int height) {
+        if (heights[index] == UNMEASURED) {
+            measuredCount++;
+            measuredTotal += height;
+        } else {
+            measuredTotal += height - heights[index];
+        }
+        heights[index] = height;
+        offsetsDirty = true;
+    }
+
+    private void forgetHeight(int index) {
+        if (heights[index] != UNMEASURED) {
+            measuredCount--;
+            measuredTotal -= heights[index];
+            heights[index] = UNMEASURED;
+            offsetsDirty = true;
+        }
+    }
+
+    private int heightOf(int index) {
+        if (heights[index] != UNMEASURED) {
+            return heights[index];
+        }
+        return measuredCount > 0 ? (int) (measuredTotal / measuredCount) : estimatedHeight + gap;
+    }
+
+    private void updateOffsets() {
+        if (!offsetsDirty && offsets.length == items.size() + 1) {
+            return;
+        }
+        offsets = new int[items.size() + 1];
+        for (int i = 0; i < items.size(); i++) {
+            offsets[i + 1] = offsets[i] + heightOf(i);
+        }
+        offsetsDirty = false;
+    }
+
+    private int offsetOf(int index) {
+        updateOffsets();
+        return offsets[Math.min(index, items.size())];
+    }
+
+    private int totalHeight() {
+        updateOffsets();
+        return offsets[items.size()];
+    }
+
+    /**
+     * Index of the item at the given y (relative to the first item), clamped to the list
+     */
+    int indexAt(int y) {
+        updateOffsets();
+        if (items.isEmpty()) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(offsets, 0, items.size(), Math.max(0, y));
+        if (index < 0) {
+            index = -index - 2; // Item whose top is above y
+        }
+        return Math.max(0, Math.min(items.size() - 1, index));
+    }
+
+    private int firstVisibleIndex() {
+        return indexAt(getVisibleRect().y - getInsets().top);
+    }
+
+    /**
+     * Move the view down by delta pixels (up if negative); returns false if it did not move
+     */
+    private boolean shiftView(int delta) {
+        if (delta == 0 || !(getParent() instanceof JViewport viewport)) {
+            return false;
+        }
+        Point position = viewport.getViewPosition();
+        int maxY = Math.max(0, getPreferredSize().height - viewport.getExtentSize().height);
+        int y = Math.max(0, Math.min(maxY, position.y + delta));
+        if (y == position.y) {
+            return false;
+        }
+        viewport.setViewPosition(new Point(position.x, y));
+        return true;
+    }
+
+    private void relayout() {
+        revalidate();
+        repaint();
+    }
+
+    // Scrollable
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        // Fill the viewport while the items are shorter than it, so the placeholder and background do
+        return getParent() instanceof JViewport viewport && viewport.getHeight() > getPreferredSize().height;
+    }
+}
@@ -88,6 +88,8 @@ public class PrincipalPage extends BaseAuthenticatedPage {
         ClassManagementPanel classPanel = new ClassManagementPanel(authService);
         tabbedPane.addTab("Class Management", classPanel);
         classPanel.setOpaque(false);
+        // Student rows show class names; follow class edits without reloading the students
+        classPanel.setClassChangedHandler(studentPanel::classChanged);
         
         // User Management Tab (for Principal only)
         UserManagementPanel userPanel = new UserManagementPanel(authService);
@@ -108,19 +110,19 @@ public class PrincipalPage extends BaseAuthenticatedPage {
 
         tabbedPane.setForeground(AppColor.getColor("darkGreen"));
         tabbedPane.setBackground(AppColor.getColor("yellowOrange"));
-        // Add change listener to refresh data when tabs are switched
+        // Tables keep themselves current through their own edits; only the dropdowns that
+        // other tabs can change are reloaded when a tab is switched to
         tabbedPane.addChangeListener(e -> {
             int selectedIndex = tabbedPane.getSelectedIndex();
             String selectedTitle = tabbedPane.getTitleAt(selectedIndex);
             
-            // Refresh Class Management panel when it's selected
             // This ensures the teacher dropdown shows newly created teachers
             if ("Class Management".equals(selectedTitle)) {
-                classPanel.refreshData();
+                classPanel.refreshLookups();
             }
-            // Refresh User Management panel when it's selected
+            // And the child dropdown shows newly created students
             else if ("User Management".equals(selectedTitle)) {
-                userPanel.refreshData();
+                userPanel.refreshLookups();
             }
         });
     }
@@ -1,9 +1,13 @@
 package ui.pages;
 
 import service.AuthService;
+import service.PhysicalDevelopmentService;
+import service.PhysicalDevelopmentService.ClassGrowthReport;
+import service.PhysicalDevelopmentService.StudentGrowthSummary;
 import service.StudentService;
 import model.Student;
 import ui.components.AppColor;
+import ui.components.BackgroundLoader;
 import ui.components.HeaderPanel;
 import ui.panels.PhysicalDevelopmentPanel;
 import ui.panels.AttendancePanel;
@@ -17,7 +21,9 @@ import javax.swing.table.JTableHeader;
 import javax.swing.table.TableCellRenderer;
 
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Teacher Page - Main window for Teacher users
@@ -165,7 +171,7 @@ public class TeacherPage extends BaseAuthenticatedPage {
         panel.setBorder(BorderFactory.createTitledBorder("Students"));
         
         // Create student table
-        String[] columnNames = {"ID", "Name", "Age", "Class"};
+        String[] columnNames = {"ID", "Name", "Age", "Class", "Last Measured", "Due"};
         DefaultTableModel tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -196,7 +202,7 @@ public class TeacherPage extends BaseAuthenticatedPage {
             });;
         
         // Load student data
-        loadStudentTableData(tableModel);
+        loadStudentTableData(tableModel, new BackgroundLoader(panel));
         
         // Add selection listener
         studentTable.getSelectionModel().addListSelectionListener(e -> {
@@ -235,28 +241,46 @@ public class TeacherPage extends BaseAuthenticatedPage {
         return panel;
     }
     
-    private void loadStudentTableData(DefaultTableModel tableModel) {
-        try {
-            StudentService studentService = new StudentService();
-            List<Student> students = studentService.getAllStudents();
-            
-            // Clear existing data
-            tableModel.setRowCount(0);
-            
-            // Add student data
-            for (Student student : students) {
-                Object[] rowData = {
-                    student.getId(),
-                    student.getName(),
-                    student.getAge(),
-                    student.getClassName() != null ? student.getClassName() : "Class " + student.getClassId()
-                };
-                tableModel.addRow(rowData);
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error loading student data: " + e.getMessage(), 
-                                        "Error", JOptionPane.ERROR_MESSAGE);
+    private void loadStudentTableData(DefaultTableModel tableModel, BackgroundLoader loader) {
+        loader.load(
+            this::loadStudentRows,
+            rows -> {
+                // Clear existing data
+                tableModel.setRowCount(0);
+                for (Object[] rowData : rows) {
+                    tableModel.addRow(rowData);
+                }
+            },
+            e -> JOptionPane.showMessageDialog(this, "Error loading student data: " + e.getMessage(),
+                                               "Error", JOptionPane.ERROR_MESSAGE));
+    }
+    
+    /**
+     * Students with their last measurement; the growth reports of all their classes come from
+     * one query rather than one per class or one measurement lookup per student
+     */
+    private List<Object[]> loadStudentRows() {
+        StudentService studentService = new StudentService();
+        List<Student> students = studentService.getAllStudents();
+        
+        int[] classIds = students.stream().mapToInt(Student::getClassId).filter(id -> id > 0).distinct().toArray();
+        Map<Integer, ClassGrowthReport> reports = new PhysicalDevelopmentService().getClassGrowthReports(
+            classIds, PhysicalDevelopmentService.DEFAULT_MEASUREMENT_INTERVAL_DAYS);
+        
+        List<Object[]> rows = new ArrayList<>();
+        for (Student student : students) {
+            ClassGrowthReport report = reports.get(student.getClassId());
+            StudentGrowthSummary growth = report != null ? report.getStudent(student.getId()) : null;
+            rows.add(new Object[] {
+                student.getId(),
+                student.getName(),
+                student.getAge(),
+                student.getClassName() != null ? student.getClassName() : "Class " + student.getClassId(),
+                growth == null ? "--" : growth.hasMeasurements() ? growth.getLatestDate().toString() : "Never",
+                growth != null && growth.isMeasurementDue() ? "Yes" : ""
+            });
         }
+        return rows;
     }
     
     private void showStudentDetails(int studentId, String studentName, String className) {
@@ -62,8 +62,7 @@ public class AttendanceDetailDialog extends JDialog {
         this.attendance.setCheckOutTime(source.getCheckOutTime());
         this.attendance.setLateArrivalTime(source.getLateArrivalTime());
         this.attendance.setExcuseReason(source.getExcuseReason());
-        this.attendance.setCheckInImage(source.getCheckInImage());
-        this.attendance.setCheckOutImage(source.getCheckOutImage());
+        this.attendance.copyImagesFrom(source);
         this.attendance.setCreatedAt(source.getCreatedAt());
     }
     
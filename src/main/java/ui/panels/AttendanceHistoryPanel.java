@@ -6,12 +6,14 @@ import service.AttendanceService;
 import service.AuthService;
 import service.ParentService;
 import ui.components.AppColor;
+import ui.components.BackgroundLoader;
 import ui.components.CustomButton;
 import ui.components.CustomMessageDialog;
 import ui.components.RoundedBorder;
 import ui.components.CustomButton.accountType;
 import dao.AttendanceDAO.AttendanceStats;
 import dao.StudentDAO;
+import util.ImageCache;
 import util.ImageViewerUtil;
 import util.ProfileImageUtil;
 
@@ -52,6 +54,10 @@ public class AttendanceHistoryPanel extends JPanel {
     
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
     private String role;
+    
+    // History queries run off the EDT; a new search supersedes one still in flight
+    private final BackgroundLoader historyLoader = new BackgroundLoader(this);
+    private final BackgroundLoader imageLoader = new BackgroundLoader(this);
 
     // Colors based on role
     private Color BACKGROUND_COLOR;
@@ -223,6 +229,8 @@ public class AttendanceHistoryPanel extends JPanel {
         searchPanel.add(searchButton, gbc);
         gbc.gridx = 5;
         searchPanel.add(refreshButton, gbc);
+        gbc.gridx = 6;
+        searchPanel.add(historyLoader.getIndicator(), gbc);
         
         // Stats panel
         JPanel statsPanel = new JPanel(new BorderLayout());
@@ -282,6 +290,7 @@ public class AttendanceHistoryPanel extends JPanel {
     }
     
     private void clearResults() {
+        historyLoader.cancel();
         tableModel.setRowCount(0);
         currentAttendanceData = new java.util.ArrayList<>();
         statsLabel.setText("Select a student and date range to view statistics");
@@ -310,59 +319,13 @@ public class AttendanceHistoryPanel extends JPanel {
                 return;
             }
             
-            // Clear existing data
-            tableModel.setRowCount(0);
-            
-            // Store current attendance data for image viewing
-            currentAttendanceData = new java.util.ArrayList<>();
-            
-            List<Attendance> attendanceHistory;
-            if (selectedStudent.getId() == 0) {
-                // All students - get attendance by date range for the class
-                attendanceHistory = new java.util.ArrayList<>();
-                LocalDate current = start;
-                while (!current.isAfter(end)) {
-                    List<Attendance> dailyAttendance = attendanceService.getClassAttendance(classId, current);
-                    // Only add records that have actual attendance data (not default absent)
-                    for (Attendance attendance : dailyAttendance) {
-                        if (attendance.getId() > 0) { // Only saved records
-                            attendanceHistory.add(attendance);
-                        }
-                    }
-                    current = current.plusDays(1);
-                }
-            } else {
-                // Specific student
-                attendanceHistory = attendanceService.getAttendanceHistory(selectedStudent.getId(), start, end);
-            }
-            
-            // Populate table
-            for (Attendance attendance : attendanceHistory) {
-                currentAttendanceData.add(attendance); // Store for image viewing
-                Object[] row = {
-                    attendance.getDate().format(dateFormatter),
-                    attendance.getStatus(),
-                    attendance.getCheckInTime() != null ? 
-                        attendance.getCheckInTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "",
-                    attendance.getCheckOutTime() != null ? 
-                        attendance.getCheckOutTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "",
-                    attendance.getLateArrivalTime() != null ? 
-                        attendance.getLateArrivalTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "",
-                    attendance.getExcuseReason() != null ? attendance.getExcuseReason() : "",
-                    "View" // Images column button
-                };
-                tableModel.addRow(row);
-            }
-            
-            // Update statistics
-            updateStatistics(selectedStudent.getId(), start, end);
-            
-            // Update title to show search results
-            if (selectedStudent.getId() == 0) {
-                titleLabel.setText("Attendance History - All Students (" + attendanceHistory.size() + " records)");
-            } else {
-                titleLabel.setText("Attendance History - " + selectedStudent.getName() + " (" + attendanceHistory.size() + " records)");
-            }
+            int studentId = selectedStudent.getId();
+            historyLoader.load(
+                () -> loadHistory(studentId, start, end),
+                result -> showHistory(selectedStudent, start, end, result),
+                e -> CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error", 
+                    "Error searching attendance history: " + e.getMessage(),
+                    CustomMessageDialog.Type.ERROR));
             
         } catch (Exception e) {
             CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error", 
@@ -375,7 +338,75 @@ public class AttendanceHistoryPanel extends JPanel {
         }
     }
     
-    private void updateStatistics(int studentId, LocalDate startDate, LocalDate endDate) {
+    /**
+     * Records and (for a single student) statistics for a search; built off the EDT
+     */
+    private static class HistoryResult {
+        List<Attendance> records;
+        AttendanceStats stats;
+    }
+    
+    private HistoryResult loadHistory(int studentId, LocalDate start, LocalDate end) {
+        HistoryResult result = new HistoryResult();
+        if (studentId == 0) {
+            // All students - get attendance by date range for the class
+            result.records = new java.util.ArrayList<>();
+            LocalDate current = start;
+            while (!current.isAfter(end)) {
+                List<Attendance> dailyAttendance = attendanceService.getClassAttendance(classId, current);
+                // Only add records that have actual attendance data (not default absent)
+                for (Attendance attendance : dailyAttendance) {
+                    if (attendance.getId() > 0) { // Only saved records
+                        result.records.add(attendance);
+                    }
+                }
+                current = current.plusDays(1);
+            }
+        } else {
+            // Specific student
+            result.records = attendanceService.getAttendanceHistory(studentId, start, end);
+            result.stats = attendanceService.getAttendanceStats(studentId, start, end);
+        }
+        return result;
+    }
+    
+    private void showHistory(StudentItem selectedStudent, LocalDate start, LocalDate end, HistoryResult result) {
+        // Clear existing data
+        tableModel.setRowCount(0);
+        
+        // Store current attendance data for image viewing
+        currentAttendanceData = new java.util.ArrayList<>();
+        
+        // Populate table
+        for (Attendance attendance : result.records) {
+            currentAttendanceData.add(attendance); // Store for image viewing
+            Object[] row = {
+                attendance.getDate().format(dateFormatter),
+                attendance.getStatus(),
+                attendance.getCheckInTime() != null ? 
+                    attendance.getCheckInTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "",
+                attendance.getCheckOutTime() != null ? 
+                    attendance.getCheckOutTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "",
+                attendance.getLateArrivalTime() != null ? 
+                    attendance.getLateArrivalTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "",
+                attendance.getExcuseReason() != null ? attendance.getExcuseReason() : "",
+                "View" // Images column button
+            };
+            tableModel.addRow(row);
+        }
+        
+        // Update statistics
+        updateStatistics(selectedStudent.getId(), start, end, result.stats);
+        
+        // Update title to show search results
+        if (selectedStudent.getId() == 0) {
+            titleLabel.setText("Attendance History - All Students (" + result.records.size() + " records)");
+        } else {
+            titleLabel.setText("Attendance History - " + selectedStudent.getName() + " (" + result.records.size() + " records)");
+        }
+    }
+    
+    private void updateStatistics(int studentId, LocalDate startDate, LocalDate endDate, AttendanceStats stats) {
         try {
             if (studentId == 0) {
                 // All students statistics - calculate overall class stats
@@ -385,7 +416,6 @@ public class AttendanceHistoryPanel extends JPanel {
                 return;
             }
             
-            AttendanceStats stats = attendanceService.getAttendanceStats(studentId, startDate, endDate);
             
             String statsText = String.format(
                 "Period: %s to %s | Total Days: %d | Present: %d (%.1f%%) | Absent: %d | Late: %d (%.1f%%)",
@@ -560,95 +590,114 @@ public class AttendanceHistoryPanel extends JPanel {
     private void showAttendanceImages(int row) {
         if (row >= 0 && row < currentAttendanceData.size()) {
             Attendance attendance = currentAttendanceData.get(row);
-            
-            JDialog imageDialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this), 
-                "Attendance Images - " + attendance.getStudentName() + " (" + 
-                attendance.getDate().format(dateFormatter) + ")", true);
-            imageDialog.setLayout(new BorderLayout());
-            imageDialog.setBackground(BACKGROUND_COLOR);
-            
-            JPanel imagePanel = new JPanel(new GridLayout(1, 2, 10, 10));
-            imagePanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-            imagePanel.setOpaque(false);
-            
-            // Check-in image section
-            JPanel checkInPanel = new JPanel(new BorderLayout());
-            checkInPanel.setBorder(BorderFactory.createTitledBorder("Check-in Image"));
-
-            if (attendance.getCheckInImage() != null) {
-                byte[] imageData = (byte[]) attendance.getCheckInImage();
-                ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
-                JLabel imageLabel = new JLabel(profileImage);
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkInPanel.add(imageLabel, BorderLayout.CENTER);
-                
-            } else {
-                ImageIcon icon = new ImageIcon(getClass().getResource("/images/" + role + "/photo.png"));
-                Image img = icon.getImage().getScaledInstance(100, 100, Image.SCALE_SMOOTH);
-                JLabel imageLabel = new JLabel(new ImageIcon(img));
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkInPanel.add(imageLabel, BorderLayout.CENTER);
-            }
-            
-            // Check-out image section
-            JPanel checkOutPanel = new JPanel(new BorderLayout());
-            checkOutPanel.setBorder(BorderFactory.createTitledBorder("Check-out Image"));
-            if (attendance.getCheckInImage() != null) {
-                byte[] imageData = (byte[]) attendance.getCheckOutImage();
-                ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
-                JLabel imageLabel = new JLabel(profileImage);
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkOutPanel.add(imageLabel, BorderLayout.CENTER);
-                
-            } else {
-                ImageIcon icon = new ImageIcon(getClass().getResource("/images/" + role + "/photo.png"));
-                Image img = icon.getImage().getScaledInstance(100, 100, Image.SCALE_SMOOTH);
-                JLabel imageLabel = new JLabel(new ImageIcon(img));
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkOutPanel.add(imageLabel, BorderLayout.CENTER);
+            if (attendance.isCheckInImageLoaded() && attendance.isCheckOutImageLoaded()) {
+                showAttendanceImagesDialog(attendance);
+                return;
             }
-            checkInPanel.setOpaque(false);
-            checkOutPanel.setOpaque(false);
-            
-            imagePanel.add(checkInPanel);
-            imagePanel.add(checkOutPanel);
-            
-            // Information panel
-            JPanel infoPanel = new JPanel(new FlowLayout());
-            infoPanel.setBorder(BorderFactory.createTitledBorder("Attendance Information"));
-            
-            String infoText = String.format(
-                "<html>Student: %s<br/>Date: %s<br/>Status: %s<br/>Check-in: %s<br/>Check-out: %s</html>",
-                attendance.getStudentName(),
-                attendance.getDate().format(dateFormatter),
-                attendance.getStatus(),
-                attendance.getCheckInTime() != null ? 
-                    attendance.getCheckInTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "N/A",
-                attendance.getCheckOutTime() != null ? 
-                    attendance.getCheckOutTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "N/A"
-            );
-            
-            JLabel infoLabel = new JLabel(infoText);
-            infoLabel.setFont(getFont().deriveFont(Font.PLAIN, 12f));
-            infoPanel.add(infoLabel);
-            infoPanel.setOpaque(false);
-            
-            // Close button
-            // JButton closeBtn = new JButton("Close");
-            CustomButton closeBtn = new CustomButton("Close", "TEACHER".equals(role) ? accountType.TEACHER : accountType.PARENT);
-            closeBtn.addActionListener(e -> imageDialog.dispose());
-            JPanel closePanel = new JPanel(new FlowLayout());
-            closePanel.add(closeBtn);
-            closePanel.setOpaque(false);
-            
-            imageDialog.add(infoPanel, BorderLayout.NORTH);
-            imageDialog.add(imagePanel, BorderLayout.CENTER);
-            imageDialog.add(closePanel, BorderLayout.SOUTH);
-            
-            imageDialog.setSize(600, 450);
-            imageDialog.setLocationRelativeTo(this);
-            imageDialog.setBackground(BACKGROUND_COLOR);
-            imageDialog.setVisible(true);
+            imageLoader.load(
+                () -> attendanceService.fetchAttendanceImages(attendance),
+                images -> {
+                    if (images == null) {
+                        showImageLoadError();
+                        return;
+                    }
+                    attendanceService.applyAttendanceImages(attendance, images);
+                    showAttendanceImagesDialog(attendance);
+                },
+                e -> showImageLoadError());
+        }
+    }
+    
+    private void showImageLoadError() {
+        CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error",
+            "Could not load the attendance images. Please try again.",
+            CustomMessageDialog.Type.ERROR);
+    }
+    
+    private void showAttendanceImagesDialog(Attendance attendance) {
+        JDialog imageDialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this), 
+            "Attendance Images - " + attendance.getStudentName() + " (" + 
+            attendance.getDate().format(dateFormatter) + ")", true);
+        imageDialog.setLayout(new BorderLayout());
+        imageDialog.setBackground(BACKGROUND_COLOR);
+        
+        JPanel imagePanel = new JPanel(new GridLayout(1, 2, 10, 10));
+        imagePanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        imagePanel.setOpaque(false);
+        
+        // Check-in image section
+        JPanel checkInPanel = new JPanel(new BorderLayout());
+        checkInPanel.setBorder(BorderFactory.createTitledBorder("Check-in Image"));
+
+        if (attendance.getCheckInImage() != null) {
+            byte[] imageData = (byte[]) attendance.getCheckInImage();
+            ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
+            JLabel imageLabel = new JLabel(profileImage);
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkInPanel.add(imageLabel, BorderLayout.CENTER);
+            
+        } else {
+            JLabel imageLabel = new JLabel(ImageCache.getInstance().getResourceIcon("/images/" + role + "/photo.png", 100, 100));
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkInPanel.add(imageLabel, BorderLayout.CENTER);
+        }
+        
+        // Check-out image section
+        JPanel checkOutPanel = new JPanel(new BorderLayout());
+        checkOutPanel.setBorder(BorderFactory.createTitledBorder("Check-out Image"));
+        if (attendance.getCheckInImage() != null) {
+            byte[] imageData = (byte[]) attendance.getCheckOutImage();
+            ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
+            JLabel imageLabel = new JLabel(profileImage);
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkOutPanel.add(imageLabel, BorderLayout.CENTER);
+            
+        } else {
+            JLabel imageLabel = new JLabel(ImageCache.getInstance().getResourceIcon("/images/" + role + "/photo.png", 100, 100));
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkOutPanel.add(imageLabel, BorderLayout.CENTER);
         }
+        checkInPanel.setOpaque(false);
+        checkOutPanel.setOpaque(false);
+        
+        imagePanel.add(checkInPanel);
+        imagePanel.add(checkOutPanel);
+        
+        // Information panel
+        JPanel infoPanel = new JPanel(new FlowLayout());
+        infoPanel.setBorder(BorderFactory.createTitledBorder("Attendance Information"));
+        
+        String infoText = String.format(
+            "<html>Student: %s<br/>Date: %s<br/>Status: %s<br/>Check-in: %s<br/>Check-out: %s</html>",
+            attendance.getStudentName(),
+            attendance.getDate().format(dateFormatter),
+            attendance.getStatus(),
+            attendance.getCheckInTime() != null ? 
+                attendance.getCheckInTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "N/A",
+            attendance.getCheckOutTime() != null ? 
+                attendance.getCheckOutTime().format(DateTimeFormatter.ofPattern("HH:mm")) : "N/A"
+        );
+        
+        JLabel infoLabel = new JLabel(infoText);
+        infoLabel.setFont(getFont().deriveFont(Font.PLAIN, 12f));
+        infoPanel.add(infoLabel);
+        infoPanel.setOpaque(false);
+        
+        // Close button
+        // JButton closeBtn = new JButton("Close");
+        CustomButton closeBtn = new CustomButton("Close", "TEACHER".equals(role) ? accountType.TEACHER : accountType.PARENT);
+        closeBtn.addActionListener(e -> imageDialog.dispose());
+        JPanel closePanel = new JPanel(new FlowLayout());
+        closePanel.add(closeBtn);
+        closePanel.setOpaque(false);
+        
+        imageDialog.add(infoPanel, BorderLayout.NORTH);
+        imageDialog.add(imagePanel, BorderLayout.CENTER);
+        imageDialog.add(closePanel, BorderLayout.SOUTH);
+        
+        imageDialog.setSize(600, 450);
+        imageDialog.setLocationRelativeTo(this);
+        imageDialog.setBackground(BACKGROUND_COLOR);
+        imageDialog.setVisible(true);
     }
 }
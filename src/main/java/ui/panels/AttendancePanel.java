@@ -2,14 +2,15 @@ package ui.panels;
 
 import model.Attendance;
 import service.AttendanceService;
-import service.AttendanceService.AttendanceSummary;
 import service.AuthService;
 import ui.components.AppColor;
+import ui.components.BackgroundLoader;
 import ui.components.CustomButton;
 import ui.components.CustomMessageDialog;
 import ui.components.CustomButton.accountType;
 import ui.components.RoundedBorder;
 import util.CameraUtil;
+import util.ImageCache;
 import util.ImageViewerUtil;
 import util.ProfileImageUtil;
 
@@ -23,9 +24,13 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Panel for managing daily attendance
@@ -61,6 +66,12 @@ public class AttendancePanel extends JPanel {
     private Map<Integer, Attendance> attendanceMap; // studentId -> Attendance
     private String role;
     
+    // Attendance and summary queries run off the EDT; changing the date supersedes a load in flight
+    private final BackgroundLoader attendanceLoader = new BackgroundLoader(this);
+    private final BackgroundLoader summaryLoader = new BackgroundLoader(this);
+    private final BackgroundLoader imageLoader = new BackgroundLoader(this);
+    private final BackgroundLoader saveLoader = new BackgroundLoader(this);
+    
     // Date formatter
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
 
@@ -181,6 +192,7 @@ public class AttendancePanel extends JPanel {
         datePanel.add(dateSpinner);
         datePanel.add(todayButton);
         datePanel.add(refreshButton);
+        datePanel.add(attendanceLoader.getIndicator());
         
         // Summary panel
         JPanel summaryPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -245,69 +257,77 @@ public class AttendancePanel extends JPanel {
     }
     
     private void loadAttendanceData() {
-        try {
+        LocalDate date = selectedDate;
+        attendanceLoader.load(
             // Generate default attendance records for the selected date
-            attendanceList = attendanceService.generateDefaultAttendance(classId, selectedDate);
-            attendanceMap.clear();
-            
-            // Build the attendance map for quick lookup
-            for (Attendance attendance : attendanceList) {
-                attendanceMap.put(attendance.getStudentId(), attendance);
-            }
-            
-            // Update table model
-            tableModel.fireTableDataChanged();
-            
-            // Update summary
-            updateSummary();
-            
-        } catch (Exception e) {
-            CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error", 
+            () -> attendanceService.generateDefaultAttendance(classId, date),
+            records -> {
+                attendanceList = records;
+                attendanceMap.clear();
+                
+                // Build the attendance map for quick lookup
+                for (Attendance attendance : attendanceList) {
+                    attendanceMap.put(attendance.getStudentId(), attendance);
+                }
+                
+                // Update table model
+                tableModel.fireTableDataChanged();
+                
+                // Update summary
+                updateSummary();
+            },
+            e -> CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error", 
                 "Error loading attendance data: " + e.getMessage(), 
-                CustomMessageDialog.Type.ERROR);
-            // JOptionPane.showMessageDialog(this, 
-            //     "Error loading attendance data: " + e.getMessage(), 
-            //     "Error", 
-            //     JOptionPane.ERROR_MESSAGE);
-        }
+                CustomMessageDialog.Type.ERROR));
     }
     
     private void updateSummary() {
-        try {
-            AttendanceSummary summary = attendanceService.getClassAttendanceSummary(classId, selectedDate);
-            String summaryText = String.format(
-                "Total: %d | Present: %d | Absent: %d | Late: %d | Attendance Rate: %.1f%%",
-                summary.getTotalStudents(),
-                summary.getPresentCount(),
-                summary.getAbsentCount(),
-                summary.getLateCount(),
-                summary.getAttendanceRate()
-            );
-            summaryLabel.setText(summaryText);
-            
-            // Color coding based on attendance rate
-            if (summary.getAttendanceRate() >= 90) {
-                summaryLabel.setForeground(Color.GREEN.darker());
-            } else if (summary.getAttendanceRate() >= 75) {
-                summaryLabel.setForeground(Color.ORANGE.darker());
-            } else {
+        LocalDate date = selectedDate;
+        summaryLoader.load(
+            () -> attendanceService.getClassAttendanceSummary(classId, date),
+            summary -> {
+                String summaryText = String.format(
+                    "Total: %d | Present: %d | Absent: %d | Late: %d | Attendance Rate: %.1f%%",
+                    summary.getTotalStudents(),
+                    summary.getPresentCount(),
+                    summary.getAbsentCount(),
+                    summary.getLateCount(),
+                    summary.getAttendanceRate()
+                );
+                summaryLabel.setText(summaryText);
+                
+                // Color coding based on attendance rate
+                if (summary.getAttendanceRate() >= 90) {
+                    summaryLabel.setForeground(Color.GREEN.darker());
+                } else if (summary.getAttendanceRate() >= 75) {
+                    summaryLabel.setForeground(Color.ORANGE.darker());
+                } else {
+                    summaryLabel.setForeground(Color.RED);
+                }
+            },
+            e -> {
+                summaryLabel.setText("Error calculating summary");
                 summaryLabel.setForeground(Color.RED);
-            }
-            
-        } catch (Exception e) {
-            summaryLabel.setText("Error calculating summary");
-            summaryLabel.setForeground(Color.RED);
-        }
+            });
     }
     
     private void saveAllChanges() {
+        if (saveLoader.isLoading()) {
+            showSaveInProgress();
+            return;
+        }
         try {
+            // Copies are saved, since the service normalizes them while the table reads the originals
+            List<Attendance> rows = attendanceList;
+            List<Integer> savedRows = new ArrayList<>();
             List<Attendance> toSave = new ArrayList<>();
             
             // Collect all attendance records that have been modified
-            for (Attendance attendance : attendanceList) {
+            for (int i = 0; i < rows.size(); i++) {
+                Attendance attendance = rows.get(i);
                 if (attendance != null && attendance.getStudentId() > 0) {
-                    toSave.add(attendance);
+                    savedRows.add(i);
+                    toSave.add(new Attendance(attendance));
                 }
             }
             
@@ -329,26 +349,41 @@ public class AttendancePanel extends JPanel {
                 JOptionPane.YES_NO_OPTION);
             
             if (result == JOptionPane.YES_OPTION) {
-                boolean success = attendanceService.markBulkAttendance(toSave);
-                
-                if (success) {
-                    CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "success", 
-                        "Attendance saved successfully!", 
-                        CustomMessageDialog.Type.SUCCESS);
-                    // JOptionPane.showMessageDialog(this,
-                    //     "Attendance saved successfully!",
-                    //     "Success",
-                    //     JOptionPane.INFORMATION_MESSAGE);
-                    loadAttendanceData(); // Refresh to show saved data
-                } else {
-                    CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "warning", 
-                        "Some attendance records could not be saved. Please check the console for details.", 
-                        CustomMessageDialog.Type.INFO); 
-                    // JOptionPane.showMessageDialog(this,
-                    //     "Some attendance records could not be saved. Please check the console for details.",
-                    //     "Warning",
-                    //     JOptionPane.WARNING_MESSAGE);
-                }
+                saveLoader.load(
+                    () -> attendanceService.markBulkAttendanceDetailed(toSave),
+                    saveResult -> {
+                        applySavedRecords(rows, savedRows, toSave, saveResult.getSaved());
+                        if (saveResult.isAllSaved()) {
+                            CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "success", 
+                                "Attendance saved successfully!", 
+                                CustomMessageDialog.Type.SUCCESS);
+                            // JOptionPane.showMessageDialog(this,
+                            //     "Attendance saved successfully!",
+                            //     "Success",
+                            //     JOptionPane.INFORMATION_MESSAGE);
+                            loadAttendanceData(); // Refresh to show saved data
+                        } else {
+                            StringBuilder failedNames = new StringBuilder();
+                            for (Attendance failed : saveResult.getFailures().keySet()) {
+                                if (failedNames.length() > 0) {
+                                    failedNames.append(", ");
+                                }
+                                failedNames.append(failed.getStudentName() != null ? failed.getStudentName() : "ID " + failed.getStudentId());
+                            }
+                            CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "warning", 
+                                saveResult.getSavedCount() + " saved, " + saveResult.getFailedCount() + 
+                                " could not be saved: " + failedNames, 
+                                CustomMessageDialog.Type.WARNING); 
+                            loadAttendanceData(); // Show what was actually saved
+                            // JOptionPane.showMessageDialog(this,
+                            //     "Some attendance records could not be saved. Please check the console for details.",
+                            //     "Warning",
+                            //     JOptionPane.WARNING_MESSAGE);
+                        }
+                    },
+                    e -> CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error", 
+                        "Error saving attendance: " + e.getMessage(), 
+                        CustomMessageDialog.Type.ERROR));
             }
             
         } catch (Exception e) {
@@ -362,6 +397,25 @@ public class AttendancePanel extends JPanel {
         }
     }
     
+    /**
+     * Put the saved copies in place of the rows they were made from, unless the list was reloaded meanwhile
+     */
+    private void applySavedRecords(List<Attendance> rows, List<Integer> savedRows, List<Attendance> copies,
+                                   List<Attendance> saved) {
+        if (rows != attendanceList) {
+            return;
+        }
+        Set<Attendance> savedCopies = Collections.newSetFromMap(new IdentityHashMap<>());
+        savedCopies.addAll(saved);
+        for (int i = 0; i < copies.size(); i++) {
+            if (savedCopies.contains(copies.get(i))) {
+                rows.set(savedRows.get(i), copies.get(i));
+            }
+        }
+        tableModel.fireTableDataChanged();
+        updateSummary();
+    }
+    
     private void markAllStudents(String status) {
         int result = JOptionPane.showConfirmDialog(this,
             "Mark all students as " + status.toLowerCase() + " for " + selectedDate.format(dateFormatter) + "?",
@@ -378,7 +432,7 @@ public class AttendancePanel extends JPanel {
                         attendance.setLateArrivalTime(null);
                         attendance.setExcuseReason(null);
                         // Create mock check-in image for bulk operations
-                        if (attendance.getCheckInImage() == null) {
+                        if (!attendance.hasCheckInImage()) {
                             attendance.setCheckInImage(CameraUtil.createMockImage(
                                 "Bulk Check-in: " + attendance.getStudentName(), Color.GREEN));
                         }
@@ -392,7 +446,7 @@ public class AttendancePanel extends JPanel {
                         attendance.setCheckInTime(LocalTime.now());
                         attendance.setLateArrivalTime(LocalTime.now());
                         // Create mock check-in image for late students
-                        if (attendance.getCheckInImage() == null) {
+                        if (!attendance.hasCheckInImage()) {
                             attendance.setCheckInImage(CameraUtil.createMockImage(
                                 "Late Check-in: " + attendance.getStudentName(), Color.YELLOW));
                         }
@@ -416,7 +470,7 @@ public class AttendancePanel extends JPanel {
             int checkedInCount = 0;
             for (Attendance attendance : attendanceList) {
                 if (attendance != null && "PRESENT".equals(attendance.getStatus()) && 
-                    attendance.getCheckInImage() == null) {
+                    !attendance.hasCheckInImage()) {
                     
                     // Create mock check-in image
                     byte[] checkInImage = CameraUtil.createMockImage(
@@ -456,7 +510,7 @@ public class AttendancePanel extends JPanel {
             int checkedOutCount = 0;
             for (Attendance attendance : attendanceList) {
                 if (attendance != null && attendance.getCheckInTime() != null && 
-                    attendance.getCheckOutImage() == null) {
+                    !attendance.hasCheckOutImage()) {
                     
                     // Create mock check-out image
                     byte[] checkOutImage = CameraUtil.createMockImage(
@@ -498,31 +552,78 @@ public class AttendancePanel extends JPanel {
     private void editAttendanceDetails(int row) {
         if (row >= 0 && row < attendanceList.size()) {
             Attendance attendance = attendanceList.get(row);
-            AttendanceDetailDialog detailDialog = new AttendanceDetailDialog(
-                (JFrame) SwingUtilities.getWindowAncestor(this),
-                attendance
-            );
+            // The dialog copies the images, so fetch the ones the list query skipped. If they
+            // cannot be read the edit is abandoned rather than saved over the stored images.
+            loadAttendanceImages(attendance, true, () -> {
+                // The list may have been reloaded while the images were fetched
+                if (attendanceList.contains(attendance)) {
+                    showAttendanceDetailDialog(attendance);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Fetch the images of a record in the background, then run the action on the EDT.
+     * If the images cannot be read an error is shown instead; when requireAll is false
+     * the action still runs as long as the lookup itself succeeded.
+     */
+    private void loadAttendanceImages(Attendance attendance, boolean requireAll, Runnable action) {
+        if (attendance.isCheckInImageLoaded() && attendance.isCheckOutImageLoaded()) {
+            action.run();
+            return;
+        }
+        imageLoader.load(
+            () -> attendanceService.fetchAttendanceImages(attendance),
+            images -> {
+                boolean complete = images != null && attendanceService.applyAttendanceImages(attendance, images);
+                if (complete || (images != null && !requireAll)) {
+                    action.run();
+                } else {
+                    showImageLoadError();
+                }
+            },
+            e -> showImageLoadError());
+    }
+    
+    /**
+     * Repaint the row of a record, if it is still listed
+     */
+    private void fireAttendanceRowUpdated(Attendance attendance) {
+        int row = attendanceList.indexOf(attendance);
+        if (row >= 0) {
+            tableModel.fireTableRowsUpdated(row, row);
+        }
+    }
+    
+    private void showImageLoadError() {
+        CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error",
+            "Could not load the attendance images. Please try again.",
+            CustomMessageDialog.Type.ERROR);
+    }
+    
+    private void showAttendanceDetailDialog(Attendance attendance) {
+        AttendanceDetailDialog detailDialog = new AttendanceDetailDialog(
+            (JFrame) SwingUtilities.getWindowAncestor(this),
+            attendance
+        );
+        
+        if (detailDialog.showDialog()) {
+            // Update the attendance record with details from dialog
+            Attendance updatedAttendance = detailDialog.getAttendance();
             
-            if (detailDialog.showDialog()) {
-                // Update the attendance record with details from dialog
-                Attendance updatedAttendance = detailDialog.getAttendance();
-                
-                try {
-                    // Save the updated attendance to the database
-                    boolean success;
-                    if (updatedAttendance.getId() > 0) {
-                        // Update existing record
-                        success = attendanceService.updateAttendance(updatedAttendance);
-                    } else {
-                        // Create new record if it doesn't exist
-                        success = attendanceService.markAttendance(updatedAttendance);
-                    }
-                    
+            // Save the updated attendance to the database
+            saveAttendance(updatedAttendance,
+                success -> {
                     if (success) {
-                        // Update the in-memory data
-                        attendanceList.set(row, updatedAttendance);
-                        attendanceMap.put(updatedAttendance.getStudentId(), updatedAttendance);
-                        tableModel.fireTableRowsUpdated(row, row);
+                        // The list may have been reloaded while the dialog was open
+                        int row = attendanceList.indexOf(attendance);
+                        if (row >= 0) {
+                            // Update the in-memory data
+                            attendanceList.set(row, updatedAttendance);
+                            attendanceMap.put(updatedAttendance.getStudentId(), updatedAttendance);
+                            tableModel.fireTableRowsUpdated(row, row);
+                        }
                         updateSummary();
                         
                         JOptionPane.showMessageDialog(this,
@@ -535,8 +636,8 @@ public class AttendancePanel extends JPanel {
                             "Database Error",
                             JOptionPane.ERROR_MESSAGE);
                     }
-                    
-                } catch (Exception e) {
+                },
+                e -> {
                     CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "error", 
                         "Error saving attendance: " + e.getMessage(), 
                         CustomMessageDialog.Type.ERROR);
@@ -546,9 +647,31 @@ public class AttendancePanel extends JPanel {
                     //     "Error",
                     //     JOptionPane.ERROR_MESSAGE);
                     e.printStackTrace();
-                }
-            }
+                });
+        }
+    }
+    
+    /**
+     * Save one record off the EDT: an update, or an insert if it has no id yet. Both callbacks
+     * run on the EDT. Only one save runs at a time, so no result is ever dropped.
+     */
+    private void saveAttendance(Attendance attendance, Consumer<Boolean> onSaved, Consumer<Exception> onError) {
+        if (saveLoader.isLoading()) {
+            showSaveInProgress();
+            return;
         }
+        saveLoader.load(
+            () -> attendance.getId() > 0
+                ? attendanceService.updateAttendance(attendance)
+                : attendanceService.markAttendance(attendance),
+            onSaved,
+            onError);
+    }
+    
+    private void showSaveInProgress() {
+        CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "info",
+            "Still saving the previous change. Please try again in a moment.",
+            CustomMessageDialog.Type.INFO);
     }
     
     // Custom table model for attendance
@@ -759,78 +882,74 @@ public class AttendancePanel extends JPanel {
     private void showAttendanceImages(int row) {
         if (row >= 0 && row < attendanceList.size()) {
             Attendance attendance = attendanceList.get(row);
+            loadAttendanceImages(attendance, false, () -> showAttendanceImagesDialog(attendance));
+        }
+    }
+    
+    private void showAttendanceImagesDialog(Attendance attendance) {
+        JDialog imageDialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this), 
+            "Attendance Images - " + attendance.getStudentName(), true);
+        imageDialog.setLayout(new BorderLayout());
+        imageDialog.setBackground(AppColor.getColor("violet"));
+        
+        JPanel imagePanel = new JPanel(new GridLayout(1, 2, 10, 10));
+        imagePanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        imagePanel.setOpaque(false);
+        
+        // Check-in image section
+        JPanel checkInPanel = new JPanel(new BorderLayout());
+        checkInPanel.setBorder(
+            BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(AppColor.getColor("darkViolet"), 2),
+                "Check-in Image"
+                )
+            );
+        checkInPanel.setOpaque(false);    
+
+        if (attendance.getCheckInImage() != null) {
+            byte[] imageData = (byte[]) attendance.getCheckInImage();
+            ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
+            JLabel imageLabel = new JLabel(profileImage);
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkInPanel.add(imageLabel, BorderLayout.CENTER);
             
-            JDialog imageDialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this), 
-                "Attendance Images - " + attendance.getStudentName(), true);
-            imageDialog.setLayout(new BorderLayout());
-            imageDialog.setBackground(AppColor.getColor("violet"));
-            
-            JPanel imagePanel = new JPanel(new GridLayout(1, 2, 10, 10));
-            imagePanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-            imagePanel.setOpaque(false);
-            
-            // Check-in image section
-            JPanel checkInPanel = new JPanel(new BorderLayout());
-            checkInPanel.setBorder(
-                BorderFactory.createTitledBorder(
-                    BorderFactory.createLineBorder(AppColor.getColor("darkViolet"), 2),
-                    "Check-in Image"
-                    )
-                );
-            checkInPanel.setOpaque(false);    
+        } else {
+            JLabel imageLabel = new JLabel(ImageCache.getInstance().getResourceIcon("/images/" + role + "/photo.png", 100, 100));
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkInPanel.add(imageLabel, BorderLayout.CENTER);
+        }
 
+        JButton viewCheckInBtn = new JButton("View Check-in Image");
+        JButton captureCheckInBtn = new JButton("Capture Check-in");
+        
+        viewCheckInBtn.addActionListener(e -> {
             if (attendance.getCheckInImage() != null) {
-                byte[] imageData = (byte[]) attendance.getCheckInImage();
-                ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
-                JLabel imageLabel = new JLabel(profileImage);
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkInPanel.add(imageLabel, BorderLayout.CENTER);
-                
+                ImageViewerUtil.showImage(imageDialog, attendance.getCheckInImage(), 
+                    "Check-in Image - " + attendance.getStudentName());
             } else {
-                ImageIcon icon = new ImageIcon(getClass().getResource("/images/"+ role + "/photo.png"));
-                Image img = icon.getImage().getScaledInstance(100, 100, Image.SCALE_SMOOTH);
-                JLabel imageLabel = new JLabel(new ImageIcon(img));
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkInPanel.add(imageLabel, BorderLayout.CENTER);
+                JOptionPane.showMessageDialog(imageDialog, "No check-in image available", 
+                    "Information", JOptionPane.INFORMATION_MESSAGE);
+                // JOptionPane.showMessageDialog(imageDialog, "No check-in image available", 
+                //     "Information", JOptionPane.INFORMATION_MESSAGE);
             }
-
-            JButton viewCheckInBtn = new JButton("View Check-in Image");
-            JButton captureCheckInBtn = new JButton("Capture Check-in");
-            
-            viewCheckInBtn.addActionListener(e -> {
-                if (attendance.getCheckInImage() != null) {
-                    ImageViewerUtil.showImage(imageDialog, attendance.getCheckInImage(), 
-                        "Check-in Image - " + attendance.getStudentName());
-                } else {
-                    JOptionPane.showMessageDialog(imageDialog, "No check-in image available", 
-                        "Information", JOptionPane.INFORMATION_MESSAGE);
-                    // JOptionPane.showMessageDialog(imageDialog, "No check-in image available", 
-                    //     "Information", JOptionPane.INFORMATION_MESSAGE);
+        });
+        
+        captureCheckInBtn.addActionListener(e -> {
+            byte[] imageData = CameraUtil.captureImage(imageDialog, "Capture Check-in Image");
+            if (imageData != null) {
+                attendance.setCheckInImage(imageData);
+                if (attendance.getCheckInTime() == null) {
+                    attendance.setCheckInTime(LocalTime.now());
                 }
-            });
-            
-            captureCheckInBtn.addActionListener(e -> {
-                byte[] imageData = CameraUtil.captureImage(imageDialog, "Capture Check-in Image");
-                if (imageData != null) {
-                    attendance.setCheckInImage(imageData);
-                    if (attendance.getCheckInTime() == null) {
-                        attendance.setCheckInTime(LocalTime.now());
-                    }
-                    if ("ABSENT".equals(attendance.getStatus())) {
-                        attendance.setStatus("PRESENT");
-                    }
-                    
-                    // Save to database immediately
-                    try {
-                        boolean success;
-                        if (attendance.getId() > 0) {
-                            success = attendanceService.updateAttendance(attendance);
-                        } else {
-                            success = attendanceService.markAttendance(attendance);
-                        }
-                        
+                if ("ABSENT".equals(attendance.getStatus())) {
+                    attendance.setStatus("PRESENT");
+                }
+                
+                // Save to database immediately
+                saveAttendance(attendance,
+                    success -> {
                         if (success) {
-                            tableModel.fireTableRowsUpdated(row, row);
+                            fireAttendanceRowUpdated(attendance);
                             updateSummary();
                             CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "success", 
                                 "Check-in image captured and saved successfully!", 
@@ -844,86 +963,79 @@ public class AttendancePanel extends JPanel {
                             // JOptionPane.showMessageDialog(imageDialog, "Image captured but failed to save to database. Please try 'Save All Changes'.", 
                             //     "Warning", JOptionPane.WARNING_MESSAGE);
                         }
-                    } catch (Exception ex) {
+                    },
+                    ex -> {
                         CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "error", 
                             "Error saving image: " + ex.getMessage(), 
                             CustomMessageDialog.Type.ERROR);
                         // JOptionPane.showMessageDialog(imageDialog, "Error saving image: " + ex.getMessage(), 
                         //     "Error", JOptionPane.ERROR_MESSAGE);
                         ex.printStackTrace();
-                    }
-                }
-            });
-            
-            // checkInPanel.add(viewCheckInBtn, BorderLayout.NORTH);
-            // checkInPanel.add(captureCheckInBtn, BorderLayout.SOUTH);
+                    });
+            }
+        });
+        
+        // checkInPanel.add(viewCheckInBtn, BorderLayout.NORTH);
+        // checkInPanel.add(captureCheckInBtn, BorderLayout.SOUTH);
+        
+        // Check-out image section
+        JPanel checkOutPanel = new JPanel(new BorderLayout());
+        checkOutPanel.setBorder(
+            BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(AppColor.getColor("darkViolet"), 2),
+                "Check-out Image"
+            )
+        );
+        if (attendance.getCheckInImage() != null) {
+            byte[] imageData = (byte[]) attendance.getCheckOutImage();
+            ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
+            JLabel imageLabel = new JLabel(profileImage);
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkOutPanel.add(imageLabel, BorderLayout.CENTER);
             
-            // Check-out image section
-            JPanel checkOutPanel = new JPanel(new BorderLayout());
-            checkOutPanel.setBorder(
-                BorderFactory.createTitledBorder(
-                    BorderFactory.createLineBorder(AppColor.getColor("darkViolet"), 2),
-                    "Check-out Image"
-                )
-            );
-            if (attendance.getCheckInImage() != null) {
-                byte[] imageData = (byte[]) attendance.getCheckOutImage();
-                ImageIcon profileImage = ProfileImageUtil.loadProfileImageFromBytes(imageData, 200, 200);
-                JLabel imageLabel = new JLabel(profileImage);
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkOutPanel.add(imageLabel, BorderLayout.CENTER);
-                
+        } else {
+            JLabel imageLabel = new JLabel(ImageCache.getInstance().getResourceIcon("/images/" + role + "/photo.png", 100, 100));
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            checkOutPanel.add(imageLabel, BorderLayout.CENTER);
+        }
+        
+        JButton viewCheckOutBtn = new JButton("View Check-out Image");
+        JButton captureCheckOutBtn = new JButton("Capture Check-out");
+        
+        viewCheckOutBtn.addActionListener(e -> {
+            if (attendance.getCheckOutImage() != null) {
+                ImageViewerUtil.showImage(imageDialog, attendance.getCheckOutImage(), 
+                    "Check-out Image - " + attendance.getStudentName());
             } else {
-                ImageIcon icon = new ImageIcon(getClass().getResource("/images/" + role + "/photo.png"));
-                Image img = icon.getImage().getScaledInstance(100, 100, Image.SCALE_SMOOTH);
-                JLabel imageLabel = new JLabel(new ImageIcon(img));
-                imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                checkOutPanel.add(imageLabel, BorderLayout.CENTER);
+                CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "info", 
+                    "No check-out image available", 
+                    CustomMessageDialog.Type.INFO);
+                // JOptionPane.showMessageDialog(imageDialog, "No check-out image available", 
+                //     "Information", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+        
+        captureCheckOutBtn.addActionListener(e -> {
+            if (attendance.getCheckInTime() == null) {
+                CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "warning", 
+                    "Student must check-in before check-out", 
+                    CustomMessageDialog.Type.ERROR);
+                // JOptionPane.showMessageDialog(imageDialog, 
+                //     "Student must check-in before check-out", 
+                //     "Warning", JOptionPane.WARNING_MESSAGE);
+                return;
             }
             
-            JButton viewCheckOutBtn = new JButton("View Check-out Image");
-            JButton captureCheckOutBtn = new JButton("Capture Check-out");
-            
-            viewCheckOutBtn.addActionListener(e -> {
-                if (attendance.getCheckOutImage() != null) {
-                    ImageViewerUtil.showImage(imageDialog, attendance.getCheckOutImage(), 
-                        "Check-out Image - " + attendance.getStudentName());
-                } else {
-                    CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "info", 
-                        "No check-out image available", 
-                        CustomMessageDialog.Type.INFO);
-                    // JOptionPane.showMessageDialog(imageDialog, "No check-out image available", 
-                    //     "Information", JOptionPane.INFORMATION_MESSAGE);
-                }
-            });
-            
-            captureCheckOutBtn.addActionListener(e -> {
-                if (attendance.getCheckInTime() == null) {
-                    CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "warning", 
-                        "Student must check-in before check-out", 
-                        CustomMessageDialog.Type.ERROR);
-                    // JOptionPane.showMessageDialog(imageDialog, 
-                    //     "Student must check-in before check-out", 
-                    //     "Warning", JOptionPane.WARNING_MESSAGE);
-                    return;
-                }
+            byte[] imageData = CameraUtil.captureImage(imageDialog, "Capture Check-out Image");
+            if (imageData != null) {
+                attendance.setCheckOutImage(imageData);
+                attendance.setCheckOutTime(LocalTime.now());
                 
-                byte[] imageData = CameraUtil.captureImage(imageDialog, "Capture Check-out Image");
-                if (imageData != null) {
-                    attendance.setCheckOutImage(imageData);
-                    attendance.setCheckOutTime(LocalTime.now());
-                    
-                    // Save to database immediately
-                    try {
-                        boolean success;
-                        if (attendance.getId() > 0) {
-                            success = attendanceService.updateAttendance(attendance);
-                        } else {
-                            success = attendanceService.markAttendance(attendance);
-                        }
-                        
+                // Save to database immediately
+                saveAttendance(attendance,
+                    success -> {
                         if (success) {
-                            tableModel.fireTableRowsUpdated(row, row);
+                            fireAttendanceRowUpdated(attendance);
                             CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "success", 
                                 "Check-out image captured and saved successfully!", 
                                 CustomMessageDialog.Type.SUCCESS);
@@ -936,50 +1048,45 @@ public class AttendancePanel extends JPanel {
                             // JOptionPane.showMessageDialog(imageDialog, "Image captured but failed to save to database. Please try 'Save All Changes'.", 
                             //     "Warning", JOptionPane.WARNING_MESSAGE);
                         }
-                    } catch (Exception ex) {
+                    },
+                    ex -> {
                         CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(imageDialog), "error", 
                             "Error saving image: " + ex.getMessage(), 
                             CustomMessageDialog.Type.ERROR);
                         // JOptionPane.showMessageDialog(imageDialog, "Error saving image: " + ex.getMessage(), 
                         //     "Error", JOptionPane.ERROR_MESSAGE);
                         ex.printStackTrace();
-                    }
-                }
-            });
-            
-            // checkOutPanel.add(viewCheckOutBtn, BorderLayout.NORTH);
-            // checkOutPanel.add(captureCheckOutBtn, BorderLayout.SOUTH);
-            
-            imagePanel.add(checkInPanel);
-            imagePanel.add(checkOutPanel);
-            
-            // Quick actions panel
-            JPanel quickActionsPanel = new JPanel(new FlowLayout());
-            quickActionsPanel.setBorder(BorderFactory.createTitledBorder("Quick Actions"));
-            
-            JButton quickCheckInBtn = new JButton("Quick Check-in");
-            JButton quickCheckOutBtn = new JButton("Quick Check-out");
+                    });
+            }
+        });
+        
+        // checkOutPanel.add(viewCheckOutBtn, BorderLayout.NORTH);
+        // checkOutPanel.add(captureCheckOutBtn, BorderLayout.SOUTH);
+        
+        imagePanel.add(checkInPanel);
+        imagePanel.add(checkOutPanel);
+        
+        // Quick actions panel
+        JPanel quickActionsPanel = new JPanel(new FlowLayout());
+        quickActionsPanel.setBorder(BorderFactory.createTitledBorder("Quick Actions"));
+        
+        JButton quickCheckInBtn = new JButton("Quick Check-in");
+        JButton quickCheckOutBtn = new JButton("Quick Check-out");
+        
+        quickCheckInBtn.addActionListener(e -> {
+            byte[] imageData = CameraUtil.createMockImage("Check-in: " + LocalTime.now().format(
+                DateTimeFormatter.ofPattern("HH:mm")), Color.GREEN);
+            attendance.setCheckInImage(imageData);
+            attendance.setCheckInTime(LocalTime.now());
+            if ("ABSENT".equals(attendance.getStatus())) {
+                attendance.setStatus("PRESENT");
+            }
             
-            quickCheckInBtn.addActionListener(e -> {
-                byte[] imageData = CameraUtil.createMockImage("Check-in: " + LocalTime.now().format(
-                    DateTimeFormatter.ofPattern("HH:mm")), Color.GREEN);
-                attendance.setCheckInImage(imageData);
-                attendance.setCheckInTime(LocalTime.now());
-                if ("ABSENT".equals(attendance.getStatus())) {
-                    attendance.setStatus("PRESENT");
-                }
-                
-                // Save to database immediately
-                try {
-                    boolean success;
-                    if (attendance.getId() > 0) {
-                        success = attendanceService.updateAttendance(attendance);
-                    } else {
-                        success = attendanceService.markAttendance(attendance);
-                    }
-                    
+            // Save to database immediately
+            saveAttendance(attendance,
+                success -> {
                     if (success) {
-                        tableModel.fireTableRowsUpdated(row, row);
+                        fireAttendanceRowUpdated(attendance);
                         updateSummary();
                         JOptionPane.showMessageDialog(imageDialog, "Quick check-in completed and saved!", 
                             "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -987,67 +1094,62 @@ public class AttendancePanel extends JPanel {
                         JOptionPane.showMessageDialog(imageDialog, "Quick check-in completed but failed to save to database. Please try 'Save All Changes'.", 
                             "Warning", JOptionPane.WARNING_MESSAGE);
                     }
-                } catch (Exception ex) {
+                },
+                ex -> {
                     JOptionPane.showMessageDialog(imageDialog, "Error saving quick check-in: " + ex.getMessage(), 
                         "Error", JOptionPane.ERROR_MESSAGE);
                     ex.printStackTrace();
-                }
-            });
+                });
+        });
+        
+        quickCheckOutBtn.addActionListener(e -> {
+            if (attendance.getCheckInTime() == null) {
+                JOptionPane.showMessageDialog(imageDialog, 
+                    "Student must check-in before check-out", 
+                    "Warning", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             
-            quickCheckOutBtn.addActionListener(e -> {
-                if (attendance.getCheckInTime() == null) {
-                    JOptionPane.showMessageDialog(imageDialog, 
-                        "Student must check-in before check-out", 
-                        "Warning", JOptionPane.WARNING_MESSAGE);
-                    return;
-                }
-                
-                byte[] imageData = CameraUtil.createMockImage("Check-out: " + LocalTime.now().format(
-                    DateTimeFormatter.ofPattern("HH:mm")), Color.ORANGE);
-                attendance.setCheckOutImage(imageData);
-                attendance.setCheckOutTime(LocalTime.now());
-                
-                // Save to database immediately
-                try {
-                    boolean success;
-                    if (attendance.getId() > 0) {
-                        success = attendanceService.updateAttendance(attendance);
-                    } else {
-                        success = attendanceService.markAttendance(attendance);
-                    }
-                    
+            byte[] imageData = CameraUtil.createMockImage("Check-out: " + LocalTime.now().format(
+                DateTimeFormatter.ofPattern("HH:mm")), Color.ORANGE);
+            attendance.setCheckOutImage(imageData);
+            attendance.setCheckOutTime(LocalTime.now());
+            
+            // Save to database immediately
+            saveAttendance(attendance,
+                success -> {
                     if (success) {
-                        tableModel.fireTableRowsUpdated(row, row);
+                        fireAttendanceRowUpdated(attendance);
                         JOptionPane.showMessageDialog(imageDialog, "Quick check-out completed and saved!", 
                             "Success", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(imageDialog, "Quick check-out completed but failed to save to database. Please try 'Save All Changes'.", 
                             "Warning", JOptionPane.WARNING_MESSAGE);
                     }
-                } catch (Exception ex) {
+                },
+                ex -> {
                     JOptionPane.showMessageDialog(imageDialog, "Error saving quick check-out: " + ex.getMessage(), 
                         "Error", JOptionPane.ERROR_MESSAGE);
                     ex.printStackTrace();
-                }
-            });
-            
-            quickActionsPanel.add(quickCheckInBtn);
-            quickActionsPanel.add(quickCheckOutBtn);
-            
-            // imagePanel.add(quickActionsPanel);
-            
-            // Close button
-            CustomButton closeBtn = new CustomButton("Close", accountType.TEACHER);
-            closeBtn.addActionListener(e -> imageDialog.dispose());
-            JPanel closePanel = new JPanel(new FlowLayout());
-            closePanel.add(closeBtn);
-            
-            imageDialog.add(imagePanel, BorderLayout.CENTER);
-            imageDialog.add(closePanel, BorderLayout.SOUTH);
-            
-            imageDialog.setSize(600, 400);
-            imageDialog.setLocationRelativeTo(this);
-            imageDialog.setVisible(true);
-        }
+                });
+        });
+        
+        quickActionsPanel.add(quickCheckInBtn);
+        quickActionsPanel.add(quickCheckOutBtn);
+        
+        // imagePanel.add(quickActionsPanel);
+        
+        // Close button
+        CustomButton closeBtn = new CustomButton("Close", accountType.TEACHER);
+        closeBtn.addActionListener(e -> imageDialog.dispose());
+        JPanel closePanel = new JPanel(new FlowLayout());
+        closePanel.add(closeBtn);
+        
+        imageDialog.add(imagePanel, BorderLayout.CENTER);
+        imageDialog.add(closePanel, BorderLayout.SOUTH);
+        
+        imageDialog.setSize(600, 400);
+        imageDialog.setLocationRelativeTo(this);
+        imageDialog.setVisible(true);
     }
 }
@@ -29,8 +29,7 @@ public class AvatarSelector extends JPanel {
         // Avatar + tên mặc định (student đầu tiên)
         if (!students.isEmpty()) {
             Student first = students.get(currentIndex);
-            byte[] imageProfileData = first.getProfileImage();
-            ImageIcon icon = ProfileImageUtil.loadProfileImageFromBytes(imageProfileData, 80, 80);
+            ImageIcon icon = ProfileImageUtil.loadThumbnailFromBytes(first.getProfileThumbnail(), first.getProfileImage(), 80, 80);
             avatarLabel = new JLabel(icon);
             System.out.println("name: " + first.getName());
             nameLabel = new JLabel(
@@ -74,8 +73,7 @@ public class AvatarSelector extends JPanel {
         for (int i = 0; i < students.size(); i++) {
             final int index = i;
             Student s = students.get(i);
-            byte[] imageProfileData = s.getProfileImage();
-            ImageIcon icon = ProfileImageUtil.loadProfileImageFromBytes(imageProfileData, 30, 30);
+            ImageIcon icon = ProfileImageUtil.loadThumbnailFromBytes(s.getProfileThumbnail(), s.getProfileImage(), 30, 30);
             JMenuItem item = new JMenuItem(s.getName(), icon);
             item.addActionListener(e -> setAvatar(index));
             item.setBackground(AppColor.getColor("lightGraylishYellow"));
@@ -89,7 +87,7 @@ public class AvatarSelector extends JPanel {
     private void setAvatar(int index) {
         currentIndex = index;
         Student s = students.get(index);
-        ImageIcon icon = ProfileImageUtil.loadProfileImageFromBytes(s.getProfileImage(), 80, 80);
+        ImageIcon icon = ProfileImageUtil.loadThumbnailFromBytes(s.getProfileThumbnail(), s.getProfileImage(), 80, 80);
         avatarLabel.setIcon(icon);
         System.out.println("Selected student: " + s.getName());
         String newText = "<html>"
@@ -9,6 +9,8 @@ import ui.components.CustomButton.accountType;
 import ui.pages.ParentPage;
 import ui.pages.PrincipalPage;
 import ui.pages.TeacherPage;
+import util.ChatNotificationListener;
+import util.ImageCache;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -19,10 +21,17 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Modern Chat Panel - WhatsApp/Telegram style messaging interface
@@ -38,7 +47,7 @@ public class ChatPanel extends JPanel {
     private JPanel chatAreaPanel;
     private JScrollPane conversationScrollPane;
     private JScrollPane chatScrollPane;
-    private JPanel messagesContainer;
+    private VirtualCardList<ChatMessage> messageList;
     private JTextField messageInputField;
     private JButton sendButton;
     private JButton attachButton;
@@ -52,6 +61,40 @@ public class ChatPanel extends JPanel {
     private Conversation currentConversation;
     private File selectedAttachment;
     
+    // Message history paging: only the loaded window is kept, older pages load on scroll-up
+    private static final int MESSAGE_PAGE_SIZE = 30;
+    private ChatMessage oldestLoadedMessage;
+    private final Set<Integer> loadedMessageIds = new HashSet<>();
+    private boolean hasOlderMessages;
+    // Notified messages not appended yet, and whether the latest page must be merged in
+    // (after a send, a refresh or a resync, when the new ids are not known)
+    private final Set<Integer> notifiedMessageIds = new LinkedHashSet<>();
+    private boolean latestPagePending;
+    
+    // Database work runs off the EDT; a new load of the same kind supersedes the previous one
+    private final BackgroundLoader conversationLoader = new BackgroundLoader(this);
+    private final BackgroundLoader conversationRowLoader = new BackgroundLoader(this);
+    private final BackgroundLoader messagesLoader = new BackgroundLoader(this);
+    private final BackgroundLoader olderMessagesLoader = new BackgroundLoader(this);
+    private final BackgroundLoader newerMessagesLoader = new BackgroundLoader(this);
+    private final BackgroundLoader attachmentLoader = new BackgroundLoader(this);
+    private final BackgroundLoader sendLoader = new BackgroundLoader(this);
+    
+    // Push updates: conversations whose NOTIFY channel this panel listens on
+    private final Set<Integer> subscribedConversations = new HashSet<>();
+    private final ChatNotificationListener.MessageListener messageListener =
+        (conversationId, messageId) -> SwingUtilities.invokeLater(() -> onMessageNotified(conversationId, messageId));
+    // Coalesces conversation row refreshes when several messages arrive together
+    private Timer conversationListRefreshTimer;
+    // Conversations with new messages whose rows are waiting to be refreshed, and those being refreshed
+    private final Set<Integer> notifiedConversations = new HashSet<>();
+    private Set<Integer> refreshingConversations = new HashSet<>();
+    private boolean conversationResyncPending;
+    
+    // The listed conversations in display order, and their cards
+    private List<Conversation> listedConversations = new ArrayList<>();
+    private final Map<Integer, JPanel> conversationCards = new HashMap<>();
+    
     // Date formatters
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
     
@@ -104,6 +147,9 @@ public class ChatPanel extends JPanel {
                 throw new IllegalArgumentException("Unknown user role: " + role);
         }
         
+        conversationListRefreshTimer = new Timer(300, e -> refreshNotifiedConversations());
+        conversationListRefreshTimer.setRepeats(false);
+        
         initializeComponents();
         setupLayout();
         setupEventHandlers();
@@ -136,18 +182,34 @@ public class ChatPanel extends JPanel {
             (BorderFactory.createLineBorder(BORDER_COLOR),"Conversation"));
         chatAreaPanel.setOpaque(false);
 
-        // Messages container
-        messagesContainer = new JPanel();
-        messagesContainer.setLayout(new BoxLayout(messagesContainer, BoxLayout.Y_AXIS));
-        messagesContainer.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        messagesContainer.setBackground(BACKGROUND_COLOR);
-        // messagesContainer.setOpaque(false);
-        
-        chatScrollPane = new JScrollPane(messagesContainer);
+        // Messages list; only the bubbles in view exist, and they are reused as the user scrolls
+        messageList = new VirtualCardList<>(new VirtualCardList.CardRenderer<ChatMessage>() {
+            @Override
+            public JComponent createCard(Object type) {
+                return new MessageBubble();
+            }
+            
+            @Override
+            public void bindCard(JComponent card, ChatMessage message) {
+                ((MessageBubble) card).bind(message);
+            }
+        });
+        messageList.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        messageList.setBackground(BACKGROUND_COLOR);
+        messageList.setOpaque(true);
+        messageList.setGap(3);
+        messageList.setEstimatedHeight(70);
+        
+        chatScrollPane = new JScrollPane(messageList);
         chatScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         chatScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         chatScrollPane.getVerticalScrollBar().setUnitIncrement(16);
         chatScrollPane.setOpaque(false);
+        chatScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (!e.getValueIsAdjusting() && e.getValue() == 0) {
+                loadOlderMessages();
+            }
+        });
         
         // Chat header
         chatHeaderLabel = new JLabel("", SwingConstants.CENTER);
@@ -232,17 +294,19 @@ public class ChatPanel extends JPanel {
         sidebarHeader.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
         sidebarHeader.setOpaque(false);
 
-        ImageIcon chatIcon = new ImageIcon(getClass().getResource("/images/" + role + "/chat-box.png"));
-        // ImageIcon chatIcon = new ImageIcon(getClass().getResource("/images/chat-box.png"));
-        Image imgChat = chatIcon.getImage().getScaledInstance(20,20, Image.SCALE_SMOOTH);
-        ImageIcon scaledChatIcon = new ImageIcon(imgChat);
+        ImageIcon scaledChatIcon = loadScaledIcon("/images/" + role + "/chat-box.png", 20, 20);
 
         JLabel titleLabel = new JLabel();
         titleLabel.setText("Chats");
         titleLabel.setIcon(scaledChatIcon);
         titleLabel.setFont(getFont().deriveFont(Font.BOLD, 18f));
         
+        JPanel sidebarStatus = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        sidebarStatus.setOpaque(false);
+        sidebarStatus.add(conversationLoader.getIndicator());
+        
         sidebarHeader.add(titleLabel, BorderLayout.WEST);
+        sidebarHeader.add(sidebarStatus, BorderLayout.CENTER);
         sidebarHeader.add(newChatButton, BorderLayout.EAST);
         
         leftSidebar.add(sidebarHeader, BorderLayout.NORTH);
@@ -286,35 +350,159 @@ public class ChatPanel extends JPanel {
     }
     
     private void loadConversations() {
-        SwingUtilities.invokeLater(() -> {
-            conversationListPanel.removeAll();
-            
-            try {
-                List<Conversation> conversations = chatService.getUserConversations(currentUserId);
-                
-                if (conversations.isEmpty()) {
-                    JLabel emptyLabel = new JLabel("<html><center>No conversations yet<br>Click 'New Chat' to start</center></html>", SwingConstants.CENTER);
-                    // emptyLabel.setFont(CustomFont.getMonospacedFont(14f));
-                    emptyLabel.setFont(getFont().deriveFont(Font.BOLD, 14f));
-                    emptyLabel.setForeground(Color.GRAY);
-                    conversationListPanel.add(Box.createVerticalGlue());
-                    conversationListPanel.add(emptyLabel);
-                    conversationListPanel.add(Box.createVerticalGlue());
-                } else {
-                    for (Conversation conversation : conversations) {
-                        JPanel conversationCard = createConversationCard(conversation);
-                        conversationListPanel.add(conversationCard);
-                    }
+        // The full list supersedes any row refresh in flight
+        conversationRowLoader.cancel();
+        notifiedConversations.clear();
+        conversationResyncPending = false;
+        
+        conversationLoader.load(
+            () -> chatService.getUserConversations(currentUserId),
+            conversations -> {
+                listedConversations = new ArrayList<>(conversations);
+                conversationCards.clear();
+                for (Conversation conversation : conversations) {
+                    conversationCards.put(conversation.getId(), createConversationCard(conversation));
                 }
-                
-                conversationListPanel.revalidate();
-                conversationListPanel.repaint();
-                
-            } catch (Exception e) {
-                e.printStackTrace();
-                DialogFactory.showError(this, "Failed to load conversations: " + e.getMessage());
+                showConversationCards();
+                updateSubscriptions(conversations);
+            },
+            e -> DialogFactory.showError(this, "Failed to load conversations: " + e.getMessage()));
+    }
+    
+    /**
+     * Lay out the cards of the listed conversations in order
+     */
+    private void showConversationCards() {
+        conversationListPanel.removeAll();
+        
+        if (listedConversations.isEmpty()) {
+            JLabel emptyLabel = new JLabel("<html><center>No conversations yet<br>Click 'New Chat' to start</center></html>", SwingConstants.CENTER);
+            // emptyLabel.setFont(CustomFont.getMonospacedFont(14f));
+            emptyLabel.setFont(getFont().deriveFont(Font.BOLD, 14f));
+            emptyLabel.setForeground(Color.GRAY);
+            conversationListPanel.add(Box.createVerticalGlue());
+            conversationListPanel.add(emptyLabel);
+            conversationListPanel.add(Box.createVerticalGlue());
+        } else {
+            for (Conversation conversation : listedConversations) {
+                conversationListPanel.add(conversationCards.get(conversation.getId()));
             }
-        });
+        }
+        
+        conversationListPanel.revalidate();
+        conversationListPanel.repaint();
+    }
+    
+    /**
+     * Re-read only the conversations that were notified since the last refresh and replace
+     * their cards; after a reconnect the whole list is reloaded instead
+     */
+    private void refreshNotifiedConversations() {
+        if (conversationResyncPending) {
+            loadConversations();
+            return;
+        }
+        if (notifiedConversations.isEmpty()) {
+            return;
+        }
+        
+        Set<Integer> ids = new HashSet<>(notifiedConversations);
+        if (conversationRowLoader.isLoading()) {
+            // The refresh in flight is superseded, so its rows are fetched again
+            ids.addAll(refreshingConversations);
+        }
+        notifiedConversations.clear();
+        refreshingConversations = ids;
+        
+        conversationRowLoader.load(
+            () -> chatService.getUserConversations(currentUserId, ids),
+            this::updateConversationRows,
+            e -> System.err.println("Failed to refresh conversations: " + e.getMessage()));
+    }
+    
+    private void updateConversationRows(List<Conversation> updated) {
+        if (updated.isEmpty()) {
+            return;
+        }
+        for (Conversation conversation : updated) {
+            JPanel card = createConversationCard(conversation);
+            JPanel previous = conversationCards.put(conversation.getId(), card);
+            if (previous != null && previous == selectedCard) {
+                card.setBackground(CLICKED_COLOR);
+                selectedCard = card;
+            }
+            listedConversations.removeIf(listed -> listed.getId() == conversation.getId());
+            listedConversations.add(conversation);
+        }
+        // Same order as the list query: latest message first, conversations without messages last
+        listedConversations.sort(Comparator.comparing(Conversation::getLastMessageAt,
+            Comparator.nullsLast(Comparator.reverseOrder())));
+        showConversationCards();
+    }
+    
+    /**
+     * Listen for new messages in exactly the conversations currently listed
+     */
+    private void updateSubscriptions(List<Conversation> conversations) {
+        Set<Integer> listed = new HashSet<>();
+        for (Conversation conversation : conversations) {
+            listed.add(conversation.getId());
+        }
+        ChatNotificationListener notifications = ChatNotificationListener.getInstance();
+        boolean active = isDisplayable();
+        
+        for (Integer conversationId : new HashSet<>(subscribedConversations)) {
+            if (!listed.contains(conversationId)) {
+                subscribedConversations.remove(conversationId);
+                if (active) {
+                    notifications.unsubscribe(conversationId, messageListener);
+                }
+            }
+        }
+        for (Integer conversationId : listed) {
+            if (subscribedConversations.add(conversationId) && active) {
+                notifications.subscribe(conversationId, messageListener);
+            }
+        }
+    }
+    
+    /**
+     * A message was sent in one of the listed conversations (messageId 0 = resync after reconnect)
+     */
+    private void onMessageNotified(int conversationId, int messageId) {
+        if (currentConversation != null && currentConversation.getId() == conversationId) {
+            if (messageId == 0) {
+                latestPagePending = true;
+                loadNewerMessages();
+            } else if (!loadedMessageIds.contains(messageId)) {
+                notifiedMessageIds.add(messageId);
+                loadNewerMessages();
+            }
+        }
+        // Last message preview and unread badges
+        if (messageId == 0) {
+            conversationResyncPending = true;
+        } else {
+            notifiedConversations.add(conversationId);
+        }
+        conversationListRefreshTimer.restart();
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        for (Integer conversationId : subscribedConversations) {
+            ChatNotificationListener.getInstance().subscribe(conversationId, messageListener);
+        }
+    }
+    
+    @Override
+    public void removeNotify() {
+        for (Integer conversationId : subscribedConversations) {
+            ChatNotificationListener.getInstance().unsubscribe(conversationId, messageListener);
+        }
+        conversationListRefreshTimer.stop();
+        super.removeNotify();
     }
     
     private JPanel createConversationCard(Conversation conversation) {
@@ -440,140 +628,295 @@ public class ChatPanel extends JPanel {
         chatAreaPanel.revalidate();
         chatAreaPanel.repaint();
         
-        // Load messages
+        // Load messages (and mark them as read)
         loadChatMessages();
-        
-        // Mark messages as read
-        chatService.markMessagesAsRead(conversation.getId(), currentUserId);
     }
     
     private void loadChatMessages() {
-        SwingUtilities.invokeLater(() -> {
-            messagesContainer.removeAll();
-            
-            if (currentConversation == null) {
-                return;
-            }
-            
-            try {
-                List<ChatMessage> messages = chatService.getRecentMessages(currentConversation.getId(), 50);
-                
+        olderMessagesLoader.cancel();
+        newerMessagesLoader.cancel();
+        messageList.setPlaceholder(null);
+        messageList.clear();
+        oldestLoadedMessage = null;
+        loadedMessageIds.clear();
+        hasOlderMessages = false;
+        notifiedMessageIds.clear();
+        latestPagePending = false;
+        
+        if (currentConversation == null) {
+            messagesLoader.cancel();
+            return;
+        }
+        
+        int conversationId = currentConversation.getId();
+        messagesLoader.load(
+            () -> {
+                List<ChatMessage> messages = chatService.getRecentMessages(conversationId, MESSAGE_PAGE_SIZE);
+                chatService.markMessagesAsRead(conversationId, currentUserId);
+                return messages;
+            },
+            messages -> {
                 if (messages.isEmpty()) {
-                    JLabel emptyLabel = new JLabel("No messages yet. Start the conversation!", SwingConstants.CENTER);
-                    // emptyLabel.setFont(CustomFont.getMonospacedFont(14f));
-                    emptyLabel.setFont(getFont().deriveFont(14f));
-                    emptyLabel.setForeground(Color.GRAY);
-                    messagesContainer.add(Box.createVerticalGlue());
-                    messagesContainer.add(emptyLabel);
-                    messagesContainer.add(Box.createVerticalGlue());
+                    showEmptyConversation();
                 } else {
-                    for (ChatMessage message : messages) {
-                        JPanel messagePanel = createMessageBubble(message);
-                        messagePanel.setOpaque(false);
-                        messagesContainer.add(messagePanel);
-                        messagesContainer.add(Box.createVerticalStrut(3));
-                    }
+                    messageList.setItems(messages);
+                    oldestLoadedMessage = messages.get(0);
+                    addLoadedIds(messages);
+                    hasOlderMessages = messages.size() == MESSAGE_PAGE_SIZE;
                 }
                 
-                messagesContainer.revalidate();
-                messagesContainer.repaint();
-                
-                // Scroll to bottom
-                SwingUtilities.invokeLater(() -> {
-                    JScrollBar verticalBar = chatScrollPane.getVerticalScrollBar();
-                    verticalBar.setValue(verticalBar.getMaximum());
-                });
+                scrollToBottom();
                 
-            } catch (Exception e) {
-                e.printStackTrace();
+                // The page may have been read before the notified messages were sent
+                notifiedMessageIds.removeAll(loadedMessageIds);
+                if (!notifiedMessageIds.isEmpty() || latestPagePending) {
+                    loadNewerMessages();
+                }
+            },
+            e -> {
+                notifiedMessageIds.clear();
+                latestPagePending = false;
                 DialogFactory.showError(this, "Failed to load messages: " + e.getMessage());
-            }
-        });
+            });
     }
     
-    private JPanel createMessageBubble(ChatMessage message) {
-        boolean isFromCurrentUser = message.isFromCurrentUser(currentUserId);
-        
-        JPanel bubblePanel = new JPanel(new BorderLayout());
-        bubblePanel.setBorder(BorderFactory.createEmptyBorder(5, 15, 5, 15));
-        
-        // Message content panel
-        JPanel contentPanel = new JPanel(new BorderLayout());
-        contentPanel.setBackground(isFromCurrentUser ? SENT_BUBBLE_COLOR : RECEIVED_BUBBLE_COLOR);
-        contentPanel.setOpaque(true);
-        contentPanel.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
+    /**
+     * Prepend the page of messages before the oldest loaded one, keeping the visible messages in place
+     */
+    private void loadOlderMessages() {
+        if (currentConversation == null || !hasOlderMessages || olderMessagesLoader.isLoading() || messagesLoader.isLoading()) {
+            return;
+        }
         
-        // Rounded corners effect (simplified)
-        contentPanel.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createLineBorder(isFromCurrentUser ? SENT_BUBBLE_COLOR : RECEIVED_BUBBLE_COLOR, 1, true),
-            BorderFactory.createEmptyBorder(8, 12, 8, 12)
-        ));
+        ChatMessage cursor = oldestLoadedMessage;
+        olderMessagesLoader.load(
+            () -> chatService.getMessagesBefore(cursor, MESSAGE_PAGE_SIZE),
+            older -> {
+                if (cursor != oldestLoadedMessage) {
+                    return; // Conversation was reloaded meanwhile
+                }
+                hasOlderMessages = older.size() == MESSAGE_PAGE_SIZE;
+                if (older.isEmpty()) {
+                    return;
+                }
+                
+                // The list shifts the view by the height inserted above, so the visible messages stay put
+                messageList.insertItems(0, older);
+                oldestLoadedMessage = older.get(0);
+                addLoadedIds(older);
+            },
+            e -> DialogFactory.showError(this, "Failed to load older messages: " + e.getMessage()));
+    }
+    
+    /**
+     * Append the notified messages, fetched by id, and the latest page when it is pending,
+     * skipping those already shown. Messages are fetched by id rather than after the newest
+     * loaded one, as one that commits late can sort before messages already shown.
+     */
+    private void loadNewerMessages() {
+        if (currentConversation == null) {
+            return;
+        }
+        if (messagesLoader.isLoading()) {
+            return; // Caught up once the first page is in
+        }
+        if (oldestLoadedMessage == null) {
+            loadChatMessages();
+            return;
+        }
         
-        // Message text
-        JTextArea messageText = new JTextArea(message.getContent());
-        messageText.setEditable(false);
-        messageText.setOpaque(false);
-        messageText.setWrapStyleWord(true);
-        messageText.setLineWrap(true);
-        // messageText.setFont(CustomFont.getMonospacedFont(13f));
-        messageText.setFont(getFont().deriveFont(13f));
-        messageText.setForeground(Color.BLACK);
-        messageText.setBorder(null);
-        
-        contentPanel.add(messageText, BorderLayout.CENTER);
-        
-        // Attachment handling
-        if (message.hasAttachment()) {
-            JPanel attachmentPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 5));
-            attachmentPanel.setOpaque(false);
+        int conversationId = currentConversation.getId();
+        // Kept until fetched, so a load superseded by the next notification loses nothing
+        List<Integer> ids = new ArrayList<>(notifiedMessageIds);
+        boolean latestPage = latestPagePending;
+        newerMessagesLoader.load(
+            () -> {
+                NewerMessages newer = new NewerMessages();
+                newer.notified = chatService.getMessagesByIds(conversationId, ids);
+                newer.latest = latestPage
+                    ? chatService.getRecentMessages(conversationId, MESSAGE_PAGE_SIZE)
+                    : Collections.emptyList();
+                if (!newer.notified.isEmpty() || !newer.latest.isEmpty()) {
+                    chatService.markMessagesAsRead(conversationId, currentUserId);
+                }
+                return newer;
+            },
+            newer -> {
+                if (currentConversation == null || currentConversation.getId() != conversationId) {
+                    return; // Another conversation was opened meanwhile
+                }
+                notifiedMessageIds.removeAll(ids);
+                if (latestPage) {
+                    latestPagePending = false;
+                    if (newer.latest.size() == MESSAGE_PAGE_SIZE
+                            && newer.latest.stream().noneMatch(m -> loadedMessageIds.contains(m.getId()))) {
+                        // Too far behind to merge; jump to the latest page instead
+                        loadChatMessages();
+                        return;
+                    }
+                }
+                
+                Map<Integer, ChatMessage> unseen = new LinkedHashMap<>();
+                for (ChatMessage message : newer.notified) {
+                    if (!loadedMessageIds.contains(message.getId())) {
+                        unseen.put(message.getId(), message);
+                    }
+                }
+                for (ChatMessage message : newer.latest) {
+                    if (!loadedMessageIds.contains(message.getId())) {
+                        unseen.putIfAbsent(message.getId(), message);
+                    }
+                }
+                if (unseen.isEmpty()) {
+                    return;
+                }
+                
+                List<ChatMessage> appended = new ArrayList<>(unseen.values());
+                appended.sort(Comparator.comparing(ChatMessage::getSentAt).thenComparingInt(ChatMessage::getId));
+                if (messageList.getItemCount() == 0) {
+                    messageList.setPlaceholder(null); // First message of an empty conversation
+                }
+                messageList.addItems(appended);
+                addLoadedIds(appended);
+                
+                scrollToBottom();
+            },
+            e -> DialogFactory.showError(this, "Failed to load messages: " + e.getMessage()));
+    }
+    
+    private void addLoadedIds(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            loadedMessageIds.add(message.getId());
+        }
+    }
+    
+    /**
+     * Result of loadNewerMessages(): the notified messages and, when requested, the latest page
+     */
+    private static class NewerMessages {
+        List<ChatMessage> notified;
+        List<ChatMessage> latest;
+    }
+    
+    private void showEmptyConversation() {
+        JLabel emptyLabel = new JLabel("No messages yet. Start the conversation!", SwingConstants.CENTER);
+        // emptyLabel.setFont(CustomFont.getMonospacedFont(14f));
+        emptyLabel.setFont(getFont().deriveFont(14f));
+        emptyLabel.setForeground(Color.GRAY);
+        messageList.setPlaceholder(emptyLabel);
+    }
+    
+    private void scrollToBottom() {
+        SwingUtilities.invokeLater(() -> {
+            // Laid out first so the newest bubbles are measured and the end is where they end
+            chatScrollPane.validate();
+            messageList.scrollToEnd();
+        });
+    }
+    
+    /**
+     * A message bubble that can show any message, so the message list can reuse it for the
+     * next message scrolled into view instead of building a new one
+     */
+    private class MessageBubble extends JPanel {
+        private final JPanel wrapper;
+        private final JPanel contentPanel;
+        private final JTextArea messageText;
+        private final JPanel attachmentPanel;
+        private final JLabel attachmentIcon;
+        private final JPanel timePanel;
+        private final JLabel timeLabel;
+        private ChatMessage message;
+        
+        MessageBubble() {
+            super(new BorderLayout());
+            setOpaque(false);
+            setBorder(BorderFactory.createEmptyBorder(5, 15, 5, 15));
             
-            ImageIcon attachmentIconImg = loadScaledIcon("/images/" + role + "/paperclip.png", 15, 15);
-            JLabel attachmentIcon = new JLabel();
-            attachmentIcon.setIcon(attachmentIconImg);
-            attachmentIcon.setText(message.getAttachmentFilename());
-            // JLabel attachmentIcon = new JLabel("📎 " + message.getAttachmentFilename());
-            attachmentIcon.setFont(getFont().deriveFont(12f));
+            // Message content panel
+            contentPanel = new JPanel(new BorderLayout());
+            contentPanel.setOpaque(true);
+            
+            // Message text
+            messageText = new JTextArea();
+            messageText.setEditable(false);
+            messageText.setOpaque(false);
+            messageText.setWrapStyleWord(true);
+            messageText.setLineWrap(true);
+            // messageText.setFont(CustomFont.getMonospacedFont(13f));
+            messageText.setFont(ChatPanel.this.getFont().deriveFont(13f));
+            messageText.setForeground(Color.BLACK);
+            messageText.setBorder(null);
+            contentPanel.add(messageText, BorderLayout.CENTER);
+            
+            // Attachment link, shown for messages with an attachment
+            attachmentPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 5));
+            attachmentPanel.setOpaque(false);
+            attachmentIcon = new JLabel();
+            attachmentIcon.setIcon(loadScaledIcon("/images/" + role + "/paperclip.png", 15, 15));
+            attachmentIcon.setFont(ChatPanel.this.getFont().deriveFont(12f));
             // attachmentIcon.setFont(CustomFont.getMonospacedFont(12f));
-            attachmentIcon.setForeground(isFromCurrentUser ? Color.WHITE : Color.BLUE);
             attachmentIcon.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-            
             attachmentIcon.addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
                     downloadAttachment(message);
                 }
             });
-            
             attachmentPanel.add(attachmentIcon);
-            contentPanel.add(attachmentPanel, BorderLayout.SOUTH);
+            
+            // Time label
+            timeLabel = new JLabel();
+            timeLabel.setFont(ChatPanel.this.getFont().deriveFont(10f));
+            timeLabel.setForeground(Color.GRAY);
+            timePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 2));
+            timePanel.setOpaque(false);
+            timePanel.add(timeLabel);
+            
+            JPanel footer = new JPanel(new BorderLayout());
+            footer.setOpaque(false);
+            footer.add(attachmentPanel, BorderLayout.NORTH);
+            footer.add(timePanel, BorderLayout.SOUTH);
+            contentPanel.add(footer, BorderLayout.SOUTH);
+            
+            // Wrapper for alignment
+            wrapper = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            wrapper.setOpaque(false);
+            wrapper.add(contentPanel);
+            add(wrapper, BorderLayout.CENTER);
         }
         
-        // Time label
-        JLabel timeLabel = new JLabel(message.getSentAt().format(TIME_FORMATTER));
-        timeLabel.setFont(getFont().deriveFont(10f));;
-        timeLabel.setForeground(Color.GRAY);
-        
-        JPanel timePanel = new JPanel(new FlowLayout(isFromCurrentUser ? FlowLayout.RIGHT : FlowLayout.LEFT, 0, 2));
-        timePanel.setOpaque(false);
-        timePanel.add(timeLabel);
-        
-        contentPanel.add(timePanel, BorderLayout.SOUTH);
-        
-        // Wrapper for alignment
-        JPanel wrapper = new JPanel(new FlowLayout(isFromCurrentUser ? FlowLayout.RIGHT : FlowLayout.LEFT));
-        wrapper.setOpaque(false);
-        wrapper.add(contentPanel);
-        
-        // Limit bubble width
-        contentPanel.setMaximumSize(new Dimension(400, Integer.MAX_VALUE));
-        contentPanel.setPreferredSize(new Dimension(
-            Math.min(400, Math.max(200, messageText.getPreferredSize().width + 30)),
-            contentPanel.getPreferredSize().height
-        ));
-        
-        bubblePanel.add(wrapper, BorderLayout.CENTER);
-        
-        return bubblePanel;
+        void bind(ChatMessage message) {
+            this.message = message;
+            boolean isFromCurrentUser = message.isFromCurrentUser(currentUserId);
+            Color bubbleColor = isFromCurrentUser ? SENT_BUBBLE_COLOR : RECEIVED_BUBBLE_COLOR;
+            
+            contentPanel.setBackground(bubbleColor);
+            // Rounded corners effect (simplified)
+            contentPanel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(bubbleColor, 1, true),
+                BorderFactory.createEmptyBorder(8, 12, 8, 12)
+            ));
+            messageText.setText(message.getContent());
+            
+            attachmentPanel.setVisible(message.hasAttachment());
+            if (message.hasAttachment()) {
+                attachmentIcon.setText(message.getAttachmentFilename());
+                attachmentIcon.setForeground(isFromCurrentUser ? Color.WHITE : Color.BLUE);
+            }
+            
+            timeLabel.setText(message.getSentAt().format(TIME_FORMATTER));
+            ((FlowLayout) timePanel.getLayout()).setAlignment(isFromCurrentUser ? FlowLayout.RIGHT : FlowLayout.LEFT);
+            ((FlowLayout) wrapper.getLayout()).setAlignment(isFromCurrentUser ? FlowLayout.RIGHT : FlowLayout.LEFT);
+            
+            // Limit bubble width
+            contentPanel.setPreferredSize(null);
+            contentPanel.setMaximumSize(new Dimension(400, Integer.MAX_VALUE));
+            contentPanel.setPreferredSize(new Dimension(
+                Math.min(400, Math.max(200, messageText.getPreferredSize().width + 30)),
+                contentPanel.getPreferredSize().height
+            ));
+        }
     }
     
     private void sendMessage() {
@@ -581,6 +924,9 @@ public class ChatPanel extends JPanel {
             DialogFactory.showWarning(this, "Please select a conversation first");
             return;
         }
+        if (sendLoader.isLoading()) {
+            return; // Still sending the previous message
+        }
         
         String content = messageInputField.getText().trim();
         
@@ -588,48 +934,45 @@ public class ChatPanel extends JPanel {
             return; // Nothing to send
         }
         
-        try {
-            byte[] attachmentData = null;
-            String attachmentFilename = null;
-            String attachmentMimeType = null;
-            
-            if (selectedAttachment != null) {
-                attachmentData = Files.readAllBytes(selectedAttachment.toPath());
-                attachmentFilename = selectedAttachment.getName();
-                attachmentMimeType = Files.probeContentType(selectedAttachment.toPath());
-                if (attachmentMimeType == null) {
-                    attachmentMimeType = "application/octet-stream";
-                }
-            }
-            
-            boolean success = chatService.sendMessage(
-                currentConversation.getId(),
+        int conversationId = currentConversation.getId();
+        File attachment = selectedAttachment;
+        // The attachment is streamed from disk into the database, off the EDT
+        sendLoader.load(
+            () -> chatService.sendMessage(
+                conversationId,
                 currentUserId,
                 content,
-                attachmentData,
-                attachmentFilename,
-                attachmentMimeType
-            );
-            
-            if (success) {
-                messageInputField.setText("");
-                selectedAttachment = null;
-                ImageIcon attachIcon = loadScaledIcon("/images/" + role + "/paperclip.png", 15, 15);
-                attachButton.setIcon(attachIcon);
-                // attachButton.setText("📎");
-                loadChatMessages();
-                loadConversations(); // Refresh to update last message
-            } else {
-                DialogFactory.showError(this, "Failed to send message");
-            }
-            
-        } catch (IOException e) {
-            e.printStackTrace();
-            DialogFactory.showError(this, "Error reading attachment: " + e.getMessage());
-        } catch (Exception e) {
-            e.printStackTrace();
-            DialogFactory.showError(this, "Failed to send message: " + e.getMessage());
-        }
+                attachment != null ? attachment.toPath() : null
+            ),
+            success -> {
+                if (success) {
+                    // Keep anything typed or attached while the message was being sent
+                    if (messageInputField.getText().trim().equals(content)) {
+                        messageInputField.setText("");
+                    }
+                    if (selectedAttachment == attachment) {
+                        selectedAttachment = null;
+                        ImageIcon attachIcon = loadScaledIcon("/images/" + role + "/paperclip.png", 15, 15);
+                        attachButton.setIcon(attachIcon);
+                        // attachButton.setText("📎");
+                    }
+                    latestPagePending = true;
+                    loadNewerMessages();
+                    // Refresh to update last message
+                    notifiedConversations.add(conversationId);
+                    conversationListRefreshTimer.restart();
+                } else {
+                    DialogFactory.showError(this, "Failed to send message");
+                }
+            },
+            e -> {
+                e.printStackTrace();
+                if (e instanceof IOException) {
+                    DialogFactory.showError(this, "Error reading attachment: " + e.getMessage());
+                } else {
+                    DialogFactory.showError(this, "Failed to send message: " + e.getMessage());
+                }
+            });
     }
     
     private void selectAttachment() {
@@ -654,14 +997,18 @@ public class ChatPanel extends JPanel {
         fileChooser.setSelectedFile(new File(message.getAttachmentFilename()));
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try {
-                File saveFile = fileChooser.getSelectedFile();
-                Files.write(saveFile.toPath(), message.getAttachment());
-                DialogFactory.showSuccess(this, "Attachment saved successfully!");
-            } catch (IOException e) {
-                e.printStackTrace();
-                DialogFactory.showError(this, "Failed to save attachment: " + e.getMessage());
-            }
+            File saveFile = fileChooser.getSelectedFile();
+            // Streamed from the database straight to the file, off the EDT
+            attachmentLoader.load(
+                () -> chatService.saveAttachment(message, saveFile.toPath()),
+                saved -> {
+                    if (saved) {
+                        DialogFactory.showSuccess(this, "Attachment saved successfully!");
+                    } else {
+                        DialogFactory.showError(this, "Failed to load attachment");
+                    }
+                },
+                e -> DialogFactory.showError(this, "Failed to save attachment: " + e.getMessage()));
         }
     }
     
@@ -684,10 +1031,16 @@ public class ChatPanel extends JPanel {
         JList<Map<String, Object>> userList = new JList<>();
         DefaultListModel<Map<String, Object>> listModel = new DefaultListModel<>();
         
-        List<Map<String, Object>> availableUsers = chatService.getAvailableRecipients(currentUserRole);
-        for (Map<String, Object> user : availableUsers) {
-            listModel.addElement(user);
-        }
+        // Recipients are read after the dialog opens; its loader shows the wait cursor meanwhile
+        BackgroundLoader dialogLoader = new BackgroundLoader(contentPanel);
+        dialogLoader.load(
+            () -> chatService.getAvailableRecipients(currentUserRole),
+            availableUsers -> {
+                for (Map<String, Object> user : availableUsers) {
+                    listModel.addElement(user);
+                }
+            },
+            e -> DialogFactory.showError(newChatDialog, "Failed to load users: " + e.getMessage()));
         
         userList.setModel(listModel);
         userList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -718,14 +1071,23 @@ public class ChatPanel extends JPanel {
             Map<String, Object> selectedUser = userList.getSelectedValue();
             if (selectedUser != null) {
                 int otherUserId = (Integer) selectedUser.get("id");
-                Conversation conversation = chatService.getOrCreateConversation(currentUserId, otherUserId);
-                if (conversation != null) {
-                    newChatDialog.dispose();
-                    loadConversations();
-                    openConversation(conversation);
-                } else {
-                    DialogFactory.showError(newChatDialog, "Failed to create conversation");
-                }
+                startChatButton.setEnabled(false);
+                dialogLoader.load(
+                    () -> chatService.getOrCreateConversation(currentUserId, otherUserId),
+                    conversation -> {
+                        if (conversation != null) {
+                            newChatDialog.dispose();
+                            loadConversations();
+                            openConversation(conversation);
+                        } else {
+                            startChatButton.setEnabled(true);
+                            DialogFactory.showError(newChatDialog, "Failed to create conversation");
+                        }
+                    },
+                    ex -> {
+                        startChatButton.setEnabled(true);
+                        DialogFactory.showError(newChatDialog, "Failed to create conversation: " + ex.getMessage());
+                    });
             } else {
                 DialogFactory.showWarning(newChatDialog, "Please select a user");
             }
@@ -763,7 +1125,12 @@ public class ChatPanel extends JPanel {
             // titleLabel.setFont(CustomFont.getMonospacedFont(Font.BOLD, 16f));
             titleLabel.setFont(getFont().deriveFont(Font.BOLD, 18f));
             
+            JPanel headerStatus = new JPanel(new FlowLayout(FlowLayout.CENTER));
+            headerStatus.setOpaque(false);
+            headerStatus.add(messagesLoader.getIndicator());
+            
             headerPanel.add(titleLabel, BorderLayout.WEST);
+            headerPanel.add(headerStatus, BorderLayout.CENTER);
             headerPanel.add(refreshButton, BorderLayout.EAST);
             
             chatAreaPanel.add(headerPanel, BorderLayout.NORTH);
@@ -788,9 +1155,8 @@ public class ChatPanel extends JPanel {
         
         // If a conversation is currently open, refresh its messages
         if (currentConversation != null) {
-            loadChatMessages();
-            // Mark messages as read again after refresh
-            chatService.markMessagesAsRead(currentConversation.getId(), currentUserId);
+            latestPagePending = true;
+            loadNewerMessages();
         }
         
         // Show completion feedback after a brief delay
@@ -807,8 +1173,6 @@ public class ChatPanel extends JPanel {
         timer.start();
     }
     private ImageIcon loadScaledIcon(String path, int w, int h) {
-        ImageIcon icon = new ImageIcon(getClass().getResource(path));
-        Image img = icon.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH);
-        return new ImageIcon(img);
+        return ImageCache.getInstance().getResourceIcon(path, w, h);
     }
 }
@@ -8,6 +8,7 @@ import ui.components.*;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Class Management Panel - Manages kindergarten classes with teacher assignment and enrollment tracking
@@ -30,6 +31,7 @@ public class ClassManagementPanel extends JPanel {
     private static final String FIELD_TEACHER = "teacher";
     
     private Class selectedClass;
+    private BiConsumer<Integer, String> classChangedHandler;
     
     public ClassManagementPanel(AuthService authService) {
         this.authService = authService;
@@ -50,15 +52,25 @@ public class ClassManagementPanel extends JPanel {
         loadAvailableTeachers();
     }
     
+    /**
+     * Reload only the teacher choices, which users created in other panels can change;
+     * the class table follows its own edits
+     */
+    public void refreshLookups() {
+        loadAvailableTeachers();
+    }
+    
     private void initializeComponents() {
         // Create search panel
         setOpaque(false);
-        searchPanel = SearchPanel.createWithClear("Search classes:", this::searchClasses, this::loadClassData);
+        searchPanel = SearchPanel.createWithClear("Search classes:", this::searchClasses, () -> classTable.clearFilter());
+        searchPanel.enableSearchAsYouType(SearchPanel.DEFAULT_TYPING_DELAY);
         searchPanel.setOpaque(false);
         
         // Create data table
         String[] columnNames = {"ID", "Class Name", "Grade Level", "Teacher", "Enrollment", "Capacity", "Available Spots", "Utilization %"};
         classTable = new DataTable(columnNames);
+        classTable.enableSearchIndex(0, 1, 3); // Keyed by ID, searched by class name and teacher
         classTable.setRowSelectionHandler(this::onRowSelected);
         classTable.setOpaque(false);
         
@@ -93,6 +105,19 @@ public class ClassManagementPanel extends JPanel {
         loadAvailableTeachers();
     }
     
+    /**
+     * Called after a class is added, renamed or deleted, with its id and its name (null once deleted)
+     */
+    public void setClassChangedHandler(BiConsumer<Integer, String> handler) {
+        this.classChangedHandler = handler;
+    }
+    
+    private void fireClassChanged(int classId, String name) {
+        if (classChangedHandler != null) {
+            classChangedHandler.accept(classId, name);
+        }
+    }
+    
     private void setupLayout() {
         setLayout(new BorderLayout());
         
@@ -163,21 +188,17 @@ public class ClassManagementPanel extends JPanel {
     }
     
     private void searchClasses(String searchText) {
-        if (searchText.isEmpty()) {
-            classTable.clearFilter();
-            return;
-        }
-        
-        // Filter classes by name using table filter
-        classTable.applyFilter(searchText, 1); // Filter by class name column (index 1)
+        // Filter the loaded rows through the table's index; no database query
+        classTable.searchIndexed(searchText);
     }
     
     private void loadClassData() {
         try {
             List<Class> classes = classService.getAllClasses();
+            searchPanel.clearSearchText();
+            classTable.clearFilter();
             updateTable(classes);
             updateStatistics();
-            searchPanel.clearSearchText();
             // Refresh teacher list as class assignments may have changed
             loadAvailableTeachers();
         } catch (Exception e) {
@@ -189,20 +210,36 @@ public class ClassManagementPanel extends JPanel {
         classTable.clearRows();
         
         for (Class clazz : classes) {
-            Object[] rowData = {
-                clazz.getId(),
-                clazz.getName(),
-                clazz.getGradeLevel(),
-                clazz.getTeacherName() != null ? clazz.getTeacherName() : "Unassigned",
-                clazz.getCurrentEnrollment(),
-                clazz.getCapacity(),
-                clazz.getAvailableSpots(),
-                String.format("%.1f%%", clazz.getCapacityUtilization())
-            };
-            classTable.addRow(rowData);
+            classTable.addRow(toRow(clazz));
         }
     }
     
+    /**
+     * Reload one class's row after a change, keeping the rest of the table and the search,
+     * then the statistics and teacher list it affects
+     */
+    private void refreshClass(int classId) {
+        Class clazz = classService.getClassById(classId);
+        if (clazz != null) {
+            classTable.putRow(toRow(clazz));
+        }
+        updateStatistics();
+        loadAvailableTeachers();
+    }
+    
+    private Object[] toRow(Class clazz) {
+        return new Object[] {
+            clazz.getId(),
+            clazz.getName(),
+            clazz.getGradeLevel(),
+            clazz.getTeacherName() != null ? clazz.getTeacherName() : "Unassigned",
+            clazz.getCurrentEnrollment(),
+            clazz.getCapacity(),
+            clazz.getAvailableSpots(),
+            String.format("%.1f%%", clazz.getCapacityUtilization())
+        };
+    }
+    
     private void loadSelectedClass(int row) {
         int classId = (Integer) classTable.getValueAt(row, 0);
         selectedClass = classService.getClassById(classId);
@@ -257,8 +294,12 @@ public class ClassManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Class added successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "Class added successfully!");
-                loadClassData();
-                loadAvailableTeachers(); // Refresh teacher list
+                if (clazz.getId() > 0) {
+                    refreshClass(clazz.getId());
+                } else {
+                    loadClassData();
+                }
+                fireClassChanged(clazz.getId(), clazz.getName());
                 clearForm();
             } else {
                 DialogFactory.showError(this, "Failed to add class.");
@@ -291,7 +332,8 @@ public class ClassManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Class updated successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "Class updated successfully!");
-                loadClassData();
+                refreshClass(updatedClass.getId());
+                fireClassChanged(updatedClass.getId(), updatedClass.getName());
                 clearForm();
             } else {
                 DialogFactory.showError(this, "Failed to update class.");
@@ -317,7 +359,9 @@ public class ClassManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Class deleted successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "Class deleted successfully!");
-                loadClassData();
+                classTable.removeRow(selectedClass.getId());
+                fireClassChanged(selectedClass.getId(), null);
+                updateStatistics();
                 loadAvailableTeachers(); // Refresh teacher list
                 clearForm();
             } else {
@@ -371,8 +415,7 @@ public class ClassManagementPanel extends JPanel {
                     if (success) {
                         CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Teacher assigned successfully!", CustomMessageDialog.Type.SUCCESS);
                         // DialogFactory.showSuccess(this, "Teacher assigned successfully!");
-                        loadClassData();
-                        loadAvailableTeachers();
+                        refreshClass(selectedClass.getId());
                         clearForm();
                     } else {
                         DialogFactory.showError(this, "Failed to assign teacher.");
@@ -407,8 +450,7 @@ public class ClassManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Teacher removed successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "Teacher removed successfully!");
-                loadClassData();
-                loadAvailableTeachers();
+                refreshClass(selectedClass.getId());
                 clearForm();
             } else {
                 DialogFactory.showError(this, "Failed to remove teacher.");
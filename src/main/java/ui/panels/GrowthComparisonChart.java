@@ -1,40 +1,39 @@
 package ui.panels;
+import model.GrowthProfile;
+import util.GrowthStandards;
+import util.GrowthStandards.Indicator;
+
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
+/**
+ * Plots a student's height, weight and BMI against the median of the growth reference for
+ * their sex. Each indicator has its own vertical scale, spanning its 3rd to 97th percentile
+ * curves over the ages shown (widened to fit the measurements); the x-axis is age in months.
+ */
 public class GrowthComparisonChart extends JPanel {
-    private List<Integer> ages;
-    private List<Double> heights, weights, bmis;
-    private List<Double> trackerHeights, trackerWeights, trackerBMIs;
-    private boolean isMale;
-
-    public GrowthComparisonChart(
-            List<Integer> ages,
-            List<Double> heights,
-            List<Double> weights,
-            List<Double> bmis,
-            List<Double> trackerHeights,
-            List<Double> trackerWeights,
-            List<Double> trackerBMIs,
-            boolean isMale
-    ) {
-        this.ages = ages;
-        this.heights = heights;
-        this.weights = weights;
-        this.bmis = bmis;
-        this.trackerHeights = trackerHeights;
-        this.trackerWeights = trackerWeights;
-        this.trackerBMIs = trackerBMIs;
-        this.isMale = isMale;
+    // z-scores of the 3rd and 97th percentiles
+    private static final double LOW_Z = -1.881;
+    private static final double HIGH_Z = 1.881;
+    private static final int CURVE_STEP_MONTHS = 1;
+
+    private GrowthProfile profile;
+
+    public GrowthComparisonChart(GrowthProfile profile) {
+        this.profile = profile;
         setPreferredSize(new Dimension(800, 400));
         setBackground(Color.WHITE);
     }
 
+    public void setProfile(GrowthProfile profile) {
+        this.profile = profile;
+        repaint();
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        if (ages == null || ages.isEmpty()) return;
+        if (profile == null || profile.size() == 0) return;
 
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
@@ -48,55 +47,29 @@ public class GrowthComparisonChart extends JPanel {
         g2.drawLine(padding, h + padding, padding + w, h + padding); // x-axis
         g2.drawLine(padding, padding, padding, h + padding); // y-axis
 
-        // Scale function
-        double minHeight = 80, maxHeight = 120;
-        double minWeight = 10, maxWeight = 25;
-        double minBMI = 14, maxBMI = 20;
-
-        // Draw tracker and actual values
-        for (int i = 0; i < ages.size() - 1; i++) {
-            int x1 = padding + (i * w) / (ages.size() - 1);
-            int x2 = padding + ((i + 1) * w) / (ages.size() - 1);
-
-            // Tracker height (blue)
-            g2.setColor(Color.BLUE);
-            int y1h = padding + (int) (h - (trackerHeights.get(i) - minHeight) / (maxHeight - minHeight) * h);
-            int y2h = padding + (int) (h - (trackerHeights.get(i + 1) - minHeight) / (maxHeight - minHeight) * h);
-            g2.drawLine(x1, y1h, x2, y2h);
-
-            // Tracker weight (green)
-            g2.setColor(Color.GREEN.darker());
-            int y1w = padding + (int) (h - (trackerWeights.get(i) - minWeight) / (maxWeight - minWeight) * h);
-            int y2w = padding + (int) (h - (trackerWeights.get(i + 1) - minWeight) / (maxWeight - minWeight) * h);
-            g2.drawLine(x1, y1w, x2, y2w);
-
-            // Tracker BMI (magenta)
-            g2.setColor(Color.MAGENTA);
-            int y1b = padding + (int) (h - (trackerBMIs.get(i) - minBMI) / (maxBMI - minBMI) * h);
-            int y2b = padding + (int) (h - (trackerBMIs.get(i + 1) - minBMI) / (maxBMI - minBMI) * h);
-            g2.drawLine(x1, y1b, x2, y2b);
+        // Ages shown: the measurements with a few months either side, within the reference
+        GrowthStandards standards = GrowthStandards.get();
+        boolean male = profile.isMale();
+        double minAge = Math.max(standards.minAgeMonths(Indicator.HEIGHT, male), Math.floor(profile.getAgeMonths(0)) - 3);
+        double maxAge = Math.min(standards.maxAgeMonths(Indicator.HEIGHT, male), Math.ceil(profile.getAgeMonths(profile.latest())) + 3);
+        if (!(maxAge > minAge)) {
+            // Measured outside the reference ages; plot the measurements on their own
+            minAge = Math.floor(profile.getAgeMonths(0)) - 3;
+            maxAge = Math.ceil(profile.getAgeMonths(profile.latest())) + 3;
         }
 
-        // Draw actual points
-        for (int i = 0; i < ages.size(); i++) {
-            int x = padding + (i * w) / (ages.size() - 1);
-
-            // Height
-            g2.setColor(Color.RED);
-            int yH = padding + (int) (h - (heights.get(i) - minHeight) / (maxHeight - minHeight) * h);
-            g2.fillOval(x - 4, yH - 4, 8, 8);
-
-            // Weight
-            g2.setColor(Color.ORANGE);
-            int yW = padding + (int) (h - (weights.get(i) - minWeight) / (maxWeight - minWeight) * h);
-            g2.fillOval(x - 4, yW - 4, 8, 8);
-
-            // BMI
-            g2.setColor(Color.PINK.darker());
-            int yB = padding + (int) (h - (bmis.get(i) - minBMI) / (maxBMI - minBMI) * h);
-            g2.fillOval(x - 4, yB - 4, 8, 8);
+        // Age ticks every year
+        g2.setColor(Color.GRAY);
+        for (int year = (int) Math.ceil(minAge / 12); year * 12 <= maxAge; year++) {
+            int x = toX(year * 12, minAge, maxAge, padding, w);
+            g2.drawLine(x, h + padding, x, h + padding + 4);
+            g2.drawString(year + "y", x - 6, h + padding + 18);
         }
 
+        drawIndicator(g2, Indicator.HEIGHT, Color.RED, Color.BLUE, minAge, maxAge, padding, w, h);
+        drawIndicator(g2, Indicator.WEIGHT, Color.ORANGE, Color.GREEN.darker(), minAge, maxAge, padding, w, h);
+        drawIndicator(g2, Indicator.BMI, Color.PINK.darker(), Color.MAGENTA, minAge, maxAge, padding, w, h);
+
         // Legend
         int legendX = getWidth() - 150;
         int legendY = 20;
@@ -118,16 +91,89 @@ public class GrowthComparisonChart extends JPanel {
         g2.setColor(Color.BLUE);
         g2.fillRect(legendX, legendY + 45, 10, 2);
         g2.setColor(Color.BLACK);
-        g2.drawString("Tracker Height", legendX + 15, legendY + 50);
+        g2.drawString("Median Height", legendX + 15, legendY + 50);
 
         g2.setColor(Color.GREEN.darker());
         g2.fillRect(legendX, legendY + 55, 10, 2);
         g2.setColor(Color.BLACK);
-        g2.drawString("Tracker Weight", legendX + 15, legendY + 60);
+        g2.drawString("Median Weight", legendX + 15, legendY + 60);
 
         g2.setColor(Color.MAGENTA);
         g2.fillRect(legendX, legendY + 65, 10, 2);
         g2.setColor(Color.BLACK);
-        g2.drawString("Tracker BMI", legendX + 15, legendY + 70);
+        g2.drawString("Median BMI", legendX + 15, legendY + 70);
+    }
+
+    /**
+     * Draw the reference median as a line and the measurements as points, on a scale fitted
+     * to the reference band and the measurements
+     */
+    private void drawIndicator(Graphics2D g2, Indicator indicator, Color pointColor, Color medianColor,
+                               double minAge, double maxAge, int padding, int w, int h) {
+        GrowthStandards standards = GrowthStandards.get();
+        boolean male = profile.isMale();
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double age = minAge; age <= maxAge; age += CURVE_STEP_MONTHS) {
+            double low = standards.valueAt(indicator, male, age, LOW_Z);
+            double high = standards.valueAt(indicator, male, age, HIGH_Z);
+            if (!Double.isNaN(low)) {
+                min = Math.min(min, low);
+                max = Math.max(max, high);
+            }
+        }
+        for (int i = 0; i < profile.size(); i++) {
+            double value = value(indicator, i);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (!(max > min)) {
+            min -= 1;
+            max += 1;
+        }
+
+        // Reference median
+        g2.setColor(medianColor);
+        int prevX = -1;
+        int prevY = -1;
+        for (double age = minAge; age <= maxAge; age += CURVE_STEP_MONTHS) {
+            double median = standards.valueAt(indicator, male, age, 0);
+            if (Double.isNaN(median)) {
+                prevX = -1;
+                continue;
+            }
+            int x = toX(age, minAge, maxAge, padding, w);
+            int y = toY(median, min, max, padding, h);
+            if (prevX >= 0) {
+                g2.drawLine(prevX, prevY, x, y);
+            }
+            prevX = x;
+            prevY = y;
+        }
+
+        // Measurements
+        g2.setColor(pointColor);
+        for (int i = 0; i < profile.size(); i++) {
+            int x = toX(profile.getAgeMonths(i), minAge, maxAge, padding, w);
+            int y = toY(value(indicator, i), min, max, padding, h);
+            g2.fillOval(x - 4, y - 4, 8, 8);
+        }
+    }
+
+    private double value(Indicator indicator, int i) {
+        switch (indicator) {
+            case HEIGHT: return profile.getHeight(i);
+            case WEIGHT: return profile.getWeight(i);
+            default: return profile.getBmi(i);
+        }
+    }
+
+    private static int toX(double age, double minAge, double maxAge, int padding, int w) {
+        return padding + (int) ((age - minAge) / (maxAge - minAge) * w);
+    }
+
+    private static int toY(double value, double min, double max, int padding, int h) {
+        return padding + (int) (h - (value - min) / (max - min) * h);
     }
 }
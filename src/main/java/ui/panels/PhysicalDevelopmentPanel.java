@@ -1,5 +1,6 @@
 package ui.panels;
 
+import model.GrowthProfile;
 import model.PhysicalDevelopmentRecord;
 import service.PhysicalDevelopmentService;
 import ui.components.AppColor;
@@ -45,6 +46,7 @@ public class PhysicalDevelopmentPanel extends JPanel {
     private JLabel growthTrendLabel;
     private JLabel classLabel;
     private JTable historyTable;
+    private GrowthComparisonChart growthChart;
     private DefaultTableModel tableModel;
     private JButton addRecordButton;
     private JButton editRecordButton;
@@ -160,6 +162,9 @@ public class PhysicalDevelopmentPanel extends JPanel {
         // historyTable.setBackground(Color.GREEN);
 
         
+        growthChart = new GrowthComparisonChart(null);
+        growthChart.setPreferredSize(new Dimension(0, 200));
+        
         // Buttons (only for teachers)
         System.out.println("isTeacherView: " + isTeacherView);
         if (isTeacherView) {
@@ -214,12 +219,17 @@ public class PhysicalDevelopmentPanel extends JPanel {
         
         // History table
         JScrollPane tableScrollPane = new JScrollPane(historyTable);
-        tableScrollPane.setBorder(BorderFactory.createTitledBorder("Measurement History"));
         tableScrollPane.setPreferredSize(new Dimension(0, 200));
         tableScrollPane.setOpaque(false);
         // tableScrollPane.getViewport().setOpaque(false);
         tableScrollPane.getViewport().setBackground(backgroundColor); // trong suốt
-        add(tableScrollPane, BorderLayout.CENTER); 
+        
+        // History and growth chart tabs
+        JTabbedPane historyTabs = new JTabbedPane();
+        historyTabs.addTab("Measurement History", tableScrollPane);
+        historyTabs.addTab("Growth Chart", growthChart);
+        historyTabs.setOpaque(false);
+        add(historyTabs, BorderLayout.CENTER); 
 
         if (isTeacherView) {
             // Button panel
@@ -235,10 +245,17 @@ public class PhysicalDevelopmentPanel extends JPanel {
     
     private void loadData() {
         try {
+            // Load history, newest first; the latest record is its first row
+            List<PhysicalDevelopmentRecord> history = physicalService.getStudentPhysicalHistory(studentId);
+            updateHistoryTable(history);
+            
             // Load current data
-            PhysicalDevelopmentRecord latest = physicalService.getLatestPhysicalData(studentId);
+            PhysicalDevelopmentRecord latest = history.isEmpty() ? null : history.get(0);
+            GrowthProfile profile = physicalService.getGrowthProfile(studentId);
+            growthChart.setProfile(profile);
             if (latest != null) {
                 updateCurrentDataDisplay(latest);
+                updatePercentileDisplay(latest, profile);
             } else {
                 // No data available - show appropriate message
                 currentHeightLabel.setText("Height: No data available");
@@ -248,13 +265,9 @@ public class PhysicalDevelopmentPanel extends JPanel {
                 lastMeasurementLabel.setText("Last measured: No records found");
             }
             
-            // Load history
-            List<PhysicalDevelopmentRecord> history = physicalService.getStudentPhysicalHistory(studentId);
-            updateHistoryTable(history);
-            
             // Update growth trend
-            if (history.size() >= 2) {
-                String trend = physicalService.getGrowthTrend(history);
+            if (profile != null && profile.size() >= 2) {
+                String trend = physicalService.getGrowthTrend(profile);
                 growthTrendLabel.setText("Growth trend: " + trend);
             } else {
                 growthTrendLabel.setText("Growth trend: Insufficient data for analysis");
@@ -302,6 +315,25 @@ public class PhysicalDevelopmentPanel extends JPanel {
         }
     }
     
+    /**
+     * Add the growth reference percentiles and BMI category of the latest measurement
+     */
+    private void updatePercentileDisplay(PhysicalDevelopmentRecord record, GrowthProfile profile) {
+        int i = profile != null ? profile.indexOf(record.getId()) : -1;
+        if (i < 0) {
+            return;
+        }
+        currentHeightLabel.setText(currentHeightLabel.getText() + formatPercentile(profile.getHeightZ(i)));
+        currentWeightLabel.setText(currentWeightLabel.getText() + formatPercentile(profile.getWeightZ(i)));
+        currentBMILabel.setText(currentBMILabel.getText() + formatPercentile(profile.getBmiZ(i)) + " "
+                + physicalService.getBMICategory(record.getBmi(), profile.getAgeMonths(i), profile.isMale()));
+    }
+    
+    private String formatPercentile(double z) {
+        double percentile = physicalService.getPercentile(z);
+        return Double.isNaN(percentile) ? "" : " (P" + Math.round(percentile) + ")";
+    }
+    
     private void updateHistoryTable(List<PhysicalDevelopmentRecord> records) {
         tableModel.setRowCount(0);
         
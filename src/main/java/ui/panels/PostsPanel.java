@@ -9,6 +9,10 @@ import service.PostService;
 import ui.components.*;
 import ui.components.CustomButton.accountType;
 import util.AuthUtil;
+import util.BoundedLruCache;
+import util.ImageCache;
+import util.ImageViewerUtil;
+import util.ProfileImageUtil;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -17,13 +21,18 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Enhanced Posts Panel with card-based layout for Class Activities and School Announcements
@@ -39,12 +48,18 @@ public class PostsPanel extends JPanel {
     
     // UI Components
     private JTabbedPane mainTabbedPane;
-    private JPanel classActivitiesContainer;
-    private JPanel schoolAnnouncementsContainer;
-    private JScrollPane classActivitiesScrollPane;
-    private JScrollPane announcementsScrollPane;
     private String currentPostFilter = Post.TYPE_CLASS_ACTIVITY;
     
+    // Posts and their comments are fetched off the EDT a page at a time, one feed per tab
+    private static final int FEED_PAGE_SIZE = 10;
+    private static final int LOAD_MORE_THRESHOLD = 300; // Pixels from the bottom that trigger the next page
+    private static final int IMAGE_MAX_WIDTH = 400;
+    private static final int IMAGE_MAX_HEIGHT = 300;
+    private static final long CARD_IMAGE_CACHE_BYTES = 32L * 1024 * 1024; // Decoded card photos kept per feed
+    private FeedTab classActivitiesFeed;
+    private FeedTab announcementsFeed;
+    private final BackgroundLoader photoLoader = new BackgroundLoader(this);
+    
     // Form field IDs
     private static final String FIELD_TITLE = "title";
     private static final String FIELD_CONTENT = "content";
@@ -58,6 +73,7 @@ public class PostsPanel extends JPanel {
     // Selected items
     private byte[] selectedImageData;
     private String selectedImageFilename;
+    private byte[] selectedImageThumbnail;
 
     // Color constants
     private static Color BACKGROUND_COLOR;
@@ -105,37 +121,17 @@ public class PostsPanel extends JPanel {
         setOpaque(false);
         mainTabbedPane = new JTabbedPane();
         
-        // Initialize containers for card layout
-        classActivitiesContainer = new JPanel();
-        classActivitiesContainer.setLayout(new BoxLayout(classActivitiesContainer, BoxLayout.Y_AXIS));
-        // classActivitiesContainer.setBackground(Color.WHITE);
-        classActivitiesContainer.setOpaque(false);
-        
-        schoolAnnouncementsContainer = new JPanel();
-        schoolAnnouncementsContainer.setLayout(new BoxLayout(schoolAnnouncementsContainer, BoxLayout.Y_AXIS));
-        // schoolAnnouncementsContainer.setBackground(Color.WHITE);
-        schoolAnnouncementsContainer.setOpaque(false);
-        
-        // Create scroll panes
-        classActivitiesScrollPane = new JScrollPane(classActivitiesContainer);
-        classActivitiesScrollPane.setOpaque(false);
-        classActivitiesScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        classActivitiesScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        classActivitiesScrollPane.getVerticalScrollBar().setUnitIncrement(16);
-        
-        announcementsScrollPane = new JScrollPane(schoolAnnouncementsContainer);
-        announcementsScrollPane.setOpaque(false);
-        announcementsScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        announcementsScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        announcementsScrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        // Each feed has its own card list; only the cards in view are built, and reused while scrolling
+        classActivitiesFeed = new FeedTab(Post.TYPE_CLASS_ACTIVITY, "Error loading class activities: ");
+        announcementsFeed = new FeedTab(Post.TYPE_SCHOOL_ANNOUNCEMENT, "Error loading announcements: ");
     }
     
     private void setupLayout() {
         setLayout(new BorderLayout());
         setOpaque(false);
         // Create tabs
-        JPanel classActivitiesTab = createPostTab(classActivitiesScrollPane, "Class Activities");
-        JPanel announcementsTab = createPostTab(announcementsScrollPane, "School Announcements");
+        JPanel classActivitiesTab = createPostTab(classActivitiesFeed, "Class Activities");
+        JPanel announcementsTab = createPostTab(announcementsFeed, "School Announcements");
         classActivitiesTab.setOpaque(false);
         announcementsTab.setOpaque(false);
 
@@ -151,7 +147,7 @@ public class PostsPanel extends JPanel {
         add(mainTabbedPane, BorderLayout.CENTER);
     }
     
-    private JPanel createPostTab(JScrollPane scrollPane, String title) {
+    private JPanel createPostTab(FeedTab feed, String title) {
         System.out.println("Creating tab: " + title + " for user role: " + currentUserRole);
         
         JPanel tabPanel = new JPanel(new BorderLayout());
@@ -173,9 +169,10 @@ public class PostsPanel extends JPanel {
             refreshButton.addActionListener(e -> refreshCurrentView());
             headerPanel.add(refreshButton);
         }
+        headerPanel.add(feed.loader.getIndicator());
         
         tabPanel.add(headerPanel, BorderLayout.NORTH);
-        tabPanel.add(scrollPane, BorderLayout.CENTER);
+        tabPanel.add(feed.scrollPane, BorderLayout.CENTER);
         
         return tabPanel;
     }
@@ -194,348 +191,545 @@ public class PostsPanel extends JPanel {
     }
     
     private void loadClassActivities() {
-        try {
-            List<Post> posts = getPostsByType(Post.TYPE_CLASS_ACTIVITY);
-            displayPostsAsCards(posts, classActivitiesContainer);
-        } catch (Exception e) {
-            DialogFactory.showError(this, "Error loading class activities: " + e.getMessage());
-        }
+        classActivitiesFeed.reload();
     }
     
     private void loadSchoolAnnouncements() {
-        try {
-            List<Post> posts = getPostsByType(Post.TYPE_SCHOOL_ANNOUNCEMENT);
-            System.out.println("=== Loading School Announcements ===");
-            System.out.println("Found " + posts.size() + " school announcement posts");
-            for (Post post : posts) {
-                System.out.println("- Post: " + post.getTitle() + " (Author: " + post.getAuthorId() + ", Type: " + post.getPostType() + ")");
-            }
-            displayPostsAsCards(posts, schoolAnnouncementsContainer);
-        } catch (Exception e) {
-            System.err.println("Error loading school announcements: " + e.getMessage());
-            e.printStackTrace();
-            DialogFactory.showError(this, "Error loading announcements: " + e.getMessage());
-        }
+        announcementsFeed.reload();
     }
     
-    private List<Post> getPostsByType(String postType) {
-        List<Post> allPosts;
-        
-        System.out.println("=== Getting Posts by Type: " + postType + " ===");
-        System.out.println("Current User ID: " + currentUserId + ", Role: " + currentUserRole);
+    /**
+     * A page of posts together with their approved comments; built off the EDT
+     */
+    private static class PostFeed {
+        final List<Post> posts;
+        final Map<Integer, List<Comment>> commentsByPost = new HashMap<>();
         
-        if (Post.TYPE_SCHOOL_ANNOUNCEMENT.equals(postType)) {
-            // For school announcements, get all posts and filter by type
-            // School announcements can be created by both teachers and principals and should be visible to all
-            if ("TEACHER".equals(currentUserRole) || "PRINCIPAL".equals(currentUserRole)) {
-                // Get posts by current user first
-                allPosts = postService.getPostsByTeacher(currentUserId);
-                System.out.println("Posts by current user (" + currentUserId + "): " + allPosts.size());
-                
-                // Also get posts from other teachers and principals for school announcements
-                // This ensures teachers can see announcements created by other teachers/principals
-                List<Post> otherPosts = new java.util.ArrayList<>();
-                
-                // Get principal's posts (user ID 1) if current user is not principal
-                if (currentUserId != 1) {
-                    List<Post> principalPosts = postService.getPostsByTeacher(1);
-                    System.out.println("Posts by principal (1): " + principalPosts.size());
-                    otherPosts.addAll(principalPosts);
+        PostFeed(List<Post> posts) {
+            this.posts = posts;
+        }
+    }
+    
+    /**
+     * One tab's post feed. Opening or refreshing the tab loads the first page; further pages
+     * are appended as the user scrolls near the bottom, keyset-paged from the last post shown,
+     * so the cost of opening a feed does not grow with the number of posts.
+     *
+     * Cards are only built for the posts in view. Their photos are fetched when a card first
+     * shows them, a batch per layout, and the decoded icons kept in a bounded cache so posts
+     * scrolled back into view show their photo at once.
+     */
+    private class FeedTab {
+        private final String postType;
+        private final VirtualCardList<Post> container;
+        private final JScrollPane scrollPane;
+        private final String errorMessage;
+        private final BackgroundLoader loader = new BackgroundLoader(PostsPanel.this);
+        private final Map<Integer, List<Comment>> commentsByPost = new HashMap<>();
+        private final Map<Integer, Integer> indexByPost = new HashMap<>();
+        private final Map<Integer, String> commentDrafts = new HashMap<>();
+        private final BoundedLruCache<Integer, ImageIcon> cardImages = new BoundedLruCache<>(
+                CARD_IMAGE_CACHE_BYTES, icon -> 4L * icon.getIconWidth() * icon.getIconHeight());
+        private final Set<Integer> unavailableImages = new HashSet<>();
+        private final Set<Integer> requestedImages = new HashSet<>();
+        private final Set<Integer> pendingImages = new LinkedHashSet<>();
+        private int imageGeneration; // Bumped on reload so batches for the old feed are ignored
+        private Post lastPost;
+        private boolean hasMore;
+        
+        FeedTab(String postType, String errorMessage) {
+            this.postType = postType;
+            this.errorMessage = errorMessage;
+            
+            container = new VirtualCardList<>(new VirtualCardList.CardRenderer<Post>() {
+                @Override
+                public JComponent createCard(Object hasImage) {
+                    return new PostCard(FeedTab.this, (Boolean) hasImage);
                 }
                 
-                // For a more complete solution, we could query all users with TEACHER/PRINCIPAL role
-                // but for now, this covers the main use case
-                allPosts.addAll(otherPosts);
-                System.out.println("Total posts before filtering: " + allPosts.size());
-            } else {
-                // Parents see posts for their children's classes
-                int[] classIds = authorizationService.getAccessibleClassIds();
-                allPosts = java.util.Arrays.stream(classIds)
-                    .boxed()
-                    .flatMap(classId -> postService.getVisiblePostsForParents(classId).stream())
-                    .collect(java.util.stream.Collectors.toList());
+                @Override
+                public void bindCard(JComponent card, Post post) {
+                    ((PostCard) card).bind(post);
+                }
                 
-                // Also get school-wide announcements (posts with null class_id)
-                // For now, we'll assume these are included in the above query
+                @Override
+                public Object cardType(Post post) {
+                    return post.hasPhoto(); // Cards with a photo are laid out differently
+                }
+            });
+            container.setOpaque(false);
+            container.setGap(10); // Spacing between cards
+            container.setEstimatedHeight(350);
+            
+            scrollPane = new JScrollPane(container);
+            scrollPane.setOpaque(false);
+            scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+            scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+            scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+            scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+                if (!e.getValueIsAdjusting()) {
+                    loadMoreIfNearBottom();
+                }
+            });
+        }
+        
+        void reload() {
+            loader.load(
+                () -> loadPostsWithComments(postType, null),
+                feed -> {
+                    // Cleared first so scroll events from the reset cannot request a page
+                    hasMore = false;
+                    lastPost = null;
+                    commentsByPost.clear();
+                    indexByPost.clear();
+                    commentDrafts.clear();
+                    unavailableImages.clear();
+                    requestedImages.clear();
+                    pendingImages.clear();
+                    imageGeneration++;
+                    container.setPlaceholder(null);
+                    container.clear();
+                    scrollPane.getVerticalScrollBar().setValue(0);
+                    appendPage(feed);
+                },
+                e -> DialogFactory.showError(PostsPanel.this, errorMessage + e.getMessage()));
+        }
+        
+        private void loadMoreIfNearBottom() {
+            if (!hasMore || loader.isLoading()) {
+                return;
             }
-        } else {
-            // For class activities, use the existing logic
-            if ("TEACHER".equals(currentUserRole) || "PRINCIPAL".equals(currentUserRole)) {
-                allPosts = postService.getPostsByTeacher(currentUserId);
-            } else {
-                // Parents see posts for their children's classes
-                int[] classIds = authorizationService.getAccessibleClassIds();
-                allPosts = java.util.Arrays.stream(classIds)
-                    .boxed()
-                    .flatMap(classId -> postService.getVisiblePostsForParents(classId).stream())
-                    .collect(java.util.stream.Collectors.toList());
+            JScrollBar bar = scrollPane.getVerticalScrollBar();
+            if (bar.getValue() + bar.getVisibleAmount() < bar.getMaximum() - LOAD_MORE_THRESHOLD) {
+                return;
             }
+            
+            Post after = lastPost;
+            loader.load(
+                () -> loadPostsWithComments(postType, after),
+                this::appendPage,
+                e -> DialogFactory.showError(PostsPanel.this, errorMessage + e.getMessage()));
         }
         
-        List<Post> filteredPosts = allPosts.stream()
-            .filter(post -> postType.equals(post.getPostType()))
-            .sorted((p1, p2) -> {
-                // Sort pinned posts first, then by creation date
-                if (p1.isPinned() && !p2.isPinned()) return -1;
-                if (!p1.isPinned() && p2.isPinned()) return 1;
-                return p2.getCreatedAt().compareTo(p1.getCreatedAt());
-            })
-            .collect(java.util.stream.Collectors.toList());
+        private void appendPage(PostFeed feed) {
+            if (feed.posts.isEmpty() && lastPost == null) {
+                JLabel emptyLabel = new JLabel("<html><div style='text-align: center; color: gray;'>" +
+                                             "<h3>No posts available</h3>" +
+                                             "<p>No posts to display at this time.</p></div></html>");
+                emptyLabel.setHorizontalAlignment(SwingConstants.CENTER);
+                emptyLabel.setVerticalAlignment(SwingConstants.TOP);
+                container.setPlaceholder(emptyLabel);
+            }
             
-        System.out.println("Filtered posts of type " + postType + ": " + filteredPosts.size());
-        return filteredPosts;
-    }
-    
-    private void displayPostsAsCards(List<Post> posts, JPanel container) {
-        container.removeAll();
-        
-        if (posts.isEmpty()) {
-            JLabel emptyLabel = new JLabel("<html><div style='text-align: center; color: gray;'>" +
-                                         "<h3>No posts available</h3>" +
-                                         "<p>No posts to display at this time.</p></div></html>");
-            emptyLabel.setHorizontalAlignment(SwingConstants.CENTER);
-            container.add(emptyLabel);
-        } else {
-            for (Post post : posts) {
-                JPanel postCard = createPostCard(post);
-                container.add(postCard);
-                container.add(Box.createVerticalStrut(10)); // Spacing between cards
+            commentsByPost.putAll(feed.commentsByPost);
+            int index = container.getItemCount();
+            for (Post post : feed.posts) {
+                indexByPost.put(post.getId(), index++);
+            }
+            container.addItems(feed.posts);
+            
+            if (!feed.posts.isEmpty()) {
+                lastPost = feed.posts.get(feed.posts.size() - 1);
             }
+            hasMore = feed.posts.size() == FEED_PAGE_SIZE;
+            
+            // A page that does not fill the viewport produces no scroll event, so check once laid out
+            SwingUtilities.invokeLater(this::loadMoreIfNearBottom);
         }
         
-        container.revalidate();
-        container.repaint();
-    }
-    
-    private JPanel createPostCard(Post post) {
-        JPanel card = new JPanel(new BorderLayout());
-        card.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createLineBorder(BORDER_COLOR, 1),
-            BorderFactory.createEmptyBorder(5, 5, 5, 5)
-        ));
-        card.setBackground(BACKGROUND_COLOR);
-        
-        // Dynamic card sizing based on content
-        boolean hasImage = post.getPhotoAttachment() != null && post.getPhotoAttachment().length > 0;
-        int baseHeight = hasImage ? 500 : 250; // Larger height for posts with images
-        
-        // Set preferred and maximum size for proper display
-
-        // card.setPreferredSize(new Dimension(600, baseHeight));
-        // card.setMaximumSize(new Dimension(Integer.MAX_VALUE, hasImage ? 800 : 400)); // Much larger max for images
-        // card.setMinimumSize(new Dimension(400, baseHeight));
+        List<Comment> commentsFor(Post post) {
+            return commentsByPost.getOrDefault(post.getId(), List.of());
+        }
         
-        // Header with title and metadata
-        JPanel headerPanel = createPostHeader(post);
-        card.add(headerPanel, BorderLayout.NORTH);
+        /**
+         * The decoded photo of a post, or null if not loaded yet; a miss queues the post for the
+         * next batch fetch
+         */
+        ImageIcon cardImage(Post post) {
+            ImageIcon icon = cardImages.get(post.getId());
+            if (icon == null && !unavailableImages.contains(post.getId()) && requestedImages.add(post.getId())) {
+                if (pendingImages.isEmpty()) {
+                    // Cards bound in the same layout are fetched together
+                    SwingUtilities.invokeLater(this::loadPendingImages);
+                }
+                pendingImages.add(post.getId());
+            }
+            return icon;
+        }
         
-        // Content
-        JPanel contentPanel = createPostContent(post);
-        card.add(contentPanel, BorderLayout.CENTER);
+        boolean isImageUnavailable(Post post) {
+            return unavailableImages.contains(post.getId());
+        }
         
-        // Comments section
-        JPanel commentsPanel = createCommentsSection(post);
-        card.add(commentsPanel, BorderLayout.SOUTH);
+        /**
+         * Fetch the pending photos in one query and show each as soon as it is decoded. Posts
+         * the fetch returned nothing for (photo removed, unreadable, or the query failed) are
+         * shown as unavailable until the feed is reloaded.
+         */
+        private void loadPendingImages() {
+            if (pendingImages.isEmpty()) {
+                return;
+            }
+            int[] postIds = pendingImages.stream().mapToInt(Integer::intValue).toArray();
+            pendingImages.clear();
+            int generation = imageGeneration;
+            ProgressiveImageLoader.<Integer>load(
+                sink -> postService.getPostCardImages(postIds, sink),
+                IMAGE_MAX_WIDTH, IMAGE_MAX_HEIGHT,
+                (postId, icon) -> {
+                    if (generation == imageGeneration) {
+                        imageLoaded(postId, icon);
+                    }
+                },
+                fetched -> {
+                    if (generation != imageGeneration) {
+                        return;
+                    }
+                    for (int postId : postIds) {
+                        if (requestedImages.contains(postId)) {
+                            imageLoaded(postId, null);
+                        }
+                    }
+                });
+        }
         
-        return card;
+        private void imageLoaded(int postId, ImageIcon icon) {
+            requestedImages.remove(postId);
+            if (icon != null) {
+                cardImages.put(postId, icon);
+            } else {
+                unavailableImages.add(postId);
+            }
+            Integer index = indexByPost.get(postId);
+            if (index != null) {
+                container.itemChanged(index); // Rebinds the card if in view and measures it again
+            }
+        }
     }
     
-    private JPanel createPostHeader(Post post) {
-        JPanel header = new JPanel(new BorderLayout());
-        header.setOpaque(false);
-        
-        // Title and pin indicator
-        String titleText = post.getTitle();
-        if (post.isPinned()) {
-            titleText = "📌 " + titleText;
-        }
-        // JLabel titleLabel = new JLabel("<html><h3>" + titleText + "</h3></html>");
-        JLabel titleLabel = new JLabel(titleText);
-        titleLabel.setFont(new Font("Tahoma", Font.BOLD, 16));
-        header.add(titleLabel, BorderLayout.WEST);
-        
-        // Metadata panel
-        JPanel metaPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        
-        // Post type badge
-        JLabel typeLabel = new JLabel(post.getPostTypeDisplay());
-        typeLabel.setOpaque(true);
-        typeLabel.setBackground(post.isSchoolAnnouncement() ? new Color(255, 165, 0) : new Color(100, 149, 237));
-        typeLabel.setForeground(Color.WHITE);
-        typeLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
-        metaPanel.add(typeLabel);
-        
-        // Category for announcements
-        if (post.isSchoolAnnouncement() && post.getCategory() != null) {
-            JLabel categoryLabel = new JLabel(post.getCategoryDisplay());
-            categoryLabel.setOpaque(true);
-            categoryLabel.setBackground(Color.GRAY);
-            categoryLabel.setForeground(Color.WHITE);
-            categoryLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
-            metaPanel.add(categoryLabel);
-        }
-        
-        // Class name for class activities
-        if (post.isClassActivity() && post.getClassName() != null) {
-            JLabel classLabel = new JLabel(post.getClassName());
-            classLabel.setOpaque(true);
-            classLabel.setBackground(new Color(60, 179, 113));
-            classLabel.setForeground(Color.WHITE);
-            classLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
-            metaPanel.add(classLabel);
+    private PostFeed loadPostsWithComments(String postType, Post after) {
+        PostFeed feed = new PostFeed(loadFeedPage(postType, after));
+        // Comments for the whole page in one query; a post missing from the result shows none
+        List<Integer> postIds = new ArrayList<>();
+        for (Post post : feed.posts) {
+            postIds.add(post.getId());
         }
-        
-        header.add(metaPanel, BorderLayout.EAST);
-        
-        return header;
+        feed.commentsByPost.putAll(postService.getApprovedComments(postIds));
+        return feed;
     }
     
-    private JPanel createPostContent(Post post) {
-        JPanel content = new JPanel(new BorderLayout());
-        content.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
-        content.setOpaque(false);
-        
-        // Check if post has image for layout decisions
-        boolean hasImage = post.getPhotoAttachment() != null && post.getPhotoAttachment().length > 0;
-        
-        // Main content panel to hold text and potentially image
-        JPanel mainContent = new JPanel(new BorderLayout());
-        
-        // Main content with proper text wrapping
-        AutoResizeTextArea textArea = new AutoResizeTextArea(post.getContent(),10);
-        textArea.setOpaque(false);
-        textArea.setForeground(Color.BLACK);
-        content.add(textArea, BorderLayout.CENTER);
-        JTextArea contentArea = new JTextArea(post.getContent());
-        // contentArea.setEditable(false);
-        // contentArea.setWrapStyleWord(true);
-        // contentArea.setLineWrap(true);
-        contentArea.setOpaque(false);
-        contentArea.setFont(new Font("Tahoma", Font.PLAIN, 14)); // Slightly larger font
-        // contentArea.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
-        
-        // Adjust text area size based on image presence
-        if (hasImage) {
-            contentArea.setPreferredSize(new Dimension(500, 40)); // Smaller for posts with images
-            contentArea.setRows(2);
-        } else {
-            contentArea.setPreferredSize(new Dimension(500, 60));
-            contentArea.setRows(3);
+    /**
+     * One page of the feed for the current user: school announcements they may see, and
+     * class activities they wrote (teachers) or that their children's classes may see (parents)
+     */
+    private List<Post> loadFeedPage(String postType, Post after) {
+        if (Post.TYPE_SCHOOL_ANNOUNCEMENT.equals(postType)) {
+            int schoolId = authService.getCurrentUser().getSchoolId();
+            return postService.getSchoolAnnouncementsPage(schoolId, currentUserId, currentUserRole, after, FEED_PAGE_SIZE);
         }
         
-        // Wrap in scroll pane if content is long
-        JScrollPane contentScrollPane = new JScrollPane(contentArea);
-        contentScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        contentScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        contentScrollPane.setBorder(null);
-        contentScrollPane.setOpaque(false);
-        contentScrollPane.getViewport().setOpaque(false);
-        contentScrollPane.setPreferredSize(new Dimension(500, hasImage ? 60 : 80));
-        
-        mainContent.add(contentScrollPane, BorderLayout.NORTH);
+        if ("TEACHER".equals(currentUserRole) || "PRINCIPAL".equals(currentUserRole)) {
+            return postService.getPostsByAuthorsPage(new int[] { currentUserId }, postType, after, FEED_PAGE_SIZE);
+        }
         
-        // Add image if present
-        if (hasImage) {
-            JPanel imagePanel = createImagePanel(post.getPhotoAttachment());
-            if (imagePanel != null) {
+        // Parents see posts for their children's classes
+        int[] classIds = authorizationService.getAccessibleClassIds();
+        return postService.getVisiblePostsForParentsPage(classIds, postType, after, FEED_PAGE_SIZE);
+    }
+    
+    /**
+     * A post card that can show any post of its kind (with or without a photo), so a feed can
+     * reuse it for the next post scrolled into view instead of building a new one. A comment
+     * being typed is kept for its post when the card moves on to another.
+     */
+    private class PostCard extends JPanel {
+        private final FeedTab feed;
+        private final JLabel titleLabel;
+        private final JLabel typeLabel;
+        private final JLabel categoryLabel;
+        private final JLabel classLabel;
+        private final JTextArea contentArea;
+        private final JPanel imagePanel;
+        private final JLabel imageLabel;
+        private final JLabel dateLabel;
+        private final JLabel eventLabel;
+        private final JLabel scheduleLabel;
+        private final JLabel visibilityLabel;
+        private final JPanel commentsSection;
+        private final JTextArea commentTextArea;
+        private Component commentsList;
+        private Post post;
+        
+        PostCard(FeedTab feed, boolean hasImage) {
+            super(new BorderLayout());
+            this.feed = feed;
+            setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(BORDER_COLOR, 1),
+                BorderFactory.createEmptyBorder(5, 5, 5, 5)
+            ));
+            setBackground(BACKGROUND_COLOR);
+            
+            // Header with title and metadata
+            JPanel header = new JPanel(new BorderLayout());
+            header.setOpaque(false);
+            titleLabel = new JLabel();
+            titleLabel.setFont(new Font("Tahoma", Font.BOLD, 16));
+            header.add(titleLabel, BorderLayout.WEST);
+            
+            JPanel metaPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            typeLabel = createBadge();
+            categoryLabel = createBadge();
+            categoryLabel.setBackground(Color.GRAY); // Category for announcements
+            classLabel = createBadge();
+            classLabel.setBackground(new Color(60, 179, 113)); // Class name for class activities
+            metaPanel.add(typeLabel);
+            metaPanel.add(categoryLabel);
+            metaPanel.add(classLabel);
+            header.add(metaPanel, BorderLayout.EAST);
+            add(header, BorderLayout.NORTH);
+            
+            // Content
+            JPanel content = new JPanel(new BorderLayout());
+            content.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
+            content.setOpaque(false);
+            
+            // Main content panel to hold text and potentially image
+            JPanel mainContent = new JPanel(new BorderLayout());
+            mainContent.setOpaque(false);
+            contentArea = new JTextArea();
+            contentArea.setOpaque(false);
+            contentArea.setFont(new Font("Tahoma", Font.PLAIN, 14)); // Slightly larger font
+            
+            // Adjust text area size based on image presence
+            if (hasImage) {
+                contentArea.setPreferredSize(new Dimension(500, 40)); // Smaller for posts with images
+                contentArea.setRows(2);
+            } else {
+                contentArea.setPreferredSize(new Dimension(500, 60));
+                contentArea.setRows(3);
+            }
+            
+            // Wrap in scroll pane if content is long
+            JScrollPane contentScrollPane = new JScrollPane(contentArea);
+            contentScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+            contentScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+            contentScrollPane.setBorder(null);
+            contentScrollPane.setOpaque(false);
+            contentScrollPane.getViewport().setOpaque(false);
+            contentScrollPane.setPreferredSize(new Dimension(500, hasImage ? 60 : 80));
+            mainContent.add(contentScrollPane, BorderLayout.NORTH);
+            
+            if (hasImage) {
+                // Image area; the original is only fetched when the user clicks to view the full image
+                imagePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
                 imagePanel.setOpaque(false);
+                imagePanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
+                imageLabel = new JLabel("", SwingConstants.CENTER);
+                imageLabel.setForeground(Color.GRAY);
+                imageLabel.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY, 1));
+                imageLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+                imageLabel.setToolTipText("Click to view full image");
+                imageLabel.addMouseListener(new java.awt.event.MouseAdapter() {
+                    @Override
+                    public void mouseClicked(java.awt.event.MouseEvent e) {
+                        showFullImage(post);
+                    }
+                });
+                imagePanel.add(imageLabel);
                 mainContent.add(imagePanel, BorderLayout.CENTER);
+            } else {
+                imagePanel = null;
+                imageLabel = null;
             }
-        }
-        mainContent.setOpaque(false);
-        content.add(mainContent, BorderLayout.CENTER);
-        
-        // Metadata row with better spacing
-        JPanel metaRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
-        metaRow.setOpaque(false);
-        
-        // Create colored labels for metadata
-        JLabel dateLabel = createMetaLabel(
-            post.getCreatedAt() != null ? post.getCreatedAt().toLocalDate().toString() : "Unknown", 
-            "src/main/resources/images/" + currentUserRole + "/calendar.png");
-        metaRow.add(dateLabel);
-        
-        if (post.getEventDate() != null) {
-            JLabel eventLabel = createMetaLabel(
-                "Event: " + post.getEventDate().toString(), 
-                "src/main/resources/images/" + currentUserRole + "/event.png");
+            content.add(mainContent, BorderLayout.CENTER);
+            
+            // Metadata row with better spacing
+            JPanel metaRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+            metaRow.setOpaque(false);
+            dateLabel = createMetaLabel("", "src/main/resources/images/" + currentUserRole + "/calendar.png");
+            eventLabel = createMetaLabel("", "src/main/resources/images/" + currentUserRole + "/event.png");
+            scheduleLabel = createMetaLabel("", "src/main/resources/images/" + currentUserRole + "/appointment.png");
+            visibilityLabel = createMetaLabel("", "src/main/resources/images/" + currentUserRole + "/eye.png");
+            metaRow.add(dateLabel);
             metaRow.add(eventLabel);
-        }
-        
-        if (post.getScheduledDate() != null) {
-            JLabel scheduleLabel = createMetaLabel(
-                "Scheduled: " + post.getScheduledDate().toString(), 
-                "src/main/resources/images/" + currentUserRole + "/appointment.png");
             metaRow.add(scheduleLabel);
+            metaRow.add(visibilityLabel);
+            content.add(metaRow, BorderLayout.SOUTH);
+            add(content, BorderLayout.CENTER);
+            
+            // Comments section
+            commentsSection = new JPanel(new BorderLayout());
+            commentsSection.setOpaque(false);
+            commentsSection.setBorder(BorderFactory.createTitledBorder("Comments"));
+            
+            // Add comment form for parents or teachers
+            if ("PARENT".equals(currentUserRole) || "TEACHER".equals(currentUserRole) || "PRINCIPAL".equals(currentUserRole)) {
+                commentTextArea = new JTextArea(2, 0);
+                commentsSection.add(createAddCommentPanel(), BorderLayout.SOUTH);
+            } else {
+                commentTextArea = null;
+            }
+            add(commentsSection, BorderLayout.SOUTH);
         }
         
-        JLabel visibilityLabel = createMetaLabel(
-            post.getVisibilityDisplay(), 
-            "src/main/resources/images/" + currentUserRole + "/eye.png");
-        metaRow.add(visibilityLabel);
-        
-        content.add(metaRow, BorderLayout.SOUTH);
-        
-        return content;
-    }
-    
-    /**
-     * Create an image panel from byte array data
-     */
-    private JPanel createImagePanel(byte[] imageData) {
-        setOpaque(false);
-        try {
-            // Convert byte array to image
-            ByteArrayInputStream bis = new ByteArrayInputStream(imageData);
-            BufferedImage image = ImageIO.read(bis);
-            if (image == null) {
-                return null;
-            }
+        void bind(Post post) {
+            saveCommentDraft();
+            this.post = post;
             
-            // Scale image if it's too large
-            int maxWidth = 400;
-            int maxHeight = 300;
+            // Title and pin indicator
+            titleLabel.setText(post.isPinned() ? "📌 " + post.getTitle() : post.getTitle());
             
-            int originalWidth = image.getWidth();
-            int originalHeight = image.getHeight();
+            // Post type badge
+            typeLabel.setText(post.getPostTypeDisplay());
+            typeLabel.setBackground(post.isSchoolAnnouncement() ? new Color(255, 165, 0) : new Color(100, 149, 237));
+            boolean showCategory = post.isSchoolAnnouncement() && post.getCategory() != null;
+            categoryLabel.setVisible(showCategory);
+            categoryLabel.setText(showCategory ? post.getCategoryDisplay() : "");
+            boolean showClass = post.isClassActivity() && post.getClassName() != null;
+            classLabel.setVisible(showClass);
+            classLabel.setText(showClass ? post.getClassName() : "");
             
-            // Calculate scaling
-            double scaleX = (double) maxWidth / originalWidth;
-            double scaleY = (double) maxHeight / originalHeight;
-            double scale = Math.min(scaleX, scaleY);
+            contentArea.setText(post.getContent());
+            contentArea.setCaretPosition(0);
+            if (imageLabel != null) {
+                showImage(feed.cardImage(post));
+            }
             
-            int scaledWidth = (int) (originalWidth * scale);
-            int scaledHeight = (int) (originalHeight * scale);
+            dateLabel.setText(post.getCreatedAt() != null ? post.getCreatedAt().toLocalDate().toString() : "Unknown");
+            eventLabel.setVisible(post.getEventDate() != null);
+            eventLabel.setText(post.getEventDate() != null ? "Event: " + post.getEventDate() : "");
+            scheduleLabel.setVisible(post.getScheduledDate() != null);
+            scheduleLabel.setText(post.getScheduledDate() != null ? "Scheduled: " + post.getScheduledDate() : "");
+            visibilityLabel.setText(post.getVisibilityDisplay());
             
-            // Create scaled image
-            Image scaledImage = image.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
+            bindComments(feed.commentsFor(post));
+            if (commentTextArea != null) {
+                commentTextArea.setText(feed.commentDrafts.getOrDefault(post.getId(), ""));
+            }
+        }
+        
+        /**
+         * Show the decoded photo, or a placeholder of the largest size while it loads so the card
+         * does not jump much when the image arrives
+         */
+        private void showImage(ImageIcon icon) {
+            Dimension size;
+            if (icon != null) {
+                imageLabel.setText(null);
+                imageLabel.setIcon(icon);
+                imageLabel.setPreferredSize(null);
+                size = new Dimension(icon.getIconWidth() + 20, icon.getIconHeight() + 20);
+            } else {
+                imageLabel.setIcon(null);
+                imageLabel.setText(feed.isImageUnavailable(post) ? "Image unavailable" : "Loading image...");
+                imageLabel.setPreferredSize(new Dimension(IMAGE_MAX_WIDTH, IMAGE_MAX_HEIGHT));
+                size = new Dimension(IMAGE_MAX_WIDTH + 20, IMAGE_MAX_HEIGHT + 20);
+            }
+            imagePanel.setPreferredSize(size);
+            imagePanel.setMinimumSize(size);
+        }
+        
+        private void bindComments(List<Comment> comments) {
+            if (commentsList != null) {
+                commentsSection.remove(commentsList);
+            }
+            if (comments.isEmpty()) {
+                JLabel noCommentsLabel = new JLabel("No comments yet. Be the first to comment!");
+                noCommentsLabel.setForeground(Color.GRAY);
+                commentsList = noCommentsLabel;
+            } else {
+                JPanel commentsContainer = new JPanel();
+                commentsContainer.setLayout(new BoxLayout(commentsContainer, BoxLayout.Y_AXIS));
+                commentsContainer.setOpaque(false);
+                
+                for (Comment comment : comments) {
+                    JPanel commentPanel = createCommentPanel(comment);
+                    commentsContainer.add(commentPanel);
+                    commentsContainer.add(Box.createVerticalStrut(5));
+                }
+                
+                JScrollPane commentsScrollPane = new JScrollPane(commentsContainer);
+                commentsScrollPane.setPreferredSize(new Dimension(0, Math.min(150, comments.size() * 50)));
+                commentsScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+                commentsList = commentsScrollPane;
+            }
+            commentsSection.add(commentsList, BorderLayout.CENTER);
+        }
+        
+        private void saveCommentDraft() {
+            if (post == null || commentTextArea == null) {
+                return;
+            }
+            String draft = commentTextArea.getText();
+            if (draft.isBlank()) {
+                feed.commentDrafts.remove(post.getId());
+            } else {
+                feed.commentDrafts.put(post.getId(), draft);
+            }
+        }
+        
+        private JLabel createBadge() {
+            JLabel label = new JLabel();
+            label.setOpaque(true);
+            label.setForeground(Color.WHITE);
+            label.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+            return label;
+        }
+        
+        private JPanel createAddCommentPanel() {
+            JPanel addCommentPanel = new JPanel(new BorderLayout());
+            addCommentPanel.setOpaque(false);
+            addCommentPanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 0));
             
-            // Create panel with image
-            JPanel imagePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-            imagePanel.setOpaque(false);
-            // imagePanel.setBackground(Color.WHITE);
-            imagePanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
+            commentTextArea.setWrapStyleWord(true);
+            commentTextArea.setLineWrap(true);
+            commentTextArea.setBorder(BorderFactory.createLoweredBevelBorder());
+            commentTextArea.setBackground(Color.WHITE);
             
-            JLabel imageLabel = new JLabel(new ImageIcon(scaledImage));
-            imageLabel.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY, 1));
+            JButton addCommentButton = new CustomButton("Add Comment", "TEACHER".equals(currentUserRole) ? 
+                                                        accountType.TEACHER : accountType.PARENT);  
+            addCommentButton.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    String commentText = commentTextArea.getText().trim();
+                    if (!commentText.isEmpty()) {
+                        addComment(post, commentText);
+                        commentTextArea.setText("");
+                        feed.commentDrafts.remove(post.getId());
+                        refreshCurrentView(); // Refresh to show new comment
+                    }
+                }
+            });
             
-            imagePanel.add(imageLabel);
+            JPanel inputPanel = new JPanel(new BorderLayout());
+            inputPanel.setOpaque(false);
+            inputPanel.add(new JLabel("Add a comment:"), BorderLayout.NORTH);
+            inputPanel.add(commentTextArea, BorderLayout.CENTER);
             
-            // Set explicit size to ensure visibility
-            imagePanel.setPreferredSize(new Dimension(scaledWidth + 20, scaledHeight + 20));
-            imagePanel.setMinimumSize(new Dimension(scaledWidth + 20, scaledHeight + 20));
+            JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            buttonPanel.setOpaque(false);
+            buttonPanel.add(addCommentButton);
             
-            return imagePanel;
+            addCommentPanel.add(inputPanel, BorderLayout.CENTER);
+            addCommentPanel.add(buttonPanel, BorderLayout.SOUTH);
             
-        } catch (IOException e) {
-            System.err.println("Error displaying image: " + e.getMessage());
-            return null;
-        } catch (Exception e) {
-            System.err.println("Unexpected error in createImagePanel: " + e.getMessage());
-            return null;
+            return addCommentPanel;
         }
     }
     
+    /**
+     * Open the original photo; feed pages carry only the thumbnail, so it is fetched on demand
+     */
+    private void showFullImage(Post post) {
+        photoLoader.load(
+            () -> {
+                postService.loadPhoto(post);
+                return post.getPhotoAttachment();
+            },
+            imageData -> ImageViewerUtil.showImage(PostsPanel.this, imageData, post.getTitle()),
+            e -> DialogFactory.showError(PostsPanel.this, "Error loading image: " + e.getMessage()));
+    }
+    
     private JLabel createMetaLabel(String text, Color backgroundColor) {
         JLabel label = new JLabel(text);
         label.setOpaque(true);
@@ -551,9 +745,7 @@ public class PostsPanel extends JPanel {
 
         // Nếu có icon, load và scale
         if (iconPath != null && !iconPath.isEmpty()) {
-            ImageIcon originalIcon = new ImageIcon(iconPath);
-            Image scaledImage = originalIcon.getImage().getScaledInstance(15, 15, Image.SCALE_SMOOTH);
-            label.setIcon(new ImageIcon(scaledImage));
+            label.setIcon(ImageCache.getInstance().getFileIcon(iconPath, 15, 15));
             label.setHorizontalTextPosition(SwingConstants.RIGHT); // text bên phải icon
             label.setIconTextGap(5);
         }
@@ -563,49 +755,6 @@ public class PostsPanel extends JPanel {
         return label;
     }
     
-    private JPanel createCommentsSection(Post post) {
-        JPanel commentsSection = new JPanel(new BorderLayout());
-        commentsSection.setOpaque(false);
-        commentsSection.setBorder(BorderFactory.createTitledBorder("Comments"));
-        
-        // Load and display comments
-        List<Comment> comments = new java.util.ArrayList<>();
-        try {
-            comments = postService.getApprovedComments(post.getId());
-        } catch (Exception e) {
-            // Keep empty list if error occurs
-        }
-        
-        if (comments.isEmpty()) {
-            JLabel noCommentsLabel = new JLabel("No comments yet. Be the first to comment!");
-            noCommentsLabel.setForeground(Color.GRAY);
-            commentsSection.add(noCommentsLabel, BorderLayout.CENTER);
-        } else {
-            JPanel commentsContainer = new JPanel();
-            commentsContainer.setLayout(new BoxLayout(commentsContainer, BoxLayout.Y_AXIS));
-            commentsContainer.setOpaque(false);
-            
-            for (Comment comment : comments) {
-                JPanel commentPanel = createCommentPanel(comment);
-                commentsContainer.add(commentPanel);
-                commentsContainer.add(Box.createVerticalStrut(5));
-            }
-            
-            JScrollPane commentsScrollPane = new JScrollPane(commentsContainer);
-            commentsScrollPane.setPreferredSize(new Dimension(0, Math.min(150, comments.size() * 50)));
-            commentsScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-            commentsSection.add(commentsScrollPane, BorderLayout.CENTER);
-        }
-        
-        // Add comment form for parents or teachers
-        if ("PARENT".equals(currentUserRole) || "TEACHER".equals(currentUserRole) || "PRINCIPAL".equals(currentUserRole)) {
-            JPanel addCommentPanel = createAddCommentPanel(post);
-            commentsSection.add(addCommentPanel, BorderLayout.SOUTH);
-        }
-        
-        return commentsSection;
-    }
-    
     private JPanel createCommentPanel(Comment comment) {
         JPanel commentPanel = new JPanel(new BorderLayout());
         commentPanel.setOpaque(false);
@@ -636,46 +785,6 @@ public class PostsPanel extends JPanel {
         return commentPanel;
     }
     
-    private JPanel createAddCommentPanel(Post post) {
-        JPanel addCommentPanel = new JPanel(new BorderLayout());
-        addCommentPanel.setOpaque(false);
-        addCommentPanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 0));
-        
-        JTextArea commentTextArea = new JTextArea(2, 0);
-        commentTextArea.setWrapStyleWord(true);
-        commentTextArea.setLineWrap(true);
-        commentTextArea.setBorder(BorderFactory.createLoweredBevelBorder());
-        commentTextArea.setBackground(Color.WHITE);
-        
-        JButton addCommentButton = new CustomButton("Add Comment", "TEACHER".equals(currentUserRole) ? 
-                                                    accountType.TEACHER : accountType.PARENT);  
-        addCommentButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                String commentText = commentTextArea.getText().trim();
-                if (!commentText.isEmpty()) {
-                    addComment(post, commentText);
-                    commentTextArea.setText("");
-                    refreshCurrentView(); // Refresh to show new comment
-                }
-            }
-        });
-        
-        JPanel inputPanel = new JPanel(new BorderLayout());
-        inputPanel.setOpaque(false);
-        inputPanel.add(new JLabel("Add a comment:"), BorderLayout.NORTH);
-        inputPanel.add(commentTextArea, BorderLayout.CENTER);
-        
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        buttonPanel.setOpaque(false);
-        buttonPanel.add(addCommentButton);
-        
-        addCommentPanel.add(inputPanel, BorderLayout.CENTER);
-        addCommentPanel.add(buttonPanel, BorderLayout.SOUTH);
-        
-        return addCommentPanel;
-    }
-    
     private void addComment(Post post, String content) {
         try {
             Comment comment = new Comment(post.getId(), currentUserId, content);
@@ -835,6 +944,7 @@ public class PostsPanel extends JPanel {
         // Clear previous image selection when creating new form
         selectedImageData = null;
         selectedImageFilename = null;
+        selectedImageThumbnail = null;
         
         selectImageButton.addActionListener(e -> {
             JFileChooser fileChooser = new JFileChooser();
@@ -870,6 +980,8 @@ public class PostsPanel extends JPanel {
                     ImageIO.write(image, extension, baos);
                     selectedImageData = baos.toByteArray();
                     selectedImageFilename = fileName;
+                    selectedImageThumbnail = ProfileImageUtil.createThumbnail(selectedImageData,
+                        ProfileImageUtil.POST_THUMBNAIL_WIDTH, ProfileImageUtil.POST_THUMBNAIL_HEIGHT);
                     
                     // Update status label
                     imageStatusLabel.setText("Selected: " + fileName);
@@ -879,6 +991,7 @@ public class PostsPanel extends JPanel {
                     DialogFactory.showError(this, "Error reading image file: " + ex.getMessage());
                     selectedImageData = null;
                     selectedImageFilename = null;
+                    selectedImageThumbnail = null;
                     imageStatusLabel.setText("Error loading image");
                     imageStatusLabel.setForeground(Color.RED);
                 }
@@ -993,14 +1106,13 @@ public class PostsPanel extends JPanel {
         if (selectedImageData != null && selectedImageData.length > 0) {
             post.setPhotoAttachment(selectedImageData);
             post.setPhotoFilename(selectedImageFilename != null ? selectedImageFilename : "post_image.jpg");
+            post.setPhotoThumbnail(selectedImageThumbnail);
         }
         
         return post;
     }
 
     private ImageIcon loadScaledIcon(String path, int w, int h) {
-        ImageIcon icon = new ImageIcon(getClass().getResource(path));
-        Image img = icon.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH);
-        return new ImageIcon(img);
+        return ImageCache.getInstance().getResourceIcon(path, w, h);
     }
 }
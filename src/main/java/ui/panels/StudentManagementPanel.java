@@ -15,7 +15,9 @@ import java.awt.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Student Management Panel - Refactored to use reusable UI components
@@ -30,6 +32,10 @@ public class StudentManagementPanel extends JPanel {
     private SearchPanel searchPanel;
     private FormBuilder formBuilder;
     private ButtonPanel buttonPanel;
+    private final BackgroundLoader searchLoader = new BackgroundLoader(this);
+    
+    // Shortest search worth a typo-tolerant database lookup when nothing loaded matches
+    private static final int MIN_FUZZY_SEARCH_LENGTH = 3;
     
     // Form field IDs
     private static final String FIELD_NAME = "name";
@@ -38,7 +44,12 @@ public class StudentManagementPanel extends JPanel {
     private static final String FIELD_ADDRESS = "address";
     private static final String FIELD_CLASS = "class";
     
+    private static final int CLASS_COLUMN = 4;
+    
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    
     private Student selectedStudent;
+    private final Map<Integer, Integer> classIdByStudent = new HashMap<>(); // For relabelling rows when a class is renamed
     
     public StudentManagementPanel(AuthService authService) {
         this.authService = authService;
@@ -51,15 +62,27 @@ public class StudentManagementPanel extends JPanel {
         loadStudentData();
     }
     
+    /**
+     * Public method to refresh all data - useful when panel becomes visible
+     */
+    public void refreshData() {
+        loadStudentData();
+    }
+    
     private void initializeComponents() {
         // Create search panel
         setOpaque(false);
-        searchPanel = SearchPanel.createWithClear("Search by name:", this::searchStudents, this::loadStudentData);
+        searchPanel = SearchPanel.createWithClear("Search by name:", this::searchStudents, () -> {
+            searchLoader.cancel();
+            studentTable.clearFilter();
+        });
+        searchPanel.enableSearchAsYouType(SearchPanel.DEFAULT_TYPING_DELAY);
         searchPanel.setOpaque(false);
         
         // Create data table
         String[] columnNames = {"ID", "Name", "Date of Birth", "Age", "Class", "Address"};
         studentTable = new DataTable(columnNames);
+        studentTable.enableSearchIndex(0, 1); // Keyed by ID, searched by name
         studentTable.setRowSelectionHandler(this::onRowSelected);
         studentTable.setOpaque(false);
 
@@ -140,20 +163,31 @@ public class StudentManagementPanel extends JPanel {
     }
     
     private void searchStudents(String searchText) {
-        if (searchText.isEmpty()) {
-            studentTable.clearFilter();
+        // Filter the loaded rows through the table's name index; no database query
+        searchLoader.cancel();
+        studentTable.searchIndexed(searchText);
+        
+        // Nothing contains the text: ask the database for names it is close to, e.g. with a typo
+        String query = searchText != null ? searchText.trim() : "";
+        if (studentTable.getVisibleRowCount() > 0 || query.length() < MIN_FUZZY_SEARCH_LENGTH) {
             return;
         }
-        
-        // Filter students by name using table filter
-        studentTable.applyFilter(searchText, 1); // Filter by name column (index 1)
+        searchLoader.load(
+            () -> studentService.searchStudents(query),
+            students -> {
+                if (query.equals(searchPanel.getSearchText()) && !students.isEmpty()) {
+                    studentTable.showRows(students.stream().map(Student::getId).toList());
+                }
+            },
+            e -> System.err.println("Error searching students: " + e.getMessage()));
     }
     
     private void loadStudentData() {
         try {
             List<Student> students = studentService.getAllStudents();
-            updateTable(students);
             searchPanel.clearSearchText();
+            studentTable.clearFilter();
+            updateTable(students);
             // Also refresh the class list in case new classes have been added
             loadAvailableClasses();
         } catch (Exception e) {
@@ -163,21 +197,51 @@ public class StudentManagementPanel extends JPanel {
     
     private void updateTable(List<Student> students) {
         studentTable.clearRows();
+        classIdByStudent.clear();
         
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         for (Student student : students) {
-            Object[] rowData = {
-                student.getId(),
-                student.getName(),
-                student.getDob() != null ? student.getDob().format(formatter) : "",
-                student.getAge(),
-                student.getClassName() != null ? student.getClassName() : "Class " + student.getClassId(),
-                student.getAddress()
-            };
-            studentTable.addRow(rowData);
+            studentTable.addRow(toRow(student));
         }
     }
     
+    /**
+     * Reload one student's row after an add or update, keeping the rest of the table and the search
+     */
+    private void refreshRow(int studentId) {
+        Student student = studentService.getStudentById(studentId);
+        if (student != null) {
+            studentTable.putRow(toRow(student));
+        }
+    }
+    
+    /**
+     * Follow a class added, renamed or deleted in class management: relabel its students' rows
+     * and refresh the class choices, without reloading the students
+     */
+    public void classChanged(int classId, String className) {
+        if (className != null) {
+            for (int row = 0; row < studentTable.getRowCount(); row++) {
+                Integer classOfRow = classIdByStudent.get((Integer) studentTable.getValueAt(row, 0));
+                if (classOfRow != null && classOfRow == classId) {
+                    studentTable.setValueAt(className, row, CLASS_COLUMN);
+                }
+            }
+        }
+        loadAvailableClasses();
+    }
+    
+    private Object[] toRow(Student student) {
+        classIdByStudent.put(student.getId(), student.getClassId());
+        return new Object[] {
+            student.getId(),
+            student.getName(),
+            student.getDob() != null ? student.getDob().format(DATE_FORMAT) : "",
+            student.getAge(),
+            student.getClassName() != null ? student.getClassName() : "Class " + student.getClassId(),
+            student.getAddress()
+        };
+    }
+    
     private void loadSelectedStudent(int row) {
         int studentId = (Integer) studentTable.getValueAt(row, 0);
         selectedStudent = studentService.getStudentById(studentId);
@@ -230,7 +294,11 @@ public class StudentManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Student added successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "Student added successfully!");
-                loadStudentData();
+                if (student.getId() > 0) {
+                    refreshRow(student.getId());
+                } else {
+                    loadStudentData();
+                }
                 clearForm();
             } else {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Error", "Failed to add student.", CustomMessageDialog.Type.ERROR);
@@ -269,7 +337,7 @@ public class StudentManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Student updated successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "Student updated successfully!");
-                loadStudentData();
+                refreshRow(updatedStudent.getId());
                 clearForm();
             } else {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Error", "Failed to update student.", CustomMessageDialog.Type.ERROR);
@@ -301,7 +369,8 @@ public class StudentManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "Student deleted successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "Student deleted successfully!");
-                loadStudentData();
+                studentTable.removeRow(selectedStudent.getId());
+                classIdByStudent.remove(selectedStudent.getId());
                 clearForm();
             } else {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Error", "Failed to delete student.", CustomMessageDialog.Type.ERROR);
@@ -55,16 +55,27 @@ public class UserManagementPanel extends JPanel {
         loadAvailableSchools();
         loadAvailableStudents();
     }
+    
+    /**
+     * Reload only the school and student choices, which other panels can change;
+     * the user table follows its own edits
+     */
+    public void refreshLookups() {
+        loadAvailableSchools();
+        loadAvailableStudents();
+    }
 
     private void initializeComponents() {
         // Make this panel transparent
         setOpaque(false);
-        searchPanel = SearchPanel.createWithClear("Search users:", this::searchUsers, this::loadUsers);
+        searchPanel = SearchPanel.createWithClear("Search users:", this::searchUsers, () -> userTable.clearFilter());
+        searchPanel.enableSearchAsYouType(SearchPanel.DEFAULT_TYPING_DELAY);
         searchPanel.setOpaque(false);
         
         // Create data table
         String[] columnNames = {"ID", "Username", "Role", "School", "Child Name", "Created At"};
         userTable = new DataTable(columnNames);
+        userTable.enableSearchIndex(0, 1, 4); // Keyed by ID, searched by username and child name
         userTable.setRowSelectionHandler(this::onRowSelected);
         userTable.setOpaque(false);
 
@@ -248,20 +259,16 @@ public class UserManagementPanel extends JPanel {
     }
     
     private void searchUsers(String searchText) {
-        if (searchText.isEmpty()) {
-            userTable.clearFilter();
-            return;
-        }
-        
-        // Filter users by username
-        userTable.applyFilter(searchText, 1); // Filter by username column (index 1)
+        // Filter the loaded rows through the table's index; no database query
+        userTable.searchIndexed(searchText);
     }
 
     private void loadUsers() {
         try {
             List<User> users = userService.getAllUsersWithSchoolNames();
-            updateTable(users);
             searchPanel.clearSearchText();
+            userTable.clearFilter();
+            updateTable(users);
         } catch (Exception e) {
             DialogFactory.showError(this, "Error loading users: " + e.getMessage());
         }
@@ -271,17 +278,30 @@ public class UserManagementPanel extends JPanel {
         userTable.clearRows();
         
         for (User user : users) {
-            Object[] rowData = {
-                user.getId(),
-                user.getUsername(),
-                user.getRole(),
-                user.getSchoolName() != null ? user.getSchoolName() : "Unknown School",
-                user.getChildName() != null ? user.getChildName() : (user.isParent() ? "No Child Assigned" : "N/A"),
-                user.getCreatedAt() != null ? user.getCreatedAt().toString() : ""
-            };
-            userTable.addRow(rowData);
+            userTable.addRow(toRow(user));
         }
     }
+    
+    /**
+     * Reload one user's row after an add or update, keeping the rest of the table and the search
+     */
+    private void refreshRow(int userId) {
+        User user = userService.getUserWithSchoolName(userId);
+        if (user != null) {
+            userTable.putRow(toRow(user));
+        }
+    }
+    
+    private Object[] toRow(User user) {
+        return new Object[] {
+            user.getId(),
+            user.getUsername(),
+            user.getRole(),
+            user.getSchoolName() != null ? user.getSchoolName() : "Unknown School",
+            user.getChildName() != null ? user.getChildName() : (user.isParent() ? "No Child Assigned" : "N/A"),
+            user.getCreatedAt() != null ? user.getCreatedAt().toString() : ""
+        };
+    }
 
     private void loadUserToForm(int row) {
         int userId = (Integer) userTable.getValueAt(row, 0);
@@ -351,7 +371,12 @@ public class UserManagementPanel extends JPanel {
             }
             
             if (success) {
-                loadUsers();
+                User createdUser = userService.getUserByUsername(user.getUsername());
+                if (createdUser != null) {
+                    refreshRow(createdUser.getId());
+                } else {
+                    loadUsers();
+                }
                 clearForm();
             }
         } catch (Exception e) {
@@ -383,7 +408,7 @@ public class UserManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "User updated successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "User updated successfully!");
-                loadUsers();
+                refreshRow(updatedUser.getId());
                 clearForm();
             } else {
                 DialogFactory.showError(this, "Failed to update user.");
@@ -409,7 +434,7 @@ public class UserManagementPanel extends JPanel {
             if (success) {
                 CustomMessageDialog.showMessage((JFrame) SwingUtilities.getWindowAncestor(this), "Success", "User deleted successfully!", CustomMessageDialog.Type.SUCCESS);
                 // DialogFactory.showSuccess(this, "User deleted successfully!");
-                loadUsers();
+                userTable.removeRow(selectedUser.getId());
                 clearForm();
             } else {
                 DialogFactory.showError(this, "Failed to delete user.");
@@ -0,0 +1,45 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Where {@link BlobStore} keeps blob content. Metadata and reference counts always live in
+ * the blobs table; a backend only writes, reads and deletes the bytes for a hash.
+ */
+public interface BlobBackend {
+
+    /**
+     * Content being stored, which a backend may open more than once
+     */
+    interface Content {
+        InputStream open() throws IOException;
+
+        long size();
+    }
+
+    /**
+     * Store the content of a newly inserted blob. Runs inside the transaction that inserted
+     * its row, on that transaction's connection.
+     */
+    void write(Connection conn, String hash, Content content) throws SQLException, IOException;
+
+    /**
+     * The content of a blob, or null if this backend does not hold it
+     */
+    byte[] read(String hash) throws IOException;
+
+    /**
+     * Copy the content of a blob to the stream. Returns false if this backend does not hold it.
+     */
+    boolean copyTo(String hash, OutputStream out) throws IOException;
+
+    /**
+     * Remove the content of a blob whose row has been deleted and committed; a no-op when the
+     * content lived in that row
+     */
+    void delete(String hash) throws IOException;
+}
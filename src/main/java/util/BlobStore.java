@@ -0,0 +1,226 @@
+package util;
+
+import dao.BlobDAO;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Content-addressed store for post photos and chat attachments. Content is keyed by its
+ * SHA-256 hash, so a photo posted to several classes or forwarded in several chats is kept
+ * once; rows reference it by hash and the blobs table counts those references.
+ *
+ * {@link #store} and {@link #release} run on the caller's connection, inside the transaction
+ * that writes the referencing row, so counts never drift on a rollback. Unreferenced blobs are
+ * only deleted by {@link #collectGarbage} after a grace period.
+ *
+ * Student profile images and attendance captures stay in their own rows: each belongs to one
+ * record and is never shared, so there is nothing to deduplicate.
+ *
+ * The backend is chosen by blob.store.backend in config.properties: "database" (default)
+ * or "filesystem" under blob.store.dir.
+ */
+public class BlobStore {
+
+    private static final BlobStore INSTANCE = createFromConfig();
+
+    private final BlobDAO blobDAO;
+    private final BlobBackend backend;
+    private final DatabaseBlobBackend databaseBackend;
+    private final int gcGraceHours;
+
+    BlobStore(BlobDAO blobDAO, BlobBackend backend, int gcGraceHours) {
+        this.blobDAO = blobDAO;
+        this.backend = backend;
+        this.databaseBackend = new DatabaseBlobBackend(blobDAO);
+        this.gcGraceHours = gcGraceHours;
+    }
+
+    public static BlobStore getInstance() {
+        return INSTANCE;
+    }
+
+    private static BlobStore createFromConfig() {
+        BlobDAO blobDAO = new BlobDAO();
+        String type = DatabaseUtil.getProperty("blob.store.backend", "database");
+        int graceHours = Integer.parseInt(DatabaseUtil.getProperty("blob.store.gcGraceHours", "24"));
+
+        BlobBackend backend;
+        if ("filesystem".equalsIgnoreCase(type)) {
+            backend = new FileSystemBlobBackend(Paths.get(DatabaseUtil.getProperty("blob.store.dir", "blobs")));
+        } else {
+            backend = new DatabaseBlobBackend(blobDAO);
+        }
+        return new BlobStore(blobDAO, backend, graceHours);
+    }
+
+    /**
+     * Store content and take a reference to it. Returns its hash, or null for no content.
+     */
+    public String store(Connection conn, byte[] data) throws SQLException, IOException {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        return store(conn, sha256(data), new BlobBackend.Content() {
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public long size() {
+                return data.length;
+            }
+        });
+    }
+
+    /**
+     * Store the content of a file without reading it onto the heap and take a reference to it.
+     * Returns its hash, or null for an empty file.
+     */
+    public String store(Connection conn, Path file) throws SQLException, IOException {
+        long size = Files.size(file);
+        if (size == 0) {
+            return null;
+        }
+        return store(conn, sha256(file), new BlobBackend.Content() {
+            @Override
+            public InputStream open() throws IOException {
+                return Files.newInputStream(file);
+            }
+
+            @Override
+            public long size() {
+                return size;
+            }
+        });
+    }
+
+    private String store(Connection conn, String hash, BlobBackend.Content content) throws SQLException, IOException {
+        // Known content is only counted, never written again
+        if (!blobDAO.acquire(conn, hash) && blobDAO.insert(conn, hash, content.size())) {
+            // Waits out a collection deleting a stale copy, which would otherwise look reusable
+            blobDAO.lockContent(conn, hash);
+            backend.write(conn, hash, content);
+        }
+        return hash;
+    }
+
+    /**
+     * Drop a reference taken by {@link #store}. Null hashes are ignored.
+     */
+    public void release(Connection conn, String hash) throws SQLException {
+        if (hash != null) {
+            blobDAO.release(conn, hash);
+        }
+    }
+
+    /**
+     * Read the content of a blob, or null if it is missing
+     */
+    public byte[] read(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        try {
+            byte[] data = backend.read(hash);
+            if (data == null && backend != databaseBackend) {
+                data = databaseBackend.read(hash); // Migrated from the old inline columns
+            }
+            return data;
+        } catch (IOException e) {
+            System.err.println("Error reading blob: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stream the content of a blob to an OutputStream. Returns false if it is missing.
+     */
+    public boolean copyTo(String hash, OutputStream out) throws IOException {
+        if (hash == null) {
+            return false;
+        }
+        return backend.copyTo(hash, out) || (backend != databaseBackend && databaseBackend.copyTo(hash, out));
+    }
+
+    /**
+     * Correct reference counts, then delete blobs that have been unreferenced for longer than
+     * the grace period along with their backend content. Returns the number of blobs deleted.
+     */
+    public int collectGarbage() throws SQLException {
+        blobDAO.recountReferences();
+
+        List<String> hashes;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                hashes = blobDAO.deleteUnreferenced(conn, gcGraceHours);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        // Only once the rows are gone for good, so a failed commit never leaves rows without content
+        for (String hash : hashes) {
+            deleteContent(hash);
+        }
+        return hashes.size();
+    }
+
+    /**
+     * Delete the content of a collected blob unless the same content has been stored again
+     * since. Content that cannot be deleted is left behind and reused if stored again.
+     */
+    private void deleteContent(String hash) {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                blobDAO.lockContent(conn, hash);
+                if (!blobDAO.exists(conn, hash)) {
+                    backend.delete(hash);
+                }
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Error deleting blob content: " + e.getMessage());
+        }
+    }
+
+    public static String sha256(byte[] data) {
+        return HexFormat.of().formatHex(newDigest().digest(data));
+    }
+
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package util;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe LRU cache bounded by the total weight of its values (e.g. bytes) rather than entry count.
+ * Entries can also be given a time to live, for values that may change elsewhere without the
+ * cache being told.
+ */
+public class BoundedLruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final BiConsumer<K, V> evictionListener;
+    private final long timeToLiveNanos; // 0: entries never expire
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<K, Long> storedAt = new HashMap<>();
+    private long totalWeight;
+    private long hits;
+    private long misses;
+
+    public BoundedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this(maxWeight, weigher, null, null);
+    }
+
+    /**
+     * @param evictionListener called (under the cache lock) for each entry evicted to make room
+     */
+    public BoundedLruCache(long maxWeight, ToLongFunction<V> weigher, BiConsumer<K, V> evictionListener) {
+        this(maxWeight, weigher, evictionListener, null);
+    }
+
+    /**
+     * @param timeToLive how long after being put an entry is dropped, or null to keep it until evicted
+     */
+    public BoundedLruCache(long maxWeight, ToLongFunction<V> weigher, Duration timeToLive) {
+        this(maxWeight, weigher, null, timeToLive);
+    }
+
+    private BoundedLruCache(long maxWeight, ToLongFunction<V> weigher, BiConsumer<K, V> evictionListener,
+                            Duration timeToLive) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        if (timeToLive != null && (timeToLive.isZero() || timeToLive.isNegative())) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        this.timeToLiveNanos = timeToLive != null ? timeToLive.toNanos() : 0;
+    }
+
+    /**
+     * Get a cached value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value != null && timeToLiveNanos > 0 && System.nanoTime() - storedAt.get(key) > timeToLiveNanos) {
+            remove(key);
+            value = null;
+        }
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    /**
+     * Add or replace a value; values heavier than the whole cache are not stored
+     */
+    public synchronized void put(K key, V value) {
+        remove(key);
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxWeight) {
+            return;
+        }
+        entries.put(key, value);
+        totalWeight += weight;
+        if (timeToLiveNanos > 0) {
+            storedAt.put(key, System.nanoTime());
+        }
+
+        // Evict least recently used entries until back under the limit
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && it.hasNext()) {
+            Map.Entry<K, V> eldest = it.next();
+            totalWeight -= weigher.applyAsLong(eldest.getValue());
+            it.remove();
+            storedAt.remove(eldest.getKey());
+            if (evictionListener != null) {
+                evictionListener.accept(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    public synchronized void remove(K key) {
+        V old = entries.remove(key);
+        storedAt.remove(key);
+        if (old != null) {
+            totalWeight -= weigher.applyAsLong(old);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        storedAt.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups > 0 ? (double) hits / lookups * 100 : 0;
+    }
+}
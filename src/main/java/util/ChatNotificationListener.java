@@ -0,0 +1,193 @@
+package util;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers PostgreSQL NOTIFY events for chat conversations to in-process subscribers.
+ * ChatMessageDAO notifies the channel of a conversation with the new message ID after
+ * each insert; one background thread holds a dedicated (unpooled) connection that
+ * LISTENs on every channel with at least one subscriber and hands the IDs on.
+ * Callbacks run on the listener thread, so UI subscribers must hop to the EDT themselves.
+ */
+public class ChatNotificationListener {
+
+    /**
+     * Receives new message IDs for a conversation. A messageId of 0 means notifications
+     * may have been missed (e.g. after a reconnect) and the subscriber should resync.
+     */
+    public interface MessageListener {
+        void onNewMessage(int conversationId, int messageId);
+    }
+
+    private static final String CHANNEL_PREFIX = "chat_conversation_";
+    private static final int POLL_TIMEOUT_MS = 250;
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+
+    private static final ChatNotificationListener INSTANCE = new ChatNotificationListener();
+
+    private final Map<Integer, List<MessageListener>> subscribers = new ConcurrentHashMap<>();
+    // LISTEN/UNLISTEN commands issued by the listener thread on its own connection
+    private final ConcurrentLinkedQueue<String> pendingCommands = new ConcurrentLinkedQueue<>();
+    // Held while changing the subscribed channels, so a reconnect sees them together with the commands queued so far
+    private final Object subscriptionLock = new Object();
+    private Thread thread;
+
+    private ChatNotificationListener() {
+    }
+
+    public static ChatNotificationListener getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Notification channel for a conversation
+     */
+    public static String channelFor(int conversationId) {
+        return CHANNEL_PREFIX + conversationId;
+    }
+
+    /**
+     * Start receiving new message IDs for a conversation
+     */
+    public void subscribe(int conversationId, MessageListener listener) {
+        synchronized (subscriptionLock) {
+            List<MessageListener> listeners = subscribers.computeIfAbsent(conversationId, id -> {
+                pendingCommands.add("LISTEN " + channelFor(id));
+                return new CopyOnWriteArrayList<>();
+            });
+            listeners.add(listener);
+        }
+        ensureStarted();
+    }
+
+    /**
+     * Stop receiving notifications for a conversation
+     */
+    public void unsubscribe(int conversationId, MessageListener listener) {
+        synchronized (subscriptionLock) {
+            subscribers.computeIfPresent(conversationId, (id, listeners) -> {
+                listeners.remove(listener);
+                if (listeners.isEmpty()) {
+                    pendingCommands.add("UNLISTEN " + channelFor(id));
+                    return null;
+                }
+                return listeners;
+            });
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        if (thread == null) {
+            thread = new Thread(this::run, "chat-notification-listener");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        long reconnectDelay = 1000;
+        boolean reconnecting = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection conn = DatabaseUtil.openPhysicalConnection()) {
+                PGConnection pgConnection = conn.unwrap(PGConnection.class);
+                resubscribeAll(conn, reconnecting);
+                reconnectDelay = 1000;
+                reconnecting = true;
+
+                while (!Thread.currentThread().isInterrupted()) {
+                    applyPendingCommands(conn);
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Chat notification listener lost its connection: " + e.getMessage());
+            }
+
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MS);
+        }
+    }
+
+    /**
+     * LISTEN on every subscribed channel of a fresh connection; after a reconnect, tell
+     * subscribers to resync since messages sent while disconnected were not delivered.
+     * Queued commands are kept: replayed after this, they end in the same set of channels,
+     * and one queued by a concurrent subscribe is not lost.
+     */
+    private void resubscribeAll(Connection conn, boolean resync) throws SQLException {
+        List<Integer> conversationIds;
+        synchronized (subscriptionLock) {
+            conversationIds = new ArrayList<>(subscribers.keySet());
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (Integer conversationId : conversationIds) {
+                stmt.execute("LISTEN " + channelFor(conversationId));
+            }
+        }
+        if (!resync) {
+            return;
+        }
+        for (Map.Entry<Integer, List<MessageListener>> entry : subscribers.entrySet()) {
+            deliver(entry.getValue(), entry.getKey(), 0);
+        }
+    }
+
+    private void applyPendingCommands(Connection conn) throws SQLException {
+        String command;
+        while ((command = pendingCommands.poll()) != null) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(command);
+            }
+        }
+    }
+
+    private void dispatch(PGNotification notification) {
+        String channel = notification.getName();
+        if (!channel.startsWith(CHANNEL_PREFIX)) {
+            return;
+        }
+        int conversationId;
+        int messageId;
+        try {
+            conversationId = Integer.parseInt(channel.substring(CHANNEL_PREFIX.length()));
+            messageId = Integer.parseInt(notification.getParameter());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring malformed chat notification on " + channel + ": " + notification.getParameter());
+            return;
+        }
+        List<MessageListener> listeners = subscribers.get(conversationId);
+        if (listeners != null) {
+            deliver(listeners, conversationId, messageId);
+        }
+    }
+
+    private static void deliver(List<MessageListener> listeners, int conversationId, int messageId) {
+        for (MessageListener listener : listeners) {
+            try {
+                listener.onNewMessage(conversationId, messageId);
+            } catch (RuntimeException e) {
+                // A failing subscriber must not stop delivery to the others
+                e.printStackTrace();
+            }
+        }
+    }
+}
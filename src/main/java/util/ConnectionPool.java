@@ -0,0 +1,604 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded JDBC connection pool used by DatabaseUtil.
+ * Connections handed out are proxies: close() returns the physical connection to the pool.
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens a new physical connection
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Connections returned more recently than this are not re-validated on borrow
+    private static final long ALIVE_BYPASS_MS = 500;
+
+    private final ConnectionFactory factory;
+    private final PoolConfig config;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final List<PooledConnection> leased = new ArrayList<>();
+    private int totalConnections;
+    private int waitingThreads;
+    private boolean closed;
+
+    // Statistics (guarded by lock)
+    private long borrowCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private long timeoutCount;
+    private long createdCount;
+    private long destroyedCount;
+    private long validationFailures;
+    private long leaksDetected;
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(ConnectionFactory factory, PoolConfig config) {
+        // Checked here rather than in the setters, which may be called in either order
+        if (config.getMinSize() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Pool minimum size (" + config.getMinSize()
+                    + ") cannot exceed its maximum size (" + config.getMaxSize() + ")");
+        }
+        this.factory = factory;
+        this.config = config;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getHousekeepingIntervalMs();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the configured timeout if the pool is exhausted
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getConnectionTimeoutMs());
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean mustCreate = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalConnections < config.getMaxSize()) {
+                        totalConnections++;
+                        mustCreate = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount++;
+                        throw new SQLException("Timed out after " + config.getConnectionTimeoutMs()
+                                + "ms waiting for a database connection (" + describe() + ")");
+                    }
+                    waitingThreads++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waitingThreads--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (mustCreate) {
+                try {
+                    candidate = new PooledConnection(factory.create());
+                } catch (SQLException | RuntimeException e) {
+                    lock.lock();
+                    try {
+                        totalConnections--;
+                        available.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+                lock.lock();
+                try {
+                    createdCount++;
+                } finally {
+                    lock.unlock();
+                }
+            } else if (!isUsable(candidate)) {
+                destroy(candidate);
+                continue;
+            }
+
+            return lease(candidate, System.nanoTime() - start);
+        }
+    }
+
+    private Connection lease(PooledConnection pooled, long waitNanos) {
+        pooled.borrowedAt = System.currentTimeMillis();
+        pooled.leakReported = false;
+        pooled.borrowSite = config.getLeakDetectionThresholdMs() > 0
+                ? new Throwable("Connection borrowed by " + Thread.currentThread().getName())
+                : null;
+
+        lock.lock();
+        try {
+            leased.add(pooled);
+            borrowCount++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        } finally {
+            lock.unlock();
+        }
+        return pooled.newProxy();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastReturnedAt < ALIVE_BYPASS_MS) {
+                return true;
+            }
+            if (pooled.physical.isValid(config.getValidationTimeoutSeconds())) {
+                return true;
+            }
+        } catch (SQLException e) {
+            // Treat as invalid
+        }
+        lock.lock();
+        try {
+            validationFailures++;
+        } finally {
+            lock.unlock();
+        }
+        return false;
+    }
+
+    /**
+     * Return a connection to the pool, resetting any state the borrower changed
+     */
+    private void release(PooledConnection pooled) {
+        boolean healthy = true;
+        if (pooled.statementCache != null) {
+            pooled.statementCache.releaseAll();
+        }
+        try {
+            if (pooled.physical.isClosed()) {
+                healthy = false;
+            } else {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                if (pooled.physical.isReadOnly()) {
+                    pooled.physical.setReadOnly(false);
+                }
+                pooled.physical.clearWarnings();
+            }
+        } catch (SQLException e) {
+            healthy = false;
+        }
+
+        lock.lock();
+        try {
+            leased.remove(pooled);
+            if (healthy && !closed) {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(pooled);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        pooled.closePhysical();
+        lock.lock();
+        try {
+            totalConnections--;
+            destroyedCount++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Periodic maintenance: evict long-idle connections, top up to the minimum size, report leaks
+     */
+    void housekeep() {
+        List<PooledConnection> toClose = new ArrayList<>();
+        List<PooledConnection> leaks = new ArrayList<>();
+        int toCreate;
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // Oldest idle connections sit at the tail
+            while (totalConnections - toClose.size() > config.getMinSize() && !idle.isEmpty()
+                    && now - idle.peekLast().lastReturnedAt > config.getIdleTimeoutMs()) {
+                toClose.add(idle.pollLast());
+            }
+            toCreate = Math.max(0, config.getMinSize() - (totalConnections - toClose.size()));
+            totalConnections += toCreate;
+
+            long threshold = config.getLeakDetectionThresholdMs();
+            if (threshold > 0) {
+                for (PooledConnection pooled : leased) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+                        pooled.leakReported = true;
+                        leaksDetected++;
+                        leaks.add(pooled);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+
+        for (int i = 0; i < toCreate; i++) {
+            try {
+                PooledConnection pooled = new PooledConnection(factory.create());
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                lock.lock();
+                try {
+                    createdCount++;
+                    idle.addLast(pooled);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException | RuntimeException e) {
+                lock.lock();
+                try {
+                    totalConnections--;
+                } finally {
+                    lock.unlock();
+                }
+                System.err.println("Error filling connection pool: " + e.getMessage());
+            }
+        }
+
+        for (PooledConnection pooled : leaks) {
+            System.err.println("Possible connection leak: connection held for "
+                    + (now - pooled.borrowedAt) + "ms without being closed");
+            if (pooled.borrowSite != null) {
+                pooled.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the current pool statistics
+     */
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            return new PoolStats(totalConnections, leased.size(), idle.size(), waitingThreads,
+                    config.getMaxSize(), borrowCount, totalWaitNanos, maxWaitNanos, timeoutCount,
+                    createdCount, destroyedCount, validationFailures, leaksDetected,
+                    statementCounters.hits.get(), statementCounters.misses.get(), statementCounters.evictions.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String describe() {
+        return "total=" + totalConnections + ", active=" + leased.size() + ", idle=" + idle.size()
+                + ", waiting=" + waitingThreads + ", max=" + config.getMaxSize();
+    }
+
+    /**
+     * Close all idle connections and stop the housekeeper; leased connections are closed when returned
+     */
+    public void shutdown() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private class PooledConnection {
+        final Connection physical;
+        final StatementCache statementCache;
+        volatile long lastReturnedAt;
+        volatile long borrowedAt;
+        volatile boolean leakReported;
+        volatile Throwable borrowSite;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = config.getStatementCacheSize() > 0
+                    ? new StatementCache(physical, config.getStatementCacheSize(), statementCounters)
+                    : null;
+        }
+
+        Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new LeaseHandler(this));
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Already broken, nothing left to release
+            }
+        }
+    }
+
+    /**
+     * Proxy handler for a single lease; once closed, the proxy refuses further use
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean leaseClosed;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!leaseClosed) {
+                        leaseClosed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return leaseClosed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (leaseClosed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (pooled.statementCache != null && method.getName().equals("prepareStatement")) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return pooled.statementCache.prepare((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return pooled.statementCache.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Pool sizing and timing settings
+     */
+    public static class PoolConfig {
+        private int minSize = 2;
+        private int maxSize = 10;
+        private long connectionTimeoutMs = 30000;
+        private long idleTimeoutMs = 600000;
+        private int validationTimeoutSeconds = 2;
+        private long leakDetectionThresholdMs = 60000;
+        private long housekeepingIntervalMs = 30000;
+        private int statementCacheSize = 0;
+
+        public PoolConfig() {}
+
+        /**
+         * Read db.pool.* settings, falling back to the defaults above
+         */
+        public static PoolConfig fromProperties(java.util.Properties props) {
+            PoolConfig config = new PoolConfig();
+            config.setMinSize(Integer.parseInt(props.getProperty("db.pool.minSize", String.valueOf(config.minSize))));
+            config.setMaxSize(Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(config.maxSize))));
+            config.setConnectionTimeoutMs(Long.parseLong(props.getProperty("db.pool.connectionTimeoutMs", String.valueOf(config.connectionTimeoutMs))));
+            config.setIdleTimeoutMs(Long.parseLong(props.getProperty("db.pool.idleTimeoutMs", String.valueOf(config.idleTimeoutMs))));
+            config.setValidationTimeoutSeconds(Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", String.valueOf(config.validationTimeoutSeconds))));
+            config.setLeakDetectionThresholdMs(Long.parseLong(props.getProperty("db.pool.leakDetectionThresholdMs", String.valueOf(config.leakDetectionThresholdMs))));
+            config.setHousekeepingIntervalMs(Long.parseLong(props.getProperty("db.pool.housekeepingIntervalMs", String.valueOf(config.housekeepingIntervalMs))));
+            config.setStatementCacheSize(Integer.parseInt(props.getProperty("db.pool.statementCacheSize", String.valueOf(config.statementCacheSize))));
+            return config;
+        }
+
+        public int getMinSize() { return minSize; }
+        public void setMinSize(int minSize) {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("Pool minimum size cannot be negative");
+            }
+            this.minSize = minSize;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("Pool maximum size must be positive");
+            }
+            this.maxSize = maxSize;
+        }
+
+        public long getConnectionTimeoutMs() { return connectionTimeoutMs; }
+        public void setConnectionTimeoutMs(long connectionTimeoutMs) { this.connectionTimeoutMs = connectionTimeoutMs; }
+
+        public long getIdleTimeoutMs() { return idleTimeoutMs; }
+        public void setIdleTimeoutMs(long idleTimeoutMs) { this.idleTimeoutMs = idleTimeoutMs; }
+
+        public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+        public void setValidationTimeoutSeconds(int validationTimeoutSeconds) { this.validationTimeoutSeconds = validationTimeoutSeconds; }
+
+        public long getLeakDetectionThresholdMs() { return leakDetectionThresholdMs; }
+        public void setLeakDetectionThresholdMs(long leakDetectionThresholdMs) { this.leakDetectionThresholdMs = leakDetectionThresholdMs; }
+
+        public long getHousekeepingIntervalMs() { return housekeepingIntervalMs; }
+        public void setHousekeepingIntervalMs(long housekeepingIntervalMs) {
+            if (housekeepingIntervalMs <= 0) {
+                throw new IllegalArgumentException("Housekeeping interval must be positive");
+            }
+            this.housekeepingIntervalMs = housekeepingIntervalMs;
+        }
+
+        /** Prepared statements cached per connection; 0 (the default) leaves caching to the driver */
+        public int getStatementCacheSize() { return statementCacheSize; }
+        public void setStatementCacheSize(int statementCacheSize) { this.statementCacheSize = Math.max(0, statementCacheSize); }
+    }
+
+    /**
+     * Immutable snapshot of pool usage
+     */
+    public static class PoolStats {
+        private final int totalConnections;
+        private final int activeConnections;
+        private final int idleConnections;
+        private final int waitingThreads;
+        private final int maxSize;
+        private final long borrowCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long validationFailures;
+        private final long leaksDetected;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+        private final long statementCacheEvictions;
+
+        public PoolStats(int totalConnections, int activeConnections, int idleConnections, int waitingThreads,
+                         int maxSize, long borrowCount, long totalWaitNanos, long maxWaitNanos, long timeoutCount,
+                         long createdCount, long destroyedCount, long validationFailures, long leaksDetected,
+                         long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+            this.totalConnections = totalConnections;
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.waitingThreads = waitingThreads;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.validationFailures = validationFailures;
+            this.leaksDetected = leaksDetected;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+            this.statementCacheEvictions = statementCacheEvictions;
+        }
+
+        public int getTotalConnections() { return totalConnections; }
+        public int getActiveConnections() { return activeConnections; }
+        public int getIdleConnections() { return idleConnections; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public int getMaxSize() { return maxSize; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getLeaksDetected() { return leaksDetected; }
+        public long getStatementCacheHits() { return statementCacheHits; }
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+        public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+        public double getStatementCacheHitRate() {
+            long lookups = statementCacheHits + statementCacheMisses;
+            return lookups > 0 ? (double) statementCacheHits / lookups * 100 : 0;
+        }
+
+        public double getAverageWaitMillis() {
+            return borrowCount > 0 ? totalWaitNanos / 1_000_000.0 / borrowCount : 0;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        public double getUtilization() {
+            return maxSize > 0 ? (double) activeConnections / maxSize * 100 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("PoolStats{total=%d, active=%d, idle=%d, waiting=%d, utilization=%.1f%%, "
+                    + "borrows=%d, avgWait=%.2fms, maxWait=%.2fms, timeouts=%d, created=%d, destroyed=%d, "
+                    + "validationFailures=%d, leaks=%d, stmtCacheHits=%d, stmtCacheMisses=%d, stmtCacheHitRate=%.1f%%}",
+                    totalConnections, activeConnections, idleConnections, waitingThreads, getUtilization(),
+                    borrowCount, getAverageWaitMillis(), getMaxWaitMillis(), timeoutCount, createdCount,
+                    destroyedCount, validationFailures, leaksDetected,
+                    statementCacheHits, statementCacheMisses, getStatementCacheHitRate());
+        }
+    }
+}
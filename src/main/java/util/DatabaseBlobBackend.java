@@ -0,0 +1,44 @@
+package util;
+
+import dao.BlobDAO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Keeps blob content in the data column of its blobs row, so it is backed up and shared
+ * with the rest of the database. Content is streamed in on write and out on copy.
+ */
+public class DatabaseBlobBackend implements BlobBackend {
+
+    private final BlobDAO blobDAO;
+
+    public DatabaseBlobBackend(BlobDAO blobDAO) {
+        this.blobDAO = blobDAO;
+    }
+
+    @Override
+    public void write(Connection conn, String hash, Content content) throws SQLException, IOException {
+        try (InputStream in = content.open()) {
+            blobDAO.writeData(conn, hash, in, content.size());
+        }
+    }
+
+    @Override
+    public byte[] read(String hash) {
+        return blobDAO.readData(hash);
+    }
+
+    @Override
+    public boolean copyTo(String hash, OutputStream out) throws IOException {
+        return blobDAO.copyData(hash, out);
+    }
+
+    @Override
+    public void delete(String hash) {
+        // The content was in the deleted row
+    }
+}
@@ -1,5 +1,8 @@
 package util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.*;
 
 /**
@@ -35,6 +38,32 @@ public class DatabaseImageUtil {
         }
     }
     
+    /**
+     * Stream a BYTEA parameter from an InputStream of known length, so large values (e.g. chat
+     * attachments read from a file) are never held on the heap as one array.
+     * Sets NULL for a null stream. The caller closes the stream after the statement has executed.
+     */
+    public static void setStreamParameter(PreparedStatement stmt, int parameterIndex, InputStream data, long length) throws SQLException {
+        if (data != null && length > 0) {
+            stmt.setBinaryStream(parameterIndex, data, length);
+        } else {
+            stmt.setNull(parameterIndex, Types.BINARY);
+        }
+    }
+    
+    /**
+     * Copy a BYTEA column to an OutputStream through a small buffer instead of returning it as
+     * a byte array. Returns the number of bytes copied, or -1 if the value is NULL.
+     */
+    public static long copyToStream(ResultSet rs, String columnName, OutputStream out) throws SQLException, IOException {
+        try (InputStream in = rs.getBinaryStream(columnName)) {
+            if (in == null) {
+                return -1;
+            }
+            return in.transferTo(out);
+        }
+    }
+    
     /**
      * Check if a column exists in the ResultSet metadata
      */
@@ -1,16 +1,23 @@
 package util;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HexFormat;
 
 public class DatabaseInitializer {
 
+    // Advisory lock key held while migrations.sql is applied (arbitrary, unique to this application)
+    private static final long MIGRATION_LOCK_KEY = 7215_0001L;
+
     /**
      * Check if the database is already initialized by checking if the 'users' table exists
      * @return true if database is initialized, false otherwise
@@ -54,6 +61,64 @@ public class DatabaseInitializer {
         }
     }
 
+    /**
+     * Apply migrations.sql, which brings databases created by older schema versions up to date.
+     * Its ALTER/DROP/CREATE statements lock hot tables, so it runs only once per version of the
+     * file: the checksum of each applied version is recorded in schema_migrations, and clients
+     * starting together wait on an advisory lock while the first of them applies it.
+     */
+    public void migrateDatabase() {
+        try (Connection connection = DatabaseUtil.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            String migrationsPath = "migrations.sql";
+            String migrationsSQL = new String(Files.readAllBytes(Paths.get(DatabaseInitializer.class.getClassLoader().getResource(migrationsPath).toURI())));
+            String checksum = HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(migrationsSQL.getBytes(StandardCharsets.UTF_8)));
+
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_migrations ("
+                    + "checksum TEXT PRIMARY KEY, applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            if (isMigrationApplied(connection, checksum)) {
+                return;
+            }
+
+            statement.execute("SELECT pg_advisory_lock(" + MIGRATION_LOCK_KEY + ")");
+            try {
+                // Checked again under the lock: another client may have applied it while we waited
+                if (!isMigrationApplied(connection, checksum)) {
+                    statement.execute(migrationsSQL);
+                    try (PreparedStatement insert = connection.prepareStatement(
+                            "INSERT INTO schema_migrations (checksum) VALUES (?)")) {
+                        insert.setString(1, checksum);
+                        insert.executeUpdate();
+                    }
+                }
+            } finally {
+                // Session-level lock, so it must be released before the connection goes back to the pool
+                statement.execute("SELECT pg_advisory_unlock(" + MIGRATION_LOCK_KEY + ")");
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error migrating database: " + e.getMessage());
+            throw new RuntimeException("Failed to migrate database", e);
+        } catch (IOException e) {
+            System.err.println("Error reading migrations file: " + e.getMessage());
+            throw new RuntimeException("Failed to read migrations file", e);
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            throw new RuntimeException("Unexpected error during database migration", e);
+        }
+    }
+
+    private boolean isMigrationApplied(Connection connection, String checksum) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT 1 FROM schema_migrations WHERE checksum = ?")) {
+            stmt.setString(1, checksum);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
     public static void main(String[] args) {
         DatabaseInitializer initializer = new DatabaseInitializer();
         initializer.initializeDatabase();
@@ -8,7 +8,12 @@ import java.sql.SQLException;
 import java.util.Properties;
 
 public class DatabaseUtil {
+    // Executions of the same statement before the driver switches to a named server-side statement;
+    // the value config.properties ships, used when it is not set
+    private static final String DEFAULT_PREPARE_THRESHOLD = "3";
+    
     private static Properties config;
+    private static volatile ConnectionPool pool;
     
     static {
         loadConfig();
@@ -29,7 +34,57 @@ public class DatabaseUtil {
         }
     }
     
+    /**
+     * A setting from config.properties, or the default if it is not set
+     */
+    public static String getProperty(String key, String defaultValue) {
+        return config.getProperty(key, defaultValue);
+    }
+    
+    /**
+     * Borrow a pooled connection; closing it returns it to the pool
+     */
     public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+    
+    /**
+     * Current connection pool statistics (wait time, utilization, leaks)
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+    
+    /**
+     * Close idle pooled connections, e.g. on application exit
+     */
+    public static void shutdownPool() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+    
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseUtil.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(DatabaseUtil::openPhysicalConnection,
+                            ConnectionPool.PoolConfig.fromProperties(config));
+                    pool = current;
+                    Runtime.getRuntime().addShutdownHook(new Thread(DatabaseUtil::shutdownPool, "db-pool-shutdown"));
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Open a new unpooled connection straight from the driver
+     */
+    public static Connection openPhysicalConnection() throws SQLException {
         String url = config.getProperty("db.url");
         String username = config.getProperty("db.username");
         String password = config.getProperty("db.password");
@@ -39,7 +94,15 @@ public class DatabaseUtil {
         } catch (ClassNotFoundException e) {
             throw new SQLException("PostgreSQL Driver not found", e);
         }
-        return DriverManager.getConnection(url, username, password);
+        Properties props = new Properties();
+        props.setProperty("user", username);
+        props.setProperty("password", password);
+        props.setProperty("prepareThreshold", config.getProperty("db.prepareThreshold", DEFAULT_PREPARE_THRESHOLD));
+        // Server-side prepared statements the driver keeps per connection, keyed by SQL
+        props.setProperty("preparedStatementCacheQueries", config.getProperty("db.preparedStatementCacheQueries", "256"));
+        // Let the driver turn batched INSERTs into multi-row INSERTs
+        props.setProperty("reWriteBatchedInserts", config.getProperty("db.reWriteBatchedInserts", "true"));
+        return DriverManager.getConnection(url, props);
     }
     
     // Test method
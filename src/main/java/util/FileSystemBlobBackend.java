@@ -0,0 +1,84 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.sql.Connection;
+
+/**
+ * Keeps blob content in files under a root directory, fanned out by the first two characters
+ * of the hash (root/ab/abcdef...). Reads load the file straight into one array; copies go
+ * from the file channel to the stream without holding the whole blob on the heap.
+ *
+ * Every client must see the same directory. Files are written to a temporary name and moved
+ * into place, so a reader never sees a partial blob; a file left behind by a rolled-back
+ * transaction is simply reused when the same content is stored again.
+ */
+public class FileSystemBlobBackend implements BlobBackend {
+
+    private final Path root;
+
+    public FileSystemBlobBackend(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void write(Connection conn, String hash, Content content) throws IOException {
+        Path target = pathFor(hash);
+        if (Files.exists(target)) {
+            return; // Same hash, same bytes
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            try (InputStream in = content.open()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Written concurrently by another client
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public byte[] read(String hash) throws IOException {
+        try {
+            return Files.readAllBytes(pathFor(hash));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean copyTo(String hash, OutputStream out) throws IOException {
+        Path path = pathFor(hash);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(pathFor(hash));
+    }
+
+    Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+}
@@ -0,0 +1,270 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * WHO-style growth reference: the LMS parameters of height, weight and BMI for age, per sex,
+ * loaded once from growth/who_lms.csv on the classpath into primitive arrays.
+ *
+ * A measurement X at an age with parameters L, M, S has the z-score ((X/M)^L - 1) / (L*S),
+ * or ln(X/M) / S when L is 0. Parameters are interpolated linearly between the ages of the
+ * table; ages outside it have no reference and give NaN. As in the WHO tables, weight and BMI
+ * z-scores beyond +/-3 are extrapolated linearly from the distance between the 2 and 3 SD values.
+ *
+ * Immutable and thread-safe.
+ */
+public final class GrowthStandards {
+
+    public enum Indicator { HEIGHT, WEIGHT, BMI }
+
+    private static final String RESOURCE = "growth/who_lms.csv";
+
+    private static volatile GrowthStandards instance;
+
+    // Indexed by indicator ordinal * 2 + (male ? 0 : 1)
+    private final Table[] tables;
+
+    private GrowthStandards(Table[] tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Get the bundled reference, loading it on first use
+     */
+    public static GrowthStandards get() {
+        GrowthStandards current = instance;
+        if (current == null) {
+            synchronized (GrowthStandards.class) {
+                current = instance;
+                if (current == null) {
+                    current = load();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static GrowthStandards load() {
+        try (InputStream in = GrowthStandards.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Growth reference " + RESOURCE + " not found on the classpath");
+            }
+            return read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading growth reference " + RESOURCE, e);
+        }
+    }
+
+    /**
+     * Parse "indicator,sex,age_months,l,m,s" rows; blank lines, # comments and the header are skipped
+     */
+    static GrowthStandards read(BufferedReader reader) throws IOException {
+        List<List<double[]>> rows = new ArrayList<>();
+        for (int i = 0; i < Indicator.values().length * 2; i++) {
+            rows.add(new ArrayList<>());
+        }
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("indicator,")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 6) {
+                throw new IllegalStateException("Growth reference line " + lineNumber + ": expected 6 fields");
+            }
+            try {
+                Indicator indicator = Indicator.valueOf(fields[0].trim());
+                boolean male = parseSex(fields[1].trim(), lineNumber);
+                rows.get(index(indicator, male)).add(new double[] {
+                    Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5])
+                });
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Growth reference line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+
+        Table[] tables = new Table[rows.size()];
+        for (int i = 0; i < tables.length; i++) {
+            List<double[]> table = rows.get(i);
+            if (table.isEmpty()) {
+                throw new IllegalStateException("Growth reference has no rows for "
+                        + Indicator.values()[i / 2] + (i % 2 == 0 ? " (male)" : " (female)"));
+            }
+            table.sort((a, b) -> Double.compare(a[0], b[0]));
+            tables[i] = new Table(table);
+        }
+        return new GrowthStandards(tables);
+    }
+
+    private static boolean parseSex(String sex, int lineNumber) {
+        if ("M".equals(sex)) {
+            return true;
+        }
+        if ("F".equals(sex)) {
+            return false;
+        }
+        throw new IllegalStateException("Growth reference line " + lineNumber + ": unknown sex " + sex);
+    }
+
+    private static int index(Indicator indicator, boolean male) {
+        return indicator.ordinal() * 2 + (male ? 0 : 1);
+    }
+
+    /**
+     * Youngest age in months with a reference for the indicator
+     */
+    public double minAgeMonths(Indicator indicator, boolean male) {
+        double[] ages = tables[index(indicator, male)].ages;
+        return ages[0];
+    }
+
+    /**
+     * Oldest age in months with a reference for the indicator
+     */
+    public double maxAgeMonths(Indicator indicator, boolean male) {
+        double[] ages = tables[index(indicator, male)].ages;
+        return ages[ages.length - 1];
+    }
+
+    /**
+     * z-score of one measurement, or NaN if the age is outside the reference or the value is not positive
+     */
+    public double zScore(Indicator indicator, boolean male, double ageMonths, double value) {
+        return tables[index(indicator, male)].zScore(ageMonths, value, indicator != Indicator.HEIGHT);
+    }
+
+    /**
+     * z-scores of many measurements at once, e.g. every record of a class: out[i] is the
+     * z-score of values[i] for a child of sex male[i] aged ageMonths[i]
+     */
+    public void zScores(Indicator indicator, boolean[] male, double[] ageMonths, double[] values, double[] out) {
+        Table boys = tables[index(indicator, true)];
+        Table girls = tables[index(indicator, false)];
+        boolean restrictedTails = indicator != Indicator.HEIGHT;
+        for (int i = 0; i < values.length; i++) {
+            out[i] = (male[i] ? boys : girls).zScore(ageMonths[i], values[i], restrictedTails);
+        }
+    }
+
+    /**
+     * Measurement at the given z-score, e.g. z = 0 for the median curve; NaN outside the reference ages
+     */
+    public double valueAt(Indicator indicator, boolean male, double ageMonths, double z) {
+        Table table = tables[index(indicator, male)];
+        int i = table.segment(ageMonths);
+        if (i < 0) {
+            return Double.NaN;
+        }
+        double t = table.fraction(i, ageMonths);
+        return value(table.l(i, t), table.m(i, t), table.s(i, t), z);
+    }
+
+    /**
+     * Percentile (0-100) of a z-score in the standard normal distribution; NaN stays NaN
+     */
+    public static double percentile(double z) {
+        if (Double.isNaN(z)) {
+            return Double.NaN;
+        }
+        return 50 * erfc(-z / Math.sqrt(2));
+    }
+
+    private static double value(double l, double m, double s, double z) {
+        return l == 0 ? m * Math.exp(s * z) : m * Math.pow(1 + l * s * z, 1 / l);
+    }
+
+    /**
+     * Complementary error function (Numerical Recipes erfcc), fractional error below 1.2e-7
+     */
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+
+    /**
+     * LMS parameters of one indicator and sex, sorted by age
+     */
+    private static final class Table {
+        final double[] ages;
+        final double[] l;
+        final double[] m;
+        final double[] s;
+
+        Table(List<double[]> rows) {
+            int n = rows.size();
+            ages = new double[n];
+            l = new double[n];
+            m = new double[n];
+            s = new double[n];
+            for (int i = 0; i < n; i++) {
+                double[] row = rows.get(i);
+                ages[i] = row[0];
+                l[i] = row[1];
+                m[i] = row[2];
+                s[i] = row[3];
+            }
+        }
+
+        /**
+         * Index of the first table age at or below the given age, or -1 outside the table
+         */
+        int segment(double ageMonths) {
+            if (!(ageMonths >= ages[0] && ageMonths <= ages[ages.length - 1])) {
+                return -1; // Also rejects NaN
+            }
+            int i = Arrays.binarySearch(ages, ageMonths);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        double fraction(int i, double ageMonths) {
+            return i + 1 < ages.length ? (ageMonths - ages[i]) / (ages[i + 1] - ages[i]) : 0;
+        }
+
+        double l(int i, double t) {
+            return t == 0 ? l[i] : l[i] + (l[i + 1] - l[i]) * t;
+        }
+
+        double m(int i, double t) {
+            return t == 0 ? m[i] : m[i] + (m[i + 1] - m[i]) * t;
+        }
+
+        double s(int i, double t) {
+            return t == 0 ? s[i] : s[i] + (s[i + 1] - s[i]) * t;
+        }
+
+        double zScore(double ageMonths, double value, boolean restrictedTails) {
+            int i = segment(ageMonths);
+            if (i < 0 || !(value > 0)) {
+                return Double.NaN;
+            }
+            double t = fraction(i, ageMonths);
+            double l = l(i, t);
+            double m = m(i, t);
+            double s = s(i, t);
+            double z = l == 0 ? Math.log(value / m) / s : (Math.pow(value / m, l) - 1) / (l * s);
+            if (restrictedTails && Math.abs(z) > 3) {
+                double sd3 = value(l, m, s, Math.signum(z) * 3);
+                double sd2 = value(l, m, s, Math.signum(z) * 2);
+                z = Math.signum(z) * 3 + (value - sd3) / Math.abs(sd3 - sd2);
+            }
+            return z;
+        }
+    }
+}
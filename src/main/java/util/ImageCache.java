@@ -0,0 +1,230 @@
+package util;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of decoded and scaled icons, keyed by image source and target size.
+ * Panels rebuild their cards on every refresh; without this each rebuild decoded every
+ * avatar and photo again and re-scaled the same few UI icons.
+ *
+ * Recently used icons are held strongly up to a pixel-memory budget (4 bytes per pixel).
+ * Icons evicted from that tier are kept behind soft references, so they are only
+ * decoded again once the JVM actually needs the memory.
+ */
+public class ImageCache {
+
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final ImageCache INSTANCE = new ImageCache(DEFAULT_MAX_BYTES);
+
+    private final BoundedLruCache<Key, ImageIcon> strong;
+    private final Map<Key, SoftEntry> soft = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ImageIcon> clearedQueue = new ReferenceQueue<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong softHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ImageCache(long maxBytes) {
+        this.strong = new BoundedLruCache<>(maxBytes, ImageCache::weigh,
+                (key, icon) -> soft.put(key, new SoftEntry(key, icon, clearedQueue)));
+    }
+
+    public static ImageCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the icon for a source at the given size, calling the loader on a miss.
+     * Null results are returned but not cached. Concurrent misses for the same key
+     * may both run the loader; the last result wins.
+     *
+     * @param source stable identity of the image, e.g. a resource path or {@link #contentKey}
+     */
+    public ImageIcon get(String source, int width, int height, Supplier<ImageIcon> loader) {
+        Key key = new Key(source, width, height);
+        purgeCleared();
+
+        ImageIcon icon = strong.get(key);
+        if (icon != null) {
+            hits.incrementAndGet();
+            return icon;
+        }
+
+        SoftEntry entry = soft.remove(key);
+        icon = entry != null ? entry.get() : null;
+        if (icon != null) {
+            softHits.incrementAndGet();
+            strong.put(key, icon);
+            return icon;
+        }
+
+        misses.incrementAndGet();
+        icon = loader.get();
+        if (icon != null) {
+            strong.put(key, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * Classpath image (e.g. "/images/plus.png") scaled to the given size, or null if missing
+     */
+    public ImageIcon getResourceIcon(String path, int width, int height) {
+        return get("resource:" + path, width, height, () -> {
+            URL url = ImageCache.class.getResource(path);
+            if (url == null) {
+                System.err.println("Image resource not found: " + path);
+                return null;
+            }
+            return scale(new ImageIcon(url), width, height);
+        });
+    }
+
+    /**
+     * Image file on disk scaled to the given size
+     */
+    public ImageIcon getFileIcon(String path, int width, int height) {
+        return get("file:" + path, width, height, () -> scale(new ImageIcon(path), width, height));
+    }
+
+    /**
+     * Source key for image bytes from the database. Keyed by content rather than row ID,
+     * so an updated image never hits a stale entry and identical images share one entry.
+     * Hashing is far cheaper than decoding and scaling the image.
+     */
+    public static String contentKey(byte[] data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(data);
+            StringBuilder sb = new StringBuilder("sha256:");
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public void clear() {
+        strong.clear();
+        soft.clear();
+    }
+
+    public Stats getStats() {
+        purgeCleared();
+        return new Stats(hits.get(), softHits.get(), misses.get(), strong.size(), soft.size(), strong.getTotalWeight());
+    }
+
+    private static ImageIcon scale(ImageIcon icon, int width, int height) {
+        if (icon.getIconWidth() == width && icon.getIconHeight() == height) {
+            return icon;
+        }
+        Image scaled = icon.getImage().getScaledInstance(width, height, Image.SCALE_SMOOTH);
+        return new ImageIcon(scaled);
+    }
+
+    private static long weigh(ImageIcon icon) {
+        return (long) Math.max(1, icon.getIconWidth()) * Math.max(1, icon.getIconHeight()) * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Drop map entries whose icons the garbage collector has reclaimed
+     */
+    private void purgeCleared() {
+        SoftEntry cleared;
+        while ((cleared = (SoftEntry) clearedQueue.poll()) != null) {
+            soft.remove(cleared.key, cleared);
+        }
+    }
+
+    private static final class Key {
+        private final String source;
+        private final int width;
+        private final int height;
+
+        Key(String source, int width, int height) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return width == other.width && height == other.height && source.equals(other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, width, height);
+        }
+    }
+
+    private static final class SoftEntry extends SoftReference<ImageIcon> {
+        private final Key key;
+
+        SoftEntry(Key key, ImageIcon icon, ReferenceQueue<ImageIcon> queue) {
+            super(icon, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * Snapshot of cache usage
+     */
+    public static class Stats {
+        private final long hits;
+        private final long softHits;
+        private final long misses;
+        private final int strongEntries;
+        private final int softEntries;
+        private final long strongBytes;
+
+        public Stats(long hits, long softHits, long misses, int strongEntries, int softEntries, long strongBytes) {
+            this.hits = hits;
+            this.softHits = softHits;
+            this.misses = misses;
+            this.strongEntries = strongEntries;
+            this.softEntries = softEntries;
+            this.strongBytes = strongBytes;
+        }
+
+        public long getHits() { return hits; }
+        public long getSoftHits() { return softHits; }
+        public long getMisses() { return misses; }
+        public int getStrongEntries() { return strongEntries; }
+        public int getSoftEntries() { return softEntries; }
+        public long getStrongBytes() { return strongBytes; }
+
+        /**
+         * Share of lookups served without decoding, counting soft-reference hits
+         */
+        public double getHitRate() {
+            long lookups = hits + softHits + misses;
+            return lookups > 0 ? (double) (hits + softHits) / lookups * 100 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ImageCacheStats{hits=%d, softHits=%d, misses=%d, hitRate=%.1f%%, "
+                    + "entries=%d, softEntries=%d, pixelMemory=%.1fMB}",
+                    hits, softHits, misses, getHitRate(), strongEntries, softEntries, strongBytes / 1024.0 / 1024.0);
+        }
+    }
+}
@@ -16,6 +16,11 @@ public class ProfileImageUtil {
     private static final int MAX_IMAGE_SIZE = 300; // Maximum width/height in pixels
     private static final long MAX_FILE_SIZE = 2 * 1024 * 1024; // 2MB in bytes
     
+    // Thumbnail bounds, sized for the largest list view that shows them
+    public static final int PROFILE_THUMBNAIL_SIZE = 100;
+    public static final int POST_THUMBNAIL_WIDTH = 400;
+    public static final int POST_THUMBNAIL_HEIGHT = 300;
+    
     /**
      * Open file chooser dialog for selecting an image
      */
@@ -126,6 +131,62 @@ public class ProfileImageUtil {
         return resizedImage;
     }
     
+    /**
+     * Create a JPEG thumbnail that fits within the given bounds, keeping the aspect ratio.
+     * Called once when an image is uploaded so list views never decode the original.
+     * Returns null if the data is not a readable image.
+     */
+    public static byte[] createThumbnail(byte[] imageData, int maxWidth, int maxHeight) {
+        if (imageData == null || imageData.length == 0) {
+            return null;
+        }
+        
+        try {
+            BufferedImage original = ImageIO.read(new ByteArrayInputStream(imageData));
+            if (original == null) {
+                return null;
+            }
+            
+            double scale = Math.min(1.0, Math.min((double) maxWidth / original.getWidth(),
+                                                  (double) maxHeight / original.getHeight()));
+            int width = Math.max(1, (int) Math.round(original.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(original.getHeight() * scale));
+            
+            // RGB on white so transparent PNGs and GIFs encode cleanly as JPEG
+            BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = thumbnail.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, width, height);
+            g2d.drawImage(original, 0, 0, width, height, null);
+            g2d.dispose();
+            
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ImageIO.write(thumbnail, "jpg", baos);
+            return baos.toByteArray();
+            
+        } catch (IOException e) {
+            System.err.println("Error creating thumbnail: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Create the thumbnail stored alongside a profile image
+     */
+    public static byte[] createProfileThumbnail(byte[] imageData) {
+        return createThumbnail(imageData, PROFILE_THUMBNAIL_SIZE, PROFILE_THUMBNAIL_SIZE);
+    }
+    
+    /**
+     * Load a list-view icon from the stored thumbnail, falling back to the original
+     * for images uploaded before thumbnails existed
+     */
+    public static ImageIcon loadThumbnailFromBytes(byte[] thumbnail, byte[] original, int width, int height) {
+        return loadProfileImageFromBytes(thumbnail != null ? thumbnail : original, width, height);
+    }
+    
     /**
      * Get image format from filename
      */
@@ -140,13 +201,20 @@ public class ProfileImageUtil {
     }
     
     /**
-     * Load profile image from binary data as ImageIcon
+     * Load profile image from binary data as ImageIcon.
+     * Decoded icons are shared through {@link ImageCache}, so callers must not modify them.
      */
     public static ImageIcon loadProfileImageFromBytes(byte[] imageData, int width, int height) {
         if (imageData == null || imageData.length == 0) {
-            return createDefaultProfileIcon(width, height);
+            return ImageCache.getInstance().get("default-profile", width, height,
+                    () -> createDefaultProfileIcon(width, height));
         }
         
+        return ImageCache.getInstance().get(ImageCache.contentKey(imageData), width, height,
+                () -> decodeScaled(imageData, width, height));
+    }
+    
+    private static ImageIcon decodeScaled(byte[] imageData, int width, int height) {
         try {
             ByteArrayInputStream bais = new ByteArrayInputStream(imageData);
             BufferedImage img = ImageIO.read(bais);
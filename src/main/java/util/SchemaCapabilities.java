@@ -0,0 +1,134 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records which optional tables and columns exist in the connected database.
+ * The schema is introspected once through DatabaseMetaData so DAOs can choose
+ * the right SQL up front instead of trying a statement and falling back on error.
+ */
+public class SchemaCapabilities {
+
+    private static final long RETRY_INTERVAL_MS = 10_000;
+
+    private static volatile SchemaCapabilities instance;
+    // When a failed introspection may be retried
+    private static volatile long retryAt;
+
+    // table name -> column names, all lower case
+    private final Map<String, Set<String>> columnsByTable;
+    private final Set<String> extensions;
+    private final boolean introspected;
+
+    private SchemaCapabilities(Map<String, Set<String>> columnsByTable, Set<String> extensions, boolean introspected) {
+        this.columnsByTable = columnsByTable;
+        this.extensions = extensions;
+        this.introspected = introspected;
+    }
+
+    /**
+     * Get the cached capabilities, introspecting the schema on first use. A failed
+     * introspection is not kept: it is retried on a later call, at most every few seconds
+     * so DAOs do not each wait on an unreachable database.
+     */
+    public static SchemaCapabilities get() {
+        SchemaCapabilities current = instance;
+        if (current == null || (!current.introspected && System.currentTimeMillis() >= retryAt)) {
+            synchronized (SchemaCapabilities.class) {
+                current = instance;
+                if (current == null || (!current.introspected && System.currentTimeMillis() >= retryAt)) {
+                    current = load();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Re-read the schema, e.g. after DatabaseInitializer has created or migrated tables
+     */
+    public static synchronized SchemaCapabilities refresh() {
+        instance = load();
+        return instance;
+    }
+
+    private static SchemaCapabilities load() {
+        Map<String, Set<String>> columns = new HashMap<>();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            try (ResultSet rs = metaData.getColumns(null, conn.getSchema(), "%", "%")) {
+                while (rs.next()) {
+                    String table = rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT);
+                    String column = rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT);
+                    columns.computeIfAbsent(table, t -> new HashSet<>()).add(column);
+                }
+            }
+            Set<String> extensions = new HashSet<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT extname FROM pg_extension")) {
+                while (rs.next()) {
+                    extensions.add(rs.getString("extname"));
+                }
+            }
+            return new SchemaCapabilities(columns, extensions, true);
+        } catch (SQLException e) {
+            // Assume the current schema.sql layout until a later get() or refresh() succeeds
+            System.err.println("Error reading database schema, assuming current schema: " + e.getMessage());
+            retryAt = System.currentTimeMillis() + RETRY_INTERVAL_MS;
+            return new SchemaCapabilities(Collections.emptyMap(), Collections.emptySet(), false);
+        }
+    }
+
+    /**
+     * Check whether a table exists (always true if the schema could not be read)
+     */
+    public boolean hasTable(String table) {
+        return !introspected || columnsByTable.containsKey(table.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Check whether a column exists (always true if the schema could not be read)
+     */
+    public boolean hasColumn(String table, String column) {
+        if (!introspected) {
+            return true;
+        }
+        Set<String> columns = columnsByTable.get(table.toLowerCase(Locale.ROOT));
+        return columns != null && columns.contains(column.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Attendance table has the check-out time and check-in/check-out image columns
+     */
+    public boolean hasAttendanceCheckOutAndImages() {
+        return hasColumn("attendance", "check_out_time")
+                && hasColumn("attendance", "check_in_image")
+                && hasColumn("attendance", "check_out_image");
+    }
+
+    /**
+     * Check whether a PostgreSQL extension is installed (false if the schema could not be read,
+     * since queries that depend on one fail outright without it)
+     */
+    public boolean hasExtension(String name) {
+        return extensions.contains(name);
+    }
+
+    /**
+     * Students have the folded search_name column with a pg_trgm index on it
+     */
+    public boolean hasStudentTrigramSearch() {
+        return hasExtension("pg_trgm") && hasColumn("students", "search_name");
+    }
+}
@@ -0,0 +1,214 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory token index for accent-insensitive search over rows already loaded in the UI.
+ *
+ * Each entry's text is folded with TextNormalizer and split into words. Query words are
+ * matched as substrings of an entry's words, and an entry matches when every query word
+ * does, so "tran an" finds "Trần Văn An". Words of three letters or more are looked up
+ * through a trigram index and checked against the entry's words; shorter ones scan the
+ * dictionary of distinct words. Entries are added, replaced and removed one at a time.
+ *
+ * Not thread-safe; the management panels use it on the event dispatch thread only.
+ */
+public class SearchIndex<K> {
+
+    private static final int GRAM = 3;
+
+    private final Map<K, String[]> entryWords = new HashMap<>();
+    private final Map<String, Set<K>> wordPostings = new HashMap<>();
+    private final Map<String, Set<K>> gramPostings = new HashMap<>();
+
+    /**
+     * Index an entry, replacing the text previously indexed under the key
+     */
+    public void put(K key, String text) {
+        remove(key);
+        String folded = TextNormalizer.fold(text);
+        String[] words = folded.isEmpty() ? new String[0] : folded.split(" ");
+        entryWords.put(key, words);
+        for (String word : words) {
+            wordPostings.computeIfAbsent(word, w -> new HashSet<>()).add(key);
+            for (String gram : grams(word)) {
+                gramPostings.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+            }
+        }
+    }
+
+    /**
+     * Remove an entry; unknown keys are ignored
+     */
+    public void remove(K key) {
+        String[] words = entryWords.remove(key);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Set<K> keys = wordPostings.get(word);
+            if (keys == null || !keys.remove(key)) {
+                continue; // Word repeated in the same entry, already removed
+            }
+            if (keys.isEmpty()) {
+                wordPostings.remove(word);
+            }
+            for (String gram : grams(word)) {
+                Set<K> gramKeys = gramPostings.get(gram);
+                if (gramKeys != null && gramKeys.remove(key) && gramKeys.isEmpty()) {
+                    gramPostings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove every entry
+     */
+    public void clear() {
+        entryWords.clear();
+        wordPostings.clear();
+        gramPostings.clear();
+    }
+
+    public int size() {
+        return entryWords.size();
+    }
+
+    public boolean contains(K key) {
+        return entryWords.containsKey(key);
+    }
+
+    /**
+     * Keys of the entries matching every word of the query; a blank query matches every entry
+     */
+    public Set<K> search(String query) {
+        String folded = TextNormalizer.fold(query);
+        if (folded.isEmpty()) {
+            return new HashSet<>(entryWords.keySet());
+        }
+        String[] terms = folded.split(" ");
+        // Longest words first: they have the fewest candidates
+        Arrays.sort(terms, (a, b) -> b.length() - a.length());
+
+        Set<K> result = null;
+        for (String term : terms) {
+            result = match(term, result);
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether one entry matches the query, without searching the whole index
+     */
+    public boolean matches(K key, String query) {
+        if (!entryWords.containsKey(key)) {
+            return false;
+        }
+        String folded = TextNormalizer.fold(query);
+        if (folded.isEmpty()) {
+            return true;
+        }
+        for (String term : folded.split(" ")) {
+            if (!hasWordContaining(key, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Entries with a word containing the term, limited to the candidates if given
+     */
+    private Set<K> match(String term, Set<K> candidates) {
+        Set<K> matches = new HashSet<>();
+        if (term.length() < GRAM) {
+            for (Map.Entry<String, Set<K>> posting : wordPostings.entrySet()) {
+                if (posting.getKey().contains(term)) {
+                    addAll(matches, posting.getValue(), candidates);
+                }
+            }
+            return matches;
+        }
+
+        Set<K> smallest = null;
+        List<Set<K>> postings = new ArrayList<>();
+        for (String gram : grams(term)) {
+            Set<K> keys = gramPostings.get(gram);
+            if (keys == null) {
+                return matches;
+            }
+            postings.add(keys);
+            if (smallest == null || keys.size() < smallest.size()) {
+                smallest = keys;
+            }
+        }
+        if (candidates != null && candidates.size() < smallest.size()) {
+            smallest = candidates;
+        }
+        for (K key : smallest) {
+            if ((candidates == null || candidates.contains(key)) && inAll(key, postings) && hasWordContaining(key, term)) {
+                matches.add(key);
+            }
+        }
+        return matches;
+    }
+
+    private boolean inAll(K key, List<Set<K>> postings) {
+        for (Set<K> keys : postings) {
+            if (!keys.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The trigrams only narrow the candidates: they may come from different words of the entry
+     */
+    private boolean hasWordContaining(K key, String term) {
+        String[] words = entryWords.get(key);
+        if (words == null) {
+            return false;
+        }
+        for (String word : words) {
+            if (word.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <K> void addAll(Set<K> target, Set<K> keys, Set<K> candidates) {
+        if (candidates == null) {
+            target.addAll(keys);
+            return;
+        }
+        for (K key : keys) {
+            if (candidates.contains(key)) {
+                target.add(key);
+            }
+        }
+    }
+
+    private static Set<String> grams(String word) {
+        if (word.length() < GRAM) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            grams.add(word.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
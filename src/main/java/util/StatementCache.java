@@ -0,0 +1,246 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical pooled connection.
+ * Statements are keyed by SQL text, so a DAO that prepares the same query on a
+ * reused connection gets the already-created statement object back.
+ *
+ * Off by default: pgjdbc already keeps the server-side prepared statements of each
+ * connection in its own cache (preparedStatementCacheQueries), so this only saves the
+ * driver-side statement objects. Enable it with db.pool.statementCacheSize for drivers
+ * without such a cache.
+ *
+ * Only touched by the thread currently leasing the connection, so it is not synchronized.
+ */
+class StatementCache {
+
+    /**
+     * Hit/miss counters shared by every cache in a pool
+     */
+    static class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+    // Access-ordered, so iteration starts at the least recently used statement
+    private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    // Statements handed out during the current lease
+    private final List<CachedStatement> checkedOut = new ArrayList<>();
+
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+    }
+
+    /**
+     * Return a cached statement for the SQL, preparing and caching it on a miss
+     */
+    PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            counters.hits.incrementAndGet();
+            return checkOut(cached, owner);
+        }
+
+        counters.misses.incrementAndGet();
+        PreparedStatement stmt = physical.prepareStatement(sql, autoGeneratedKeys);
+
+        // Same SQL already open on this connection, or no room: hand out an uncached statement
+        if (cached != null || (statements.size() >= maxSize && !evictOne())) {
+            return stmt;
+        }
+
+        cached = new CachedStatement(key, stmt);
+        statements.put(key, cached);
+        return checkOut(cached, owner);
+    }
+
+    private PreparedStatement checkOut(CachedStatement cached, Connection owner) {
+        cached.inUse = true;
+        cached.generation++;
+        checkedOut.add(cached);
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new StatementHandler(cached, owner));
+    }
+
+    /**
+     * Drop the least recently used idle statement
+     */
+    private boolean evictOne() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (it.hasNext()) {
+            CachedStatement candidate = it.next();
+            if (!candidate.inUse) {
+                it.remove();
+                counters.evictions.incrementAndGet();
+                closeQuietly(candidate.physical);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called when the connection goes back to the pool: reclaim statements the borrower never closed
+     */
+    void releaseAll() {
+        for (CachedStatement cached : new ArrayList<>(checkedOut)) {
+            giveBack(cached);
+        }
+        checkedOut.clear();
+    }
+
+    private void giveBack(CachedStatement cached) {
+        checkedOut.remove(cached);
+        cached.inUse = false;
+        try {
+            ResultSet open = cached.physical.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            // closeOnCompletion cannot be switched off again, and may already have closed it
+            if (cached.physical.isClosed() || cached.physical.isCloseOnCompletion()) {
+                throw new SQLException("Statement cannot be reused");
+            }
+            // Put back every setting a borrower can change, so none leaks to the next one
+            cached.physical.clearParameters();
+            cached.physical.clearBatch();
+            cached.physical.clearWarnings();
+            cached.physical.setFetchSize(0);
+            cached.physical.setMaxRows(0);
+            cached.physical.setMaxFieldSize(0);
+            cached.physical.setQueryTimeout(0);
+            cached.physical.setFetchDirection(ResultSet.FETCH_FORWARD);
+            cached.physical.setEscapeProcessing(true);
+            cached.physical.setPoolable(true);
+        } catch (SQLException e) {
+            // A statement that cannot be reset is not worth keeping
+            statements.remove(cached.key);
+            closeQuietly(cached.physical);
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // Ignore, the statement is being discarded
+        }
+    }
+
+    private static class CachedStatement {
+        final String key;
+        final PreparedStatement physical;
+        boolean inUse;
+        // Bumped on every checkout so proxies from earlier checkouts stay dead
+        int generation;
+
+        CachedStatement(String key, PreparedStatement physical) {
+            this.key = key;
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * Proxy handler for one checkout; close() puts the statement back in the cache
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection owner;
+        private final int generation;
+        private boolean closed;
+
+        StatementHandler(CachedStatement cached, Connection owner) {
+            this.cached = cached;
+            this.owner = owner;
+            this.generation = cached.generation;
+        }
+
+        private boolean isLive() {
+            return !closed && cached.inUse && cached.generation == generation;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (isLive()) {
+                        giveBack(cached);
+                    }
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return !isLive() || cached.physical.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.physical + "]";
+                default:
+                    break;
+            }
+            if (!isLive()) {
+                throw new SQLException("Statement has already been closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(cached.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // Result sets must lead back to this proxy, not to the cached physical statement
+            return result instanceof ResultSet ? wrapResultSet((ResultSet) result, (Statement) proxy) : result;
+        }
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, Statement statement) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getStatement":
+                            return statement;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(resultSet, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,50 @@
+package util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Folds text for accent-insensitive search: Vietnamese diacritics are removed (đ becomes d),
+ * letters are lower-cased and runs of whitespace become one space, so "Trần Văn  An" and
+ * "tran van an" fold to the same string.
+ *
+ * For Vietnamese text this gives the same result as the students.search_name column,
+ * which folds names the same way in SQL.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("[\\u0300-\\u036f]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Fold text for search; null becomes the empty string
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        if (isFolded(text)) {
+            return text; // Plain lower-case ASCII, the common case for typed queries
+        }
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        stripped = stripped.replace('đ', 'd').replace('Đ', 'D');
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static boolean isFolded(String text) {
+        char previous = ' ';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean plain = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (c == ' ' && previous != ' ');
+            if (!plain) {
+                return false;
+            }
+            previous = c;
+        }
+        return previous != ' ';
+    }
+}
@@ -0,0 +1,360 @@
+-- =====================================================
+-- INCREMENTAL MIGRATIONS
+-- Applied at start-up once per version of this file (see DatabaseInitializer.migrateDatabase);
+-- every statement must be idempotent so databases created by older versions of schema.sql
+-- are brought up to date.
+-- =====================================================
+
+-- Thumbnails generated at upload time for list views
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS photo_thumbnail BYTEA;
+ALTER TABLE students ADD COLUMN IF NOT EXISTS profile_thumbnail BYTEA;
+
+-- Parent display names are looked up by user in the conversation list
+CREATE INDEX IF NOT EXISTS idx_parents_user_id ON parents(user_id);
+
+-- Per-participant unread counters, backfilled from chat_messages when first added
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'conversations'
+                     AND column_name = 'participant1_unread') THEN
+        ALTER TABLE conversations
+            ADD COLUMN participant1_unread INTEGER NOT NULL DEFAULT 0,
+            ADD COLUMN participant2_unread INTEGER NOT NULL DEFAULT 0;
+        UPDATE conversations c SET
+            participant1_unread = (SELECT COUNT(*) FROM chat_messages cm
+                                   WHERE cm.conversation_id = c.id AND cm.is_read = false
+                                     AND cm.sender_id != c.participant1_id),
+            participant2_unread = (SELECT COUNT(*) FROM chat_messages cm
+                                   WHERE cm.conversation_id = c.id AND cm.is_read = false
+                                     AND cm.sender_id != c.participant2_id);
+    END IF;
+END $$;
+
+-- Keyset paging of the post feed by author and by class
+CREATE INDEX IF NOT EXISTS idx_posts_author_feed ON posts(author_id, post_type, is_pinned, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_posts_class_feed ON posts(class_id, post_type, is_pinned, created_at, id);
+
+-- Approved comment counter on posts, backfilled when first added; the views that used to
+-- count comments with a join are recreated to read it
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'posts'
+                     AND column_name = 'comment_count') THEN
+        ALTER TABLE posts ADD COLUMN comment_count INTEGER NOT NULL DEFAULT 0;
+        UPDATE posts p SET comment_count = (SELECT COUNT(*) FROM comments cm
+                                            WHERE cm.post_id = p.id AND cm.is_approved = true);
+
+        DROP VIEW IF EXISTS class_activities;
+        DROP VIEW IF EXISTS school_announcements;
+        DROP VIEW IF EXISTS posts_with_details;
+
+        CREATE VIEW class_activities AS
+        SELECT 
+            p.id,
+            p.title,
+            p.content,
+            p.author_id,
+            u.username AS author_name,
+            p.class_id,
+            c.name AS class_name,
+            p.photo_attachment,
+            p.photo_filename,
+            p.scheduled_date,
+            p.visibility,
+            p.is_published,
+            p.created_at,
+            p.updated_at,
+            p.comment_count
+        FROM posts p
+        JOIN users u ON p.author_id = u.id
+        LEFT JOIN classes c ON p.class_id = c.id
+        WHERE p.post_type = 'CLASS_ACTIVITY'
+        ORDER BY p.created_at DESC;
+
+        CREATE VIEW school_announcements AS
+        SELECT 
+            p.id,
+            p.title,
+            p.content,
+            p.author_id,
+            u.username AS author_name,
+            p.category,
+            p.event_date,
+            p.photo_attachment,
+            p.photo_filename,
+            p.scheduled_date,
+            p.visibility,
+            p.is_published,
+            p.is_pinned,
+            p.created_at,
+            p.updated_at,
+            p.comment_count
+        FROM posts p
+        JOIN users u ON p.author_id = u.id
+        WHERE p.post_type = 'SCHOOL_ANNOUNCEMENT'
+        ORDER BY p.is_pinned DESC, p.created_at DESC;
+
+        CREATE VIEW posts_with_details AS
+        SELECT 
+            p.id,
+            p.title,
+            p.content,
+            p.author_id,
+            u.username AS author_name,
+            p.class_id,
+            c.name AS class_name,
+            p.post_type,
+            p.category,
+            p.event_date,
+            p.photo_attachment,
+            p.photo_filename,
+            p.scheduled_date,
+            p.visibility,
+            p.is_published,
+            p.is_pinned,
+            p.created_at,
+            p.updated_at,
+            p.comment_count,
+            -- Helper columns for display
+            CASE 
+                WHEN p.post_type = 'SCHOOL_ANNOUNCEMENT' THEN 'School Announcement'
+                ELSE 'Class Activity'
+            END AS post_type_display,
+            CASE 
+                WHEN p.category = 'EVENT' THEN 'Event'
+                WHEN p.category = 'HOLIDAY' THEN 'Holiday'
+                WHEN p.category = 'SCHEDULE' THEN 'Schedule Change'
+                WHEN p.category = 'GENERAL' THEN 'General'
+                ELSE ''
+            END AS category_display,
+            CASE 
+                WHEN p.event_date IS NOT NULL AND p.event_date > CURRENT_DATE THEN true
+                ELSE false
+            END AS is_upcoming_event
+        FROM posts p
+        JOIN users u ON p.author_id = u.id
+        LEFT JOIN classes c ON p.class_id = c.id
+        ORDER BY 
+            CASE WHEN p.post_type = 'SCHOOL_ANNOUNCEMENT' THEN p.is_pinned ELSE false END DESC,
+            p.created_at DESC;
+    END IF;
+END $$;
+
+-- School announcements are paged across all authors by type; replaces the index without the id tie-breaker
+DROP INDEX IF EXISTS idx_posts_type_pinned;
+CREATE INDEX IF NOT EXISTS idx_posts_type_feed ON posts(post_type, is_pinned, created_at, id);
+
+-- Content-addressed blob store: post photos and chat attachments move out of their rows into
+-- blobs, one copy per distinct content, and the rows keep only the SHA-256
+CREATE TABLE IF NOT EXISTS blobs (
+    hash CHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    data BYTEA,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    released_at TIMESTAMP
+);
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS photo_hash CHAR(64) REFERENCES blobs(hash);
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS attachment_hash CHAR(64) REFERENCES blobs(hash);
+CREATE INDEX IF NOT EXISTS idx_posts_photo_hash ON posts(photo_hash);
+CREATE INDEX IF NOT EXISTS idx_chat_messages_attachment_hash ON chat_messages(attachment_hash);
+
+DO $$
+DECLARE
+    moved BOOLEAN := false;
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'posts'
+                 AND column_name = 'photo_attachment') THEN
+        INSERT INTO blobs (hash, size, data)
+        SELECT DISTINCT ON (hash) hash, length(photo_attachment), photo_attachment
+        FROM (SELECT encode(sha256(photo_attachment), 'hex') AS hash, photo_attachment
+              FROM posts WHERE photo_attachment IS NOT NULL) content
+        ON CONFLICT (hash) DO NOTHING;
+        UPDATE posts SET photo_hash = encode(sha256(photo_attachment), 'hex')
+        WHERE photo_attachment IS NOT NULL;
+
+        -- The post views expose the photo column, so they are recreated around the change
+        DROP VIEW IF EXISTS class_activities;
+        DROP VIEW IF EXISTS school_announcements;
+        DROP VIEW IF EXISTS posts_with_details;
+        ALTER TABLE posts DROP COLUMN photo_attachment;
+        moved := true;
+
+            CREATE VIEW class_activities AS
+            SELECT 
+                p.id,
+                p.title,
+                p.content,
+                p.author_id,
+                u.username AS author_name,
+                p.class_id,
+                c.name AS class_name,
+                p.photo_hash,
+                p.photo_filename,
+                p.scheduled_date,
+                p.visibility,
+                p.is_published,
+                p.created_at,
+                p.updated_at,
+                p.comment_count
+            FROM posts p
+            JOIN users u ON p.author_id = u.id
+            LEFT JOIN classes c ON p.class_id = c.id
+            WHERE p.post_type = 'CLASS_ACTIVITY'
+            ORDER BY p.created_at DESC;
+
+            CREATE VIEW school_announcements AS
+            SELECT 
+                p.id,
+                p.title,
+                p.content,
+                p.author_id,
+                u.username AS author_name,
+                p.category,
+                p.event_date,
+                p.photo_hash,
+                p.photo_filename,
+                p.scheduled_date,
+                p.visibility,
+                p.is_published,
+                p.is_pinned,
+                p.created_at,
+                p.updated_at,
+                p.comment_count
+            FROM posts p
+            JOIN users u ON p.author_id = u.id
+            WHERE p.post_type = 'SCHOOL_ANNOUNCEMENT'
+            ORDER BY p.is_pinned DESC, p.created_at DESC;
+
+            CREATE VIEW posts_with_details AS
+            SELECT 
+                p.id,
+                p.title,
+                p.content,
+                p.author_id,
+                u.username AS author_name,
+                p.class_id,
+                c.name AS class_name,
+                p.post_type,
+                p.category,
+                p.event_date,
+                p.photo_hash,
+                p.photo_filename,
+                p.scheduled_date,
+                p.visibility,
+                p.is_published,
+                p.is_pinned,
+                p.created_at,
+                p.updated_at,
+                p.comment_count,
+                -- Helper columns for display
+                CASE 
+                    WHEN p.post_type = 'SCHOOL_ANNOUNCEMENT' THEN 'School Announcement'
+                    ELSE 'Class Activity'
+                END AS post_type_display,
+                CASE 
+                    WHEN p.category = 'EVENT' THEN 'Event'
+                    WHEN p.category = 'HOLIDAY' THEN 'Holiday'
+                    WHEN p.category = 'SCHEDULE' THEN 'Schedule Change'
+                    WHEN p.category = 'GENERAL' THEN 'General'
+                    ELSE ''
+                END AS category_display,
+                CASE 
+                    WHEN p.event_date IS NOT NULL AND p.event_date > CURRENT_DATE THEN true
+                    ELSE false
+                END AS is_upcoming_event
+            FROM posts p
+            JOIN users u ON p.author_id = u.id
+            LEFT JOIN classes c ON p.class_id = c.id
+            ORDER BY 
+                CASE WHEN p.post_type = 'SCHOOL_ANNOUNCEMENT' THEN p.is_pinned ELSE false END DESC,
+                p.created_at DESC;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'chat_messages'
+                 AND column_name = 'attachment') THEN
+        INSERT INTO blobs (hash, size, data)
+        SELECT DISTINCT ON (hash) hash, length(attachment), attachment
+        FROM (SELECT encode(sha256(attachment), 'hex') AS hash, attachment
+              FROM chat_messages WHERE attachment IS NOT NULL) content
+        ON CONFLICT (hash) DO NOTHING;
+        UPDATE chat_messages SET attachment_hash = encode(sha256(attachment), 'hex')
+        WHERE attachment IS NOT NULL;
+        ALTER TABLE chat_messages DROP COLUMN attachment;
+        moved := true;
+    END IF;
+
+    IF moved THEN
+        UPDATE blobs b SET ref_count =
+            (SELECT COUNT(*) FROM posts p WHERE p.photo_hash = b.hash)
+            + (SELECT COUNT(*) FROM chat_messages cm WHERE cm.attachment_hash = b.hash);
+    END IF;
+END $$;
+
+-- Attendance rollups per class and day and per student and month, backfilled from the
+-- attendance table when first created
+DO $$
+BEGIN
+    IF to_regclass('attendance_daily_rollups') IS NULL THEN
+        CREATE TABLE attendance_daily_rollups (
+            class_id INTEGER NOT NULL REFERENCES classes(id) ON DELETE CASCADE,
+            date DATE NOT NULL,
+            present_count INTEGER NOT NULL DEFAULT 0,
+            absent_count INTEGER NOT NULL DEFAULT 0,
+            late_count INTEGER NOT NULL DEFAULT 0,
+            total_count INTEGER NOT NULL DEFAULT 0,
+            PRIMARY KEY (class_id, date)
+        );
+        INSERT INTO attendance_daily_rollups (class_id, date, present_count, absent_count, late_count, total_count)
+        SELECT s.class_id, a.date,
+               COUNT(*) FILTER (WHERE a.status = 'PRESENT'), COUNT(*) FILTER (WHERE a.status = 'ABSENT'),
+               COUNT(*) FILTER (WHERE a.status = 'LATE'), COUNT(*)
+        FROM attendance a JOIN students s ON a.student_id = s.id
+        WHERE s.class_id IS NOT NULL
+        GROUP BY s.class_id, a.date;
+    END IF;
+
+    IF to_regclass('attendance_monthly_rollups') IS NULL THEN
+        CREATE TABLE attendance_monthly_rollups (
+            student_id INTEGER NOT NULL REFERENCES students(id) ON DELETE CASCADE,
+            month DATE NOT NULL,
+            present_days INTEGER NOT NULL DEFAULT 0,
+            absent_days INTEGER NOT NULL DEFAULT 0,
+            late_days INTEGER NOT NULL DEFAULT 0,
+            total_days INTEGER NOT NULL DEFAULT 0,
+            PRIMARY KEY (student_id, month)
+        );
+        INSERT INTO attendance_monthly_rollups (student_id, month, present_days, absent_days, late_days, total_days)
+        SELECT student_id, date_trunc('month', date)::date,
+               COUNT(*) FILTER (WHERE status = 'PRESENT'), COUNT(*) FILTER (WHERE status = 'ABSENT'),
+               COUNT(*) FILTER (WHERE status = 'LATE'), COUNT(*)
+        FROM attendance
+        GROUP BY student_id, date_trunc('month', date);
+    END IF;
+END $$;
+
+-- Accent-insensitive student search: the name folded like util.TextNormalizer, indexed for
+-- LIKE and similarity matching when pg_trgm can be installed
+ALTER TABLE students ADD COLUMN IF NOT EXISTS search_name TEXT GENERATED ALWAYS AS (
+    btrim(regexp_replace(lower(regexp_replace(
+        translate(name, 'àáảãạăằắẳẵặâầấẩẫậèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵđÀÁẢÃẠĂẰẮẲẴẶÂẦẤẨẪẬÈÉẺẼẸÊỀẾỂỄỆÌÍỈĨỊÒÓỎÕỌÔỒỐỔỖỘƠỜỚỞỠỢÙÚỦŨỤƯỪỨỬỮỰỲÝỶỸỴĐ',
+                        'aaaaaaaaaaaaaaaaaeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyydAAAAAAAAAAAAAAAAAEEEEEEEEEEEIIIIIOOOOOOOOOOOOOOOOOUUUUUUUUUUUYYYYYD'),
+        '[\u0300-\u036f]', '', 'g')), '\s+', ' ', 'g'))
+) STORED;
+
+DO $$
+BEGIN
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+    CREATE INDEX IF NOT EXISTS idx_students_search_name_trgm ON students USING gin (search_name gin_trgm_ops);
+EXCEPTION WHEN OTHERS THEN
+    -- Not allowed for this role; StudentDAO.searchByName falls back to a scan of search_name
+    RAISE NOTICE 'pg_trgm unavailable, student search is not indexed: %', SQLERRM;
+END $$;
+
+-- Chat history is paged on the (sent_at, id) cursor; replaces the index without the id tie-breaker
+DROP INDEX IF EXISTS idx_chat_messages_conversation;
+CREATE INDEX IF NOT EXISTS idx_chat_messages_keyset ON chat_messages(conversation_id, sent_at, id);
@@ -4,6 +4,9 @@
 -- =====================================================
 
 -- Drop tables if they exist (for clean reinstall)
+DROP TABLE IF EXISTS schema_migrations CASCADE; -- A fresh schema gets migrations.sql applied again
+DROP TABLE IF EXISTS attendance_daily_rollups CASCADE;
+DROP TABLE IF EXISTS attendance_monthly_rollups CASCADE;
 DROP TABLE IF EXISTS attendance CASCADE;
 DROP TABLE IF EXISTS chat_messages CASCADE;
 DROP TABLE IF EXISTS conversations CASCADE;
@@ -15,6 +18,7 @@ DROP TABLE IF EXISTS parents CASCADE;
 DROP TABLE IF EXISTS classes CASCADE;
 DROP TABLE IF EXISTS schools CASCADE;
 DROP TABLE IF EXISTS users CASCADE;
+DROP TABLE IF EXISTS blobs CASCADE;
 
 -- =====================================================
 -- CORE TABLES - WEEK 1 FOUNDATION
@@ -63,7 +67,15 @@ CREATE TABLE students (
     class_id INTEGER REFERENCES classes(id),
     address TEXT,
     profile_image BYTEA, -- Binary data for profile image
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    profile_thumbnail BYTEA, -- Small version of profile_image for lists
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Name without Vietnamese diacritics, lower case, for accent-insensitive search (see util.TextNormalizer)
+    search_name TEXT GENERATED ALWAYS AS (
+        btrim(regexp_replace(lower(regexp_replace(
+            translate(name, 'àáảãạăằắẳẵặâầấẩẫậèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵđÀÁẢÃẠĂẰẮẲẴẶÂẦẤẨẪẬÈÉẺẼẸÊỀẾỂỄỆÌÍỈĨỊÒÓỎÕỌÔỒỐỔỖỘƠỜỚỞỠỢÙÚỦŨỤƯỪỨỬỮỰỲÝỶỸỴĐ',
+                            'aaaaaaaaaaaaaaaaaeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyydAAAAAAAAAAAAAAAAAEEEEEEEEEEEIIIIIOOOOOOOOOOOOOOOOOUUUUUUUUUUUYYYYYD'),
+            '[\u0300-\u036f]', '', 'g')), '\s+', ' ', 'g'))
+    ) STORED
 );
 
 -- Parents Table (Basic parent information)
@@ -82,6 +94,16 @@ CREATE TABLE parents (
 -- COMMUNICATION FEATURES - WEEK 2
 -- =====================================================
 
+-- Blobs Table (Content-addressed photos and attachments, shared by every row that stores the same bytes)
+CREATE TABLE blobs (
+    hash CHAR(64) PRIMARY KEY, -- Hex SHA-256 of the content
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0, -- Rows referencing this blob, maintained by BlobStore
+    data BYTEA, -- Content for the database backend; NULL when held by the filesystem backend
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    released_at TIMESTAMP -- When ref_count last dropped to 0; unreferenced blobs are removed after a grace period
+);
+
 -- Posts Table (Academic posts/portfolio - Teachers create, Parents view)
 -- Enhanced to support both Class Activities and School Announcements
 CREATE TABLE posts (
@@ -92,13 +114,15 @@ CREATE TABLE posts (
     class_id INTEGER REFERENCES classes(id), -- Class this post belongs to (NULL for school announcements)
     post_type VARCHAR(50) NOT NULL DEFAULT 'CLASS_ACTIVITY' CHECK (post_type IN ('CLASS_ACTIVITY', 'SCHOOL_ANNOUNCEMENT')),
     category VARCHAR(50) CHECK (category IN ('GENERAL', 'EVENT', 'HOLIDAY', 'SCHEDULE')), -- For announcements
-    photo_attachment BYTEA, -- Binary data for photo uploads
+    photo_hash CHAR(64) REFERENCES blobs(hash), -- Uploaded photo, stored in the blob store
+    photo_thumbnail BYTEA, -- Small version of the photo for the post feed
     photo_filename VARCHAR(255), -- Original filename for the photo
     scheduled_date DATE, -- For scheduling posts in advance (NULL for immediate)
     event_date DATE, -- For announcements: when the event will happen
     visibility VARCHAR(20) NOT NULL DEFAULT 'ALL' CHECK (visibility IN ('ALL', 'PARENTS_ONLY', 'TEACHERS_ONLY')),
     is_published BOOLEAN NOT NULL DEFAULT true,
     is_pinned BOOLEAN NOT NULL DEFAULT false, -- For important announcements
+    comment_count INTEGER NOT NULL DEFAULT 0, -- Approved comments, maintained by CommentDAO
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
@@ -122,6 +146,8 @@ CREATE TABLE conversations (
     last_message TEXT,
     last_message_at TIMESTAMP,
     is_active BOOLEAN NOT NULL DEFAULT true,
+    participant1_unread INTEGER NOT NULL DEFAULT 0, -- Messages participant1 has not read, kept by ChatMessageDAO
+    participant2_unread INTEGER NOT NULL DEFAULT 0, -- Messages participant2 has not read
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT unique_participants UNIQUE(participant1_id, participant2_id),
     CONSTRAINT different_participants CHECK(participant1_id != participant2_id),
@@ -134,7 +160,7 @@ CREATE TABLE chat_messages (
     conversation_id INTEGER NOT NULL REFERENCES conversations(id) ON DELETE CASCADE,
     sender_id INTEGER NOT NULL REFERENCES users(id),
     content TEXT NOT NULL DEFAULT '',
-    attachment BYTEA,
+    attachment_hash CHAR(64) REFERENCES blobs(hash), -- Attachment, stored in the blob store
     attachment_filename VARCHAR(255),
     attachment_mime_type VARCHAR(100),
     is_read BOOLEAN NOT NULL DEFAULT false,
@@ -162,6 +188,28 @@ CREATE TABLE attendance (
     UNIQUE(student_id, date)
 );
 
+-- Attendance counts per class and day, kept in step by AttendanceDAO
+CREATE TABLE attendance_daily_rollups (
+    class_id INTEGER NOT NULL REFERENCES classes(id) ON DELETE CASCADE,
+    date DATE NOT NULL,
+    present_count INTEGER NOT NULL DEFAULT 0,
+    absent_count INTEGER NOT NULL DEFAULT 0,
+    late_count INTEGER NOT NULL DEFAULT 0,
+    total_count INTEGER NOT NULL DEFAULT 0, -- Students with a record that day
+    PRIMARY KEY (class_id, date)
+);
+
+-- Attendance counts per student and month (month = first day of the month)
+CREATE TABLE attendance_monthly_rollups (
+    student_id INTEGER NOT NULL REFERENCES students(id) ON DELETE CASCADE,
+    month DATE NOT NULL,
+    present_days INTEGER NOT NULL DEFAULT 0,
+    absent_days INTEGER NOT NULL DEFAULT 0,
+    late_days INTEGER NOT NULL DEFAULT 0,
+    total_days INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (student_id, month)
+);
+
 -- =====================================================
 -- PHYSICAL DEVELOPMENT TRACKING
 -- =====================================================
@@ -187,6 +235,7 @@ CREATE INDEX idx_users_username ON users(username);
 CREATE INDEX idx_users_role ON users(role);
 CREATE INDEX idx_students_class_id ON students(class_id);
 CREATE INDEX idx_parents_student_id ON parents(student_id);
+CREATE INDEX idx_parents_user_id ON parents(user_id); -- Parent display names by user
 CREATE INDEX idx_posts_class_id ON posts(class_id);
 CREATE INDEX idx_posts_author_id ON posts(author_id);
 CREATE INDEX idx_posts_scheduled_date ON posts(scheduled_date);
@@ -194,7 +243,10 @@ CREATE INDEX idx_posts_post_type ON posts(post_type);
 CREATE INDEX idx_posts_category ON posts(category);
 CREATE INDEX idx_posts_event_date ON posts(event_date);
 CREATE INDEX idx_posts_is_pinned ON posts(is_pinned);
-CREATE INDEX idx_posts_type_pinned ON posts(post_type, is_pinned, created_at); -- Composite index for sorting
+CREATE INDEX idx_posts_author_feed ON posts(author_id, post_type, is_pinned, created_at, id); -- Keyset paging of feeds
+CREATE INDEX idx_posts_class_feed ON posts(class_id, post_type, is_pinned, created_at, id);
+CREATE INDEX idx_posts_type_feed ON posts(post_type, is_pinned, created_at, id); -- School announcements across authors
+CREATE INDEX idx_posts_photo_hash ON posts(photo_hash); -- Blob reference counts
 CREATE INDEX idx_comments_post_id ON comments(post_id);
 CREATE INDEX idx_comments_author_id ON comments(author_id);
 CREATE INDEX idx_attendance_student_date ON attendance(student_id, date);
@@ -204,9 +256,10 @@ CREATE INDEX idx_physical_records_student_date ON physical_development_records(s
 CREATE INDEX idx_conversations_participant1 ON conversations(participant1_id);
 CREATE INDEX idx_conversations_participant2 ON conversations(participant2_id);
 CREATE INDEX idx_conversations_last_message ON conversations(last_message_at DESC);
-CREATE INDEX idx_chat_messages_conversation ON chat_messages(conversation_id, sent_at);
+CREATE INDEX idx_chat_messages_keyset ON chat_messages(conversation_id, sent_at, id); -- Keyset paging of history
 CREATE INDEX idx_chat_messages_sender ON chat_messages(sender_id);
 CREATE INDEX idx_chat_messages_unread ON chat_messages(conversation_id, is_read, sender_id);
+CREATE INDEX idx_chat_messages_attachment_hash ON chat_messages(attachment_hash);
 
 -- =====================================================
 -- SAMPLE DATA FOR TESTING
@@ -283,12 +336,33 @@ INSERT INTO comments (post_id, author_id, content, is_approved) VALUES
 (2, 3, 'Em sẽ chuẩn bị đầy đủ đồ dùng cho bé.', false),
 (3, 5, 'Dự án này nghe rất thú vị, con em sẽ rất thích.', true);
 
+-- Sample comments bypass CommentDAO, so count them here
+UPDATE posts p SET comment_count = (
+    SELECT COUNT(*) FROM comments cm WHERE cm.post_id = p.id AND cm.is_approved = true
+);
+
 -- Insert sample attendance
 INSERT INTO attendance (student_id, date, status, check_in_time) VALUES
 (1, CURRENT_DATE, 'PRESENT', '08:30:00'),
 (2, CURRENT_DATE, 'LATE', '08:45:00'),
 (3, CURRENT_DATE, 'ABSENT', NULL);
 
+-- Sample attendance bypasses AttendanceDAO, so roll it up here
+INSERT INTO attendance_daily_rollups (class_id, date, present_count, absent_count, late_count, total_count)
+SELECT s.class_id, a.date,
+       COUNT(*) FILTER (WHERE a.status = 'PRESENT'), COUNT(*) FILTER (WHERE a.status = 'ABSENT'),
+       COUNT(*) FILTER (WHERE a.status = 'LATE'), COUNT(*)
+FROM attendance a JOIN students s ON a.student_id = s.id
+WHERE s.class_id IS NOT NULL
+GROUP BY s.class_id, a.date;
+
+INSERT INTO attendance_monthly_rollups (student_id, month, present_days, absent_days, late_days, total_days)
+SELECT student_id, date_trunc('month', date)::date,
+       COUNT(*) FILTER (WHERE status = 'PRESENT'), COUNT(*) FILTER (WHERE status = 'ABSENT'),
+       COUNT(*) FILTER (WHERE status = 'LATE'), COUNT(*)
+FROM attendance
+GROUP BY student_id, date_trunc('month', date);
+
 -- Insert sample physical development records
 INSERT INTO physical_development_records (student_id, height_cm, weight_kg, measurement_date, recorded_by, notes) VALUES
 (1, 105.50, 18.75, '2024-01-15', 2, 'Regular growth check'),
@@ -342,20 +416,18 @@ SELECT
     u.username AS author_name,
     p.class_id,
     c.name AS class_name,
-    p.photo_attachment,
+    p.photo_hash,
     p.photo_filename,
     p.scheduled_date,
     p.visibility,
     p.is_published,
     p.created_at,
     p.updated_at,
-    COUNT(cm.id) AS comment_count
+    p.comment_count
 FROM posts p
 JOIN users u ON p.author_id = u.id
 LEFT JOIN classes c ON p.class_id = c.id
-LEFT JOIN comments cm ON p.id = cm.post_id AND cm.is_approved = true
 WHERE p.post_type = 'CLASS_ACTIVITY'
-GROUP BY p.id, u.username, c.name
 ORDER BY p.created_at DESC;
 
 -- View for school announcements
@@ -368,7 +440,7 @@ SELECT
     u.username AS author_name,
     p.category,
     p.event_date,
-    p.photo_attachment,
+    p.photo_hash,
     p.photo_filename,
     p.scheduled_date,
     p.visibility,
@@ -376,12 +448,10 @@ SELECT
     p.is_pinned,
     p.created_at,
     p.updated_at,
-    COUNT(cm.id) AS comment_count
+    p.comment_count
 FROM posts p
 JOIN users u ON p.author_id = u.id
-LEFT JOIN comments cm ON p.id = cm.post_id AND cm.is_approved = true
 WHERE p.post_type = 'SCHOOL_ANNOUNCEMENT'
-GROUP BY p.id, u.username
 ORDER BY p.is_pinned DESC, p.created_at DESC;
 
 -- View for all posts with type information
@@ -397,7 +467,7 @@ SELECT
     p.post_type,
     p.category,
     p.event_date,
-    p.photo_attachment,
+    p.photo_hash,
     p.photo_filename,
     p.scheduled_date,
     p.visibility,
@@ -405,7 +475,7 @@ SELECT
     p.is_pinned,
     p.created_at,
     p.updated_at,
-    COUNT(cm.id) AS comment_count,
+    p.comment_count,
     -- Helper columns for display
     CASE 
         WHEN p.post_type = 'SCHOOL_ANNOUNCEMENT' THEN 'School Announcement'
@@ -425,8 +495,6 @@ SELECT
 FROM posts p
 JOIN users u ON p.author_id = u.id
 LEFT JOIN classes c ON p.class_id = c.id
-LEFT JOIN comments cm ON p.id = cm.post_id AND cm.is_approved = true
-GROUP BY p.id, u.username, c.name
 ORDER BY 
     CASE WHEN p.post_type = 'SCHOOL_ANNOUNCEMENT' THEN p.is_pinned ELSE false END DESC,
     p.created_at DESC;
@@ -467,8 +535,11 @@ COMMENT ON TABLE students IS 'Basic student information';
 COMMENT ON TABLE parents IS 'Parent contact information linked to students';
 COMMENT ON TABLE classes IS 'Kindergarten classes with assigned teachers';
 COMMENT ON TABLE posts IS 'Enhanced posts supporting both Class Activities and School Announcements with photo support, scheduling, categorization, and pinning';
+COMMENT ON TABLE blobs IS 'Content-addressed storage for post photos and chat attachments, deduplicated by SHA-256 and reference counted';
 COMMENT ON TABLE comments IS 'Parent comments on teacher posts with moderation support';
 COMMENT ON TABLE attendance IS 'Daily attendance tracking';
+COMMENT ON TABLE attendance_daily_rollups IS 'Attendance counts per class and day, kept in step by AttendanceDAO and repaired by DatabaseMaintenance';
+COMMENT ON TABLE attendance_monthly_rollups IS 'Attendance counts per student and month, kept in step by AttendanceDAO and repaired by DatabaseMaintenance';
 
 -- Column comments for the enhanced posts table
 COMMENT ON COLUMN posts.post_type IS 'Type of post: CLASS_ACTIVITY for class-specific posts, SCHOOL_ANNOUNCEMENT for school-wide announcements';
@@ -476,4 +547,5 @@ COMMENT ON COLUMN posts.category IS 'Category for school announcements: GENERAL,
 COMMENT ON COLUMN posts.event_date IS 'Date when an announced event will take place (for announcements only)';
 COMMENT ON COLUMN posts.is_pinned IS 'Whether this post should be pinned to the top (typically for important announcements)';
 COMMENT ON COLUMN posts.class_id IS 'Class this post belongs to (NULL for school-wide announcements)';
+COMMENT ON COLUMN posts.comment_count IS 'Number of approved comments, kept in step by CommentDAO and repaired by DatabaseMaintenance';
 
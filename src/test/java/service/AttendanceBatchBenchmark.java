@@ -0,0 +1,111 @@
+package service;
+
+import dao.StudentDAO;
+import model.Attendance;
+import model.Student;
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark comparing row-by-row attendance saves with the batched bulk save.
+ * Requires the sample database; writes records dated in 1990 and deletes them afterwards.
+ */
+public class AttendanceBatchBenchmark {
+
+    private static final LocalDate BENCHMARK_START = LocalDate.of(1990, 1, 1);
+    private static final int[] ROW_COUNTS = { 30, 300, 3000 };
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) {
+        System.out.println("=== Attendance Bulk Save Benchmark ===\n");
+
+        AttendanceService attendanceService = new AttendanceService();
+        List<Student> students = new StudentDAO().findAll();
+        if (students.isEmpty()) {
+            System.err.println("No students found; initialize the sample database first.");
+            return;
+        }
+
+        try {
+            // Warm up the pool, statement cache and JIT
+            saveOneByOne(attendanceService, buildRecords(students, 30));
+            attendanceService.markBulkAttendanceDetailed(buildRecords(students, 30));
+
+            System.out.printf("%8s %16s %16s %10s%n", "rows", "one-by-one (ms)", "batched (ms)", "speedup");
+            for (int rows : ROW_COUNTS) {
+                long loopNanos = Long.MAX_VALUE;
+                long batchNanos = Long.MAX_VALUE;
+
+                for (int run = 0; run < RUNS; run++) {
+                    List<Attendance> records = buildRecords(students, rows);
+                    long start = System.nanoTime();
+                    saveOneByOne(attendanceService, records);
+                    loopNanos = Math.min(loopNanos, System.nanoTime() - start);
+
+                    records = buildRecords(students, rows);
+                    start = System.nanoTime();
+                    AttendanceService.BulkAttendanceResult result = attendanceService.markBulkAttendanceDetailed(records);
+                    batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+                    if (!result.isAllSaved()) {
+                        System.err.println("   " + result.getFailedCount() + " records failed in batched run");
+                    }
+                }
+
+                System.out.printf("%8d %16.1f %16.1f %9.1fx%n", rows,
+                        loopNanos / 1_000_000.0, batchNanos / 1_000_000.0, (double) loopNanos / batchNanos);
+            }
+
+            System.out.println("\n" + DatabaseUtil.getPoolStats());
+
+        } catch (Exception e) {
+            System.err.println("Error during benchmark: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            cleanUp();
+        }
+    }
+
+    private static void saveOneByOne(AttendanceService attendanceService, List<Attendance> records) {
+        for (Attendance attendance : records) {
+            attendanceService.markAttendance(attendance);
+        }
+    }
+
+    /**
+     * One record per (student, day), spreading over as many days as needed to reach the row count
+     */
+    private static List<Attendance> buildRecords(List<Student> students, int rows) {
+        List<Attendance> records = new ArrayList<>(rows);
+        String[] statuses = { "PRESENT", "ABSENT", "LATE" };
+        for (int i = 0; i < rows; i++) {
+            Student student = students.get(i % students.size());
+            LocalDate date = BENCHMARK_START.plusDays(i / students.size());
+            Attendance attendance = new Attendance();
+            attendance.setStudentId(student.getId());
+            attendance.setStudentName(student.getName());
+            attendance.setDate(date);
+            attendance.setStatus(statuses[i % statuses.length]);
+            records.add(attendance);
+        }
+        return records;
+    }
+
+    private static void cleanUp() {
+        String sql = "DELETE FROM attendance WHERE date BETWEEN ? AND ?";
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(BENCHMARK_START));
+            stmt.setDate(2, Date.valueOf(BENCHMARK_START.plusYears(5)));
+            int deleted = stmt.executeUpdate();
+            System.out.println("Removed " + deleted + " benchmark attendance records");
+        } catch (Exception e) {
+            System.err.println("Error removing benchmark records: " + e.getMessage());
+        }
+    }
+}
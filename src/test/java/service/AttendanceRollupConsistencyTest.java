@@ -0,0 +1,180 @@
+package service;
+
+import dao.AttendanceDAO;
+import dao.AttendanceDAO.DailyRollup;
+import model.Attendance;
+import org.junit.jupiter.api.*;
+import util.DatabaseUtil;
+import util.TestDatabase;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the daily class and monthly student attendance rollups stay equal to counts
+ * taken from the attendance table through every AttendanceDAO write, and that the repair job
+ * corrects a rollup changed behind its back. Requires the sample database (students 1 and 2
+ * in class 1); skipped without one. Uses a date long before the sample records.
+ */
+public class AttendanceRollupConsistencyTest {
+
+    private static final int CLASS_ID = 1;
+    private static final int STUDENT_ID = 1;
+    private static final int OTHER_STUDENT_ID = 2;
+    private static final LocalDate DATE = LocalDate.of(2001, 1, 15);
+
+    private final AttendanceDAO attendanceDAO = new AttendanceDAO();
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(TestDatabase.isAvailable(), "Sample database not available");
+        deleteTestRecords();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TestDatabase.isAvailable()) {
+            deleteTestRecords();
+        }
+    }
+
+    @Test
+    void rollupsFollowWrites() throws SQLException {
+        assertTrue(attendanceDAO.create(record(STUDENT_ID, "PRESENT")));
+        assertConsistent(1, 0, 0);
+
+        // Saving the same day again replaces the status instead of adding a record
+        boolean[] saved = attendanceDAO.createBatch(List.of(record(STUDENT_ID, "LATE"), record(OTHER_STUDENT_ID, "ABSENT")));
+        assertArrayEquals(new boolean[] {true, true}, saved);
+        assertConsistent(0, 1, 1);
+
+        Attendance existing = attendanceDAO.findByStudentAndDate(OTHER_STUDENT_ID, DATE);
+        existing.setStatus("PRESENT");
+        assertTrue(attendanceDAO.update(existing));
+        assertConsistent(1, 0, 1);
+
+        assertTrue(attendanceDAO.delete(existing.getId()));
+        assertConsistent(0, 0, 1);
+    }
+
+    @Test
+    void studentListedTwiceIsCountedOnce() throws SQLException {
+        attendanceDAO.createBatch(List.of(record(STUDENT_ID, "ABSENT"), record(STUDENT_ID, "PRESENT")));
+        assertConsistent(1, 0, 0);
+    }
+
+    @Test
+    void repairCorrectsDriftedRollup() throws SQLException {
+        assertTrue(attendanceDAO.create(record(STUDENT_ID, "PRESENT")));
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE attendance_daily_rollups SET present_count = 42 WHERE class_id = ? AND date = ?")) {
+            stmt.setInt(1, CLASS_ID);
+            stmt.setDate(2, Date.valueOf(DATE));
+            stmt.executeUpdate();
+        }
+
+        assertTrue(attendanceDAO.recountRollups() >= 1, "Drifted rollup should be corrected");
+        assertConsistent(1, 0, 0);
+        assertEquals(0, attendanceDAO.recountRollups(), "Nothing left to correct");
+    }
+
+    @Test
+    void repairDoesNotLoseConcurrentWrite() throws Exception {
+        // An attendance write in progress, done the way AttendanceDAO does it: the student is
+        // locked, the record added and both rollups bumped, not yet committed
+        try (Connection writer = DatabaseUtil.getConnection()) {
+            writer.setAutoCommit(false);
+            execute(writer, "SELECT id FROM students WHERE id = ? FOR NO KEY UPDATE", false);
+            execute(writer, "INSERT INTO attendance (student_id, date, status) VALUES (?, ?, 'PRESENT')", true);
+            execute(writer, "WITH args (student_id, date) AS (VALUES (?, ?::date)) "
+                    + "INSERT INTO attendance_daily_rollups AS r (class_id, date, present_count, total_count) "
+                    + "SELECT s.class_id, args.date, 1, 1 FROM students s JOIN args ON s.id = args.student_id "
+                    + "ON CONFLICT (class_id, date) DO UPDATE "
+                    + "SET present_count = r.present_count + 1, total_count = r.total_count + 1", true);
+            execute(writer, "INSERT INTO attendance_monthly_rollups AS r (student_id, month, present_days, total_days) "
+                    + "VALUES (?, date_trunc('month', ?::date)::date, 1, 1) "
+                    + "ON CONFLICT (student_id, month) DO UPDATE "
+                    + "SET present_days = r.present_days + 1, total_days = r.total_days + 1", true);
+
+            Thread repair = new Thread(attendanceDAO::recountRollups);
+            repair.start();
+            repair.join(500); // Blocks on the student row the writer holds
+            writer.commit();
+            repair.join(10_000);
+            assertFalse(repair.isAlive(), "Repair should finish once the writer commits");
+        }
+
+        assertConsistent(1, 0, 0);
+    }
+
+    /**
+     * Run a statement taking the test student and, if withDate, then the test date
+     */
+    private static void execute(Connection conn, String sql, boolean withDate) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, STUDENT_ID);
+            if (withDate) {
+                stmt.setDate(2, Date.valueOf(DATE));
+            }
+            stmt.execute();
+        }
+    }
+
+    private Attendance record(int studentId, String status) {
+        return new Attendance(studentId, DATE, status, null);
+    }
+
+    /**
+     * The class rollup for the day, the students' monthly rollups and the attendance table all agree
+     */
+    private void assertConsistent(int present, int absent, int late) throws SQLException {
+        DailyRollup rollup = attendanceDAO.getClassDailyRollup(CLASS_ID, DATE);
+        assertEquals(present, rollup.getPresentCount(), "Present in class rollup");
+        assertEquals(absent, rollup.getAbsentCount(), "Absent in class rollup");
+        assertEquals(late, rollup.getLateCount(), "Late in class rollup");
+        assertEquals(present + absent + late, rollup.getTotalCount(), "Recorded in class rollup");
+        assertEquals(present + absent + late, countRecords(), "Records in the attendance table");
+        assertEquals(present + absent + late, sumMonthlyRollups(), "Days in monthly rollups");
+    }
+
+    private int countRecords() throws SQLException {
+        return queryInt("SELECT COUNT(*) FROM attendance WHERE student_id IN (?, ?) AND date = ?", true);
+    }
+
+    private int sumMonthlyRollups() throws SQLException {
+        return queryInt("SELECT COALESCE(SUM(total_days), 0) FROM attendance_monthly_rollups "
+                + "WHERE student_id IN (?, ?) AND month = ?", false);
+    }
+
+    private int queryInt(String sql, boolean exactDate) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, STUDENT_ID);
+            stmt.setInt(2, OTHER_STUDENT_ID);
+            stmt.setDate(3, Date.valueOf(exactDate ? DATE : DATE.withDayOfMonth(1)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void deleteTestRecords() {
+        for (int studentId : new int[] {STUDENT_ID, OTHER_STUDENT_ID}) {
+            Attendance attendance = attendanceDAO.findByStudentAndDate(studentId, DATE);
+            if (attendance != null) {
+                attendanceDAO.delete(attendance.getId());
+            }
+        }
+    }
+}
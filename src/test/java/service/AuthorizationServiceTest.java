@@ -1,5 +1,6 @@
 package service;
 
+import dao.TeacherDAO;
 import model.User;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -298,4 +299,25 @@ public class AuthorizationServiceTest {
             authorizationService.canAccessSchool(-1);
         }, "Permission methods should handle invalid inputs gracefully");
     }
+    
+    @Test
+    @Order(11)
+    @DisplayName("Test Class Access Follows Teacher Assignment Without Re-login")
+    void testClassAccessAfterAssignmentChange() {
+        // Sample data: teacher1 teaches class 1
+        assertTrue(authService.login("teacher1", "teacher123"), "Teacher should be able to login");
+        int teacherId = authService.getCurrentUser().getId();
+        TeacherDAO teacherDAO = new TeacherDAO();
+        assertTrue(authorizationService.canAccessClass(1), "Teacher should access their assigned class");
+        
+        try {
+            assertTrue(teacherDAO.removeTeacherFromClass(1), "Class 1 should be unassigned");
+            assertFalse(authorizationService.canAccessClass(1),
+                       "Cached access should be dropped once the teacher is unassigned");
+        } finally {
+            assertTrue(teacherDAO.assignTeacherToClass(teacherId, 1), "Class 1 should be assigned again");
+        }
+        assertTrue(authorizationService.canAccessClass(1),
+                  "Cached access should be rebuilt once the teacher is assigned again");
+    }
 }
@@ -0,0 +1,93 @@
+package service;
+
+import model.PhysicalDevelopmentRecord;
+import model.Student;
+import org.junit.jupiter.api.*;
+import service.PhysicalDevelopmentService.ClassGrowthReport;
+import service.PhysicalDevelopmentService.StudentGrowthSummary;
+import util.TestDatabase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the one-query class growth report and class records agree with the
+ * per-student lookups they replace. Requires the sample database (class 1); skipped
+ * without one. Read-only.
+ */
+public class ClassGrowthReportConsistencyTest {
+
+    private static final int CLASS_ID = 1;
+    private static final int INTERVAL_DAYS = PhysicalDevelopmentService.DEFAULT_MEASUREMENT_INTERVAL_DAYS;
+    private static final double EPSILON = 1e-9;
+
+    private final PhysicalDevelopmentService physicalService = new PhysicalDevelopmentService();
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(TestDatabase.isAvailable(), "Sample database not available");
+    }
+
+    @Test
+    void reportMatchesPerStudentLookups() {
+        ClassGrowthReport report = physicalService.getClassGrowthReport(CLASS_ID, INTERVAL_DAYS);
+        List<Student> students = new StudentService().getStudentsByClass(CLASS_ID);
+        assertEquals(students.size(), report.getStudents().size());
+
+        for (Student student : students) {
+            StudentGrowthSummary summary = report.getStudent(student.getId());
+            assertNotNull(summary, "Student " + student.getId() + " missing from report");
+
+            List<PhysicalDevelopmentRecord> history = physicalService.getStudentPhysicalHistory(student.getId());
+            assertEquals(history.size(), summary.getMeasurementCount());
+            assertEquals(physicalService.isMeasurementDue(student.getId(), INTERVAL_DAYS), summary.isMeasurementDue());
+            if (history.isEmpty()) {
+                assertNull(summary.getLatestDate());
+                continue;
+            }
+
+            PhysicalDevelopmentRecord latest = history.get(0);
+            assertEquals(latest.getMeasurementDate(), summary.getLatestDate());
+            assertEquals(latest.getHeightCm().doubleValue(), summary.getLatestHeight(), EPSILON);
+            assertEquals(latest.getWeightKg().doubleValue(), summary.getLatestWeight(), EPSILON);
+            if (history.size() > 1) {
+                PhysicalDevelopmentRecord previous = history.get(1);
+                assertEquals(latest.getHeightCm().subtract(previous.getHeightCm()).doubleValue(),
+                        summary.getHeightChange(), EPSILON);
+                assertEquals(latest.getWeightKg().subtract(previous.getWeightKg()).doubleValue(),
+                        summary.getWeightChange(), EPSILON);
+            } else {
+                assertTrue(Double.isNaN(summary.getHeightChange()));
+                assertTrue(Double.isNaN(summary.getHeightVelocity()));
+            }
+        }
+    }
+
+    @Test
+    void classRecordsMatchStudentHistories() {
+        List<PhysicalDevelopmentRecord> classRecords = physicalService.getClassPhysicalData(CLASS_ID);
+
+        List<PhysicalDevelopmentRecord> histories = new ArrayList<>();
+        for (Student student : new StudentService().getStudentsByClass(CLASS_ID)) {
+            histories.addAll(physicalService.getStudentPhysicalHistory(student.getId()));
+        }
+        assertEquals(keys(histories), keys(classRecords));
+    }
+
+    /**
+     * Record id with the previous measurement the LAG window found for it
+     */
+    private static Set<String> keys(List<PhysicalDevelopmentRecord> records) {
+        Set<String> keys = new HashSet<>();
+        for (PhysicalDevelopmentRecord record : records) {
+            keys.add(record.getId() + ":" + record.getPrevHeight() + ":" + record.getPrevWeight()
+                    + ":" + record.getAgeYears() + ":" + record.getAgeMonths());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,163 @@
+package service;
+
+import dao.CommentDAO;
+import dao.PostDAO;
+import model.Comment;
+import model.Post;
+import org.junit.jupiter.api.*;
+import util.DatabaseUtil;
+import util.TestDatabase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that posts.comment_count stays equal to the number of approved comments through
+ * every CommentDAO write, and that the repair job corrects a counter changed behind its back.
+ * Requires the sample database (teacher user 2, parent users 3 and 4); skipped without one.
+ */
+public class CommentCountConsistencyTest {
+
+    private static final int TEACHER_ID = 2;
+    private static final int PARENT_ID = 3;
+    private static final int OTHER_PARENT_ID = 4;
+
+    private final PostDAO postDAO = new PostDAO();
+    private final CommentDAO commentDAO = new CommentDAO();
+    private int postId;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(TestDatabase.isAvailable(), "Sample database not available");
+
+        Post post = new Post("Comment count test", "Temporary post for CommentCountConsistencyTest", TEACHER_ID, 1);
+        assertTrue(postDAO.createPost(post), "Test post should be created");
+        postId = post.getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (postId > 0) {
+            postDAO.deletePost(postId, TEACHER_ID); // Comments go with it (ON DELETE CASCADE)
+        }
+    }
+
+    @Test
+    void countFollowsModeration() throws SQLException {
+        Comment pending = new Comment(postId, PARENT_ID, "Pending comment");
+        assertTrue(commentDAO.createComment(pending));
+        assertConsistent(0);
+
+        Comment preApproved = new Comment(postId, OTHER_PARENT_ID, "Approved on creation");
+        preApproved.setApproved(true);
+        assertTrue(commentDAO.createComment(preApproved));
+        assertConsistent(1);
+
+        assertTrue(commentDAO.approveComment(pending.getId()));
+        assertConsistent(2);
+
+        // Approving again must not count the comment twice
+        assertTrue(commentDAO.approveComment(pending.getId()));
+        assertConsistent(2);
+
+        assertTrue(commentDAO.rejectComment(pending.getId()));
+        assertConsistent(1);
+
+        assertTrue(commentDAO.rejectComment(pending.getId()));
+        assertConsistent(1);
+
+        // Deleting an unapproved comment leaves the count alone
+        assertTrue(commentDAO.deleteComment(pending.getId(), PARENT_ID));
+        assertConsistent(1);
+
+        assertTrue(commentDAO.deleteCommentByTeacher(preApproved.getId(), TEACHER_ID));
+        assertConsistent(0);
+    }
+
+    @Test
+    void failedWritesLeaveCountUnchanged() throws SQLException {
+        Comment comment = new Comment(postId, PARENT_ID, "Approved comment");
+        comment.setApproved(true);
+        assertTrue(commentDAO.createComment(comment));
+
+        assertFalse(commentDAO.approveComment(-1), "Unknown comment cannot be approved");
+        assertFalse(commentDAO.deleteComment(comment.getId(), OTHER_PARENT_ID), "Only the author may delete");
+        assertFalse(commentDAO.deleteCommentByTeacher(comment.getId(), PARENT_ID), "Only the post author may moderate");
+        assertConsistent(1);
+    }
+
+    @Test
+    void repairCorrectsDriftedCount() throws SQLException {
+        Comment comment = new Comment(postId, PARENT_ID, "Approved comment");
+        comment.setApproved(true);
+        assertTrue(commentDAO.createComment(comment));
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE posts SET comment_count = 42 WHERE id = ?")) {
+            stmt.setInt(1, postId);
+            stmt.executeUpdate();
+        }
+
+        assertTrue(commentDAO.recountCommentCounts() >= 1, "Drifted post should be corrected");
+        assertConsistent(1);
+        assertEquals(0, commentDAO.recountCommentCounts(), "Nothing left to correct");
+    }
+
+    @Test
+    void repairDoesNotLoseConcurrentWrite() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE posts SET comment_count = 42 WHERE id = ?")) {
+            stmt.setInt(1, postId);
+            stmt.executeUpdate();
+        }
+
+        // A comment write in progress: the comment is added and the counter bumped, not yet committed
+        try (Connection writer = DatabaseUtil.getConnection()) {
+            writer.setAutoCommit(false);
+            try (PreparedStatement insert = writer.prepareStatement(
+                    "INSERT INTO comments (post_id, author_id, content, is_approved) VALUES (?, ?, 'Concurrent', true)");
+                 PreparedStatement bump = writer.prepareStatement(
+                    "UPDATE posts SET comment_count = comment_count + 1 WHERE id = ?")) {
+                insert.setInt(1, postId);
+                insert.setInt(2, PARENT_ID);
+                insert.executeUpdate();
+                bump.setInt(1, postId);
+                bump.executeUpdate();
+            }
+
+            Thread repair = new Thread(commentDAO::recountCommentCounts);
+            repair.start();
+            repair.join(500); // Blocks on the post row the writer holds
+            writer.commit();
+            repair.join(10_000);
+            assertFalse(repair.isAlive(), "Repair should finish once the writer commits");
+        }
+
+        assertConsistent(1);
+    }
+
+    /**
+     * The stored counter, the count read by PostDAO and the actual approved comments all agree
+     */
+    private void assertConsistent(int expected) throws SQLException {
+        assertEquals(expected, countApproved(), "Approved comments in the comments table");
+        assertEquals(expected, postDAO.getPostById(postId).getCommentCount(), "posts.comment_count");
+    }
+
+    private int countApproved() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM comments WHERE post_id = ? AND is_approved = true";
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, postId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package service;
+
+import dao.ConversationDAO;
+import model.Conversation;
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Benchmark comparing the previous conversation list query (correlated parent-name
+ * subqueries and an unread count over all chat messages) with ConversationDAO.getUserConversations,
+ * which looks up each parent name through idx_parents_user_id and reads the maintained unread counters.
+ * Requires the sample database; seeds one principal with 10k parent conversations under
+ * "bench_" usernames and deletes them afterwards.
+ */
+public class ConversationListBenchmark {
+
+    private static final int CONVERSATIONS = 10_000;
+    private static final int MESSAGES_PER_CONVERSATION = 4;
+    private static final int RUNS = 5;
+    private static final String PRINCIPAL_USERNAME = "bench_principal";
+    private static final String PARENT_PREFIX = "bench_parent_";
+
+    // getUserConversations as it was before the rewrite
+    private static final String LEGACY_QUERY = """
+        SELECT c.id, c.participant1_id, c.participant2_id, c.last_message,
+               c.last_message_at, c.is_active,
+               CASE
+                   WHEN u1.role = 'PARENT' THEN COALESCE(
+                       (SELECT p.name FROM parents p WHERE p.user_id = u1.id LIMIT 1),
+                       u1.username
+                   )
+                   ELSE u1.username
+               END as participant1_name, u1.role as participant1_role,
+               CASE
+                   WHEN u2.role = 'PARENT' THEN COALESCE(
+                       (SELECT p.name FROM parents p WHERE p.user_id = u2.id LIMIT 1),
+                       u2.username
+                   )
+                   ELSE u2.username
+               END as participant2_name, u2.role as participant2_role,
+               COALESCE(unread.unread_count, 0) as unread_count
+        FROM conversations c
+        JOIN users u1 ON c.participant1_id = u1.id
+        JOIN users u2 ON c.participant2_id = u2.id
+        LEFT JOIN (
+            SELECT conversation_id, COUNT(*) as unread_count
+            FROM chat_messages
+            WHERE is_read = false AND sender_id != ?
+            GROUP BY conversation_id
+        ) unread ON c.id = unread.conversation_id
+        WHERE (c.participant1_id = ? OR c.participant2_id = ?)
+              AND c.is_active = true
+        ORDER BY c.last_message_at DESC NULLS LAST
+        """;
+
+    public static void main(String[] args) {
+        System.out.println("=== Conversation List Benchmark ===\n");
+
+        ConversationDAO conversationDAO = new ConversationDAO();
+        try {
+            cleanUp();
+            int principalId = seed();
+            System.out.println("Seeded " + CONVERSATIONS + " conversations with "
+                    + CONVERSATIONS * MESSAGES_PER_CONVERSATION + " messages\n");
+
+            // Warm up the pool, statement cache and JIT
+            long legacyUnread = runLegacy(principalId);
+            List<Conversation> conversations = conversationDAO.getUserConversations(principalId);
+            long unread = conversations.stream().mapToLong(Conversation::getUnreadCount).sum();
+            if (unread != legacyUnread) {
+                System.err.println("Unread totals differ: legacy " + legacyUnread + ", new " + unread);
+            }
+
+            long legacyNanos = Long.MAX_VALUE;
+            long newNanos = Long.MAX_VALUE;
+            int rows = 0;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                runLegacy(principalId);
+                legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                rows = conversationDAO.getUserConversations(principalId).size();
+                newNanos = Math.min(newNanos, System.nanoTime() - start);
+            }
+
+            System.out.printf("%8s %14s %14s %10s%n", "rows", "legacy (ms)", "new (ms)", "speedup");
+            System.out.printf("%8d %14.1f %14.1f %9.1fx%n", rows,
+                    legacyNanos / 1_000_000.0, newNanos / 1_000_000.0, (double) legacyNanos / newNanos);
+
+            System.out.println("\n" + DatabaseUtil.getPoolStats());
+
+        } catch (Exception e) {
+            System.err.println("Error during benchmark: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            cleanUp();
+        }
+    }
+
+    /**
+     * Read the legacy query to the end; returns the total unread count
+     */
+    private static long runLegacy(int userId) throws Exception {
+        long unread = 0;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LEGACY_QUERY)) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rs.getString("participant1_name");
+                    rs.getString("participant2_name");
+                    unread += rs.getInt("unread_count");
+                }
+            }
+        }
+        return unread;
+    }
+
+    /**
+     * One principal talking to every seeded parent; each parent has two profile rows
+     * (one per child) and every conversation has a mix of read and unread messages
+     */
+    private static int seed() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO users (username, password, role, school_id) "
+                    + "VALUES ('" + PRINCIPAL_USERNAME + "', 'bench', 'PRINCIPAL', 1)");
+            stmt.executeUpdate("INSERT INTO users (username, password, role, school_id) "
+                    + "SELECT '" + PARENT_PREFIX + "' || g, 'bench', 'PARENT', 1 "
+                    + "FROM generate_series(1, " + CONVERSATIONS + ") g");
+            stmt.executeUpdate("INSERT INTO parents (user_id, name, relationship) "
+                    + "SELECT u.id, 'Phụ huynh ' || u.id, r.relationship FROM users u "
+                    + "CROSS JOIN (VALUES ('Mother'), ('Father')) r(relationship) "
+                    + "WHERE u.username LIKE '" + PARENT_PREFIX + "%'");
+            stmt.executeUpdate("INSERT INTO conversations (participant1_id, participant2_id, last_message, last_message_at) "
+                    + "SELECT LEAST(pr.id, u.id), GREATEST(pr.id, u.id), 'Xin chào', "
+                    + "CURRENT_TIMESTAMP - u.id * INTERVAL '1 minute' "
+                    + "FROM users u, users pr "
+                    + "WHERE pr.username = '" + PRINCIPAL_USERNAME + "' AND u.username LIKE '" + PARENT_PREFIX + "%'");
+            stmt.executeUpdate("INSERT INTO chat_messages (conversation_id, sender_id, content, is_read, sent_at) "
+                    + "SELECT c.id, CASE WHEN g % 2 = 0 THEN c.participant1_id ELSE c.participant2_id END, "
+                    + "'Tin nhắn ' || g, g <= 2, c.last_message_at - g * INTERVAL '1 second' "
+                    + "FROM conversations c JOIN users pr ON pr.id IN (c.participant1_id, c.participant2_id) "
+                    + "CROSS JOIN generate_series(1, " + MESSAGES_PER_CONVERSATION + ") g "
+                    + "WHERE pr.username = '" + PRINCIPAL_USERNAME + "'");
+            // Rows were inserted directly, so fill in the counters ChatMessageDAO would maintain
+            stmt.executeUpdate("UPDATE conversations c SET "
+                    + "participant1_unread = (SELECT COUNT(*) FROM chat_messages cm WHERE cm.conversation_id = c.id "
+                    + "AND cm.is_read = false AND cm.sender_id != c.participant1_id), "
+                    + "participant2_unread = (SELECT COUNT(*) FROM chat_messages cm WHERE cm.conversation_id = c.id "
+                    + "AND cm.is_read = false AND cm.sender_id != c.participant2_id) "
+                    + "WHERE c.participant1_id IN (SELECT id FROM users WHERE username = '" + PRINCIPAL_USERNAME + "') "
+                    + "OR c.participant2_id IN (SELECT id FROM users WHERE username = '" + PRINCIPAL_USERNAME + "')");
+            stmt.execute("ANALYZE users");
+            stmt.execute("ANALYZE parents");
+            stmt.execute("ANALYZE conversations");
+            stmt.execute("ANALYZE chat_messages");
+
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM users WHERE username = '" + PRINCIPAL_USERNAME + "'")) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static void cleanUp() {
+        String benchUsers = "SELECT id FROM users WHERE username = '" + PRINCIPAL_USERNAME
+                + "' OR username LIKE '" + PARENT_PREFIX + "%'";
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            // chat_messages go with their conversations (ON DELETE CASCADE)
+            int deleted = stmt.executeUpdate("DELETE FROM conversations WHERE participant1_id IN (" + benchUsers
+                    + ") OR participant2_id IN (" + benchUsers + ")");
+            stmt.executeUpdate("DELETE FROM parents WHERE user_id IN (" + benchUsers + ")");
+            stmt.executeUpdate("DELETE FROM users WHERE id IN (" + benchUsers + ")");
+            if (deleted > 0) {
+                System.out.println("Removed " + deleted + " benchmark conversations");
+            }
+        } catch (Exception e) {
+            System.err.println("Error removing benchmark data: " + e.getMessage());
+        }
+    }
+}
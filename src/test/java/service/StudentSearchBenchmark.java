@@ -0,0 +1,131 @@
+package service;
+
+import dao.StudentDAO;
+import util.DatabaseUtil;
+import util.SchemaCapabilities;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Benchmark comparing the previous student name search (LOWER(name) LIKE '%x%' over every
+ * row, returning all matches) with StudentDAO.searchByName, which matches the folded
+ * search_name column through its pg_trgm index and returns the top 50.
+ * Requires the sample database; seeds 100k students with generated Vietnamese names and
+ * the address "bench", and deletes them afterwards.
+ */
+public class StudentSearchBenchmark {
+
+    private static final int STUDENTS = 100_000;
+    private static final int LIMIT = 50;
+    private static final int RUNS = 5;
+    private static final String BENCH_ADDRESS = "bench";
+
+    private static final String[] QUERIES = {"Hoàng", "hoang", "nguyen van", "Thị Bích", "nguyn", "an"};
+
+    // searchByName as it was before the rewrite
+    private static final String LEGACY_QUERY = "SELECT s.*, c.name as class_name FROM students s "
+            + "LEFT JOIN classes c ON s.class_id = c.id "
+            + "WHERE LOWER(s.name) LIKE LOWER(?) ORDER BY s.name";
+
+    public static void main(String[] args) {
+        System.out.println("=== Student Search Benchmark ===\n");
+
+        StudentDAO studentDAO = new StudentDAO();
+        try {
+            cleanUp();
+            seed();
+            SchemaCapabilities.refresh();
+            System.out.println("Seeded " + STUDENTS + " students; trigram index "
+                    + (SchemaCapabilities.get().hasStudentTrigramSearch() ? "available" : "NOT available (scan fallback)") + "\n");
+
+            System.out.printf("%-12s %12s %14s %12s %14s %10s%n",
+                    "query", "legacy rows", "legacy (ms)", "new rows", "new (ms)", "speedup");
+            for (String query : QUERIES) {
+                // Warm up the pool, statement cache and JIT
+                runLegacy(query);
+                studentDAO.searchByName(query, LIMIT);
+
+                long legacyNanos = Long.MAX_VALUE;
+                long newNanos = Long.MAX_VALUE;
+                int legacyRows = 0;
+                int newRows = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    legacyRows = runLegacy(query);
+                    legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    newRows = studentDAO.searchByName(query, LIMIT).size();
+                    newNanos = Math.min(newNanos, System.nanoTime() - start);
+                }
+
+                System.out.printf("%-12s %12d %14.1f %12d %14.1f %9.1fx%n", query,
+                        legacyRows, legacyNanos / 1_000_000.0, newRows, newNanos / 1_000_000.0,
+                        (double) legacyNanos / newNanos);
+            }
+
+            System.out.println("\n" + DatabaseUtil.getPoolStats());
+
+        } catch (Exception e) {
+            System.err.println("Error during benchmark: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            cleanUp();
+        }
+    }
+
+    /**
+     * Read the legacy query to the end; returns the number of matches
+     */
+    private static int runLegacy(String query) throws Exception {
+        int rows = 0;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LEGACY_QUERY)) {
+            stmt.setString(1, "%" + query + "%");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rs.getString("name");
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Names drawn from common Vietnamese family, middle and given names, spread over the
+     * sample classes
+     */
+    private static void seed() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO students (name, dob, gender, class_id, address) "
+                    + "SELECT f.v[1 + g % array_length(f.v, 1)] || ' ' "
+                    + "|| m.v[1 + (g / 7) % array_length(m.v, 1)] || ' ' "
+                    + "|| n.v[1 + (g / 31) % array_length(n.v, 1)], "
+                    + "DATE '2020-01-01' + (g % 1000), CASE WHEN g % 2 = 0 THEN 'MALE' ELSE 'FEMALE' END, "
+                    + "(SELECT id FROM classes ORDER BY id LIMIT 1), '" + BENCH_ADDRESS + "' "
+                    + "FROM generate_series(1, " + STUDENTS + ") g, "
+                    + "(SELECT ARRAY['Nguyễn', 'Trần', 'Lê', 'Phạm', 'Hoàng', 'Huỳnh', 'Phan', 'Vũ', 'Võ', 'Đặng', 'Bùi', 'Đỗ'] v) f, "
+                    + "(SELECT ARRAY['Văn', 'Thị', 'Minh', 'Ngọc', 'Đức', 'Thanh', 'Quốc', 'Gia'] v) m, "
+                    + "(SELECT ARRAY['An', 'Bích', 'Châu', 'Dũng', 'Giang', 'Hải', 'Hoàng', 'Khánh', 'Linh', "
+                    + "'Mai', 'Nam', 'Phúc', 'Quân', 'Sơn', 'Trang', 'Tuấn', 'Uyên', 'Vy', 'Yến'] v) n");
+            stmt.execute("ANALYZE students");
+        }
+    }
+
+    private static void cleanUp() {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            int deleted = stmt.executeUpdate("DELETE FROM students WHERE address = '" + BENCH_ADDRESS + "'");
+            if (deleted > 0) {
+                System.out.println("Removed " + deleted + " benchmark students");
+            }
+        } catch (Exception e) {
+            System.err.println("Error removing benchmark data: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ui.components;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the virtualized card list, laid out in a viewport without a window.
+ * Cards have a fixed height per item, so positions can be checked exactly; the viewport has
+ * no peer, so each test lays the list out itself after scrolling.
+ */
+public class VirtualCardListTest {
+
+    private static final int WIDTH = 300;
+    private static final int VIEWPORT_HEIGHT = 200;
+    private static final int CARD_HEIGHT = 50;
+
+    /**
+     * A card of fixed height showing one item
+     */
+    private static class FixedCard extends JComponent {
+        final Object type;
+        Integer item;
+        int height;
+
+        FixedCard(Object type) {
+            this.type = type;
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(WIDTH, height);
+        }
+    }
+
+    private final Map<Integer, Integer> heightOverrides = new HashMap<>();
+    private final Map<Object, Integer> createdByType = new HashMap<>();
+    private final List<Integer> binds = new ArrayList<>();
+    private JViewport viewport;
+    private VirtualCardList<Integer> list;
+
+    @BeforeEach
+    void setUp() {
+        list = new VirtualCardList<>(new VirtualCardList.CardRenderer<Integer>() {
+            @Override
+            public JComponent createCard(Object type) {
+                createdByType.merge(type, 1, Integer::sum);
+                return new FixedCard(type);
+            }
+
+            @Override
+            public void bindCard(JComponent card, Integer item) {
+                FixedCard fixed = (FixedCard) card;
+                assertEquals(cardType(item), fixed.type, "Card bound to an item of another type");
+                fixed.item = item;
+                fixed.height = heightOverrides.getOrDefault(item, CARD_HEIGHT);
+                binds.add(item);
+            }
+
+            @Override
+            public Object cardType(Integer item) {
+                return item % 2 == 0 ? "even" : "odd";
+            }
+        });
+        viewport = new JViewport();
+        viewport.setView(list);
+        viewport.setSize(WIDTH, VIEWPORT_HEIGHT);
+    }
+
+    private static List<Integer> items(int from, int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    private void layout() {
+        viewport.doLayout();
+        list.doLayout();
+    }
+
+    private void scrollTo(int y) {
+        viewport.setViewPosition(new Point(0, y));
+        layout();
+    }
+
+    private FixedCard cardShowing(int item) {
+        for (Component child : list.getComponents()) {
+            if (child instanceof FixedCard card && child.isVisible() && card.item == item) {
+                return card;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void indexAtFindsTheItemCoveringAnOffset() {
+        list.setItems(items(0, 10));
+        layout();
+
+        assertEquals(0, list.indexAt(0));
+        assertEquals(0, list.indexAt(CARD_HEIGHT - 1));
+        assertEquals(1, list.indexAt(CARD_HEIGHT));
+        assertEquals(4, list.indexAt(4 * CARD_HEIGHT + 10));
+        assertEquals(0, list.indexAt(-20), "Clamped to the first item");
+        assertEquals(9, list.indexAt(100 * CARD_HEIGHT), "Clamped to the last item");
+    }
+
+    @Test
+    void onlyItemsNearTheViewportHaveCards() {
+        list.setItems(items(0, 1000));
+        layout();
+
+        assertEquals(1000 * CARD_HEIGHT, list.getPreferredSize().height);
+        // Four visible items, the one at the bottom edge, and three below for overscan
+        assertEquals(8, binds.size());
+        assertNotNull(cardShowing(7));
+        assertNull(cardShowing(8));
+    }
+
+    @Test
+    void itemsInsertedAboveTheViewportKeepVisibleCardsInPlace() {
+        list.setItems(items(0, 100));
+        layout();
+        scrollTo(20 * CARD_HEIGHT);
+
+        list.insertItems(0, items(1000, 5));
+        layout();
+
+        assertEquals(25 * CARD_HEIGHT, viewport.getViewPosition().y);
+        assertEquals(25, list.indexAt(viewport.getViewPosition().y));
+        assertEquals(20, list.getItem(25));
+        assertEquals(25 * CARD_HEIGHT, cardShowing(20).getY());
+    }
+
+    @Test
+    void itemsInsertedBelowTheViewportDoNotMoveIt() {
+        list.setItems(items(0, 100));
+        layout();
+        scrollTo(20 * CARD_HEIGHT);
+
+        list.insertItems(90, items(1000, 5));
+        layout();
+
+        assertEquals(20 * CARD_HEIGHT, viewport.getViewPosition().y);
+        assertEquals(105 * CARD_HEIGHT, list.getPreferredSize().height);
+    }
+
+    @Test
+    void changedItemIsReboundAndMeasuredAgain() {
+        list.setItems(items(0, 5)); // All in range, so none counts with the average height
+        layout();
+        heightOverrides.put(2, 120);
+
+        list.itemChanged(2);
+        layout();
+
+        assertEquals(4 * CARD_HEIGHT + 120, list.getPreferredSize().height);
+        assertEquals(120, cardShowing(2).getHeight());
+        assertEquals(2 * CARD_HEIGHT + 120, cardShowing(3).getY(), "Items below move down");
+        assertEquals(2, list.indexAt(2 * CARD_HEIGHT + 100));
+        assertEquals(3, list.indexAt(2 * CARD_HEIGHT + 120));
+    }
+
+    @Test
+    void cardsAreReusedOnlyForItemsOfTheirType() {
+        list.setItems(items(0, 1000));
+        layout();
+        assertEquals(Map.of("even", 4, "odd", 4), createdByType);
+
+        // A range of 11 items around item 100: 6 odd, 5 even, so three more cards are needed
+        scrollTo(100 * CARD_HEIGHT);
+        assertEquals(Map.of("even", 5, "odd", 6), createdByType);
+
+        // Ranges elsewhere with the same mix are served entirely from the pool
+        scrollTo(50 * CARD_HEIGHT);
+        scrollTo(700 * CARD_HEIGHT);
+        assertEquals(Map.of("even", 5, "odd", 6), createdByType);
+        assertEquals(11, list.getComponentCount(), "Pooled cards stay children of the list");
+    }
+}
@@ -0,0 +1,159 @@
+package util;
+
+import dao.BlobDAO;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks blob reference counting, deduplication and grace-period collection against a real
+ * database, with content kept in a temporary directory. Requires the sample database; skipped
+ * without one. Stores unique content and deletes its rows afterwards.
+ */
+public class BlobStoreConsistencyTest {
+
+    @TempDir
+    Path root;
+
+    private final BlobDAO blobDAO = new BlobDAO();
+    private final List<String> stored = new ArrayList<>();
+    private FileSystemBlobBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(TestDatabase.isAvailable(), "Sample database not available");
+        backend = new FileSystemBlobBackend(root);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (stored.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM blobs WHERE hash = ?")) {
+            for (String hash : stored) {
+                stmt.setString(1, hash);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    @Test
+    void identicalContentIsStoredOnceAndCounted() throws Exception {
+        BlobStore store = new BlobStore(blobDAO, backend, 24);
+        byte[] data = uniqueContent();
+
+        String first = store(store, data);
+        String second = store(store, data);
+
+        assertEquals(first, second);
+        assertEquals(2, refCount(first));
+        assertArrayEquals(data, store.read(first));
+        try (var files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void releaseCountsDownAndMarksUnreferencedOnce() throws Exception {
+        BlobStore store = new BlobStore(blobDAO, backend, 24);
+        String hash = store(store, uniqueContent());
+        store(store, store.read(hash));
+
+        release(store, hash);
+        assertEquals(1, refCount(hash));
+        assertFalse(isReleased(hash));
+
+        release(store, hash);
+        assertEquals(0, refCount(hash));
+        assertTrue(isReleased(hash));
+
+        // Storing the content again takes it back before it is collected
+        store(store, store.read(hash));
+        assertEquals(1, refCount(hash));
+        assertFalse(isReleased(hash));
+    }
+
+    @Test
+    void unreferencedBlobIsKeptForTheGracePeriod() throws Exception {
+        BlobStore store = new BlobStore(blobDAO, backend, 24);
+        String hash = store(store, uniqueContent());
+        release(store, hash);
+
+        store.collectGarbage();
+
+        assertTrue(exists(hash));
+        assertTrue(Files.exists(backend.pathFor(hash)));
+    }
+
+    @Test
+    void unreferencedBlobIsCollectedAfterTheGracePeriod() throws Exception {
+        BlobStore store = new BlobStore(blobDAO, backend, 0);
+        String hash = store(store, uniqueContent());
+        release(store, hash);
+
+        store.collectGarbage();
+
+        assertFalse(exists(hash));
+        assertFalse(Files.exists(backend.pathFor(hash)));
+        assertNull(store.read(hash));
+    }
+
+    private String store(BlobStore store, byte[] data) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            String hash = store.store(conn, data);
+            conn.commit();
+            stored.add(hash);
+            return hash;
+        }
+    }
+
+    private void release(BlobStore store, String hash) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            store.release(conn, hash);
+            conn.commit();
+        }
+    }
+
+    private static byte[] uniqueContent() {
+        return UUID.randomUUID().toString().getBytes();
+    }
+
+    private static int refCount(String hash) throws SQLException {
+        return queryInt("SELECT ref_count FROM blobs WHERE hash = ?", hash);
+    }
+
+    private static boolean isReleased(String hash) throws SQLException {
+        return queryInt("SELECT CASE WHEN released_at IS NULL THEN 0 ELSE 1 END FROM blobs WHERE hash = ?", hash) == 1;
+    }
+
+    private static boolean exists(String hash) throws SQLException {
+        return queryInt("SELECT COUNT(*) FROM blobs WHERE hash = ?", hash) > 0;
+    }
+
+    private static int queryInt(String sql, String hash) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, hash);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next(), "No row for blob " + hash);
+                return rs.getInt(1);
+            }
+        }
+    }
+}
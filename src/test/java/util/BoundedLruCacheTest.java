@@ -0,0 +1,61 @@
+package util;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+/**
+ * Unit tests for the weight-bounded LRU cache and its entry expiry
+ */
+public class BoundedLruCacheTest {
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedPastTheWeightLimit() {
+        BoundedLruCache<String, String> cache = new BoundedLruCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+
+        cache.put("c", "cccc");
+
+        assertEquals("aaaa", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(8, cache.getTotalWeight());
+    }
+
+    @Test
+    void entriesExpireAfterTheirTimeToLive() throws InterruptedException {
+        BoundedLruCache<String, String> cache = new BoundedLruCache<>(100, String::length, Duration.ofMillis(20));
+        cache.put("a", "aaaa");
+        assertEquals("aaaa", cache.get("a"));
+
+        Thread.sleep(50);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getTotalWeight());
+    }
+
+    @Test
+    void puttingAgainRestartsTheTimeToLive() throws InterruptedException {
+        BoundedLruCache<String, String> cache = new BoundedLruCache<>(100, String::length, Duration.ofMillis(200));
+        cache.put("a", "old");
+        Thread.sleep(120);
+
+        cache.put("a", "new");
+        Thread.sleep(120);
+
+        assertEquals("new", cache.get("a"));
+    }
+
+    @Test
+    void entriesWithoutTimeToLiveStay() throws InterruptedException {
+        BoundedLruCache<String, String> cache = new BoundedLruCache<>(100, String::length);
+        cache.put("a", "aaaa");
+
+        Thread.sleep(20);
+
+        assertEquals("aaaa", cache.get("a"));
+    }
+}
@@ -0,0 +1,249 @@
+package util;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the JDBC connection pool
+ * Uses stub connections so no database is required
+ */
+public class ConnectionPoolTest {
+
+    private AtomicInteger opened;
+    private AtomicInteger physicallyClosed;
+    private AtomicInteger prepared;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        opened = new AtomicInteger();
+        physicallyClosed = new AtomicInteger();
+        prepared = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private ConnectionPool newPool(int min, int max, long timeoutMs) {
+        return newPool(min, max, timeoutMs, 0);
+    }
+
+    private ConnectionPool newPool(int min, int max, long timeoutMs, int statementCacheSize) {
+        ConnectionPool.PoolConfig config = new ConnectionPool.PoolConfig();
+        config.setStatementCacheSize(statementCacheSize);
+        config.setMinSize(min);
+        config.setMaxSize(max);
+        config.setConnectionTimeoutMs(timeoutMs);
+        config.setLeakDetectionThresholdMs(0);
+        config.setHousekeepingIntervalMs(60000);
+        pool = new ConnectionPool(this::stubConnection, config);
+        return pool;
+    }
+
+    private Connection stubConnection() {
+        opened.incrementAndGet();
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                physicallyClosed.incrementAndGet();
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "isValid":
+                        case "getAutoCommit":
+                            return true;
+                        case "isReadOnly":
+                            return false;
+                        case "prepareStatement":
+                            prepared.incrementAndGet();
+                            return stubStatement();
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private PreparedStatement stubStatement() {
+        int[] queryTimeout = new int[1];
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setQueryTimeout":
+                            queryTimeout[0] = (Integer) args[0];
+                            return null;
+                        case "getQueryTimeout":
+                            return queryTimeout[0];
+                        case "executeQuery":
+                            return stubResultSet(proxy);
+                        default:
+                            break;
+                    }
+                    if (method.getReturnType() == int.class) {
+                        return 0;
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+    }
+
+    private ResultSet stubResultSet(Object statement) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> "getStatement".equals(method.getName()) ? statement : null);
+    }
+
+    @Test
+    @DisplayName("Closed connections are reused instead of reopened")
+    void testConnectionReuse() throws SQLException {
+        newPool(0, 5, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            try (Connection conn = pool.getConnection()) {
+                assertFalse(conn.isClosed(), "Borrowed connection should be open");
+            }
+        }
+
+        assertEquals(1, opened.get(), "Sequential borrows should share one physical connection");
+        assertEquals(0, physicallyClosed.get(), "Returning a connection should not close it");
+
+        ConnectionPool.PoolStats stats = pool.getStats();
+        assertEquals(10, stats.getBorrowCount());
+        assertEquals(0, stats.getActiveConnections());
+        assertEquals(1, stats.getIdleConnections());
+    }
+
+    @Test
+    @DisplayName("Pool never exceeds its maximum size and times out when exhausted")
+    void testBoundedSize() throws SQLException {
+        newPool(0, 2, 100);
+
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertEquals(100.0, pool.getStats().getUtilization(), 0.001);
+
+        assertThrows(SQLException.class, () -> pool.getConnection(), "Third borrow should time out");
+        assertEquals(1, pool.getStats().getTimeoutCount());
+        assertEquals(2, opened.get());
+
+        first.close();
+        try (Connection third = pool.getConnection()) {
+            assertNotNull(third);
+        }
+        second.close();
+        assertEquals(2, opened.get(), "Freed connection should be handed to the next borrower");
+    }
+
+    @Test
+    @DisplayName("A minimum size above the maximum is rejected")
+    void testMinAboveMaxRejected() {
+        assertThrows(IllegalArgumentException.class, () -> newPool(5, 2, 100));
+        assertEquals(0, opened.get());
+    }
+
+    @Test
+    @DisplayName("A returned proxy cannot be used again")
+    void testClosedProxyRejected() throws SQLException {
+        newPool(0, 1, 100);
+
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close(); // Double close is a no-op
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertEquals(1, pool.getStats().getIdleConnections());
+    }
+
+    @Test
+    @DisplayName("Housekeeping fills the pool up to its minimum size")
+    void testMinimumIdle() {
+        newPool(3, 5, 100);
+
+        pool.housekeep();
+
+        assertEquals(3, opened.get());
+        assertEquals(3, pool.getStats().getIdleConnections());
+    }
+
+    @Test
+    @DisplayName("Prepared statements are reused across leases of the same connection")
+    void testStatementCache() throws SQLException {
+        newPool(0, 1, 100, 2);
+        String sql = "SELECT * FROM attendance WHERE student_id = ?";
+
+        for (int i = 0; i < 5; i++) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, i);
+                stmt.executeQuery();
+            }
+        }
+
+        assertEquals(1, prepared.get(), "Statement should only be prepared once");
+        ConnectionPool.PoolStats stats = pool.getStats();
+        assertEquals(4, stats.getStatementCacheHits());
+        assertEquals(1, stats.getStatementCacheMisses());
+    }
+
+    @Test
+    @DisplayName("Statement cache evicts the least recently used entry and handles concurrent use of one SQL")
+    void testStatementCacheEviction() throws SQLException {
+        newPool(0, 1, 100, 2);
+
+        try (Connection conn = pool.getConnection()) {
+            PreparedStatement a1 = conn.prepareStatement("SELECT 1");
+            PreparedStatement a2 = conn.prepareStatement("SELECT 1"); // Same SQL still open
+            a1.close();
+            a2.close();
+            assertThrows(SQLException.class, () -> a1.executeQuery(), "Closed statement proxy must not be usable");
+
+            conn.prepareStatement("SELECT 2").close();
+            conn.prepareStatement("SELECT 3").close(); // Evicts SELECT 1
+            conn.prepareStatement("SELECT 1").close();
+        }
+
+        assertEquals(5, prepared.get());
+        assertEquals(2, pool.getStats().getStatementCacheEvictions());
+    }
+
+    @Test
+    @DisplayName("Cached statements are reset for the next borrower and result sets lead back to the proxy")
+    void testStatementStateReset() throws SQLException {
+        newPool(0, 1, 100, 2);
+        String sql = "SELECT * FROM posts WHERE id = ?";
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(30);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertSame(stmt, rs.getStatement());
+            }
+        }
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            assertEquals(1, prepared.get(), "Statement should come from the cache");
+            assertEquals(0, stmt.getQueryTimeout(), "Query timeout must not leak to the next borrower");
+        }
+    }
+}
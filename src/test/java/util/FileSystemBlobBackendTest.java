@@ -0,0 +1,106 @@
+package util;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the file system blob backend and content hashing
+ * Writes to a temporary directory; the backend never touches its connection, so none is required
+ */
+public class FileSystemBlobBackendTest {
+
+    @TempDir
+    Path root;
+
+    private FileSystemBlobBackend backend;
+    private AtomicInteger opens;
+
+    @BeforeEach
+    void setUp() {
+        backend = new FileSystemBlobBackend(root);
+        opens = new AtomicInteger();
+    }
+
+    private BlobBackend.Content content(byte[] data) {
+        return new BlobBackend.Content() {
+            @Override
+            public InputStream open() {
+                opens.incrementAndGet();
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public long size() {
+                return data.length;
+            }
+        };
+    }
+
+    @Test
+    void writtenContentCanBeReadAndCopied() throws Exception {
+        byte[] data = "class photo".getBytes(StandardCharsets.UTF_8);
+        String hash = BlobStore.sha256(data);
+
+        backend.write(null, hash, content(data));
+
+        assertArrayEquals(data, backend.read(hash));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(backend.copyTo(hash, out));
+        assertArrayEquals(data, out.toByteArray());
+        assertTrue(Files.exists(root.resolve(hash.substring(0, 2)).resolve(hash)));
+    }
+
+    @Test
+    void sameContentIsWrittenOnce() throws Exception {
+        byte[] data = "forwarded attachment".getBytes(StandardCharsets.UTF_8);
+        String hash = BlobStore.sha256(data);
+
+        backend.write(null, hash, content(data));
+        backend.write(null, hash, content(data));
+
+        assertEquals(1, opens.get());
+        try (var files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count(), "No temporary files left behind");
+        }
+    }
+
+    @Test
+    void missingBlobIsReported() throws IOException {
+        String hash = BlobStore.sha256(new byte[] {1, 2, 3});
+
+        assertNull(backend.read(hash));
+        assertFalse(backend.copyTo(hash, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void deleteRemovesContent() throws Exception {
+        byte[] data = {4, 5, 6};
+        String hash = BlobStore.sha256(data);
+        backend.write(null, hash, content(data));
+
+        backend.delete(hash);
+        backend.delete(hash); // Already gone
+
+        assertNull(backend.read(hash));
+    }
+
+    @Test
+    void fileHashMatchesByteHash() throws IOException {
+        byte[] data = "same bytes".getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(root.resolve("upload.txt"), data);
+
+        assertEquals(BlobStore.sha256(data), BlobStore.sha256(file));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                BlobStore.sha256("abc".getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,95 @@
+package util;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import util.GrowthStandards.Indicator;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+/**
+ * Unit tests for the growth reference z-scores and percentiles
+ */
+public class GrowthStandardsTest {
+
+    private static final double EPSILON = 1e-6;
+
+    private final GrowthStandards standards = GrowthStandards.get();
+
+    @Test
+    void medianHasZeroScoreAndFiftiethPercentile() {
+        assertEquals(0, standards.zScore(Indicator.HEIGHT, true, 48, 103.3), EPSILON);
+        assertEquals(0, standards.zScore(Indicator.WEIGHT, false, 36, 13.9), EPSILON);
+        assertEquals(50, GrowthStandards.percentile(0), 1e-4);
+    }
+
+    @Test
+    void heightScoreIsDistanceFromMedianInCoefficientsOfVariation() {
+        // L = 1: z = (X/M - 1) / S
+        double twoSd = 103.3 * (1 + 2 * 0.0393);
+        assertEquals(2, standards.zScore(Indicator.HEIGHT, true, 48, twoSd), EPSILON);
+    }
+
+    @Test
+    void parametersAreInterpolatedBetweenAges() {
+        // Halfway between the 48 and 54 month medians
+        assertEquals(0, standards.zScore(Indicator.HEIGHT, true, 51, 105.0), EPSILON);
+        assertEquals(105.0, standards.valueAt(Indicator.HEIGHT, true, 51, 0), EPSILON);
+    }
+
+    @Test
+    void valueAtIsTheInverseOfZScore() {
+        for (double z = -2.5; z <= 2.5; z += 0.5) {
+            double weight = standards.valueAt(Indicator.WEIGHT, false, 44, z);
+            assertEquals(z, standards.zScore(Indicator.WEIGHT, false, 44, weight), EPSILON);
+        }
+    }
+
+    @Test
+    void weightBeyondThreeSdIsExtrapolatedFromTheTwoToThreeSdDistance() {
+        double sd3 = standards.valueAt(Indicator.BMI, true, 60, 3);
+        double sd2 = standards.valueAt(Indicator.BMI, true, 60, 2);
+        double bmi = sd3 + (sd3 - sd2) / 2;
+        assertEquals(3.5, standards.zScore(Indicator.BMI, true, 60, bmi), EPSILON);
+    }
+
+    @Test
+    void agesOutsideTheReferenceHaveNoScore() {
+        assertTrue(Double.isNaN(standards.zScore(Indicator.HEIGHT, true, 12, 75)));
+        assertTrue(Double.isNaN(standards.zScore(Indicator.HEIGHT, true, 120, 140)));
+        assertTrue(Double.isNaN(standards.zScore(Indicator.HEIGHT, true, Double.NaN, 100)));
+        assertTrue(Double.isNaN(standards.zScore(Indicator.WEIGHT, true, 48, 0)));
+        assertTrue(Double.isNaN(GrowthStandards.percentile(Double.NaN)));
+    }
+
+    @Test
+    void percentilesFollowTheNormalDistribution() {
+        assertEquals(97.5, GrowthStandards.percentile(1.96), 0.01);
+        assertEquals(2.5, GrowthStandards.percentile(-1.96), 0.01);
+        assertEquals(84.13, GrowthStandards.percentile(1), 0.01);
+    }
+
+    @Test
+    void batchScoresMatchSingleScores() {
+        boolean[] male = {true, false, true, false};
+        double[] ages = {30, 41.5, 66, 90};
+        double[] bmis = {16.2, 14.8, 17.9, 15.0};
+        double[] out = new double[4];
+        standards.zScores(Indicator.BMI, male, ages, bmis, out);
+
+        for (int i = 0; i < out.length; i++) {
+            assertEquals(standards.zScore(Indicator.BMI, male[i], ages[i], bmis[i]), out[i], 0);
+        }
+        assertTrue(Double.isNaN(out[3]));
+    }
+
+    @Test
+    void incompleteReferenceIsRejected() {
+        String csv = "indicator,sex,age_months,l,m,s\nHEIGHT,M,24,1,87.1,0.0351\n";
+        assertThrows(IllegalStateException.class,
+                () -> GrowthStandards.read(new BufferedReader(new StringReader(csv))));
+        assertThrows(IllegalStateException.class,
+                () -> GrowthStandards.read(new BufferedReader(new StringReader("HEIGHT,X,24,1,87.1,0.0351\n"))));
+    }
+}
@@ -0,0 +1,101 @@
+package util;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.swing.ImageIcon;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the decoded image cache
+ * Uses in-memory images so no resources or database are required
+ */
+public class ImageCacheTest {
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        loads = new AtomicInteger();
+    }
+
+    private ImageIcon load(int width, int height) {
+        loads.incrementAndGet();
+        return new ImageIcon(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Test
+    void repeatedLookupIsServedFromCache() {
+        ImageCache cache = new ImageCache(1024 * 1024);
+
+        ImageIcon first = cache.get("a", 10, 10, () -> load(10, 10));
+        ImageIcon second = cache.get("a", 10, 10, () -> load(10, 10));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+        assertEquals(50.0, cache.getStats().getHitRate(), 0.001);
+    }
+
+    @Test
+    void sizeIsPartOfTheKey() {
+        ImageCache cache = new ImageCache(1024 * 1024);
+
+        cache.get("a", 10, 10, () -> load(10, 10));
+        cache.get("a", 20, 20, () -> load(20, 20));
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.getStats().getStrongEntries());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondPixelBudget() {
+        // Room for two 10x10 icons at 4 bytes per pixel
+        ImageCache cache = new ImageCache(800);
+
+        cache.get("a", 10, 10, () -> load(10, 10));
+        cache.get("b", 10, 10, () -> load(10, 10));
+        cache.get("a", 10, 10, () -> load(10, 10));
+        cache.get("c", 10, 10, () -> load(10, 10));
+
+        ImageCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getStrongEntries());
+        assertEquals(800, stats.getStrongBytes());
+        assertEquals(1, stats.getSoftEntries(), "Evicted icon should move to the soft tier");
+    }
+
+    @Test
+    void evictedIconIsRecoveredFromSoftTier() {
+        ImageCache cache = new ImageCache(400);
+
+        ImageIcon a = cache.get("a", 10, 10, () -> load(10, 10));
+        cache.get("b", 10, 10, () -> load(10, 10));
+        ImageIcon again = cache.get("a", 10, 10, () -> load(10, 10));
+
+        // Still strongly reachable here, so the soft reference cannot have been cleared
+        assertSame(a, again);
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStats().getSoftHits());
+    }
+
+    @Test
+    void nullResultsAreNotCached() {
+        ImageCache cache = new ImageCache(1024);
+
+        assertNull(cache.get("missing", 10, 10, () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        cache.get("missing", 10, 10, () -> load(10, 10));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void contentKeyDependsOnBytesOnly() {
+        assertEquals(ImageCache.contentKey(new byte[] { 1, 2, 3 }), ImageCache.contentKey(new byte[] { 1, 2, 3 }));
+        assertNotEquals(ImageCache.contentKey(new byte[] { 1, 2, 3 }), ImageCache.contentKey(new byte[] { 1, 2, 4 }));
+    }
+}
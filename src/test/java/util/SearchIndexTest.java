@@ -0,0 +1,87 @@
+package util;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+
+/**
+ * Unit tests for the in-memory search index used by the management tables
+ */
+public class SearchIndexTest {
+
+    private SearchIndex<Integer> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchIndex<>();
+        index.put(1, "Trần Văn An");
+        index.put(2, "Nguyễn Thị Bích");
+        index.put(3, "Lê Minh Hoàng");
+        index.put(4, "Đặng Thanh Hải");
+    }
+
+    @Test
+    void matchesIgnoringCaseAndDiacritics() {
+        assertEquals(Set.of(3), index.search("hoang"));
+        assertEquals(Set.of(3), index.search("HOÀNG"));
+        assertEquals(Set.of(4), index.search("dang"));
+    }
+
+    @Test
+    void matchesPrefixesAndSubstringsOfWords() {
+        assertEquals(Set.of(2), index.search("ngu"));
+        assertEquals(Set.of(3), index.search("oan"));
+        assertEquals(Set.of(1, 3, 4), index.search("an"));
+        assertEquals(Set.of(2), index.search("b"));
+    }
+
+    @Test
+    void everyQueryWordMustMatch() {
+        assertEquals(Set.of(1), index.search("tran an"));
+        assertEquals(Set.of(1), index.search("an tran"));
+        assertTrue(index.search("tran bich").isEmpty());
+    }
+
+    @Test
+    void queryWordsDoNotSpanEntryWords() {
+        // "nan" only appears across "tran" and "an" / "van" and "an"
+        assertTrue(index.search("nan").isEmpty());
+        assertTrue(index.search("anvan").isEmpty());
+    }
+
+    @Test
+    void blankQueryMatchesEverything() {
+        assertEquals(Set.of(1, 2, 3, 4), index.search("  "));
+        assertEquals(Set.of(1, 2, 3, 4), index.search(null));
+    }
+
+    @Test
+    void entriesAreReplacedAndRemoved() {
+        index.put(1, "Phạm Quốc Tuấn");
+        assertTrue(index.search("tran").isEmpty());
+        assertEquals(Set.of(1), index.search("tuan"));
+        assertEquals(4, index.size());
+
+        index.remove(1);
+        index.remove(99); // Unknown keys are ignored
+        assertTrue(index.search("tuan").isEmpty());
+        assertFalse(index.contains(1));
+        assertEquals(Set.of(3, 4), index.search("an"));
+    }
+
+    @Test
+    void sharedWordsSurviveRemovalOfOneEntry() {
+        index.put(5, "Trần Thị Mai");
+        index.remove(1);
+
+        assertEquals(Set.of(5), index.search("tran"));
+    }
+
+    @Test
+    void singleEntryMatchesLikeSearch() {
+        assertTrue(index.matches(1, "van an"));
+        assertFalse(index.matches(1, "hoang"));
+        assertFalse(index.matches(99, "an"));
+    }
+}
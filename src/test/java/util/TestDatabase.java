@@ -0,0 +1,22 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Shared by the tests that need the sample database, which skip themselves with
+ * {@code assumeTrue(TestDatabase.isAvailable(), ...)} when it cannot be reached
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    public static boolean isAvailable() {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            return conn.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package util;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for search text folding
+ */
+public class TextNormalizerTest {
+
+    @Test
+    void vietnameseDiacriticsAreRemoved() {
+        assertEquals("tran van an", TextNormalizer.fold("Trần Văn An"));
+        assertEquals("le minh hoang", TextNormalizer.fold("Lê Minh Hoàng"));
+        assertEquals("nguyen thi bich", TextNormalizer.fold("NGUYỄN THỊ BÍCH"));
+    }
+
+    @Test
+    void dWithStrokeBecomesD() {
+        assertEquals("dang duc", TextNormalizer.fold("Đặng Đức"));
+    }
+
+    @Test
+    void decomposedInputFoldsLikePrecomposed() {
+        String decomposed = java.text.Normalizer.normalize("Phạm Quỳnh", java.text.Normalizer.Form.NFD);
+        assertEquals(TextNormalizer.fold("Phạm Quỳnh"), TextNormalizer.fold(decomposed));
+    }
+
+    @Test
+    void whitespaceIsCollapsedAndTrimmed() {
+        assertEquals("tran van an", TextNormalizer.fold("  Trần\tVăn   An "));
+    }
+
+    @Test
+    void foldedTextIsUnchanged() {
+        String folded = "tran van an 2";
+        assertSame(folded, TextNormalizer.fold(folded));
+        assertEquals("", TextNormalizer.fold(null));
+        assertEquals("", TextNormalizer.fold("   "));
+    }
+}